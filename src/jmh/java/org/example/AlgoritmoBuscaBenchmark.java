@@ -0,0 +1,136 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compara as implementações de {@link AlgoritmoBusca} sobre textos do tamanho de um resumo.
+ *
+ * Cada operação percorre {@value #TEXTOS} textos. Variam o tamanho do padrão, o alfabeto
+ * e a fração de textos que contêm o padrão; em alfabetos pequenos ("dna") padrões curtos
+ * também aparecem por acaso, então a taxa de acerto real pode ser maior que a pedida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgoritmoBuscaBenchmark {
+
+    private static final int TEXTOS = 256;
+    private static final int TAMANHO_TEXTO = 1500;
+
+    @Param({"boyer-moore", "shift-or", "bndm", "indexof", "aho-corasick", "auto"})
+    private String algoritmo;
+
+    @Param({"2", "4", "8", "32"})
+    private int tamanhoPadrao;
+
+    /** latim: letras minúsculas e espaço; dna: só "acgt"; unicode: latim misturado com letras gregas */
+    @Param({"latim", "dna", "unicode"})
+    private String alfabeto;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double taxaAcerto;
+
+    private AlgoritmoBusca busca;
+    private String padrao;
+    private PadraoCompilado padraoCompilado;
+    private String[] textos;
+    private ColunaTexto coluna;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        String caracteres = caracteres(alfabeto);
+
+        busca = SeletorAlgoritmo.porNome(algoritmo);
+        padrao = sortear(random, caracteres, tamanhoPadrao);
+        padraoCompilado = busca.compilar(padrao);
+
+        textos = new String[TEXTOS];
+        int comPadrao = (int) Math.round(taxaAcerto * TEXTOS);
+        for (int i = 0; i < TEXTOS; i++) {
+            StringBuilder texto = new StringBuilder(sortear(random, caracteres, TAMANHO_TEXTO));
+            if (i < comPadrao) {
+                int posicao = random.nextInt(TAMANHO_TEXTO - tamanhoPadrao);
+                texto.replace(posicao, posicao + tamanhoPadrao, padrao);
+            }
+            textos[i] = texto.toString();
+        }
+        Collections.shuffle(Arrays.asList(textos), random);
+
+        ColunaTexto.Construtor construtor = new ColunaTexto.Construtor();
+        for (String texto : textos) {
+            construtor.adicionar(texto);
+        }
+        coluna = construtor.construir();
+    }
+
+    private static String caracteres(String alfabeto) {
+        switch (alfabeto) {
+            case "latim":
+                return "abcdefghijklmnopqrstuvwxyz     ";
+            case "dna":
+                return "acgt";
+            case "unicode":
+                return "abcdefghijklmnopqrstuvwxyz αβγδεθλμπσφω";
+            default:
+                throw new IllegalArgumentException("Alfabeto desconhecido: " + alfabeto);
+        }
+    }
+
+    private static String sortear(Random random, String caracteres, int tamanho) {
+        char[] texto = new char[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            texto[i] = caracteres.charAt(random.nextInt(caracteres.length()));
+        }
+        return new String(texto);
+    }
+
+    /**
+     * Interface antiga: as tabelas do padrão são recalculadas a cada texto.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TEXTOS)
+    public void buscar(Blackhole blackhole) {
+        for (String texto : textos) {
+            blackhole.consume(busca.buscar(texto, padrao));
+        }
+    }
+
+    /**
+     * Padrão compilado uma vez, como na busca dos servidores.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TEXTOS)
+    public void buscarCompilado(Blackhole blackhole) {
+        for (String texto : textos) {
+            blackhole.consume(padraoCompilado.buscar(texto));
+        }
+    }
+
+    /**
+     * Padrão compilado sobre uma coluna do corpus ({@code CharBuffer}), onde os servidores
+     * realmente buscam e as intrínsecas de {@code String} não se aplicam.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TEXTOS)
+    public void buscarCompiladoColuna(Blackhole blackhole) {
+        CharSequence caracteres = coluna.getCaracteres();
+        for (int i = 0; i < TEXTOS; i++) {
+            blackhole.consume(padraoCompilado.buscar(caracteres, coluna.inicio(i), coluna.fim(i)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTOS)
+    public void buscarTodos(Blackhole blackhole) {
+        for (String texto : textos) {
+            blackhole.consume(busca.buscarTodos(texto, padrao));
+        }
+    }
+}
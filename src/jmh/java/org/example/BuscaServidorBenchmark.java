@@ -0,0 +1,70 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mede o caminho completo de busca de um servidor (índice de trigramas, verificação
+ * dos candidatos e montagem dos resultados) sobre um corpus sintético em memória.
+ * O cache de resultados não participa: cada operação é uma busca nova.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BuscaServidorBenchmark {
+
+    @Param({"10000", "50000"})
+    private int artigos;
+
+    /**
+     * comum: a palavra mais frequente (muitos resultados); rara: a menos frequente;
+     * frase: início de um título real; curta: menos de 3 caracteres, sem ajuda do índice
+     */
+    @Param({"comum", "rara", "frase", "curta"})
+    private String consulta;
+
+    private ServidorBusca servidor;
+    private String query;
+
+    @Setup
+    public void preparar() {
+        GeradorCorpusSintetico gerador = new GeradorCorpusSintetico(20000);
+        CorpusArtigos corpus = gerador.gerarCorpus(artigos, 42);
+
+        servidor = new ServidorBusca(0, "Benchmark", "") {
+        };
+        servidor.carregarCorpus(corpus);
+
+        switch (consulta) {
+            case "comum":
+                query = gerador.palavra(0);
+                break;
+            case "rara":
+                query = gerador.palavra(gerador.tamanhoVocabulario() - 1);
+                break;
+            case "frase":
+                String[] palavras = corpus.getTitulos().texto(0).split(" ");
+                query = palavras[0] + " " + palavras[1];
+                break;
+            case "curta":
+                query = gerador.palavra(0).substring(0, 2);
+                break;
+            default:
+                throw new IllegalArgumentException("Consulta desconhecida: " + consulta);
+        }
+    }
+
+    @TearDown
+    public void encerrar() {
+        servidor.parar();
+    }
+
+    @Benchmark
+    public List<Resultado> buscar() {
+        return servidor.buscar(query);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH e sempre liga o
+ * profiler de GC, para que a taxa de alocação apareça junto com a vazão.
+ */
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linhaComando = new CommandLineOptions(args);
+
+        if (linhaComando.shouldHelp() || linhaComando.shouldList() || linhaComando.shouldListWithParams()
+                || linhaComando.shouldListProfilers() || linhaComando.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linhaComando);
+        boolean comGc = linhaComando.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals("gc")
+                        || profiler.getKlass().equals(GCProfiler.class.getName()));
+        if (!comGc) {
+            opcoes.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(opcoes.build()).run();
+    }
+}
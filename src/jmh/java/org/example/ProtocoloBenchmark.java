@@ -0,0 +1,65 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara o custo de serializar uma resposta de servidor de busca (lado do servidor) e de
+ * lê-la (lado do Servidor A) em JSON e no {@link ProtocoloBinario}. Rodar com o GCProfiler
+ * (padrão do ExecutarBenchmarks) para ver também os bytes alocados por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocoloBenchmark {
+
+    @Param({"json", "binario"})
+    private String protocolo;
+
+    @Param({"16", "256"})
+    private int resultados;
+
+    private List<Resultado> lista;
+    private String linha;
+    private ByteBuffer quadro;
+
+    @Setup
+    public void preparar() {
+        CorpusArtigos corpus = new GeradorCorpusSintetico(20000).gerarCorpus(resultados, 42);
+        lista = new ArrayList<>(resultados);
+        for (int i = 0; i < resultados; i++) {
+            lista.add(new Resultado(corpus.getTitulos().texto(i), corpus.getResumos().texto(i, 200) + "...",
+                    corpus.getRotulos().texto(i), "Servidor B", Double.NaN));
+        }
+
+        StringBuilder json = new StringBuilder();
+        SaidaBusca.json(json::append).resposta(1, "Servidor B", 0, resultados, lista);
+        linha = json.toString();
+        quadro = ProtocoloBinario.codificarResposta(1, "Servidor B", 0, resultados, lista);
+    }
+
+    @Benchmark
+    public Object codificar() {
+        if ("json".equals(protocolo)) {
+            Object[] saida = new Object[1];
+            SaidaBusca.json(linha -> saida[0] = linha).resposta(1, "Servidor B", 0, resultados, lista);
+            return saida[0];
+        }
+        return ProtocoloBinario.codificarResposta(1, "Servidor B", 0, resultados, lista);
+    }
+
+    @Benchmark
+    public RespostaShard decodificar() {
+        if ("json".equals(protocolo)) {
+            return RespostaShard.deJson(new JSONObject(linha));
+        }
+        // Quadro recebido: lido do início, sem os 4 bytes do tamanho
+        return ProtocoloBinario.lerResposta(quadro.duplicate().position(4));
+    }
+}
@@ -0,0 +1,220 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Implementação do algoritmo Aho-Corasick para busca de vários padrões ao mesmo tempo.
+ *
+ * Os padrões são montados em um autômato (trie com links de falha convertida em
+ * tabela de transições), que lê cada caractere do texto uma única vez e reconhece
+ * todas as ocorrências de todos os padrões, independentemente de quantos sejam.
+ * É usado nas buscas com vários termos, que antes precisariam de uma passada por termo.
+ *
+ * Também implementa {@link AlgoritmoBusca} para um único padrão.
+ */
+public class AhoCorasick implements AlgoritmoBusca {
+
+    /** Quantidade máxima de padrões por autômato (um bit por padrão em {@link Automato#encontrados}) */
+    public static final int MAXIMO_PADROES = Long.SIZE;
+
+    @Override
+    public int buscar(String texto, String padrao) {
+        return buscar(texto, 0, texto.length(), padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return compilar(padrao).buscar(texto, inicio, fim);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        Automato automato = compilar(List.of(padrao));
+        return automato::primeiraOcorrencia;
+    }
+
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return ShiftOr.buscarTodos(compilar(padrao), texto, padrao.length());
+    }
+
+    /**
+     * Monta o autômato para um conjunto de padrões.
+     *
+     * @param padroes Até {@value #MAXIMO_PADROES} padrões não vazios
+     */
+    public Automato compilar(List<String> padroes) {
+        if (padroes.isEmpty() || padroes.size() > MAXIMO_PADROES) {
+            throw new IllegalArgumentException("São aceitos de 1 a " + MAXIMO_PADROES + " padrões");
+        }
+        return new Automato(padroes);
+    }
+
+    /**
+     * Autômato imutável de um conjunto de padrões, seguro para uso concorrente.
+     */
+    public static final class Automato {
+        private final int totalPadroes;
+        private final int[] tamanhos;
+
+        // Alfabeto compacto: só os caracteres presentes nos padrões têm classe própria (a classe 0 é "outro")
+        private final byte[] classesAscii = new byte[128];
+        private final char[] outrosCaracteres;
+        private final int primeiraClasseOutros;
+        private final int totalClasses;
+
+        // transicoes[estado * totalClasses + classe] e, por estado, os padrões reconhecidos nele
+        private final int[] transicoes;
+        private final long[] saidas;
+
+        Automato(List<String> padroes) {
+            this.totalPadroes = padroes.size();
+            this.tamanhos = new int[totalPadroes];
+
+            // Numera os caracteres dos padrões
+            TreeSet<Character> naoAscii = new TreeSet<>();
+            int proximaClasse = 1;
+            int totalCaracteres = 0;
+            for (String padrao : padroes) {
+                if (padrao.isEmpty()) {
+                    throw new IllegalArgumentException("Padrão vazio");
+                }
+                totalCaracteres += padrao.length();
+                for (int i = 0; i < padrao.length(); i++) {
+                    char c = padrao.charAt(i);
+                    if (c < 128) {
+                        if (classesAscii[c] == 0) {
+                            classesAscii[c] = (byte) proximaClasse++;
+                        }
+                    } else {
+                        naoAscii.add(c);
+                    }
+                }
+            }
+            this.outrosCaracteres = new char[naoAscii.size()];
+            int indice = 0;
+            for (char c : naoAscii) {
+                outrosCaracteres[indice++] = c;
+            }
+            this.primeiraClasseOutros = proximaClasse;
+            this.totalClasses = primeiraClasseOutros + outrosCaracteres.length;
+
+            // Trie: no máximo um estado por caractere dos padrões, mais a raiz
+            int[] tabela = new int[(totalCaracteres + 1) * totalClasses];
+            Arrays.fill(tabela, -1);
+            long[] saidasEstados = new long[totalCaracteres + 1];
+            int totalEstados = 1;
+
+            for (int p = 0; p < totalPadroes; p++) {
+                String padrao = padroes.get(p);
+                tamanhos[p] = padrao.length();
+                int estado = 0;
+                for (int i = 0; i < padrao.length(); i++) {
+                    int posicao = estado * totalClasses + classe(padrao.charAt(i));
+                    if (tabela[posicao] == -1) {
+                        tabela[posicao] = totalEstados++;
+                    }
+                    estado = tabela[posicao];
+                }
+                saidasEstados[estado] |= 1L << p;
+            }
+
+            // Links de falha em largura, completando as transições que faltam (autômato determinístico)
+            int[] falhas = new int[totalEstados];
+            int[] fila = new int[totalEstados];
+            int inicioFila = 0;
+            int fimFila = 0;
+
+            for (int c = 0; c < totalClasses; c++) {
+                int destino = tabela[c];
+                if (destino == -1) {
+                    tabela[c] = 0;
+                } else {
+                    falhas[destino] = 0;
+                    fila[fimFila++] = destino;
+                }
+            }
+
+            while (inicioFila < fimFila) {
+                int estado = fila[inicioFila++];
+                saidasEstados[estado] |= saidasEstados[falhas[estado]];
+
+                for (int c = 0; c < totalClasses; c++) {
+                    int posicao = estado * totalClasses + c;
+                    int destino = tabela[posicao];
+                    int destinoFalha = tabela[falhas[estado] * totalClasses + c];
+                    if (destino == -1) {
+                        tabela[posicao] = destinoFalha;
+                    } else {
+                        falhas[destino] = destinoFalha;
+                        fila[fimFila++] = destino;
+                    }
+                }
+            }
+
+            this.transicoes = Arrays.copyOf(tabela, totalEstados * totalClasses);
+            this.saidas = Arrays.copyOf(saidasEstados, totalEstados);
+        }
+
+        private int classe(char c) {
+            if (c < 128) {
+                return classesAscii[c];
+            }
+            int posicao = Arrays.binarySearch(outrosCaracteres, c);
+            return posicao < 0 ? 0 : primeiraClasseOutros + posicao;
+        }
+
+        public int getTotalPadroes() {
+            return totalPadroes;
+        }
+
+        /**
+         * Máscara com todos os padrões ligados, para comparar com {@link #encontrados}.
+         */
+        public long todos() {
+            return totalPadroes == Long.SIZE ? ~0L : (1L << totalPadroes) - 1;
+        }
+
+        /**
+         * Lê o trecho {@code [inicio, fim)} uma vez e indica quais padrões ocorrem nele.
+         *
+         * @param jaEncontrados Padrões já encontrados em outro trecho; a leitura para assim que todos forem encontrados
+         * @return Máscara com o bit {@code p} ligado se o padrão {@code p} ocorre no trecho ou já tinha sido encontrado
+         */
+        public long encontrados(CharSequence texto, int inicio, int fim, long jaEncontrados) {
+            long todos = todos();
+            long encontrados = jaEncontrados;
+            int estado = 0;
+
+            for (int i = inicio; i < fim && encontrados != todos; i++) {
+                estado = transicoes[estado * totalClasses + classe(texto.charAt(i))];
+                encontrados |= saidas[estado];
+            }
+
+            return encontrados;
+        }
+
+        /**
+         * Posição inicial da ocorrência que termina primeiro no trecho, ou -1.
+         * Com um único padrão, é a primeira ocorrência.
+         */
+        public int primeiraOcorrencia(CharSequence texto, int inicio, int fim) {
+            int estado = 0;
+
+            for (int i = inicio; i < fim; i++) {
+                estado = transicoes[estado * totalClasses + classe(texto.charAt(i))];
+                long saida = saidas[estado];
+                if (saida != 0) {
+                    // Entre os padrões que terminam aqui, o mais longo é o que começa antes
+                    int maior = 0;
+                    for (long resto = saida; resto != 0; resto &= resto - 1) {
+                        maior = Math.max(maior, tamanhos[Long.numberOfTrailingZeros(resto)]);
+                    }
+                    return i - maior + 1;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
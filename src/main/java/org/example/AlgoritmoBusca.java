@@ -18,6 +18,34 @@ public interface AlgoritmoBusca {
      */
     int buscar(String texto, String padrao);
 
+    /**
+     * Busca a primeira ocorrência do padrão em um trecho de uma sequência de caracteres.
+     * Permite buscar diretamente em buffers contíguos sem criar uma String por texto.
+     * Implementações devem sobrescrever este método para evitar a cópia do trecho.
+     *
+     * @param texto A sequência que contém o trecho
+     * @param inicio Posição inicial do trecho (inclusiva)
+     * @param fim Posição final do trecho (exclusiva)
+     * @param padrao O padrão a ser buscado
+     * @return A posição absoluta da primeira ocorrência em {@code texto}, ou -1 se não encontrado
+     */
+    default int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        int posicao = buscar(texto.subSequence(inicio, fim).toString(), padrao);
+        return posicao == -1 ? -1 : inicio + posicao;
+    }
+
+    /**
+     * Pré-processa o padrão uma única vez para buscá-lo em muitos textos.
+     * Implementações devem sobrescrever este método para montar suas tabelas aqui,
+     * em vez de a cada busca.
+     *
+     * @param padrao O padrão a ser buscado
+     * @return O padrão compilado, imutável e seguro para uso concorrente
+     */
+    default PadraoCompilado compilar(String padrao) {
+        return (texto, inicio, fim) -> buscar(texto, inicio, fim, padrao);
+    }
+
     /**
      * Busca todas as ocorrências do padrão no texto.
      *
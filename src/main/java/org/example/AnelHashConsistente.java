@@ -0,0 +1,90 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Distribui chaves (ids de artigos) entre N shards por hash consistente.
+ *
+ * Cada shard ocupa {@link #NOS_VIRTUAIS} posições em um anel de hashes de 64 bits, e
+ * uma chave pertence ao shard da primeira posição igual ou seguinte ao seu hash. Com
+ * nós virtuais a carga fica equilibrada, e ao passar de N para N + 1 shards só cerca
+ * de 1/(N + 1) das chaves muda de shard, em vez de quase todas como em {@code hash % N}.
+ */
+public final class AnelHashConsistente {
+
+    static final int NOS_VIRTUAIS = 160;
+
+    private final long[] posicoes;
+    private final int[] shards;
+
+    public AnelHashConsistente(int quantidadeShards) {
+        if (quantidadeShards <= 0) {
+            throw new IllegalArgumentException("É preciso ao menos um shard");
+        }
+
+        int total = quantidadeShards * NOS_VIRTUAIS;
+        long[] hashes = new long[total];
+        for (int shard = 0, i = 0; shard < quantidadeShards; shard++) {
+            for (int no = 0; no < NOS_VIRTUAIS; no++, i++) {
+                hashes[i] = hash("shard-" + shard + "#" + no);
+            }
+        }
+
+        // Ordena as posições levando junto o shard de cada uma
+        Integer[] ordem = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> Long.compareUnsigned(hashes[a], hashes[b]));
+
+        this.posicoes = new long[total];
+        this.shards = new int[total];
+        for (int i = 0; i < total; i++) {
+            posicoes[i] = hashes[ordem[i]];
+            shards[i] = ordem[i] / NOS_VIRTUAIS;
+        }
+    }
+
+    public int quantidadeShards() {
+        return shards.length / NOS_VIRTUAIS;
+    }
+
+    /**
+     * O shard responsável pela chave.
+     */
+    public int shard(String chave) {
+        long h = hash(chave);
+
+        // Busca binária pela primeira posição >= h, em ordem sem sinal; depois da última volta ao início
+        int inicio = 0;
+        int fim = posicoes.length;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (Long.compareUnsigned(posicoes[meio], h) < 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return shards[inicio == posicoes.length ? 0 : inicio];
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre o UTF-8 da chave, seguido da mistura final do MurmurHash3
+     * para espalhar chaves parecidas ("1", "2", ...) pelo anel todo.
+     */
+    static long hash(String chave) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : chave.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Implementação do algoritmo BNDM (Backward Nondeterministic DAWG Matching).
+ *
+ * Combina o paralelismo de bits do {@link ShiftOr} com saltos como os do Boyer-Moore:
+ * cada janela do texto é lida de trás para frente, mantendo em um {@code long} todas as
+ * posições do padrão em que o sufixo lido ainda ocorre. Quando o conjunto fica vazio a
+ * janela avança até o último prefixo do padrão reconhecido, normalmente bem mais que
+ * um caractere. É indicado para padrões de tamanho médio.
+ *
+ * Padrões com mais de {@value ShiftOr#TAMANHO_MAXIMO} caracteres são delegados ao {@link BoyerMoore}.
+ */
+public class Bndm implements AlgoritmoBusca {
+
+    private static final int NO_OF_CHARS = 256;
+
+    @Override
+    public int buscar(String texto, String padrao) {
+        return buscar(texto, 0, texto.length(), padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return compilar(padrao).buscar(texto, inicio, fim);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        if (padrao.length() > ShiftOr.TAMANHO_MAXIMO) {
+            return new BoyerMoore().compilar(padrao);
+        }
+        return new PadraoBndm(padrao);
+    }
+
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return ShiftOr.buscarTodos(compilar(padrao), texto, padrao.length());
+    }
+
+    /**
+     * Padrão com as máscaras de bits já calculadas, indexadas pelo byte menos
+     * significativo do caractere; candidatos são confirmados comparando o padrão.
+     */
+    private static final class PadraoBndm implements PadraoCompilado {
+        private final String padrao;
+        private final long[] mascaras = new long[NO_OF_CHARS];
+        private final long bitPrefixo;
+
+        PadraoBndm(String padrao) {
+            int m = padrao.length();
+            this.padrao = padrao;
+            this.bitPrefixo = m == 0 ? 0 : 1L << (m - 1);
+
+            // Bit m-1-j ligado na máscara do caractere c quando padrao[j] == c (padrão invertido)
+            for (int j = 0; j < m; j++) {
+                mascaras[padrao.charAt(j) & (NO_OF_CHARS - 1)] |= 1L << (m - 1 - j);
+            }
+        }
+
+        @Override
+        public int buscar(CharSequence texto, int inicio, int fim) {
+            int m = padrao.length();
+
+            if (m == 0 || m > fim - inicio) {
+                return -1;
+            }
+
+            int janela = inicio;
+            while (janela <= fim - m) {
+                int j = m;
+                int ultimoPrefixo = m;
+                long estado = ~0L;
+
+                // Lê a janela de trás para frente enquanto o sufixo lido ocorre no padrão
+                while (estado != 0) {
+                    estado &= mascaras[texto.charAt(janela + j - 1) & (NO_OF_CHARS - 1)];
+                    j--;
+                    if ((estado & bitPrefixo) != 0) {
+                        if (j > 0) {
+                            // O trecho lido é um prefixo do padrão: a próxima janela pode começar nele
+                            ultimoPrefixo = j;
+                        } else if (confere(texto, janela)) {
+                            return janela;
+                        } else {
+                            break;
+                        }
+                    }
+                    estado <<= 1;
+                }
+
+                janela += ultimoPrefixo;
+            }
+
+            return -1;
+        }
+
+        private boolean confere(CharSequence texto, int posicao) {
+            for (int j = 0; j < padrao.length(); j++) {
+                if (texto.charAt(posicao + j) != padrao.charAt(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -12,6 +12,9 @@ import java.util.*;
  *
  * Complexidade de tempo: O(n + m) no melhor caso, O(nm) no pior caso
  * onde n é o tamanho do texto e m é o tamanho do padrão.
+ *
+ * As tabelas das duas heurísticas dependem apenas do padrão, então são montadas
+ * uma vez em {@link #compilar(String)} e reaproveitadas em todos os textos.
  */
 public class BoyerMoore implements AlgoritmoBusca {
 
@@ -19,52 +22,111 @@ public class BoyerMoore implements AlgoritmoBusca {
 
     @Override
     public int buscar(String texto, String padrao) {
-        if (padrao.isEmpty() || texto.isEmpty()) {
-            return -1;
-        }
+        return buscar(texto, 0, texto.length(), padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return compilar(padrao).buscar(texto, inicio, fim);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return new PadraoBoyerMoore(padrao);
+    }
 
-        if (padrao.length() > texto.length()) {
-            return -1;
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return new PadraoBoyerMoore(padrao).buscarTodos(texto);
+    }
+
+    /**
+     * Padrão com as tabelas de bad character e good suffix já calculadas.
+     */
+    private static final class PadraoBoyerMoore implements PadraoCompilado {
+        private final String padrao;
+        private final int[] badChar;
+        private final int[] shift;
+
+        PadraoBoyerMoore(String padrao) {
+            this.padrao = padrao;
+            this.badChar = preprocessBadCharacter(padrao);
+
+            int m = padrao.length();
+            this.shift = new int[m + 1];
+            preprocessGoodSuffix(padrao, shift, new int[m + 1]);
         }
 
-        int m = padrao.length();
-        int n = texto.length();
+        @Override
+        public int buscar(CharSequence texto, int inicio, int fim) {
+            int m = padrao.length();
 
-        // Cria a tabela de bad character
-        int[] badChar = preprocessBadCharacter(padrao);
+            if (m == 0 || m > fim - inicio) {
+                return -1;
+            }
 
-        // Cria a tabela de good suffix
-        int[] shift = new int[m + 1];
-        int[] bpos = new int[m + 1];
-        preprocessGoodSuffix(padrao, shift, bpos);
+            int s = inicio; // deslocamento do padrão em relação ao texto
 
-        int s = 0; // deslocamento do padrão em relação ao texto
+            while (s <= (fim - m)) {
+                int j = m - 1;
 
-        while (s <= (n - m)) {
-            int j = m - 1;
+                // Reduz j enquanto os caracteres do padrão e texto correspondem
+                while (j >= 0 && padrao.charAt(j) == texto.charAt(s + j)) {
+                    j--;
+                }
 
-            // Reduz j enquanto os caracteres do padrão e texto correspondem
-            while (j >= 0 && padrao.charAt(j) == texto.charAt(s + j)) {
-                j--;
+                // Se o padrão está presente no deslocamento atual
+                if (j < 0) {
+                    return s; // Retorna a posição onde o padrão foi encontrado
+                } else {
+                    // Desloca o padrão usando o máximo entre bad character e good suffix
+                    s += Math.max(shift[j + 1], j - badChar[texto.charAt(s + j) & (NO_OF_CHARS - 1)]);
+                }
             }
 
-            // Se o padrão está presente no deslocamento atual
-            if (j < 0) {
-                return s; // Retorna a posição onde o padrão foi encontrado
-            } else {
-                // Desloca o padrão usando o máximo entre bad character e good suffix
-                s += Math.max(shift[j + 1], j - badChar[texto.charAt(s + j)]);
-            }
+            return -1; // Padrão não encontrado
         }
 
-        return -1; // Padrão não encontrado
+        List<Integer> buscarTodos(String texto) {
+            List<Integer> posicoes = new ArrayList<>();
+            int m = padrao.length();
+            int n = texto.length();
+
+            if (m == 0 || m > n) {
+                return posicoes;
+            }
+
+            int s = 0;
+
+            while (s <= (n - m)) {
+                int j = m - 1;
+
+                while (j >= 0 && padrao.charAt(j) == texto.charAt(s + j)) {
+                    j--;
+                }
+
+                if (j < 0) {
+                    posicoes.add(s);
+                    s += shift[0];
+                } else {
+                    s += Math.max(shift[j + 1], j - badChar[texto.charAt(s + j) & (NO_OF_CHARS - 1)]);
+                }
+            }
+
+            return posicoes;
+        }
     }
 
     /**
      * Pré-processa o padrão para criar a tabela de bad character.
      * A tabela armazena a última ocorrência de cada caractere no padrão.
+     *
+     * Caracteres fora do Latin-1 (comuns em resumos do arXiv) são agrupados pelo
+     * byte menos significativo. Cada posição guarda a última ocorrência de qualquer
+     * caractere do grupo, que nunca é anterior à do caractere real; o deslocamento
+     * calculado pode ser menor que o ideal, mas nunca pula uma ocorrência.
      */
-    private int[] preprocessBadCharacter(String padrao) {
+    private static int[] preprocessBadCharacter(String padrao) {
         int[] badChar = new int[NO_OF_CHARS];
 
         // Inicializa todas as ocorrências como -1
@@ -72,7 +134,7 @@ public class BoyerMoore implements AlgoritmoBusca {
 
         // Preenche o valor atual da última ocorrência de cada caractere
         for (int i = 0; i < padrao.length(); i++) {
-            badChar[padrao.charAt(i)] = i;
+            badChar[padrao.charAt(i) & (NO_OF_CHARS - 1)] = i;
         }
 
         return badChar;
@@ -81,7 +143,7 @@ public class BoyerMoore implements AlgoritmoBusca {
     /**
      * Pré-processa o padrão para a heurística de good suffix.
      */
-    private void preprocessGoodSuffix(String padrao, int[] shift, int[] bpos) {
+    private static void preprocessGoodSuffix(String padrao, int[] shift, int[] bpos) {
         int m = padrao.length();
         int i = m;
         int j = m + 1;
@@ -110,47 +172,4 @@ public class BoyerMoore implements AlgoritmoBusca {
             }
         }
     }
-
-    @Override
-    public List<Integer> buscarTodos(String texto, String padrao) {
-        List<Integer> posicoes = new ArrayList<>();
-
-        if (padrao.isEmpty() || texto.isEmpty()) {
-            return posicoes;
-        }
-
-        if (padrao.length() > texto.length()) {
-            return posicoes;
-        }
-
-        int m = padrao.length();
-        int n = texto.length();
-
-        // Cria a tabela de bad character
-        int[] badChar = preprocessBadCharacter(padrao);
-
-        // Cria a tabela de good suffix
-        int[] shift = new int[m + 1];
-        int[] bpos = new int[m + 1];
-        preprocessGoodSuffix(padrao, shift, bpos);
-
-        int s = 0;
-
-        while (s <= (n - m)) {
-            int j = m - 1;
-
-            while (j >= 0 && padrao.charAt(j) == texto.charAt(s + j)) {
-                j--;
-            }
-
-            if (j < 0) {
-                posicoes.add(s);
-                s += shift[0];
-            } else {
-                s += Math.max(shift[j + 1], j - badChar[texto.charAt(s + j)]);
-            }
-        }
-
-        return posicoes;
-    }
-}
\ No newline at end of file
+}
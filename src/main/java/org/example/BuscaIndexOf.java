@@ -0,0 +1,73 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Busca de referência baseada em {@link String#indexOf(String)}.
+ *
+ * Em textos {@code String} usa o {@code indexOf} da JDK, que a JVM substitui por uma
+ * implementação intrínseca vetorizada. As colunas do corpus são {@code CharBuffer}, em
+ * que isso não é possível; nelas a busca localiza o primeiro caractere do padrão e
+ * compara o restante, o mesmo laço simples que o {@code indexOf} faz sem a intrínseca.
+ * Serve de base de comparação para os demais algoritmos.
+ */
+public class BuscaIndexOf implements AlgoritmoBusca {
+
+    @Override
+    public int buscar(String texto, String padrao) {
+        return padrao.isEmpty() ? -1 : texto.indexOf(padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return compilar(padrao).buscar(texto, inicio, fim);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return new PadraoIndexOf(padrao);
+    }
+
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return ShiftOr.buscarTodos(compilar(padrao), texto, padrao.length());
+    }
+
+    private static final class PadraoIndexOf implements PadraoCompilado {
+        private final String padrao;
+
+        PadraoIndexOf(String padrao) {
+            this.padrao = padrao;
+        }
+
+        @Override
+        public int buscar(CharSequence texto, int inicio, int fim) {
+            int m = padrao.length();
+
+            if (m == 0 || m > fim - inicio) {
+                return -1;
+            }
+
+            if (texto instanceof String string) {
+                return string.indexOf(padrao, inicio, fim);
+            }
+
+            char primeiro = padrao.charAt(0);
+            int ultimaJanela = fim - m;
+            for (int i = inicio; i <= ultimaJanela; i++) {
+                if (texto.charAt(i) != primeiro) {
+                    continue;
+                }
+                int j = 1;
+                while (j < m && texto.charAt(i + j) == padrao.charAt(j)) {
+                    j++;
+                }
+                if (j == m) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
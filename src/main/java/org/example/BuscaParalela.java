@@ -0,0 +1,197 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Verifica os artigos de um servidor de busca em paralelo, dividindo-os em partes.
+ *
+ * As partes são processadas em um ForkJoinPool próprio (propriedade
+ * {@code busca.paralelismo}, padrão igual ao número de processadores) e os
+ * resultados são juntados na ordem original dos artigos. Conjuntos menores que
+ * {@code busca.limiarParalelo} artigos são verificados na própria thread chamadora,
+ * pois o custo de dividir o trabalho não compensaria.
+ */
+public class BuscaParalela {
+
+    private final ForkJoinPool pool;
+    private final int paralelismo;
+    private final int limiar;
+
+    public BuscaParalela(int paralelismo, int limiar) {
+        this.paralelismo = paralelismo;
+        this.limiar = limiar;
+        this.pool = paralelismo > 1 ? new ForkJoinPool(paralelismo) : null;
+    }
+
+    public static BuscaParalela configurada() {
+        return new BuscaParalela(
+                Integer.getInteger("busca.paralelismo", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("busca.limiarParalelo", 8192));
+    }
+
+    /**
+     * Retorna, em ordem crescente, os artigos que satisfazem o filtro.
+     *
+     * @param candidatos Os artigos a verificar, em ordem crescente, ou null para todos
+     * @param total Quantidade de artigos do corpus (usada quando candidatos é null)
+     * @param filtro Verificação de cada artigo; deve poder ser chamada de várias threads
+     */
+    public int[] filtrar(int[] candidatos, int total, IntPredicate filtro) {
+        return filtrar(candidatos, 0, candidatos == null ? total : candidatos.length, filtro);
+    }
+
+    /**
+     * Como {@link #filtrar(int[], int, IntPredicate)}, mas só para as posições {@code [inicio, fim)}
+     * dos candidatos (ou dos artigos, quando candidatos é null). Permite verificar em blocos
+     * e usar os resultados de cada bloco antes de terminar os demais.
+     */
+    public int[] filtrar(int[] candidatos, int inicio, int fim, IntPredicate filtro) {
+        int quantidade = fim - inicio;
+
+        if (pool == null || quantidade < limiar) {
+            return new Parte(candidatos, inicio, fim, filtro, quantidade).verificar();
+        }
+
+        // Partes menores que o limiar para equilibrar a carga entre as threads
+        int granularidade = Math.max(1024, quantidade / (paralelismo * 8));
+        return pool.invoke(new Parte(candidatos, inicio, fim, filtro, granularidade));
+    }
+
+    /**
+     * Verifica vários filtros em uma única leitura dos artigos {@code [0, total)}: {@code verificacao}
+     * retorna, para cada artigo, uma máscara com o bit {@code f} ligado se o artigo satisfaz o filtro
+     * {@code f}. Retorna, para cada um dos {@code quantidade} filtros, os artigos em ordem crescente.
+     */
+    public int[][] filtrarVarios(int total, int quantidade, IntToLongFunction verificacao) {
+        if (pool == null || total < limiar) {
+            return new ParteVarios(0, total, quantidade, verificacao, total).verificar();
+        }
+
+        int granularidade = Math.max(1024, total / (paralelismo * 8));
+        return pool.invoke(new ParteVarios(0, total, quantidade, verificacao, granularidade));
+    }
+
+    public void encerrar() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static class Parte extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] candidatos;
+        private final int inicio;
+        private final int fim;
+        private final transient IntPredicate filtro;
+        private final int granularidade;
+
+        Parte(int[] candidatos, int inicio, int fim, IntPredicate filtro, int granularidade) {
+            this.candidatos = candidatos;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.filtro = filtro;
+            this.granularidade = granularidade;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (fim - inicio <= granularidade) {
+                return verificar();
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            Parte esquerda = new Parte(candidatos, inicio, meio, filtro, granularidade);
+            Parte direita = new Parte(candidatos, meio, fim, filtro, granularidade);
+            esquerda.fork();
+            int[] resultadoDireita = direita.compute();
+            int[] resultadoEsquerda = esquerda.join();
+
+            // Esquerda antes da direita mantém a ordem original
+            int[] juntos = Arrays.copyOf(resultadoEsquerda, resultadoEsquerda.length + resultadoDireita.length);
+            System.arraycopy(resultadoDireita, 0, juntos, resultadoEsquerda.length, resultadoDireita.length);
+            return juntos;
+        }
+
+        int[] verificar() {
+            int[] encontrados = new int[16];
+            int tamanho = 0;
+
+            for (int i = inicio; i < fim; i++) {
+                int artigo = candidatos == null ? i : candidatos[i];
+                if (filtro.test(artigo)) {
+                    if (tamanho == encontrados.length) {
+                        encontrados = Arrays.copyOf(encontrados, tamanho * 2);
+                    }
+                    encontrados[tamanho++] = artigo;
+                }
+            }
+
+            return Arrays.copyOf(encontrados, tamanho);
+        }
+    }
+
+    private static class ParteVarios extends RecursiveTask<int[][]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int inicio;
+        private final int fim;
+        private final int quantidade;
+        private final transient IntToLongFunction verificacao;
+        private final int granularidade;
+
+        ParteVarios(int inicio, int fim, int quantidade, IntToLongFunction verificacao, int granularidade) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.quantidade = quantidade;
+            this.verificacao = verificacao;
+            this.granularidade = granularidade;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (fim - inicio <= granularidade) {
+                return verificar();
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            ParteVarios esquerda = new ParteVarios(inicio, meio, quantidade, verificacao, granularidade);
+            ParteVarios direita = new ParteVarios(meio, fim, quantidade, verificacao, granularidade);
+            esquerda.fork();
+            int[][] resultadoDireita = direita.compute();
+            int[][] resultadoEsquerda = esquerda.join();
+
+            for (int f = 0; f < quantidade; f++) {
+                int[] juntos = Arrays.copyOf(resultadoEsquerda[f], resultadoEsquerda[f].length + resultadoDireita[f].length);
+                System.arraycopy(resultadoDireita[f], 0, juntos, resultadoEsquerda[f].length, resultadoDireita[f].length);
+                resultadoEsquerda[f] = juntos;
+            }
+            return resultadoEsquerda;
+        }
+
+        int[][] verificar() {
+            int[][] encontrados = new int[quantidade][16];
+            int[] tamanhos = new int[quantidade];
+
+            for (int artigo = inicio; artigo < fim; artigo++) {
+                long mascara = verificacao.applyAsLong(artigo);
+                while (mascara != 0) {
+                    int f = Long.numberOfTrailingZeros(mascara);
+                    mascara &= mascara - 1;
+                    if (tamanhos[f] == encontrados[f].length) {
+                        encontrados[f] = Arrays.copyOf(encontrados[f], tamanhos[f] * 2);
+                    }
+                    encontrados[f][tamanhos[f]++] = artigo;
+                }
+            }
+
+            for (int f = 0; f < quantidade; f++) {
+                encontrados[f] = Arrays.copyOf(encontrados[f], tamanhos[f]);
+            }
+            return encontrados;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+
+/**
+ * Cache de resultados de busca, limitado por tamanho (LRU) e por tempo de vida (TTL).
+ *
+ * Além de guardar resultados prontos, o cache junta requisições simultâneas da
+ * mesma chave: enquanto uma busca está em andamento, as demais recebem o mesmo
+ * futuro em vez de disparar outra busca. Contadores de acertos, falhas, remoções
+ * e requisições agrupadas ficam disponíveis para monitoramento.
+ *
+ * @param <V> O tipo do resultado guardado
+ */
+public class CacheResultados<V> {
+
+    private final int capacidade;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entrada<V>> entradas;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final ConcurrentHashMap<String, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+    private final LongAdder agrupadas = new LongAdder();
+
+    /**
+     * @param capacidade Número máximo de entradas; 0 desativa o armazenamento (o agrupamento continua)
+     * @param ttlMillis Tempo de vida de cada entrada
+     */
+    public CacheResultados(int capacidade, long ttlMillis) {
+        this.capacidade = capacidade;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+
+        // Ordem de acesso: a entrada mais antiga é a usada há mais tempo
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada<V>> maisAntiga) {
+                if (size() > CacheResultados.this.capacidade) {
+                    remocoes.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cria um cache com a configuração das propriedades {@code cache.capacidade}
+     * (padrão 1024) e {@code cache.ttlSegundos} (padrão 60).
+     */
+    public static <V> CacheResultados<V> configurado() {
+        return new CacheResultados<>(Integer.getInteger("cache.capacidade", 1024),
+                TimeUnit.SECONDS.toMillis(Long.getLong("cache.ttlSegundos", 60)));
+    }
+
+    public CompletableFuture<V> obter(String chave, Supplier<CompletableFuture<V>> carregar) {
+        return obter(chave, carregar, valor -> true);
+    }
+
+    /**
+     * Retorna o resultado da chave, carregando-o se não estiver no cache.
+     *
+     * @param chave A chave já normalizada
+     * @param carregar Inicia a busca do resultado quando ele não está no cache nem em andamento
+     * @param armazenavel Indica se um resultado carregado pode ser guardado (ex.: resultados parciais não)
+     */
+    public CompletableFuture<V> obter(String chave, Supplier<CompletableFuture<V>> carregar,
+                                      Predicate<V> armazenavel) {
+        V valor = consultar(chave);
+        if (valor != null) {
+            acertos.increment();
+            return CompletableFuture.completedFuture(valor);
+        }
+
+        CompletableFuture<V> novo = new CompletableFuture<>();
+        CompletableFuture<V> existente = emAndamento.putIfAbsent(chave, novo);
+        if (existente != null) {
+            // A mesma busca já está em andamento: aguarda o resultado dela
+            agrupadas.increment();
+            return existente;
+        }
+
+        falhas.increment();
+        CompletableFuture<V> carregamento;
+        try {
+            carregamento = carregar.get();
+        } catch (RuntimeException e) {
+            carregamento = CompletableFuture.failedFuture(e);
+        }
+
+        carregamento.whenComplete((resultado, erro) -> {
+            if (erro == null && armazenavel.test(resultado)) {
+                guardar(chave, resultado);
+            }
+            emAndamento.remove(chave, novo);
+
+            if (erro != null) {
+                novo.completeExceptionally(erro);
+            } else {
+                novo.complete(resultado);
+            }
+        });
+        return novo;
+    }
+
+    /**
+     * Retorna o resultado guardado para a chave sem carregá-lo, ou null se não estiver no cache.
+     * Usado por quem monta o resultado aos poucos e o guarda no fim com {@link #guardar}.
+     */
+    public V obterGuardado(String chave) {
+        V valor = consultar(chave);
+        if (valor != null) {
+            acertos.increment();
+        } else {
+            falhas.increment();
+        }
+        return valor;
+    }
+
+    private V consultar(String chave) {
+        if (capacidade <= 0) {
+            return null;
+        }
+
+        trava.lock();
+        try {
+            Entrada<V> entrada = entradas.get(chave);
+            if (entrada == null) {
+                return null;
+            }
+            if (System.nanoTime() - entrada.criadaEm > ttlNanos) {
+                entradas.remove(chave);
+                remocoes.increment();
+                return null;
+            }
+            return entrada.valor;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public void guardar(String chave, V valor) {
+        if (capacidade <= 0) {
+            return;
+        }
+
+        trava.lock();
+        try {
+            entradas.put(chave, new Entrada<>(valor, System.nanoTime()));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Descarta todas as entradas, por exemplo quando os dados mudam.
+     */
+    public void limpar() {
+        trava.lock();
+        try {
+            remocoes.add(entradas.size());
+            entradas.clear();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    public long getAgrupadas() {
+        return agrupadas.sum();
+    }
+
+    public int getTamanho() {
+        trava.lock();
+        try {
+            return entradas.size();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public String resumo() {
+        return "cache: " + getTamanho() + " entradas, " + getAcertos() + " acertos, " + getFalhas()
+                + " falhas, " + getRemocoes() + " remoções, " + getAgrupadas() + " agrupadas";
+    }
+
+    private static class Entrada<V> {
+        private final V valor;
+        private final long criadaEm;
+
+        Entrada(V valor, long criadaEm) {
+            this.valor = valor;
+            this.criadaEm = criadaEm;
+        }
+    }
+}
@@ -1,28 +1,57 @@
 package org.example;
 
-import java.io.*;
-import java.net.*;
+import java.io.IOException;
+import java.net.ConnectException;
 import java.util.*;
-import org.json.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Cliente do sistema de busca distribuído.
  * Conecta-se ao Servidor A para realizar buscas no dataset arXiv.
+ *
+ * Por padrão os resultados são exibidos à medida que chegam (modo de transmissão);
+ * com {@code -Dcliente.stream=false} o cliente espera a resposta completa em uma linha.
+ * Com {@code -Dcliente.limite=N} são pedidos só os N resultados mais relevantes por vez,
+ * e o comando "mais" exibe a página seguinte da última busca.
+ *
+ * A conexão, o prazo e as novas tentativas quando o Servidor A está ocupado ficam com o
+ * {@link ClienteBusca} (propriedades {@code cliente.host}, {@code cliente.porta},
+ * {@code cliente.prazoMs} e {@code cliente.tentativas}); aqui ficam só a leitura das buscas
+ * e a exibição dos resultados.
+ *
+ * Com {@code -Dcliente.modo=carga}, em vez de ler buscas do teclado o cliente gera carga
+ * no Servidor A e mede vazão e latência (veja {@link GeradorCarga}).
  */
 public class Cliente {
 
-    private static final String HOST_SERVIDOR_A = "localhost";
-    private static final int PORTA_SERVIDOR_A = 8080;
-    private static final int TIMEOUT = 60000; // 60 segundos de timeout
+    private static final boolean TRANSMISSAO = Boolean.parseBoolean(System.getProperty("cliente.stream", "true"));
+    private static final int LIMITE = Integer.getInteger("cliente.limite", 0);
+
+    private final ClienteBusca clienteBusca;
+    private String ultimaBusca;
+    private int deslocamento;
+
+    public Cliente(ClienteBusca clienteBusca) {
+        this.clienteBusca = clienteBusca;
+    }
 
     public void iniciar() {
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("=== Cliente de Busca Distribuída arXiv ===");
-        System.out.println("Digite 'sair' para encerrar o programa\n");
+        System.out.println("Digite 'sair' para encerrar o programa");
+        if (LIMITE > 0) {
+            System.out.println("Digite 'mais' para ver os próximos " + LIMITE + " resultados da última busca");
+        }
+        System.out.println();
 
         while (true) {
             System.out.print("Digite o termo de busca: ");
+            if (!scanner.hasNextLine()) {
+                break;
+            }
             String termoBusca = scanner.nextLine().trim();
 
             if ("sair".equalsIgnoreCase(termoBusca)) {
@@ -35,6 +64,15 @@ public class Cliente {
                 continue;
             }
 
+            if (LIMITE > 0 && "mais".equalsIgnoreCase(termoBusca) && ultimaBusca != null) {
+                // Próxima página da última busca
+                deslocamento += LIMITE;
+                termoBusca = ultimaBusca;
+            } else {
+                ultimaBusca = termoBusca;
+                deslocamento = 0;
+            }
+
             // Realiza a busca
             realizarBusca(termoBusca);
             System.out.println(); // Linha em branco entre buscas
@@ -44,82 +82,126 @@ public class Cliente {
     }
 
     private void realizarBusca(String termoBusca) {
-        try (Socket socket = new Socket()) {
-            // Configura timeout
-            socket.setSoTimeout(TIMEOUT);
-
-            // Conecta ao servidor A
-            System.out.println("Conectando ao servidor...");
-            socket.connect(new InetSocketAddress(HOST_SERVIDOR_A, PORTA_SERVIDOR_A), 5000);
-
-            try (PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-                // Envia o termo de busca
-                System.out.println("Enviando busca: \"" + termoBusca + "\"");
-                out.println(termoBusca);
-
-                // Recebe a resposta
+        System.out.println("Enviando busca: \"" + termoBusca + "\"");
+        try {
+            if (TRANSMISSAO) {
+                receberTransmissao(termoBusca);
+            } else {
                 System.out.println("Aguardando resultados...");
-                String respostaStr = in.readLine();
-
-                if (respostaStr == null) {
-                    System.err.println("Nenhuma resposta recebida do servidor.");
-                    return;
-                }
-
-                // Processa e exibe os resultados
-                processarResposta(respostaStr);
-
+                exibirResposta(LIMITE > 0 ? clienteBusca.buscar(termoBusca, deslocamento, LIMITE).join()
+                        : clienteBusca.buscar(termoBusca).join());
+            }
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof TimeoutException) {
+                System.err.println("Timeout: A busca demorou muito tempo. Tente novamente.");
+            } else if (causa instanceof ConnectException) {
+                System.err.println("Erro: Não foi possível conectar ao servidor. Verifique se o servidor está rodando.");
+            } else if (causa instanceof RejectedExecutionException) {
+                System.err.println("O servidor continua ocupado. Tente novamente mais tarde.");
+            } else if (causa instanceof IllegalArgumentException) {
+                System.err.println("Erro informado pelo servidor: " + causa.getMessage());
+            } else if (causa instanceof IOException) {
+                System.err.println("Erro de comunicação: " + causa.getMessage());
+            } else {
+                System.err.println("Erro ao processar resposta do servidor: " + causa);
             }
-        } catch (SocketTimeoutException e) {
-            System.err.println("Timeout: A busca demorou muito tempo. Tente novamente.");
-        } catch (ConnectException e) {
-            System.err.println("Erro: Não foi possível conectar ao servidor. Verifique se o servidor está rodando.");
-        } catch (IOException e) {
-            System.err.println("Erro de comunicação: " + e.getMessage());
         }
     }
 
-    private void processarResposta(String respostaStr) {
-        try {
-            JSONObject resposta = new JSONObject(respostaStr);
-            int total = resposta.getInt("total");
+    /**
+     * Exibe a resposta completa.
+     */
+    private void exibirResposta(RespostaBusca resposta) {
+        System.out.println("\n========== RESULTADOS DA BUSCA ==========");
+        System.out.println("Total de resultados encontrados: " + resposta.getTotal());
+
+        if (resposta.getTotal() == 0) {
+            System.out.println("Nenhum artigo encontrado com o termo buscado.");
+            avisarIncompleta(resposta);
+            return;
+        }
+        if (LIMITE > 0) {
+            System.out.println("Exibindo os mais relevantes a partir do " + (resposta.getDeslocamento() + 1) + "º");
+        }
 
-            System.out.println("\n========== RESULTADOS DA BUSCA ==========");
-            System.out.println("Total de resultados encontrados: " + total);
+        // Exibe cada resultado
+        List<Resultado> resultados = resposta.getResultados();
+        for (int i = 0; i < resultados.size(); i++) {
+            System.out.println();
+            exibirArtigo(resposta.getDeslocamento() + i + 1, resultados.get(i));
 
-            if (total == 0) {
-                System.out.println("Nenhum artigo encontrado com o termo buscado.");
-                return;
+            if (i < resultados.size() - 1) {
+                System.out.println(); // Linha em branco entre resultados
             }
+        }
 
-            JSONArray resultados = resposta.getJSONArray("resultados");
-
-            // Exibe cada resultado
-            for (int i = 0; i < resultados.length(); i++) {
-                JSONObject artigo = resultados.getJSONObject(i);
-
-                System.out.println("\n--- Resultado " + (i + 1) + " ---");
-                System.out.println("Título: " + artigo.getString("title"));
-                System.out.println("Categoria: " + artigo.getString("label"));
-                System.out.println("Resumo: " + artigo.getString("abstract"));
-                System.out.println("Servidor: " + artigo.getString("servidor"));
+        avisarIncompleta(resposta);
+        System.out.println("\n========================================");
+    }
 
-                if (i < resultados.length() - 1) {
-                    System.out.println(); // Linha em branco entre resultados
-                }
+    /**
+     * Exibe os resultados de cada lote assim que ele chega e, no fim, o total.
+     */
+    private void receberTransmissao(String termoBusca) {
+        int primeiro = LIMITE > 0 ? deslocamento : 0;
+        int[] exibidos = new int[1];
+
+        // Os lotes chegam na thread leitora do ClienteBusca, um de cada vez
+        RespostaBusca fim = clienteBusca.transmitir(termoBusca, deslocamento, LIMITE, resultados -> {
+            if (exibidos[0] == 0) {
+                System.out.println("\n========== RESULTADOS DA BUSCA ==========");
             }
+            for (Resultado resultado : resultados) {
+                System.out.println();
+                exibirArtigo(primeiro + ++exibidos[0], resultado);
+            }
+        }).join();
 
-            System.out.println("\n========================================");
+        if (exibidos[0] == 0) {
+            System.out.println("\n========== RESULTADOS DA BUSCA ==========");
+            System.out.println(fim.getTotal() == 0 || primeiro == 0
+                    ? "Nenhum artigo encontrado com o termo buscado."
+                    : "Não há mais resultados para esta busca.");
+        }
+        System.out.println("\nTotal de resultados encontrados: " + fim.getTotal());
+        if (LIMITE > 0 && exibidos[0] > 0) {
+            System.out.println("Exibidos os resultados " + (primeiro + 1) + " a " + (primeiro + exibidos[0])
+                    + ", por relevância");
+        }
+        avisarIncompleta(fim);
+        System.out.println("========================================");
+    }
 
-        } catch (JSONException e) {
-            System.err.println("Erro ao processar resposta do servidor: " + e.getMessage());
+    /**
+     * Avisa quando algum shard não respondeu dentro do prazo do Servidor A.
+     */
+    private static void avisarIncompleta(RespostaBusca resposta) {
+        if (resposta.isCompleta()) {
+            return;
         }
+        List<String> faltando = resposta.getFaltando();
+        System.out.println("Atenção: " + (faltando.isEmpty() ? "algum servidor de busca"
+                : "os servidores " + String.join(", ", faltando))
+                + " não responderam; os resultados estão incompletos.");
+    }
+
+    private void exibirArtigo(int numero, Resultado artigo) {
+        System.out.println("--- Resultado " + numero + " ---");
+        System.out.println("Título: " + artigo.getTitulo());
+        System.out.println("Categoria: " + artigo.getRotulo());
+        System.out.println("Resumo: " + artigo.getResumo());
+        System.out.println("Servidor: " + artigo.getServidor());
     }
 
-    public static void main(String[] args) {
-        Cliente cliente = new Cliente();
-        cliente.iniciar();
+    public static void main(String[] args) throws Exception {
+        if ("carga".equalsIgnoreCase(System.getProperty("cliente.modo"))) {
+            GeradorCarga.main(args);
+            return;
+        }
+
+        try (ClienteBusca clienteBusca = ClienteBusca.configurado()) {
+            new Cliente(clienteBusca).iniciar();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package org.example;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.json.*;
+
+/**
+ * Biblioteca de cliente do Servidor A, para embutir as buscas em outros programas.
+ *
+ * Todas as buscas usam uma única conexão persistente, aberta na primeira busca. Cada
+ * requisição leva um "id", que o Servidor A repete nas linhas da resposta; assim várias buscas
+ * ficam em andamento ao mesmo tempo na conexão e as respostas podem chegar fora de ordem,
+ * como na {@link ConexaoMultiplexada} entre o Servidor A e os servidores de busca. Os métodos
+ * não bloqueiam: retornam o futuro da resposta.
+ *
+ * Cada tentativa tem um prazo ({@code cliente.prazoMs}, padrão 60000). Se o Servidor A responder
+ * que está ocupado, a busca é repetida com espera crescente, até {@code cliente.tentativas} vezes
+ * (padrão 4). Se a conexão cair, as buscas em andamento são repetidas em uma conexão nova, menos
+ * as transmitidas que já entregaram resultados, que falham para não entregá-los duas vezes.
+ * Uma busca que estoura o prazo não é repetida: o servidor a recebeu e pode ainda estar
+ * trabalhando nela, e repeti-la dobraria a carga justamente quando ele está lento (e a espera
+ * total passaria a ser o prazo vezes as tentativas). Quem quiser repetir decide ao receber a
+ * {@link TimeoutException}.
+ *
+ * Falhas do futuro: {@link TimeoutException} no fim do prazo, {@link RejectedExecutionException}
+ * se o servidor continuou ocupado, {@link IllegalArgumentException} com a mensagem de erro do
+ * servidor e {@link IOException} se não foi possível conectar ou a conexão caiu.
+ */
+public class ClienteBusca implements Closeable {
+
+    private static final int TIMEOUT_CONEXAO_MS = 5000;
+    private static final long ESPERA_OCUPADO_MS = 250;
+
+    private final String host;
+    private final int porta;
+    private final long prazoMs;
+    private final int tentativas;
+    private final AtomicReference<CompletableFuture<Conexao>> conexao = new AtomicReference<>();
+    private final AtomicLong proximoId = new AtomicLong();
+    private volatile boolean encerrado;
+
+    /**
+     * @param prazoMs Prazo de cada tentativa de uma busca, da escrita à última linha da resposta
+     * @param tentativas Quantas vezes uma busca é enviada, no máximo
+     */
+    public ClienteBusca(String host, int porta, long prazoMs, int tentativas) {
+        this.host = host;
+        this.porta = porta;
+        this.prazoMs = prazoMs;
+        this.tentativas = Math.max(1, tentativas);
+    }
+
+    /**
+     * Cria o cliente com a configuração das propriedades {@code cliente.host} (padrão localhost),
+     * {@code cliente.porta} (padrão 8080), {@code cliente.prazoMs} e {@code cliente.tentativas}.
+     */
+    public static ClienteBusca configurado() {
+        return new ClienteBusca(System.getProperty("cliente.host", "localhost"),
+                Integer.getInteger("cliente.porta", 8080),
+                Long.getLong("cliente.prazoMs", 60000),
+                Integer.getInteger("cliente.tentativas", 4));
+    }
+
+    /**
+     * Busca todos os artigos que satisfazem a query, em uma única resposta.
+     */
+    public CompletableFuture<RespostaBusca> buscar(String query) {
+        return executar(requisicao(query, false, 0, 0), null);
+    }
+
+    /**
+     * Busca uma página dos resultados ordenados por relevância.
+     */
+    public CompletableFuture<RespostaBusca> buscar(String query, int deslocamento, int limite) {
+        return executar(requisicao(query, false, deslocamento, limite), null);
+    }
+
+    /**
+     * Busca com os resultados transmitidos à medida que chegam dos servidores de busca.
+     * Cada lote é entregue ao ouvinte na ordem de chegada, na thread leitora da conexão (o ouvinte
+     * não deve bloquear), e o futuro é concluído no fim, com o total e sem os resultados.
+     *
+     * @param limite Se maior que 0, transmite só essa página dos resultados ordenados por relevância
+     */
+    public CompletableFuture<RespostaBusca> transmitir(String query, int deslocamento, int limite,
+                                                       Consumer<List<Resultado>> aoReceber) {
+        return executar(requisicao(query, true, deslocamento, limite), aoReceber);
+    }
+
+    private static JSONObject requisicao(String query, boolean transmitir, int deslocamento, int limite) {
+        JSONObject requisicao = new JSONObject();
+        requisicao.put("query", query);
+        if (transmitir) {
+            requisicao.put("stream", true);
+        }
+        if (limite > 0) {
+            requisicao.put("limit", limite);
+            requisicao.put("offset", deslocamento);
+        }
+        return requisicao;
+    }
+
+    private CompletableFuture<RespostaBusca> executar(JSONObject requisicao, Consumer<List<Resultado>> aoReceber) {
+        CompletableFuture<RespostaBusca> resposta = new CompletableFuture<>();
+        tentar(requisicao, aoReceber, 1, ESPERA_OCUPADO_MS, resposta);
+        return resposta;
+    }
+
+    private void tentar(JSONObject requisicao, Consumer<List<Resultado>> aoReceber, int tentativa, long espera,
+                        CompletableFuture<RespostaBusca> resposta) {
+        Pendente pendente = new Pendente(aoReceber);
+        obterConexao().thenCompose(c -> c.enviar(requisicao, pendente)).whenComplete((resultado, erro) -> {
+            if (erro == null) {
+                resposta.complete(resultado);
+                return;
+            }
+
+            // Só ocupado e conexão perdida são repetidos; o fim do prazo (TimeoutException) não, veja a classe
+            Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+            boolean repetir = tentativa < tentativas && !encerrado
+                    && (causa instanceof RejectedExecutionException
+                        || causa instanceof IOException && !pendente.entregouParciais);
+            if (!repetir) {
+                resposta.completeExceptionally(causa);
+                return;
+            }
+
+            // Espera crescente, com uma parte aleatória para os clientes não voltarem todos juntos
+            long pausa = espera + ThreadLocalRandom.current().nextLong(espera);
+            CompletableFuture.delayedExecutor(pausa, TimeUnit.MILLISECONDS)
+                    .execute(() -> tentar(requisicao, aoReceber, tentativa + 1, espera * 2, resposta));
+        });
+    }
+
+    /**
+     * A conexão atual ou, se ela caiu (ou ainda não foi aberta), uma nova, aberta em outra
+     * thread para não bloquear quem chamou.
+     */
+    private CompletableFuture<Conexao> obterConexao() {
+        while (true) {
+            if (encerrado) {
+                return CompletableFuture.failedFuture(new IOException("Cliente encerrado"));
+            }
+            CompletableFuture<Conexao> atual = conexao.get();
+            if (atual != null && (!atual.isDone() || !atual.isCompletedExceptionally() && atual.join().aberta)) {
+                return atual;
+            }
+
+            CompletableFuture<Conexao> nova = new CompletableFuture<>();
+            if (conexao.compareAndSet(atual, nova)) {
+                Executores.novaThread("conectar-" + host + ":" + porta, () -> {
+                    try {
+                        Conexao aberta = new Conexao();
+                        if (encerrado) {
+                            aberta.fechar();
+                        }
+                        nova.complete(aberta);
+                    } catch (IOException e) {
+                        nova.completeExceptionally(e);
+                    }
+                }).start();
+                return nova;
+            }
+        }
+    }
+
+    /**
+     * Quantidade de buscas aguardando resposta na conexão atual.
+     */
+    public int getPendentes() {
+        CompletableFuture<Conexao> atual = conexao.get();
+        return atual != null && atual.isDone() && !atual.isCompletedExceptionally() ? atual.join().pendentes.size() : 0;
+    }
+
+    @Override
+    public void close() {
+        encerrado = true;
+        CompletableFuture<Conexao> atual = conexao.get();
+        if (atual != null) {
+            atual.thenAccept(Conexao::fechar);
+        }
+    }
+
+    /**
+     * Uma conexão com o Servidor A e as buscas em andamento nela.
+     */
+    private final class Conexao {
+        private final Socket socket;
+        private final PrintWriter out;
+        private final BufferedReader in;
+        private final ReentrantLock travaEscrita = new ReentrantLock();
+        private final ConcurrentHashMap<Long, Pendente> pendentes = new ConcurrentHashMap<>();
+        private volatile boolean aberta = true;
+
+        Conexao() throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                socket.connect(new InetSocketAddress(host, porta), TIMEOUT_CONEXAO_MS);
+                out = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)), false);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+
+            Executores.novaThread("cliente-" + host + ":" + porta, this::lerRespostas).start();
+        }
+
+        CompletableFuture<RespostaBusca> enviar(JSONObject requisicao, Pendente pendente) {
+            long id = proximoId.incrementAndGet();
+            pendentes.put(id, pendente);
+
+            // Remove a busca dos pendentes também quando o prazo acaba; uma resposta atrasada é descartada
+            CompletableFuture<RespostaBusca> futuro = pendente.futuro;
+            futuro.orTimeout(prazoMs, TimeUnit.MILLISECONDS).whenComplete((resposta, erro) -> pendentes.remove(id));
+
+            // Cada tentativa tem um "id" novo (a anterior só é repetida depois de concluída), escrito
+            // em uma cópia: a requisição de quem chamou é a mesma em todas as tentativas
+            String linha = new JSONObject(requisicao, JSONObject.getNames(requisicao)).put("id", id).toString();
+
+            // Trava explícita em vez de synchronized para não prender threads virtuais durante a escrita
+            boolean falhou;
+            travaEscrita.lock();
+            try {
+                out.println(linha);
+                out.flush();
+                falhou = out.checkError();
+            } finally {
+                travaEscrita.unlock();
+            }
+
+            if (falhou || !aberta) {
+                fechar();
+                futuro.completeExceptionally(new IOException("Conexão com " + host + ":" + porta + " perdida"));
+            }
+            return futuro;
+        }
+
+        private void lerRespostas() {
+            try {
+                String linha;
+                while ((linha = in.readLine()) != null) {
+                    entregar(new JSONObject(linha));
+                }
+            } catch (IOException | RuntimeException e) {
+                if (aberta && !encerrado) {
+                    System.err.println("Erro na conexão com " + host + ":" + porta + ": " + e.getMessage());
+                }
+            } finally {
+                fechar();
+            }
+        }
+
+        private void entregar(JSONObject mensagem) {
+            Pendente pendente = pendentes.get(mensagem.optLong("id", -1));
+            if (pendente == null) {
+                return;
+            }
+
+            CompletableFuture<RespostaBusca> futuro = pendente.futuro;
+            switch (mensagem.optString("tipo")) {
+                case "OCUPADO" -> futuro.completeExceptionally(
+                        new RejectedExecutionException("Servidor " + host + ":" + porta + " ocupado"));
+                case "ERRO" -> futuro.completeExceptionally(new IllegalArgumentException(mensagem.optString("mensagem")));
+                case "PARCIAL" -> {
+                    if (pendente.aoReceber == null) {
+                        return;
+                    }
+                    pendente.entregouParciais = true;
+                    try {
+                        pendente.aoReceber.accept(RespostaBusca.resultadosDeJson(mensagem.getJSONArray("resultados")));
+                    } catch (RuntimeException e) {
+                        futuro.completeExceptionally(e);
+                    }
+                }
+                default -> {
+                    try {
+                        futuro.complete(RespostaBusca.deJson(mensagem));
+                    } catch (JSONException e) {
+                        futuro.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        void fechar() {
+            aberta = false;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar conexão com " + host + ":" + porta + ": " + e.getMessage());
+            }
+
+            // Nenhuma resposta pendente chegará mais por esta conexão
+            IOException erro = new IOException("Conexão com " + host + ":" + porta + " encerrada");
+            for (Pendente pendente : pendentes.values()) {
+                pendente.futuro.completeExceptionally(erro);
+            }
+        }
+    }
+
+    private static class Pendente {
+        private final CompletableFuture<RespostaBusca> futuro = new CompletableFuture<>();
+        private final Consumer<List<Resultado>> aoReceber;
+        private volatile boolean entregouParciais;
+
+        Pendente(Consumer<List<Resultado>> aoReceber) {
+            this.aoReceber = aoReceber;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coluna de textos comprimida em blocos, fora do heap.
+ *
+ * Os textos são agrupados de {@value #ARTIGOS_POR_BLOCO} em {@value #ARTIGOS_POR_BLOCO}, e cada
+ * grupo é codificado em UTF-8 e comprimido com o {@link CompressorLz} em um único buffer direto
+ * (ou em uma região mapeada de um {@link SnapshotCorpus}): o heap guarda só a tabela de
+ * deslocamentos, de modo que as posições dos textos são as mesmas de uma {@link ColunaTexto}.
+ *
+ * Um bloco só é descomprimido quando um dos seus textos é lido. Cada thread guarda o último
+ * bloco que leu (um na forma original e um normalizado) e reaproveita os mesmos arrays para os
+ * próximos: uma varredura em ordem descomprime cada bloco uma vez, sem criar objetos, e buscas
+ * simultâneas não tiram os blocos umas das outras. Não há cache entre threads; uma query repetida
+ * volta a descomprimir os seus blocos, mas as respostas repetidas já vêm dos caches de resultados.
+ *
+ * Formato de cada bloco: o tamanho em UTF-8 (int, little-endian) seguido dos bytes comprimidos.
+ */
+public final class ColunaComprimida {
+
+    public static final int ARTIGOS_POR_BLOCO = 16;
+
+    private static final AtomicInteger PROXIMO_ID = new AtomicInteger();
+    private static final ThreadLocal<Leitor> LEITORES = ThreadLocal.withInitial(Leitor::new);
+    private static final LongAdder DESCOMPRIMIDOS = new LongAdder();
+
+    private final int id = PROXIMO_ID.getAndIncrement();
+    private final ByteBuffer dados;
+    private final IntBuffer blocos;
+    private final IntBuffer inicios;
+
+    /**
+     * @param dados Os blocos comprimidos
+     * @param blocos Deslocamento de cada bloco em {@code dados}, e o fim do último
+     * @param inicios Posição (em caracteres) do começo de cada texto, e o total no fim
+     */
+    public ColunaComprimida(ByteBuffer dados, IntBuffer blocos, IntBuffer inicios) {
+        this.dados = dados.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.blocos = blocos;
+        this.inicios = inicios;
+    }
+
+    public int tamanho() {
+        return inicios.limit() - 1;
+    }
+
+    /**
+     * Os blocos comprimidos, de 0 a {@link #tamanhoBytes()}.
+     */
+    public ByteBuffer getDados() {
+        return dados.duplicate().position(0).limit(tamanhoBytes());
+    }
+
+    public IntBuffer getBlocos() {
+        return blocos;
+    }
+
+    public IntBuffer getInicios() {
+        return inicios;
+    }
+
+    public int comprimento(int indice) {
+        return inicios.get(indice + 1) - inicios.get(indice);
+    }
+
+    /**
+     * Total de bytes dos blocos comprimidos.
+     */
+    public int tamanhoBytes() {
+        return blocos.get(blocos.limit() - 1);
+    }
+
+    /**
+     * Quantos blocos foram descomprimidos até agora, por todas as colunas do processo.
+     */
+    public static long getBlocosDescomprimidos() {
+        return DESCOMPRIMIDOS.sum();
+    }
+
+    /**
+     * O bloco do texto já convertido para a forma usada na busca (veja
+     * {@link ColunaTexto.Construtor#adicionarNormalizado}). Vale até a thread ler outro bloco
+     * normalizado: quem chama percorre os caracteres e descarta o bloco.
+     */
+    public Bloco normalizado(int indice) {
+        return bloco(indice / ARTIGOS_POR_BLOCO, true);
+    }
+
+    /**
+     * Materializa o texto completo de um item.
+     */
+    public String texto(int indice) {
+        return texto(indice, comprimento(indice));
+    }
+
+    /**
+     * Materializa no máximo os primeiros {@code limite} caracteres de um item.
+     */
+    public String texto(int indice, int limite) {
+        Bloco bloco = bloco(indice / ARTIGOS_POR_BLOCO, false);
+        int inicio = bloco.inicio(indice);
+        return new String(bloco.caracteres, inicio, Math.min(bloco.fim(indice), inicio + limite) - inicio);
+    }
+
+    private Bloco bloco(int numero, boolean normalizado) {
+        Leitor leitor = LEITORES.get();
+        Bloco bloco = normalizado ? leitor.normalizado : leitor.original;
+        if (bloco.coluna != id || bloco.numero != numero) {
+            descomprimir(numero, bloco, leitor);
+        }
+        return bloco;
+    }
+
+    private void descomprimir(int numero, Bloco bloco, Leitor leitor) {
+        int inicio = blocos.get(numero);
+        int tamanhoUtf8 = dados.getInt(inicio);
+        if (leitor.utf8.length < tamanhoUtf8) {
+            leitor.utf8 = new byte[Math.max(tamanhoUtf8, leitor.utf8.length + (leitor.utf8.length >> 1))];
+        }
+        CompressorLz.descomprimir(dados, inicio + Integer.BYTES, blocos.get(numero + 1), leitor.utf8, tamanhoUtf8);
+        DESCOMPRIMIDOS.increment();
+
+        // A quantidade de caracteres do bloco já está na tabela de inícios
+        int deslocamento = inicios.get(numero * ARTIGOS_POR_BLOCO);
+        int comprimento = inicios.get(Math.min((numero + 1) * ARTIGOS_POR_BLOCO, tamanho())) - deslocamento;
+        bloco.reservar(comprimento);
+        decodificar(leitor.utf8, tamanhoUtf8, bloco.caracteres);
+        if (bloco.normalizado) {
+            char[] caracteres = bloco.caracteres;
+            for (int i = 0; i < comprimento; i++) {
+                caracteres[i] = Character.toLowerCase(caracteres[i]);
+            }
+        }
+        bloco.coluna = id;
+        bloco.numero = numero;
+        bloco.inicios = inicios;
+        bloco.deslocamento = deslocamento;
+    }
+
+    /**
+     * Decodifica o UTF-8 escrito por {@link String#getBytes} direto no array, sem criar uma String.
+     */
+    static void decodificar(byte[] utf8, int tamanho, char[] destino) {
+        int j = 0;
+        int i = 0;
+        while (i < tamanho) {
+            int b = utf8[i++];
+            if (b >= 0) {
+                destino[j++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                destino[j++] = (char) ((b & 0x1F) << 6 | utf8[i++] & 0x3F);
+            } else if ((b & 0xF0) == 0xE0) {
+                destino[j++] = (char) ((b & 0x0F) << 12 | (utf8[i++] & 0x3F) << 6 | utf8[i++] & 0x3F);
+            } else {
+                int codigo = (b & 0x07) << 18 | (utf8[i++] & 0x3F) << 12 | (utf8[i++] & 0x3F) << 6 | utf8[i++] & 0x3F;
+                destino[j++] = Character.highSurrogate(codigo);
+                destino[j++] = Character.lowSurrogate(codigo);
+            }
+        }
+    }
+
+    /**
+     * Os arrays de uma thread para descomprimir: os bytes e o último bloco lido de cada forma.
+     */
+    private static final class Leitor {
+        private byte[] utf8 = new byte[0];
+        private final Bloco original = new Bloco(false);
+        private final Bloco normalizado = new Bloco(true);
+    }
+
+    /**
+     * Os textos de um bloco descomprimidos. As posições de {@link #inicio(int)} e {@link #fim(int)}
+     * são relativas a {@link #getCaracteres()}. O objeto é da thread que leu o bloco e é
+     * reaproveitado na próxima leitura dela.
+     */
+    public static final class Bloco {
+        private final boolean normalizado;
+        private int coluna = -1;
+        private int numero = -1;
+        private char[] caracteres = new char[0];
+        private CharBuffer buffer = CharBuffer.wrap(caracteres);
+        private IntBuffer inicios;
+        private int deslocamento; // Posição na coluna do primeiro caractere do bloco
+
+        private Bloco(boolean normalizado) {
+            this.normalizado = normalizado;
+        }
+
+        private void reservar(int comprimento) {
+            if (caracteres.length < comprimento) {
+                caracteres = new char[Math.max(comprimento, caracteres.length + (caracteres.length >> 1))];
+                buffer = CharBuffer.wrap(caracteres);
+            }
+        }
+
+        public CharBuffer getCaracteres() {
+            return buffer;
+        }
+
+        public int inicio(int indice) {
+            return inicios.get(indice) - deslocamento;
+        }
+
+        public int fim(int indice) {
+            return inicios.get(indice + 1) - deslocamento;
+        }
+    }
+
+    /**
+     * Monta uma coluna acrescentando um texto por vez; cada bloco é comprimido assim que fica completo.
+     */
+    public static class Construtor {
+        private final StringBuilder bloco = new StringBuilder();
+        private int[] inicios = new int[64];
+        private int[] blocos = new int[8];
+        private byte[] dados = new byte[4096];
+        private int quantidade;
+        private int quantidadeBlocos;
+        private int total;
+        private int tamanhoDados;
+
+        public void adicionar(String texto) {
+            if (quantidade + 2 > inicios.length) {
+                inicios = Arrays.copyOf(inicios, inicios.length * 2);
+            }
+            inicios[quantidade++] = total;
+            total += texto.length();
+            bloco.append(texto);
+
+            if (quantidade % ARTIGOS_POR_BLOCO == 0) {
+                fecharBloco();
+            }
+        }
+
+        private void fecharBloco() {
+            byte[] utf8 = bloco.toString().getBytes(StandardCharsets.UTF_8);
+            bloco.setLength(0);
+
+            int necessario = tamanhoDados + Integer.BYTES + CompressorLz.limite(utf8.length);
+            if (necessario > dados.length) {
+                dados = Arrays.copyOf(dados, Math.max(necessario, dados.length + (dados.length >> 1)));
+            }
+            if (quantidadeBlocos + 2 > blocos.length) {
+                blocos = Arrays.copyOf(blocos, blocos.length * 2);
+            }
+
+            blocos[quantidadeBlocos++] = tamanhoDados;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                dados[tamanhoDados++] = (byte) (utf8.length >>> (8 * i));
+            }
+            tamanhoDados = CompressorLz.comprimir(utf8, utf8.length, dados, tamanhoDados);
+        }
+
+        public ColunaComprimida construir() {
+            if (quantidade % ARTIGOS_POR_BLOCO != 0) {
+                fecharBloco();
+            }
+
+            int[] tabelaInicios = Arrays.copyOf(inicios, quantidade + 1);
+            tabelaInicios[quantidade] = total;
+            int[] tabelaBlocos = Arrays.copyOf(blocos, quantidadeBlocos + 1);
+            tabelaBlocos[quantidadeBlocos] = tamanhoDados;
+
+            // Só os blocos comprimidos vão para fora do heap; as tabelas têm um int por texto ou bloco
+            ByteBuffer direto = ByteBuffer.allocateDirect(Math.max(1, tamanhoDados));
+            direto.put(dados, 0, tamanhoDados).flip();
+            return new ColunaComprimida(direto, IntBuffer.wrap(tabelaBlocos), IntBuffer.wrap(tabelaInicios));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Coluna de textos armazenada de forma contígua.
+ *
+ * Todos os textos da coluna ficam concatenados em um único buffer de caracteres
+ * e uma tabela de deslocamentos indica onde cada um começa. Assim uma coluna com
+ * milhares de artigos ocupa dois objetos no heap, em vez de uma String por artigo.
+ * Os dois buffers podem ser vetores no heap ou regiões de um snapshot mapeado em
+ * memória ({@link SnapshotCorpus}).
+ */
+public class ColunaTexto {
+
+    private final CharBuffer caracteres;
+    private final IntBuffer inicios;
+
+    public ColunaTexto(CharBuffer caracteres, IntBuffer inicios) {
+        this.caracteres = caracteres;
+        this.inicios = inicios;
+    }
+
+    public int tamanho() {
+        return inicios.limit() - 1;
+    }
+
+    /**
+     * Buffer com os caracteres de todos os textos. As posições usadas em
+     * {@link #inicio(int)} e {@link #fim(int)} são absolutas neste buffer.
+     */
+    public CharBuffer getCaracteres() {
+        return caracteres;
+    }
+
+    /**
+     * Tabela de deslocamentos, com {@code tamanho() + 1} posições.
+     */
+    public IntBuffer getInicios() {
+        return inicios;
+    }
+
+    public int inicio(int indice) {
+        return inicios.get(indice);
+    }
+
+    public int fim(int indice) {
+        return inicios.get(indice + 1);
+    }
+
+    public int comprimento(int indice) {
+        return inicios.get(indice + 1) - inicios.get(indice);
+    }
+
+    /**
+     * Materializa o texto completo de um item. Usado apenas para exibir resultados.
+     */
+    public String texto(int indice) {
+        return texto(indice, comprimento(indice));
+    }
+
+    /**
+     * Materializa no máximo os primeiros {@code limite} caracteres de um item.
+     */
+    public String texto(int indice, int limite) {
+        int inicio = inicios.get(indice);
+        int fim = Math.min(inicios.get(indice + 1), inicio + limite);
+        return caracteres.subSequence(inicio, fim).toString();
+    }
+
+    /**
+     * Monta uma coluna acrescentando um texto por vez.
+     */
+    public static class Construtor {
+        private char[] caracteres = new char[1024];
+        private int[] inicios = new int[64];
+        private int quantidade;
+        private int total;
+
+        public void adicionar(String texto) {
+            garantirCapacidade(texto.length());
+            texto.getChars(0, texto.length(), caracteres, total);
+            fecharItem(texto.length());
+        }
+
+        /**
+         * Acrescenta o texto já convertido para a forma usada na busca.
+         * A conversão é feita caractere a caractere, preservando o comprimento,
+         * para que a coluna normalizada compartilhe os deslocamentos da original.
+         */
+        public void adicionarNormalizado(String texto) {
+            garantirCapacidade(texto.length());
+            for (int i = 0; i < texto.length(); i++) {
+                caracteres[total + i] = Character.toLowerCase(texto.charAt(i));
+            }
+            fecharItem(texto.length());
+        }
+
+        private void garantirCapacidade(int adicional) {
+            if (total + adicional > caracteres.length) {
+                caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, total + adicional));
+            }
+            if (quantidade + 2 > inicios.length) {
+                inicios = Arrays.copyOf(inicios, inicios.length * 2);
+            }
+        }
+
+        private void fecharItem(int comprimento) {
+            inicios[quantidade++] = total;
+            total += comprimento;
+        }
+
+        public ColunaTexto construir() {
+            int[] tabela = Arrays.copyOf(inicios, quantidade + 1);
+            tabela[quantidade] = total;
+            return new ColunaTexto(CharBuffer.wrap(Arrays.copyOf(caracteres, total)), IntBuffer.wrap(tabela));
+        }
+    }
+}
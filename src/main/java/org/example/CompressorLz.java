@@ -0,0 +1,159 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compressão LZ77 no formato de bloco do LZ4: sequências de literais seguidos de uma cópia
+ * de até 64 KB atrás. Comprime por volta de 2x textos em inglês e descomprime com pouco mais
+ * que cópias de memória, o que importa mais aqui do que a taxa: os blocos são descomprimidos
+ * durante as buscas ({@link ColunaComprimida}).
+ *
+ * Cada sequência é um byte de controle (4 bits para a quantidade de literais, 4 bits para o
+ * comprimento da cópia menos {@value #MINIMO}, cada um continuado em bytes de 255 quando chega
+ * a 15), os literais, o deslocamento da cópia (2 bytes, little-endian) e a continuação do
+ * comprimento. A última sequência só tem literais.
+ */
+final class CompressorLz {
+
+    static final int MINIMO = 4;
+    private static final int BITS_HASH = 12;
+    private static final int DISTANCIA_MAXIMA = 0xFFFF;
+
+    private CompressorLz() {
+    }
+
+    /**
+     * Tamanho máximo da saída de {@link #comprimir} para uma entrada de {@code tamanho} bytes.
+     */
+    static int limite(int tamanho) {
+        return tamanho + tamanho / 255 + 16;
+    }
+
+    /**
+     * Comprime {@code origem[0, tamanho)} em {@code destino} a partir de {@code posicao}.
+     *
+     * @param destino Com pelo menos {@link #limite(int)} bytes livres a partir da posição
+     * @return A posição seguinte ao último byte escrito
+     */
+    static int comprimir(byte[] origem, int tamanho, byte[] destino, int posicao) {
+        int[] tabela = new int[1 << BITS_HASH]; // Última posição (mais 1) de cada hash de 4 bytes
+        int saida = posicao;
+        int ancora = 0;
+        int atual = 0;
+
+        while (atual + MINIMO <= tamanho) {
+            int sequencia = ler4(origem, atual);
+            int hash = (sequencia * -1640531535) >>> (Integer.SIZE - BITS_HASH);
+            int candidato = tabela[hash] - 1;
+            tabela[hash] = atual + 1;
+
+            if (candidato < 0 || atual - candidato > DISTANCIA_MAXIMA || ler4(origem, candidato) != sequencia) {
+                // Sem repetição: avança mais rápido quanto mais tempo passa sem encontrar uma
+                atual += 1 + ((atual - ancora) >>> 6);
+                continue;
+            }
+
+            int comprimento = MINIMO;
+            while (atual + comprimento < tamanho && origem[candidato + comprimento] == origem[atual + comprimento]) {
+                comprimento++;
+            }
+            saida = escreverSequencia(origem, ancora, atual - ancora, atual - candidato, comprimento, destino, saida);
+            atual += comprimento;
+            ancora = atual;
+        }
+
+        if (ancora < tamanho) {
+            saida = escreverSequencia(origem, ancora, tamanho - ancora, 0, 0, destino, saida);
+        }
+        return saida;
+    }
+
+    /**
+     * Descomprime os bytes {@code [inicio, fim)} da origem, que têm {@code tamanho} bytes
+     * descomprimidos, para o início do destino. Lê a origem por posições absolutas, sem alterá-la.
+     */
+    static void descomprimir(ByteBuffer origem, int inicio, int fim, byte[] destino, int tamanho) {
+        int entrada = inicio;
+        int saida = 0;
+
+        while (saida < tamanho) {
+            int controle = origem.get(entrada++) & 0xFF;
+
+            int literais = controle >>> 4;
+            if (literais == 15) {
+                int continuacao;
+                do {
+                    continuacao = origem.get(entrada++) & 0xFF;
+                    literais += continuacao;
+                } while (continuacao == 255);
+            }
+            origem.get(entrada, destino, saida, literais);
+            entrada += literais;
+            saida += literais;
+            if (saida >= tamanho) {
+                break;
+            }
+
+            int distancia = (origem.get(entrada) & 0xFF) | (origem.get(entrada + 1) & 0xFF) << 8;
+            entrada += 2;
+            int comprimento = controle & 0x0F;
+            if (comprimento == 15) {
+                int continuacao;
+                do {
+                    continuacao = origem.get(entrada++) & 0xFF;
+                    comprimento += continuacao;
+                } while (continuacao == 255);
+            }
+            comprimento += MINIMO;
+
+            int copia = saida - distancia;
+            if (distancia >= comprimento) {
+                System.arraycopy(destino, copia, destino, saida, comprimento);
+                saida += comprimento;
+            } else {
+                // A cópia se sobrepõe ao que ela mesma escreve (repetições curtas): byte a byte
+                for (int i = 0; i < comprimento; i++) {
+                    destino[saida++] = destino[copia + i];
+                }
+            }
+        }
+
+        if (saida != tamanho || entrada > fim) {
+            throw new IllegalStateException("Bloco comprimido inválido");
+        }
+    }
+
+    private static int escreverSequencia(byte[] origem, int inicioLiterais, int literais, int distancia,
+                                         int comprimento, byte[] destino, int saida) {
+        int excedente = comprimento == 0 ? 0 : comprimento - MINIMO;
+        destino[saida++] = (byte) (Math.min(literais, 15) << 4 | Math.min(excedente, 15));
+        if (literais >= 15) {
+            saida = escreverContinuacao(literais - 15, destino, saida);
+        }
+        System.arraycopy(origem, inicioLiterais, destino, saida, literais);
+        saida += literais;
+
+        if (comprimento > 0) {
+            destino[saida++] = (byte) distancia;
+            destino[saida++] = (byte) (distancia >>> 8);
+            if (excedente >= 15) {
+                saida = escreverContinuacao(excedente - 15, destino, saida);
+            }
+        }
+        return saida;
+    }
+
+    private static int escreverContinuacao(int valor, byte[] destino, int saida) {
+        while (valor >= 255) {
+            destino[saida++] = (byte) 255;
+            valor -= 255;
+        }
+        destino[saida++] = (byte) valor;
+        return saida;
+    }
+
+    private static int ler4(byte[] origem, int posicao) {
+        return (origem[posicao] & 0xFF) | (origem[posicao + 1] & 0xFF) << 8
+                | (origem[posicao + 2] & 0xFF) << 16 | (origem[posicao + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,264 @@
+package org.example;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.json.*;
+
+/**
+ * Conexão persistente com um servidor de busca que aceita várias requisições em andamento.
+ *
+ * Cada requisição enviada recebe um "id" e é registrada como pendente.
+ * Uma thread leitora recebe as respostas, que podem chegar fora de ordem, e
+ * completa o futuro correspondente ao "id" de cada uma. Respostas transmitidas
+ * em várias mensagens trazem o tipo {@link RespostaShard#PARCIAL} em todas menos na última.
+ * Uma resposta comum grande demais para um quadro binário chega também com quadros
+ * PARCIAL antes do RESPOSTA; a conexão junta os resultados e entrega uma única resposta.
+ * Uma requisição recusada pelo servidor ({@link RespostaShard#OCUPADO}) falha com
+ * {@link RejectedExecutionException}, para quem enviou poder tentar outra réplica.
+ *
+ * As mensagens trafegam no {@link ProtocoloBinario} quando ele é pedido e o servidor
+ * o aceita na conexão, ou em JSON, uma mensagem por linha.
+ */
+public class ConexaoMultiplexada implements Closeable {
+
+    private final String destino;
+    private final Socket socket;
+    private final boolean binaria;
+    private final OutputStream saida;
+    private final PrintWriter out;
+    private final ReentrantLock travaEscrita = new ReentrantLock();
+    private final InputStream entrada;
+    private final ConcurrentHashMap<Long, Pendente> pendentes = new ConcurrentHashMap<>();
+    private final AtomicLong proximoId = new AtomicLong();
+    private volatile boolean aberta = true;
+
+    private ConexaoMultiplexada(String host, int porta, Socket socket, boolean binaria) throws IOException {
+        this.destino = host + ":" + porta;
+        this.socket = socket;
+        this.binaria = binaria;
+        this.saida = new BufferedOutputStream(socket.getOutputStream());
+        this.out = new PrintWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), true);
+        this.entrada = new BufferedInputStream(socket.getInputStream());
+
+        Executores.novaThread("leitor-" + destino, this::lerRespostas).start();
+    }
+
+    public static ConexaoMultiplexada conectar(String host, int porta, int timeoutConexao) throws IOException {
+        return conectar(host, porta, timeoutConexao, false);
+    }
+
+    /**
+     * Abre a conexão e, se pedido, negocia o protocolo binário. Se o servidor não devolver
+     * o preâmbulo dentro do tempo de conexão, reconecta em JSON; {@link #isBinaria()} indica
+     * o protocolo que ficou valendo.
+     */
+    public static ConexaoMultiplexada conectar(String host, int porta, int timeoutConexao, boolean binaria)
+            throws IOException {
+        Socket socket = abrir(host, porta, timeoutConexao);
+        if (!binaria) {
+            return new ConexaoMultiplexada(host, porta, socket, false);
+        }
+
+        try {
+            OutputStream saida = socket.getOutputStream();
+            saida.write(ProtocoloBinario.PREAMBULO);
+            saida.flush();
+
+            socket.setSoTimeout(timeoutConexao);
+            boolean aceito = ProtocoloBinario.lerPreambulo(socket.getInputStream());
+            socket.setSoTimeout(0);
+            if (aceito) {
+                return new ConexaoMultiplexada(host, porta, socket, true);
+            }
+        } catch (IOException e) {
+            // Servidor sem suporte ao protocolo binário: não responde ou encerra a conexão
+        }
+
+        socket.close();
+        System.err.println("Servidor " + host + ":" + porta + " não aceitou o protocolo binário; usando JSON");
+        return new ConexaoMultiplexada(host, porta, abrir(host, porta, timeoutConexao), false);
+    }
+
+    private static Socket abrir(String host, int porta, int timeoutConexao) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, porta), timeoutConexao);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Envia uma requisição e retorna o futuro da resposta correspondente.
+     * O "id" da requisição é definido pela conexão.
+     */
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao) {
+        return enviar(requisicao, null);
+    }
+
+    /**
+     * Envia uma requisição cuja resposta pode chegar em várias mensagens com o mesmo "id".
+     * As mensagens parciais são entregues ao ouvinte na ordem de chegada, na thread leitora
+     * da conexão (o ouvinte não deve bloquear), e o futuro é concluído com a mensagem final.
+     *
+     * @param ouvinteParciais Recebe as mensagens parciais; null se a resposta é uma única mensagem
+     */
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao,
+                                                   Consumer<RespostaShard> ouvinteParciais) {
+        long id = proximoId.incrementAndGet();
+        CompletableFuture<RespostaShard> futuro = new CompletableFuture<>();
+        pendentes.put(id, new Pendente(futuro, ouvinteParciais));
+
+        // Remove a requisição dos pendentes também quando o chamador desiste dela (timeout)
+        futuro.whenComplete((resposta, erro) -> pendentes.remove(id));
+
+        RequisicaoShard comId = requisicao.comId(id);
+        ByteBuffer quadro = binaria ? ProtocoloBinario.codificar(comId) : null;
+        String linha = binaria ? null : comId.paraJson().toString();
+
+        // Trava explícita em vez de synchronized para não prender threads virtuais durante a escrita
+        boolean falhou;
+        travaEscrita.lock();
+        try {
+            if (binaria) {
+                saida.write(quadro.array(), quadro.arrayOffset() + quadro.position(), quadro.remaining());
+                saida.flush();
+                falhou = false;
+            } else {
+                out.println(linha);
+                falhou = out.checkError();
+            }
+        } catch (IOException e) {
+            falhou = true;
+        } finally {
+            travaEscrita.unlock();
+        }
+
+        if (falhou || !aberta) {
+            fechar();
+            futuro.completeExceptionally(new IOException("Conexão com " + destino + " perdida"));
+        }
+        return futuro;
+    }
+
+    private void lerRespostas() {
+        try {
+            if (binaria) {
+                DataInputStream in = new DataInputStream(entrada);
+                ByteBuffer quadro;
+                while ((quadro = ProtocoloBinario.lerQuadro(in)) != null) {
+                    entregar(ProtocoloBinario.lerResposta(quadro));
+                }
+            } else {
+                BufferedReader in = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+                String linha;
+                while ((linha = in.readLine()) != null) {
+                    entregar(RespostaShard.deJson(new JSONObject(linha)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (aberta) {
+                System.err.println("Erro na conexão com " + destino + ": " + e.getMessage());
+            }
+        } finally {
+            fechar();
+        }
+    }
+
+    private void entregar(RespostaShard resposta) {
+        Pendente pendente = pendentes.get(resposta.getId());
+        if (pendente == null) {
+            return;
+        }
+
+        if (RespostaShard.OCUPADO.equals(resposta.getTipo())) {
+            pendente.futuro.completeExceptionally(new RejectedExecutionException("Servidor " + destino + " ocupado"));
+        } else if (RespostaShard.PARCIAL.equals(resposta.getTipo())) {
+            if (pendente.ouvinteParciais == null) {
+                pendente.juntar(resposta.getResultados());
+                return;
+            }
+            try {
+                pendente.ouvinteParciais.accept(resposta);
+            } catch (RuntimeException e) {
+                pendente.futuro.completeExceptionally(e);
+            }
+        } else if (pendente.juntados != null) {
+            pendente.juntar(resposta.getResultados());
+            pendente.futuro.complete(new RespostaShard(resposta.getTipo(), resposta.getId(), resposta.getServidor(),
+                    resposta.getTotal(), pendente.juntados, resposta.getErro(), resposta.getVersao()));
+        } else {
+            pendente.futuro.complete(resposta);
+        }
+    }
+
+    public boolean isAberta() {
+        return aberta;
+    }
+
+    /**
+     * Indica se a conexão usa o protocolo binário (ou JSON).
+     */
+    public boolean isBinaria() {
+        return binaria;
+    }
+
+    public int getPendentes() {
+        return pendentes.size();
+    }
+
+    public String getDestino() {
+        return destino;
+    }
+
+    private void fechar() {
+        aberta = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar conexão com " + destino + ": " + e.getMessage());
+        }
+
+        // Nenhuma resposta pendente chegará mais por esta conexão
+        IOException erro = new IOException("Conexão com " + destino + " encerrada");
+        for (Pendente pendente : pendentes.values()) {
+            pendente.futuro.completeExceptionally(erro);
+        }
+    }
+
+    @Override
+    public void close() {
+        fechar();
+    }
+
+    private static class Pendente {
+        private final CompletableFuture<RespostaShard> futuro;
+        private final Consumer<RespostaShard> ouvinteParciais;
+        private List<Resultado> juntados; // Resultados das partes de uma resposta dividida (só na thread leitora)
+
+        Pendente(CompletableFuture<RespostaShard> futuro, Consumer<RespostaShard> ouvinteParciais) {
+            this.futuro = futuro;
+            this.ouvinteParciais = ouvinteParciais;
+        }
+
+        void juntar(List<Resultado> resultados) {
+            if (juntados == null) {
+                juntados = new ArrayList<>(resultados);
+            } else {
+                juntados.addAll(resultados);
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Uma busca escrita com operadores, interpretada e avaliada no servidor de busca. A sintaxe só vale
+ * em queries que começam com {@value #PREFIXO} (por exemplo {@code consulta:title:graph AND NOT
+ * label:cs.LG}); as demais são sempre um único texto procurado no título ou no resumo, mesmo com
+ * aspas, parênteses ou palavras como AND, de modo que {@code O(n log n)} continua sendo um trecho.
+ *
+ * <pre>
+ *   neural                 o texto ocorre no título ou no resumo (como uma busca comum)
+ *   "neural network"       idem, para um trecho com espaços
+ *   title:graph            só no título; abstract:x só no resumo (também com aspas: title:"a b")
+ *   label:cs.LG            o rótulo é exatamente esse (sem diferenciar maiúsculas)
+ *   a AND b, a b           os dois
+ *   a OR b                 algum deles
+ *   NOT a                  não contém
+ *   ( ... )                agrupa
+ * </pre>
+ *
+ * NOT tem precedência sobre AND, e AND sobre OR. Os operadores só valem em maiúsculas e fora de
+ * aspas: em minúsculas são palavras comuns. A interpretação nunca recusa uma busca: aspas sem
+ * fechamento vão até o fim, parênteses sobrando e operadores sem operando são ignorados.
+ *
+ * A avaliação é feita em cada segmento dos artigos com {@link MapaBits}: cada cláusula recebe o
+ * conjunto de artigos que ainda podem satisfazer a busca e retorna os que satisfazem. Em um AND,
+ * a cláusula mais barata é avaliada primeiro (rótulos, que são só a consulta a um mapa de bits
+ * montado com o segmento; depois os textos com menos candidatos no índice de trigramas; os NOT
+ * por último) e cada uma só verifica os artigos que sobraram das anteriores.
+ */
+public final class Consulta {
+
+    /**
+     * Marca uma query como consulta com operadores.
+     */
+    public static final String PREFIXO = "consulta:";
+
+    private static final String[] CAMPOS = {"title:", "abstract:", "label:"};
+
+    /**
+     * Onde um texto da consulta é procurado.
+     */
+    public enum Campo {
+        QUALQUER, TITULO, RESUMO
+    }
+
+    /**
+     * Os artigos de um segmento, como a consulta os vê. Os ids vão de 0 a {@code tamanho() - 1}.
+     */
+    interface Alvo {
+        int tamanho();
+
+        /**
+         * Os artigos que não foram removidos.
+         */
+        MapaBits artigosAtivos();
+
+        /**
+         * @see IndiceTrigramas#candidatos(String)
+         */
+        int[] candidatos(String textoNormalizado);
+
+        /**
+         * Os artigos (inclusive removidos) com o rótulo, já normalizado.
+         */
+        MapaBits rotulo(String rotuloNormalizado);
+
+        boolean contem(int artigo, Campo campo, PadraoCompilado padrao);
+    }
+
+    private final String query;
+    private final No raiz; // null se a busca não tem nenhuma cláusula
+
+    private Consulta(String query, No raiz) {
+        this.query = query;
+        this.raiz = raiz;
+    }
+
+    /**
+     * Indica se a query pede a sintaxe de consulta, começando com {@value #PREFIXO}.
+     */
+    public static boolean ehExpressao(String query) {
+        return query.startsWith(PREFIXO);
+    }
+
+    /**
+     * Chave de cache da query: a query normalizada ou, para uma expressão (em que maiúsculas
+     * distinguem operadores de palavras), a query original com um prefixo que não aparece em
+     * queries digitadas.
+     */
+    public static String chaveCache(String query) {
+        return ehExpressao(query) ? "\u0001" + query : CorpusArtigos.normalizar(query);
+    }
+
+    /**
+     * @param query A expressão, com ou sem o {@value #PREFIXO}
+     * @param algoritmo Compila o padrão de cada texto da consulta
+     */
+    public static Consulta interpretar(String query, AlgoritmoBusca algoritmo) {
+        String expressao = ehExpressao(query) ? query.substring(PREFIXO.length()) : query;
+        Interpretador interpretador = new Interpretador(separar(expressao), algoritmo);
+        return new Consulta(query, interpretador.tudo());
+    }
+
+    /**
+     * Os textos que a busca procura, sem os que estão sob um NOT, normalizados e sem repetidos:
+     * são eles que pontuam os resultados na ordenação por relevância.
+     */
+    public List<String> getTextosPositivos() {
+        Set<String> textos = new LinkedHashSet<>();
+        if (raiz != null) {
+            raiz.coletarTextos(textos, false);
+        }
+        return new ArrayList<>(textos);
+    }
+
+    /**
+     * Os artigos do segmento que satisfazem a consulta (nunca os removidos).
+     *
+     * @param buscaParalela Verifica os candidatos de cada texto
+     */
+    MapaBits avaliar(Alvo alvo, BuscaParalela buscaParalela) {
+        if (raiz == null) {
+            return MapaBits.nenhum();
+        }
+        return raiz.avaliar(new Avaliacao(alvo, buscaParalela), alvo.artigosAtivos());
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * O prefixo de campo da palavra (em minúsculas), ou null.
+     */
+    private static String campo(String palavra) {
+        for (String campo : CAMPOS) {
+            if (palavra.regionMatches(true, 0, campo, 0, campo.length())) {
+                return campo;
+            }
+        }
+        return null;
+    }
+
+    // -- Interpretação
+
+    /**
+     * Uma palavra ou trecho entre aspas (com o campo, se houver), um parêntese ou um operador.
+     */
+    private record Simbolo(String texto, String campo, boolean operador) {
+        boolean eh(String operador) {
+            return this.operador && texto.equals(operador);
+        }
+    }
+
+    private static List<Simbolo> separar(String query) {
+        List<Simbolo> simbolos = new ArrayList<>();
+        int i = 0;
+        int n = query.length();
+
+        while (i < n) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                simbolos.add(new Simbolo(String.valueOf(c), null, true));
+                i++;
+            } else if (c == '"') {
+                int fim = fimDasAspas(query, i + 1);
+                simbolos.add(new Simbolo(query.substring(i + 1, fim), null, false));
+                i = Math.min(n, fim + 1);
+            } else {
+                int fim = i;
+                while (fim < n && !Character.isWhitespace(query.charAt(fim))
+                        && "()\"".indexOf(query.charAt(fim)) < 0) {
+                    fim++;
+                }
+                String palavra = query.substring(i, fim);
+                String campo = campo(palavra);
+
+                if (campo != null && palavra.length() == campo.length() && fim < n && query.charAt(fim) == '"') {
+                    // title:"trecho com espaços"
+                    int fimAspas = fimDasAspas(query, fim + 1);
+                    simbolos.add(new Simbolo(query.substring(fim + 1, fimAspas), campo, false));
+                    i = Math.min(n, fimAspas + 1);
+                    continue;
+                }
+                boolean operador = palavra.equals("AND") || palavra.equals("OR") || palavra.equals("NOT");
+                simbolos.add(campo != null
+                        ? new Simbolo(palavra.substring(campo.length()), campo, false)
+                        : new Simbolo(palavra, null, operador));
+                i = fim;
+            }
+        }
+        return simbolos;
+    }
+
+    private static int fimDasAspas(String query, int inicio) {
+        int fim = query.indexOf('"', inicio);
+        return fim < 0 ? query.length() : fim;
+    }
+
+    /**
+     * Descida recursiva pela gramática:
+     * <pre>
+     *   ou      := e ("OR" e)*
+     *   e       := unario ("AND"? unario)*
+     *   unario  := "NOT" unario | "(" ou ")" | [campo] texto
+     * </pre>
+     * Cada regra retorna null quando não sobra nenhuma cláusula (parênteses vazios, operador sem operando).
+     */
+    private static final class Interpretador {
+        private final List<Simbolo> simbolos;
+        private final AlgoritmoBusca algoritmo;
+        private int posicao;
+
+        Interpretador(List<Simbolo> simbolos, AlgoritmoBusca algoritmo) {
+            this.simbolos = simbolos;
+            this.algoritmo = algoritmo;
+        }
+
+        No tudo() {
+            // Um ")" sem "(" encerra o "ou" antes do fim: é descartado e o restante entra com AND
+            List<No> partes = new ArrayList<>();
+            while (posicao < simbolos.size()) {
+                adicionar(partes, ou());
+                if (posicao < simbolos.size()) {
+                    posicao++;
+                }
+            }
+            return E.de(partes);
+        }
+
+        private No ou() {
+            List<No> partes = new ArrayList<>();
+            adicionar(partes, e());
+            while (proximoEh("OR")) {
+                posicao++;
+                adicionar(partes, e());
+            }
+            return Ou.de(partes);
+        }
+
+        private No e() {
+            List<No> partes = new ArrayList<>();
+            while (posicao < simbolos.size() && !proximoEh(")") && !proximoEh("OR")) {
+                if (proximoEh("AND")) {
+                    posicao++;
+                } else {
+                    adicionar(partes, unario());
+                }
+            }
+            return E.de(partes);
+        }
+
+        private No unario() {
+            Simbolo simbolo = simbolos.get(posicao++);
+            if (simbolo.eh("NOT")) {
+                if (posicao == simbolos.size() || proximoEh(")") || proximoEh("OR") || proximoEh("AND")) {
+                    return null;
+                }
+                No negado = unario();
+                return negado == null ? null : new Nao(negado);
+            }
+            if (simbolo.eh("(")) {
+                No grupo = ou();
+                if (proximoEh(")")) {
+                    posicao++;
+                }
+                return grupo;
+            }
+            return folha(simbolo);
+        }
+
+        private No folha(Simbolo simbolo) {
+            String texto = CorpusArtigos.normalizar(simbolo.texto());
+            if ("label:".equals(simbolo.campo())) {
+                return texto.isBlank() ? null : new Rotulo(texto.trim());
+            }
+            if (texto.isEmpty()) {
+                return null;
+            }
+            Campo campo = simbolo.campo() == null ? Campo.QUALQUER
+                    : simbolo.campo().equals("title:") ? Campo.TITULO : Campo.RESUMO;
+            return new Texto(campo, texto, algoritmo.compilar(texto));
+        }
+
+        private boolean proximoEh(String operador) {
+            return posicao < simbolos.size() && simbolos.get(posicao).eh(operador);
+        }
+
+        private static void adicionar(List<No> partes, No no) {
+            if (no != null) {
+                partes.add(no);
+            }
+        }
+    }
+
+    // -- Avaliação
+
+    /**
+     * O estado de uma avaliação em um segmento: os candidatos de cada texto são buscados no
+     * índice uma única vez, tanto para estimar o custo quanto para avaliar.
+     */
+    private static final class Avaliacao {
+        private final Alvo alvo;
+        private final BuscaParalela buscaParalela;
+        private final Map<Texto, int[]> candidatos = new IdentityHashMap<>();
+
+        Avaliacao(Alvo alvo, BuscaParalela buscaParalela) {
+            this.alvo = alvo;
+            this.buscaParalela = buscaParalela;
+        }
+
+        int[] candidatos(Texto texto) {
+            if (!candidatos.containsKey(texto)) {
+                candidatos.put(texto, alvo.candidatos(texto.texto));
+            }
+            return candidatos.get(texto);
+        }
+    }
+
+    private abstract static class No {
+        /**
+         * Os artigos do universo que satisfazem a cláusula.
+         */
+        abstract MapaBits avaliar(Avaliacao avaliacao, MapaBits universo);
+
+        /**
+         * Estimativa de quantos artigos a cláusula verifica no segmento.
+         */
+        abstract long custo(Avaliacao avaliacao);
+
+        abstract void coletarTextos(Set<String> textos, boolean negado);
+    }
+
+    private static final class Texto extends No {
+        private final Campo campo;
+        private final String texto;
+        private final PadraoCompilado padrao;
+
+        Texto(Campo campo, String texto, PadraoCompilado padrao) {
+            this.campo = campo;
+            this.texto = texto;
+            this.padrao = padrao;
+        }
+
+        @Override
+        MapaBits avaliar(Avaliacao avaliacao, MapaBits universo) {
+            if (universo.estaVazio()) {
+                return universo;
+            }
+            // Só os candidatos do índice que ainda estão no universo precisam ser lidos
+            int[] candidatos = avaliacao.candidatos(this);
+            int[] verificar = candidatos == null ? universo.paraArray() : MapaBits.de(candidatos).e(universo).paraArray();
+            Alvo alvo = avaliacao.alvo;
+            return MapaBits.de(avaliacao.buscaParalela.filtrar(verificar, verificar.length,
+                    artigo -> alvo.contem(artigo, campo, padrao)));
+        }
+
+        @Override
+        long custo(Avaliacao avaliacao) {
+            int[] candidatos = avaliacao.candidatos(this);
+            return candidatos == null ? avaliacao.alvo.tamanho() : candidatos.length;
+        }
+
+        @Override
+        void coletarTextos(Set<String> textos, boolean negado) {
+            if (!negado) {
+                textos.add(texto);
+            }
+        }
+    }
+
+    private static final class Rotulo extends No {
+        private final String rotulo;
+
+        Rotulo(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        @Override
+        MapaBits avaliar(Avaliacao avaliacao, MapaBits universo) {
+            return avaliacao.alvo.rotulo(rotulo).e(universo);
+        }
+
+        @Override
+        long custo(Avaliacao avaliacao) {
+            return 0;
+        }
+
+        @Override
+        void coletarTextos(Set<String> textos, boolean negado) {
+        }
+    }
+
+    private static final class Nao extends No {
+        private final No negado;
+
+        Nao(No negado) {
+            this.negado = negado;
+        }
+
+        @Override
+        MapaBits avaliar(Avaliacao avaliacao, MapaBits universo) {
+            return universo.menos(negado.avaliar(avaliacao, universo));
+        }
+
+        @Override
+        long custo(Avaliacao avaliacao) {
+            return negado.custo(avaliacao);
+        }
+
+        @Override
+        void coletarTextos(Set<String> textos, boolean negado) {
+            this.negado.coletarTextos(textos, !negado);
+        }
+    }
+
+    private static final class E extends No {
+        private final List<No> partes;
+
+        private E(List<No> partes) {
+            this.partes = partes;
+        }
+
+        static No de(List<No> partes) {
+            return partes.isEmpty() ? null : partes.size() == 1 ? partes.get(0) : new E(List.copyOf(partes));
+        }
+
+        @Override
+        MapaBits avaliar(Avaliacao avaliacao, MapaBits universo) {
+            // Da mais barata para a mais cara, com os NOT no fim: cada uma só lê o que sobrou das anteriores
+            List<No> ordem = new ArrayList<>(partes);
+            ordem.sort(Comparator.comparing((No parte) -> parte instanceof Nao)
+                    .thenComparingLong(parte -> parte.custo(avaliacao)));
+
+            MapaBits restantes = universo;
+            for (No parte : ordem) {
+                if (restantes.estaVazio()) {
+                    break;
+                }
+                restantes = parte.avaliar(avaliacao, restantes);
+            }
+            return restantes;
+        }
+
+        @Override
+        long custo(Avaliacao avaliacao) {
+            long custo = 0;
+            for (No parte : partes) {
+                custo += parte.custo(avaliacao);
+            }
+            return custo;
+        }
+
+        @Override
+        void coletarTextos(Set<String> textos, boolean negado) {
+            for (No parte : partes) {
+                parte.coletarTextos(textos, negado);
+            }
+        }
+    }
+
+    private static final class Ou extends No {
+        private final List<No> partes;
+
+        private Ou(List<No> partes) {
+            this.partes = partes;
+        }
+
+        static No de(List<No> partes) {
+            return partes.isEmpty() ? null : partes.size() == 1 ? partes.get(0) : new Ou(List.copyOf(partes));
+        }
+
+        @Override
+        MapaBits avaliar(Avaliacao avaliacao, MapaBits universo) {
+            // Um artigo já encontrado por uma parte não precisa ser verificado pelas seguintes
+            MapaBits encontrados = MapaBits.nenhum();
+            for (No parte : partes) {
+                MapaBits restantes = universo.menos(encontrados);
+                if (restantes.estaVazio()) {
+                    break;
+                }
+                encontrados = encontrados.ou(parte.avaliar(avaliacao, restantes));
+            }
+            return encontrados;
+        }
+
+        @Override
+        long custo(Avaliacao avaliacao) {
+            long custo = 0;
+            for (No parte : partes) {
+                custo += parte.custo(avaliacao);
+            }
+            return custo;
+        }
+
+        @Override
+        void coletarTextos(Set<String> textos, boolean negado) {
+            for (No parte : partes) {
+                parte.coletarTextos(textos, negado);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.example;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limita as requisições em andamento de um servidor.
+ *
+ * Uma requisição que chega com o limite atingido é recusada na hora, sem entrar em
+ * fila: o servidor responde "ocupado" e quem pediu decide se tenta de novo ou em outro
+ * lugar. Assim uma rajada acima da capacidade não acumula filas e threads até a JVM
+ * parar em GC; as requisições admitidas continuam com a latência de sempre.
+ *
+ * Com o limite adaptativo, o limite parte de um quarto do máximo e é recalculado a
+ * cada {@value #JANELA} requisições comparando a latência média da janela com a média
+ * de longo prazo: enquanto a latência não passa de {@value #TOLERANCIA} vezes a de longo
+ * prazo, o limite cresce; quando as requisições começam a esperar umas pelas outras e a
+ * latência sobe além disso, ele cai na mesma proporção. A média de longo prazo, e não a
+ * menor latência vista, serve de referência porque buscas respondidas pelo cache são
+ * muito mais rápidas que as outras e não dizem nada sobre a fila.
+ */
+public class ControleAdmissao {
+
+    private static final int JANELA = 256;
+    private static final int LIMITE_MINIMO = 4;
+    private static final double TOLERANCIA = 1.5;
+    // Peso de cada janela na média de longo prazo (cerca de 20 janelas)
+    private static final double PESO_LONGO_PRAZO = 2.0 / 21;
+
+    private final int maximo;
+    private final boolean adaptativo;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final LongAdder admitidas = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+    private volatile int limite;
+
+    // Estado do limite adaptativo, protegido pela trava
+    private final ReentrantLock trava = new ReentrantLock();
+    private double limiteExato;
+    private long somaJanela;
+    private int amostrasJanela;
+    private double latenciaLongoPrazo;
+
+    /**
+     * @param maximo Número máximo de requisições em andamento
+     * @param adaptativo Se o limite deve acompanhar a latência observada (até o máximo)
+     */
+    public ControleAdmissao(int maximo, boolean adaptativo) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("Limite de requisições inválido: " + maximo);
+        }
+        this.maximo = maximo;
+        this.adaptativo = adaptativo;
+        this.limite = adaptativo ? Math.min(maximo, Math.max(LIMITE_MINIMO, maximo / 4)) : maximo;
+        this.limiteExato = limite;
+    }
+
+    /**
+     * Cria o controle com a configuração das propriedades {@code servidor.maxEmAndamento}
+     * (padrão 256) e {@code servidor.limiteAdaptativo} (padrão false).
+     */
+    public static ControleAdmissao configurado() {
+        return new ControleAdmissao(Integer.getInteger("servidor.maxEmAndamento", 256),
+                Boolean.getBoolean("servidor.limiteAdaptativo"));
+    }
+
+    /**
+     * Reserva uma vaga para uma requisição. Retorna false, sem esperar, se não houver vaga;
+     * nesse caso a requisição deve ser recusada.
+     */
+    public boolean admitir() {
+        while (true) {
+            int atual = emAndamento.get();
+            if (atual >= limite) {
+                recusadas.increment();
+                return false;
+            }
+            if (emAndamento.compareAndSet(atual, atual + 1)) {
+                admitidas.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Inicia a tarefa de uma requisição admitida e libera a vaga quando ela terminar,
+     * com ou sem erro.
+     */
+    public <T> CompletableFuture<T> executar(Supplier<CompletableFuture<T>> tarefa) {
+        long inicio = System.nanoTime();
+        CompletableFuture<T> futuro;
+        try {
+            futuro = tarefa.get();
+        } catch (RuntimeException e) {
+            emAndamento.decrementAndGet();
+            throw e;
+        }
+        futuro.whenComplete((r, e) -> liberar(System.nanoTime() - inicio));
+        return futuro;
+    }
+
+    private void liberar(long duracaoNanos) {
+        int ocupadas = emAndamento.getAndDecrement();
+        if (adaptativo) {
+            registrar(duracaoNanos, ocupadas);
+        }
+    }
+
+    private void registrar(long duracaoNanos, int ocupadas) {
+        trava.lock();
+        try {
+            somaJanela += duracaoNanos;
+            amostrasJanela++;
+            if (amostrasJanela < JANELA) {
+                return;
+            }
+
+            double media = Math.max(1.0, (double) somaJanela / amostrasJanela);
+            if (latenciaLongoPrazo == 0) {
+                latenciaLongoPrazo = media;
+            } else {
+                latenciaLongoPrazo += (media - latenciaLongoPrazo) * PESO_LONGO_PRAZO;
+                if (latenciaLongoPrazo > 2 * media) {
+                    // A carga caiu: a referência acompanha mais depressa
+                    latenciaLongoPrazo *= 0.9;
+                }
+            }
+            // 1 enquanto a latência está perto da de longo prazo; cai quando as requisições passam a esperar
+            double gradiente = Math.max(0.5, Math.min(1.0, TOLERANCIA * latenciaLongoPrazo / media));
+
+            double novo = limiteExato * gradiente;
+            // Só cresce se o limite está sendo usado: com pouca carga a latência não diz nada sobre ele
+            if (ocupadas >= limiteExato / 2) {
+                novo += Math.sqrt(limiteExato);
+            }
+            // Suaviza para que uma janela ruim não derrube o limite de uma vez
+            limiteExato = Math.max(LIMITE_MINIMO, Math.min(maximo, limiteExato * 0.8 + novo * 0.2));
+            limite = (int) limiteExato;
+
+            somaJanela = 0;
+            amostrasJanela = 0;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public int getEmAndamento() {
+        return emAndamento.get();
+    }
+
+    public long getAdmitidas() {
+        return admitidas.sum();
+    }
+
+    public long getRecusadas() {
+        return recusadas.sum();
+    }
+
+    public String resumo() {
+        return "admissão: limite " + limite + (adaptativo ? " (adaptativo, máximo " + maximo + ")" : "")
+                + ", " + getAdmitidas() + " admitidas, " + getRecusadas() + " recusadas";
+    }
+}
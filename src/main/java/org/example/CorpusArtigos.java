@@ -0,0 +1,124 @@
+package org.example;
+
+/**
+ * Armazena os artigos de um servidor de busca em formato colunar.
+ *
+ * Títulos e categorias ficam em colunas contíguas ({@link ColunaTexto}), e o título também
+ * tem uma cópia já normalizada (minúscula) usada nas comparações, de modo que a busca não
+ * precisa criar nenhuma String por artigo. Os resumos, que são a maior parte dos dados, ficam
+ * comprimidos fora do heap ({@link ColunaComprimida}); a forma normalizada de um resumo é
+ * obtida ao descomprimir o bloco dele, só quando o artigo precisa ser verificado.
+ */
+public class CorpusArtigos {
+
+    private final ColunaTexto titulos;
+    private final ColunaComprimida resumos;
+    private final ColunaTexto rotulos;
+    private final ColunaTexto titulosNormalizados;
+
+    public CorpusArtigos(ColunaTexto titulos, ColunaComprimida resumos, ColunaTexto rotulos,
+                         ColunaTexto titulosNormalizados) {
+        this.titulos = titulos;
+        this.resumos = resumos;
+        this.rotulos = rotulos;
+        this.titulosNormalizados = titulosNormalizados;
+    }
+
+    public int tamanho() {
+        return titulos.tamanho();
+    }
+
+    public ColunaTexto getTitulos() {
+        return titulos;
+    }
+
+    public ColunaComprimida getResumos() {
+        return resumos;
+    }
+
+    public ColunaTexto getRotulos() {
+        return rotulos;
+    }
+
+    public ColunaTexto getTitulosNormalizados() {
+        return titulosNormalizados;
+    }
+
+    /**
+     * Verifica se o padrão ocorre no título ou no resumo do artigo.
+     *
+     * @param artigo O índice do artigo no corpus
+     * @param padrao O padrão compilado a partir de um texto normalizado com {@link #normalizar(String)}
+     */
+    public boolean contem(int artigo, PadraoCompilado padrao) {
+        return contemNoTitulo(artigo, padrao) || contemNoResumo(artigo, padrao);
+    }
+
+    /**
+     * Verifica se o padrão ocorre no título do artigo.
+     */
+    public boolean contemNoTitulo(int artigo, PadraoCompilado padrao) {
+        return padrao.buscar(titulosNormalizados.getCaracteres(),
+                titulosNormalizados.inicio(artigo), titulosNormalizados.fim(artigo)) != -1;
+    }
+
+    /**
+     * Verifica se o padrão ocorre no resumo do artigo.
+     */
+    public boolean contemNoResumo(int artigo, PadraoCompilado padrao) {
+        ColunaComprimida.Bloco bloco = resumos.normalizado(artigo);
+        return padrao.buscar(bloco.getCaracteres(), bloco.inicio(artigo), bloco.fim(artigo)) != -1;
+    }
+
+    /**
+     * Verifica se todos os padrões do autômato ocorrem no artigo, cada um no título ou no resumo.
+     * Cada coluna é lida uma única vez, qualquer que seja a quantidade de padrões.
+     */
+    public boolean contemTodos(int artigo, AhoCorasick.Automato automato) {
+        return encontrados(artigo, automato) == automato.todos();
+    }
+
+    /**
+     * Máscara dos padrões do autômato que ocorrem no artigo, cada um no título ou no resumo
+     * (veja {@link AhoCorasick.Automato#encontrados}).
+     */
+    public long encontrados(int artigo, AhoCorasick.Automato automato) {
+        long encontrados = automato.encontrados(titulosNormalizados.getCaracteres(),
+                titulosNormalizados.inicio(artigo), titulosNormalizados.fim(artigo), 0);
+        ColunaComprimida.Bloco bloco = resumos.normalizado(artigo);
+        return automato.encontrados(bloco.getCaracteres(), bloco.inicio(artigo), bloco.fim(artigo), encontrados);
+    }
+
+    /**
+     * Normaliza um texto da mesma forma que as colunas de busca.
+     */
+    public static String normalizar(String texto) {
+        char[] caracteres = new char[texto.length()];
+        for (int i = 0; i < caracteres.length; i++) {
+            caracteres[i] = Character.toLowerCase(texto.charAt(i));
+        }
+        return new String(caracteres);
+    }
+
+    /**
+     * Monta o corpus acrescentando um artigo por vez.
+     */
+    public static class Construtor {
+        private final ColunaTexto.Construtor titulos = new ColunaTexto.Construtor();
+        private final ColunaComprimida.Construtor resumos = new ColunaComprimida.Construtor();
+        private final ColunaTexto.Construtor rotulos = new ColunaTexto.Construtor();
+        private final ColunaTexto.Construtor titulosNormalizados = new ColunaTexto.Construtor();
+
+        public void adicionar(String titulo, String resumo, String rotulo) {
+            titulos.adicionar(titulo);
+            resumos.adicionar(resumo);
+            rotulos.adicionar(rotulo);
+            titulosNormalizados.adicionarNormalizado(titulo);
+        }
+
+        public CorpusArtigos construir() {
+            return new CorpusArtigos(titulos.construir(), resumos.construir(), rotulos.construir(),
+                    titulosNormalizados.construir());
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Os artigos de um servidor de busca em um dado momento, divididos em segmentos imutáveis.
+ *
+ * Cada segmento é um {@link CorpusArtigos} com o seu {@link IndiceTrigramas}, os seus
+ * {@link FragmentosResultado} e um {@link MapaBits} por rótulo (para as {@link Consulta consultas}):
+ * o primeiro vem do arquivo de dados (ou do snapshot) e cada {@link #inserir} acrescenta um
+ * segmento com os artigos novos. Um artigo removido não sai do segmento; sai do {@link MapaBits}
+ * de artigos ativos, que a verificação de cada artigo consulta, então nenhuma busca o encontra.
+ *
+ * Inserir e remover não alteram o CorpusVivo: retornam um novo, que compartilha com este os
+ * segmentos que não mudaram. Uma remoção copia só o contêiner do mapa de ativos onde está o
+ * artigo ({@link MapaBits#sem}), não o mapa inteiro. O servidor
+ * publica a nova versão em um campo volatile e cada busca lê esse campo uma única vez, de
+ * modo que as buscas em andamento terminam sobre a versão em que começaram, sem trava.
+ *
+ * Os ids dos artigos são contínuos entre os segmentos e valem só para uma versão, porque a
+ * junção de segmentos descarta os removidos. Para que a quantidade de segmentos não cresça
+ * a cada inserção, o segmento mais novo é juntado ao anterior enquanto tiver pelo menos
+ * metade do tamanho dele (como em uma árvore LSM): sobram O(log n) segmentos e cada artigo
+ * é copiado O(log n) vezes ao todo.
+ */
+public final class CorpusVivo {
+
+    private final Segmento[] segmentos;
+    private final int[] inicios; // Id do primeiro artigo de cada segmento, e o total no fim
+    private final Relevancia[] relevancias;
+    private final int removidos;
+    private final long versao;
+
+    public CorpusVivo(CorpusArtigos corpus, IndiceTrigramas indice) {
+        this(SnapshotCorpus.montar(corpus, indice));
+    }
+
+    /**
+     * Com os fragmentos e os mapas de rótulos e de ativos já montados (os do snapshot).
+     */
+    public CorpusVivo(SnapshotCorpus snapshot) {
+        this(new Segmento[] {new Segmento(snapshot.getCorpus(), snapshot.getIndice(), snapshot.getFragmentos(),
+                snapshot.getRotulos(), Relevancia.somaComprimentos(snapshot.getCorpus()), snapshot.getAtivos())}, 0);
+    }
+
+    private CorpusVivo(Segmento[] segmentos, long versao) {
+        // Segmentos vazios não têm artigos para localizar e só atrapalhariam a busca binária
+        this.segmentos = Arrays.stream(segmentos).filter(s -> s.corpus.tamanho() > 0).toArray(Segmento[]::new);
+        this.versao = versao;
+        this.inicios = new int[this.segmentos.length + 1];
+        this.relevancias = new Relevancia[this.segmentos.length];
+
+        long somaComprimentos = 0;
+        int quantidadeRemovidos = 0;
+        for (int s = 0; s < this.segmentos.length; s++) {
+            inicios[s + 1] = inicios[s] + this.segmentos[s].corpus.tamanho();
+            somaComprimentos += this.segmentos[s].somaComprimentos;
+            quantidadeRemovidos += this.segmentos[s].removidos;
+        }
+        this.removidos = quantidadeRemovidos;
+
+        // A normalização do BM25 usa a média de todos os segmentos
+        double comprimentoMedio = tamanho() == 0 ? 1 : (double) somaComprimentos / tamanho();
+        for (int s = 0; s < this.segmentos.length; s++) {
+            relevancias[s] = new Relevancia(this.segmentos[s].corpus, comprimentoMedio);
+        }
+    }
+
+    /**
+     * Indexa título e resumo já normalizados, como são comparados na busca.
+     */
+    public static IndiceTrigramas indexar(CorpusArtigos corpus) {
+        IndiceTrigramas.Construtor construtor = new IndiceTrigramas.Construtor();
+        ColunaTexto titulos = corpus.getTitulosNormalizados();
+        ColunaComprimida resumos = corpus.getResumos();
+
+        for (int i = 0; i < corpus.tamanho(); i++) {
+            construtor.adicionar(i, titulos.getCaracteres(), titulos.inicio(i), titulos.fim(i));
+            ColunaComprimida.Bloco resumo = resumos.normalizado(i);
+            construtor.adicionar(i, resumo.getCaracteres(), resumo.inicio(i), resumo.fim(i));
+        }
+
+        return construtor.construir();
+    }
+
+    /**
+     * Quantidade de ids desta versão, incluindo os artigos removidos (que nenhuma busca encontra).
+     */
+    public int tamanho() {
+        return inicios[segmentos.length];
+    }
+
+    /**
+     * Quantidade de artigos que podem ser encontrados.
+     */
+    public int ativos() {
+        return tamanho() - removidos;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public int getQuantidadeSegmentos() {
+        return segmentos.length;
+    }
+
+    public int getTotalTrigramas() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.indice.getTotalTrigramas();
+        }
+        return total;
+    }
+
+    /**
+     * Total de bytes dos resumos comprimidos (fora do heap) de todos os segmentos.
+     */
+    public long getBytesResumos() {
+        long total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.corpus.getResumos().tamanhoBytes();
+        }
+        return total;
+    }
+
+    private int segmento(int id) {
+        if (segmentos.length == 1) {
+            return 0;
+        }
+        int posicao = Arrays.binarySearch(inicios, 0, segmentos.length, id);
+        return posicao >= 0 ? posicao : -posicao - 2;
+    }
+
+    /**
+     * Verifica se o artigo não foi removido e se o padrão ocorre no título ou no resumo.
+     *
+     * @see CorpusArtigos#contem(int, PadraoCompilado)
+     */
+    public boolean contem(int id, PadraoCompilado padrao) {
+        int s = segmento(id);
+        int artigo = id - inicios[s];
+        return !segmentos[s].removido(artigo) && segmentos[s].corpus.contem(artigo, padrao);
+    }
+
+    /**
+     * @see CorpusArtigos#contemTodos(int, AhoCorasick.Automato)
+     */
+    public boolean contemTodos(int id, AhoCorasick.Automato automato) {
+        int s = segmento(id);
+        int artigo = id - inicios[s];
+        return !segmentos[s].removido(artigo) && segmentos[s].corpus.contemTodos(artigo, automato);
+    }
+
+    /**
+     * Máscara dos padrões do autômato que ocorrem no artigo, ou 0 se ele foi removido.
+     *
+     * @see CorpusArtigos#encontrados(int, AhoCorasick.Automato)
+     */
+    public long encontrados(int id, AhoCorasick.Automato automato) {
+        int s = segmento(id);
+        int artigo = id - inicios[s];
+        return segmentos[s].removido(artigo) ? 0 : segmentos[s].corpus.encontrados(artigo, automato);
+    }
+
+    /**
+     * Os artigos que podem conter o padrão, em ordem crescente: os candidatos do índice de cada
+     * segmento, já com os ids desta versão.
+     *
+     * @return null se o padrão for curto demais para o índice (todos os artigos são candidatos)
+     * @see IndiceTrigramas#candidatos(String)
+     */
+    public int[] candidatos(String padrao) {
+        if (segmentos.length == 1) {
+            return segmentos[0].indice.candidatos(padrao);
+        }
+
+        int[][] porSegmento = new int[segmentos.length][];
+        int quantidade = 0;
+        for (int s = 0; s < segmentos.length; s++) {
+            porSegmento[s] = segmentos[s].indice.candidatos(padrao);
+            if (porSegmento[s] == null) {
+                return null;
+            }
+            quantidade += porSegmento[s].length;
+        }
+
+        int[] candidatos = new int[quantidade];
+        int posicao = 0;
+        for (int s = 0; s < segmentos.length; s++) {
+            for (int artigo : porSegmento[s]) {
+                candidatos[posicao++] = inicios[s] + artigo;
+            }
+        }
+        return candidatos;
+    }
+
+    /**
+     * @see Relevancia#pontuar(int, PadraoCompilado[], double[])
+     */
+    public double pontuar(int id, PadraoCompilado[] padroes, double[] idfs) {
+        int s = segmento(id);
+        return relevancias[s].pontuar(id - inicios[s], padroes, idfs);
+    }
+
+    /**
+     * Os artigos que satisfazem a consulta, em ordem crescente: cada segmento é avaliado com os
+     * seus mapas de bits e os resultados voltam com os ids desta versão.
+     */
+    public int[] consultar(Consulta consulta, BuscaParalela buscaParalela) {
+        int[][] porSegmento = new int[segmentos.length][];
+        int quantidade = 0;
+        for (int s = 0; s < segmentos.length; s++) {
+            porSegmento[s] = consulta.avaliar(segmentos[s], buscaParalela).paraArray();
+            quantidade += porSegmento[s].length;
+        }
+
+        int[] encontrados = new int[quantidade];
+        int posicao = 0;
+        for (int s = 0; s < segmentos.length; s++) {
+            for (int artigo : porSegmento[s]) {
+                encontrados[posicao++] = inicios[s] + artigo;
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * O resultado do artigo, com os campos já codificados quando o segmento foi montado.
+     *
+     * @see FragmentosResultado#resultado(int, String, double)
+     */
+    public Resultado resultado(int id, String servidor, double pontuacao) {
+        int s = segmento(id);
+        return segmentos[s].fragmentos.resultado(id - inicios[s], servidor, pontuacao);
+    }
+
+    /**
+     * Uma nova versão com os artigos acrescentados depois dos atuais, em um segmento próprio
+     * (juntado aos anteriores quando chega a metade do tamanho deles).
+     */
+    public CorpusVivo inserir(CorpusArtigos novos) {
+        if (novos.tamanho() == 0) {
+            return this;
+        }
+
+        List<Segmento> lista = new ArrayList<>(Arrays.asList(segmentos));
+        lista.add(new Segmento(novos, indexar(novos), FragmentosResultado.montar(novos)));
+        while (lista.size() > 1
+                && 2L * lista.get(lista.size() - 1).ativos() >= lista.get(lista.size() - 2).ativos()) {
+            Segmento ultimo = lista.remove(lista.size() - 1);
+            Segmento penultimo = lista.remove(lista.size() - 1);
+            lista.add(juntar(penultimo, ultimo));
+        }
+        return new CorpusVivo(lista.toArray(new Segmento[0]), versao + 1);
+    }
+
+    /**
+     * Uma nova versão sem os artigos com algum desses títulos (iguais ao original, inclusive
+     * em maiúsculas e minúsculas), ou este mesmo CorpusVivo se nenhum for encontrado.
+     */
+    public CorpusVivo removerTitulos(Collection<String> titulos) {
+        MapaBits[] ativos = new MapaBits[segmentos.length];
+        for (int s = 0; s < segmentos.length; s++) {
+            ativos[s] = segmentos[s].artigosAtivos;
+        }
+
+        for (String titulo : titulos) {
+            String normalizado = CorpusArtigos.normalizar(titulo);
+            for (int s = 0; s < segmentos.length; s++) {
+                Segmento segmento = segmentos[s];
+                // O título inteiro passa pelo índice: sobram poucos candidatos para comparar
+                int[] candidatos = segmento.indice.candidatos(normalizado);
+                int quantidade = candidatos == null ? segmento.corpus.tamanho() : candidatos.length;
+
+                for (int i = 0; i < quantidade; i++) {
+                    int artigo = candidatos == null ? i : candidatos[i];
+                    // Consulta o mapa já atualizado: um título repetido na lista não remove duas vezes
+                    if (ativos[s].contem(artigo) && segmento.corpus.getTitulos().texto(artigo).equals(titulo)) {
+                        ativos[s] = ativos[s].sem(artigo);
+                    }
+                }
+            }
+        }
+
+        Segmento[] novos = segmentos.clone();
+        boolean alterado = false;
+        for (int s = 0; s < segmentos.length; s++) {
+            if (ativos[s] != segmentos[s].artigosAtivos) {
+                novos[s] = new Segmento(segmentos[s], ativos[s]);
+                alterado = true;
+            }
+        }
+        return alterado ? new CorpusVivo(novos, versao + 1) : this;
+    }
+
+    /**
+     * Um segmento com os artigos não removidos dos dois, na mesma ordem, reindexado.
+     */
+    private static Segmento juntar(Segmento primeiro, Segmento segundo) {
+        CorpusArtigos.Construtor construtor = new CorpusArtigos.Construtor();
+        for (Segmento segmento : List.of(primeiro, segundo)) {
+            CorpusArtigos corpus = segmento.corpus;
+            for (int i = 0; i < corpus.tamanho(); i++) {
+                if (!segmento.removido(i)) {
+                    construtor.adicionar(corpus.getTitulos().texto(i), corpus.getResumos().texto(i),
+                            corpus.getRotulos().texto(i));
+                }
+            }
+        }
+        CorpusArtigos corpus = construtor.construir();
+        return new Segmento(corpus, indexar(corpus), FragmentosResultado.montar(corpus));
+    }
+
+    /**
+     * Os artigos de cada rótulo (normalizado e sem espaços nas pontas), para os filtros {@code label:}.
+     */
+    static Map<String, MapaBits> indexarRotulos(CorpusArtigos corpus) {
+        Map<String, MapaBits.Construtor> construtores = new HashMap<>();
+        ColunaTexto rotulos = corpus.getRotulos();
+        for (int i = 0; i < corpus.tamanho(); i++) {
+            String rotulo = CorpusArtigos.normalizar(rotulos.texto(i)).trim();
+            construtores.computeIfAbsent(rotulo, r -> new MapaBits.Construtor()).adicionar(i);
+        }
+
+        Map<String, MapaBits> mapas = new HashMap<>();
+        construtores.forEach((rotulo, construtor) -> mapas.put(rotulo, construtor.construir()));
+        return mapas;
+    }
+
+    /**
+     * Artigos de um segmento, o índice, os fragmentos de resultado e os mapas de rótulos deles e os
+     * que não foram removidos. Nunca é alterado depois de criado: uma remoção cria outro segmento
+     * com outro mapa de ativos, que compartilha com o anterior os contêineres que não mudaram.
+     */
+    private static final class Segmento implements Consulta.Alvo {
+        private final CorpusArtigos corpus;
+        private final IndiceTrigramas indice;
+        private final FragmentosResultado fragmentos;
+        private final Map<String, MapaBits> rotulos;
+        private final long somaComprimentos;
+        private final MapaBits artigosAtivos;
+        private final int removidos;
+
+        Segmento(CorpusArtigos corpus, IndiceTrigramas indice, FragmentosResultado fragmentos) {
+            this(corpus, indice, fragmentos, indexarRotulos(corpus),
+                    Relevancia.somaComprimentos(corpus), MapaBits.intervalo(corpus.tamanho()));
+        }
+
+        /**
+         * O mesmo segmento com outro mapa de ativos.
+         */
+        Segmento(Segmento original, MapaBits artigosAtivos) {
+            this(original.corpus, original.indice, original.fragmentos, original.rotulos, original.somaComprimentos,
+                    artigosAtivos);
+        }
+
+        private Segmento(CorpusArtigos corpus, IndiceTrigramas indice, FragmentosResultado fragmentos,
+                         Map<String, MapaBits> rotulos, long somaComprimentos, MapaBits artigosAtivos) {
+            this.corpus = corpus;
+            this.indice = indice;
+            this.fragmentos = fragmentos;
+            this.rotulos = rotulos;
+            this.somaComprimentos = somaComprimentos;
+            this.artigosAtivos = artigosAtivos;
+            this.removidos = corpus.tamanho() - artigosAtivos.cardinalidade();
+        }
+
+        @Override
+        public int tamanho() {
+            return corpus.tamanho();
+        }
+
+        @Override
+        public MapaBits artigosAtivos() {
+            return artigosAtivos;
+        }
+
+        @Override
+        public int[] candidatos(String textoNormalizado) {
+            return indice.candidatos(textoNormalizado);
+        }
+
+        @Override
+        public MapaBits rotulo(String rotuloNormalizado) {
+            return rotulos.getOrDefault(rotuloNormalizado, MapaBits.nenhum());
+        }
+
+        @Override
+        public boolean contem(int artigo, Consulta.Campo campo, PadraoCompilado padrao) {
+            return switch (campo) {
+                case QUALQUER -> corpus.contem(artigo, padrao);
+                case TITULO -> corpus.contemNoTitulo(artigo, padrao);
+                case RESUMO -> corpus.contemNoResumo(artigo, padrao);
+            };
+        }
+
+        boolean removido(int artigo) {
+            // Sem remoções (o caso comum) nem consulta o mapa
+            return removidos > 0 && !artigosAtivos.contem(artigo);
+        }
+
+        int ativos() {
+            return artigosAtivos.cardinalidade();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import java.util.concurrent.*;
+
+/**
+ * Cria as threads e os executores dos servidores de acordo com a propriedade
+ * {@code servidor.threads}:
+ * <ul>
+ *   <li>{@code plataforma} (padrão) - threads comuns do sistema operacional</li>
+ *   <li>{@code virtual} - uma thread virtual por conexão e por chamada a servidor de busca</li>
+ * </ul>
+ * Com threads virtuais, uma thread parada em I/O de socket não ocupa uma thread do
+ * sistema, então não há tamanho de pool para ajustar mesmo com muitas buscas lentas.
+ */
+public final class Executores {
+
+    public static final String PROPRIEDADE_THREADS = "servidor.threads";
+
+    private Executores() {
+    }
+
+    public static boolean threadsVirtuais() {
+        return "virtual".equalsIgnoreCase(System.getProperty(PROPRIEDADE_THREADS, "plataforma"));
+    }
+
+    /**
+     * Executor para tarefas que passam a maior parte do tempo bloqueadas em I/O.
+     */
+    public static ExecutorService novoExecutorBloqueante() {
+        return threadsVirtuais() ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Cria (sem iniciar) uma thread de longa duração, como a leitora de uma conexão.
+     */
+    public static Thread novaThread(String nome, Runnable tarefa) {
+        if (threadsVirtuais()) {
+            return Thread.ofVirtual().name(nome).unstarted(tarefa);
+        }
+        Thread thread = new Thread(tarefa, nome);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Os campos de resultado de cada artigo de um corpus ({@code "title"}, {@code "abstract"} com os
+ * primeiros {@value #LIMITE_RESUMO} caracteres e {@code "label"}), já escritos em JSON e
+ * codificados em UTF-8, um após o outro.
+ *
+ * São montados uma vez, quando os artigos são carregados, e gravados no {@link SnapshotCorpus}:
+ * ao reiniciar pelo snapshot, os fragmentos são lidos direto das páginas mapeadas. A partir daí
+ * um resultado é só uma referência a um trecho dos bytes ({@link Resultado}): nem o servidor de
+ * busca nem o Servidor A voltam a ler, escapar ou codificar os textos do artigo para responder.
+ *
+ * As posições são long, para shards com mais de 2 GB de fragmentos: os bytes ficam em pedaços
+ * de até {@value #TAMANHO_MAXIMO_PEDACO} bytes, um após o outro, e nenhum fragmento fica entre
+ * dois pedaços.
+ */
+public final class FragmentosResultado {
+
+    public static final int LIMITE_RESUMO = 200;
+    static final int TAMANHO_MAXIMO_PEDACO = 1 << 30;
+
+    private final ByteBuffer[] pedacos;
+    private final long[] iniciosPedacos; // Posição do primeiro byte de cada pedaço, e o total no fim
+    private final LongBuffer inicios;    // Posição de cada fragmento, e o fim do último
+
+    /**
+     * @param pedacos Os bytes de todos os fragmentos, em pedaços consecutivos
+     * @param iniciosPedacos Posição do começo de cada pedaço, contada desde o primeiro, e o total no fim
+     * @param inicios Posição de cada fragmento, contada do mesmo modo, e o fim do último
+     */
+    public FragmentosResultado(ByteBuffer[] pedacos, long[] iniciosPedacos, LongBuffer inicios) {
+        this.pedacos = pedacos;
+        this.iniciosPedacos = iniciosPedacos;
+        this.inicios = inicios;
+    }
+
+    public static FragmentosResultado montar(CorpusArtigos corpus) {
+        return montar(corpus, TAMANHO_MAXIMO_PEDACO);
+    }
+
+    static FragmentosResultado montar(CorpusArtigos corpus, int tamanhoPedaco) {
+        long[] inicios = new long[corpus.tamanho() + 1];
+        List<ByteBuffer> pedacos = new ArrayList<>();
+        List<Long> iniciosPedacos = new ArrayList<>(List.of(0L));
+        // Cerca de 350 bytes por artigo: título, o começo do resumo e o rótulo
+        byte[] bytes = new byte[(int) Math.min(tamanhoPedaco, Math.max(16L, corpus.tamanho() * 384L))];
+        int tamanho = 0;
+        long total = 0;
+        StringBuilder fragmento = new StringBuilder(512);
+
+        for (int i = 0; i < corpus.tamanho(); i++) {
+            fragmento.setLength(0);
+            Resultado.escreverCampos(fragmento, corpus.getTitulos().texto(i),
+                    corpus.getResumos().texto(i, LIMITE_RESUMO) + "...", corpus.getRotulos().texto(i));
+            byte[] utf8 = fragmento.toString().getBytes(StandardCharsets.UTF_8);
+
+            if (tamanho + utf8.length > tamanhoPedaco && tamanho > 0) {
+                // O fragmento não cabe no pedaço atual: começa outro
+                pedacos.add(ByteBuffer.wrap(Arrays.copyOf(bytes, tamanho)));
+                iniciosPedacos.add(total);
+                tamanho = 0;
+            }
+            if (tamanho + utf8.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(tamanho + utf8.length, bytes.length + (bytes.length >> 1))));
+            }
+            System.arraycopy(utf8, 0, bytes, tamanho, utf8.length);
+            tamanho += utf8.length;
+            total += utf8.length;
+            inicios[i + 1] = total;
+        }
+
+        pedacos.add(ByteBuffer.wrap(Arrays.copyOf(bytes, tamanho)));
+        iniciosPedacos.add(total);
+        return new FragmentosResultado(pedacos.toArray(new ByteBuffer[0]),
+                iniciosPedacos.stream().mapToLong(Long::longValue).toArray(), LongBuffer.wrap(inicios));
+    }
+
+    /**
+     * O resultado do artigo, apontando para o fragmento dele (sem cópia).
+     */
+    public Resultado resultado(int artigo, String servidor, double pontuacao) {
+        long inicio = inicios.get(artigo);
+        int pedaco = pedaco(inicio);
+        int posicao = (int) (inicio - iniciosPedacos[pedaco]);
+        int tamanho = (int) (inicios.get(artigo + 1) - inicio);
+        return new Resultado(pedacos[pedaco].slice(posicao, tamanho), servidor, pontuacao);
+    }
+
+    private int pedaco(long posicao) {
+        // Quase sempre há um pedaço só
+        int pedaco = 0;
+        while (pedaco < pedacos.length - 1 && posicao >= iniciosPedacos[pedaco + 1]) {
+            pedaco++;
+        }
+        return pedaco;
+    }
+
+    /**
+     * Os bytes dos fragmentos, em pedaços que devem ser gravados um após o outro.
+     */
+    public ByteBuffer[] getPedacos() {
+        return pedacos;
+    }
+
+    public long[] getIniciosPedacos() {
+        return iniciosPedacos;
+    }
+
+    public LongBuffer getInicios() {
+        return inicios;
+    }
+
+    /**
+     * Total de bytes dos fragmentos.
+     */
+    public long tamanhoBytes() {
+        return iniciosPedacos[pedacos.length];
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parte de um servidor que aceita conexões e entrega as linhas recebidas a um {@link TratadorLinhas}.
+ *
+ * Se o servidor também tiver um {@link TratadorQuadros}, a conexão que começar pelo
+ * preâmbulo do {@link ProtocoloBinario} passa a trocar quadros binários com ele.
+ *
+ * O modo é escolhido na inicialização pela propriedade {@code servidor.modo}:
+ * <ul>
+ *   <li>{@code bloqueante} (padrão) - {@link ServidorBloqueante}, uma thread por conexão</li>
+ *   <li>{@code nio} - {@link ServidorNio}, poucos laços de eventos com {@code Selector}</li>
+ * </ul>
+ *
+ * Nos dois modos o número de conexões abertas é limitado pela propriedade
+ * {@code servidor.maxConexoes}: no limite, a frente para de aceitar conexões e as novas
+ * esperam na fila do sistema operacional até alguma ser encerrada. O tempo que o laço de
+ * aceite passa esperando uma vaga entra na latência {@code aceite} das {@link Metricas}.
+ */
+public interface FrenteServidor {
+
+    String PROPRIEDADE_MODO = "servidor.modo";
+    String PROPRIEDADE_MAX_CONEXOES = "servidor.maxConexoes";
+
+    /**
+     * Abre a porta e atende conexões até {@link #parar()} ser chamado.
+     */
+    void iniciar() throws IOException;
+
+    void parar();
+
+    static boolean modoNio() {
+        return "nio".equalsIgnoreCase(System.getProperty(PROPRIEDADE_MODO, "bloqueante"));
+    }
+
+    /**
+     * O limite de conexões abertas configurado, ou o padrão do modo.
+     */
+    static int maxConexoes(int padrao) {
+        return Integer.getInteger(PROPRIEDADE_MAX_CONEXOES, padrao);
+    }
+
+    /**
+     * Cria a frente do servidor no modo configurado.
+     *
+     * @param executorConexoes Executor das threads de conexão (usado apenas no modo bloqueante)
+     */
+    static FrenteServidor criar(String nome, int porta, TratadorLinhas tratador, ExecutorService executorConexoes,
+                                Metricas metricas) {
+        return criar(nome, porta, tratador, null, executorConexoes, metricas);
+    }
+
+    /**
+     * Cria a frente do servidor no modo configurado, aceitando também o protocolo binário.
+     *
+     * @param tratadorQuadros Tratador das conexões binárias, ou null para aceitar só texto
+     */
+    static FrenteServidor criar(String nome, int porta, TratadorLinhas tratador, TratadorQuadros tratadorQuadros,
+                                ExecutorService executorConexoes, Metricas metricas) {
+        if (modoNio()) {
+            return new ServidorNio(nome, porta, tratador, tratadorQuadros, metricas);
+        }
+        return new ServidorBloqueante(nome, porta, tratador, tratadorQuadros, executorConexoes, metricas);
+    }
+}
@@ -0,0 +1,402 @@
+package org.example;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import org.json.JSONObject;
+
+/**
+ * Gerador de carga do Servidor A, sem interação: mede vazão e latência de cauda do
+ * caminho completo Cliente → Servidor A → servidores de busca.
+ *
+ * Configuração (propriedades {@code carga.*}):
+ * <ul>
+ *   <li>{@code carga.modo} - {@code fechado} (padrão): {@code carga.concorrencia} clientes
+ *       enviam uma query, esperam a resposta e enviam a próxima (com {@code carga.pausaMs}
+ *       entre elas); {@code aberto}: as queries chegam na taxa fixa {@code carga.taxa} por
+ *       segundo, respondidas por até {@code carga.concorrencia} conexões ao mesmo tempo</li>
+ *   <li>{@code carga.queries} - arquivo com uma query por linha (linhas que começam com '{'
+ *       são enviadas como requisições JSON); sem ele, palavras sorteadas do vocabulário sintético,
+ *       pedindo os {@code carga.limite} mais relevantes (padrão 10; 0 pede todos os resultados)</li>
+ *   <li>{@code carga.aquecimento} e {@code carga.duracao} - segundos de aquecimento (não
+ *       medidos) e de medição, padrão 5 e 30</li>
+ *   <li>{@code carga.embutido=true} - sobe o Servidor A e {@code carga.shards} servidores de
+ *       busca (padrão 2, como B e C) neste mesmo processo, em loopback, com
+ *       {@code carga.artigos} artigos sintéticos (padrão 50000); com a mesma semente
+ *       ({@code carga.semente}) as execuções usam os mesmos dados e as mesmas queries</li>
+ *   <li>{@code carga.host} e {@code carga.porta} - o Servidor A, se não for embutido</li>
+ * </ul>
+ *
+ * No modo aberto a latência é medida a partir do instante em que a query deveria ter
+ * saído, não de quando saiu: se o sistema atrasa, a espera conta, e a cauda não fica
+ * escondida pelo próprio gerador (a "omissão coordenada"). As queries que ainda esperavam
+ * conexão quando a medição acabou não são enviadas e aparecem como "não enviadas": se
+ * houver muitas, o sistema não acompanhou a taxa pedida.
+ */
+public class GeradorCarga {
+
+    private static final int TIMEOUT_MS = 10000;
+    private static final double[] QUANTIS = {0.5, 0.75, 0.9, 0.99, 0.999, 0.9999};
+
+    private final String host;
+    private final int porta;
+    private final boolean aberto;
+    private final int concorrencia;
+    private final double taxa;
+    private final long pausaMs;
+    private final long aquecimentoNanos;
+    private final long duracaoNanos;
+    private final List<String> queries;
+    private final long semente;
+
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+    private final LongAdder respondidas = new LongAdder();
+    private final LongAdder incompletas = new LongAdder();
+    private final LongAdder ocupadas = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+    private final LongAdder naoEnviadas = new LongAdder();
+    private volatile long inicioMedicao;
+
+    GeradorCarga(String host, int porta, List<String> queries) {
+        this.host = host;
+        this.porta = porta;
+        this.queries = queries;
+        this.aberto = "aberto".equalsIgnoreCase(System.getProperty("carga.modo", "fechado"));
+        this.concorrencia = Integer.getInteger("carga.concorrencia", 16);
+        this.taxa = Double.parseDouble(System.getProperty("carga.taxa", "1000"));
+        this.pausaMs = Long.getLong("carga.pausaMs", 0);
+        this.aquecimentoNanos = TimeUnit.SECONDS.toNanos(Long.getLong("carga.aquecimento", 5));
+        this.duracaoNanos = TimeUnit.SECONDS.toNanos(Long.getLong("carga.duracao", 30));
+        this.semente = Long.getLong("carga.semente", 42);
+        if (concorrencia < 1 || (aberto && taxa <= 0)) {
+            throw new IllegalArgumentException("carga.concorrencia e carga.taxa devem ser positivas");
+        }
+    }
+
+    /**
+     * Executa o aquecimento e a medição e exibe o resultado.
+     */
+    public void executar() throws InterruptedException {
+        System.out.println("Carga " + (aberto ? "aberta, " + taxa + " queries/s com até " : "fechada, ")
+                + concorrencia + " conexões em " + host + ":" + porta + " - " + queries.size() + " queries distintas");
+
+        long inicio = System.nanoTime();
+        inicioMedicao = inicio + aquecimentoNanos;
+        long fim = inicioMedicao + duracaoNanos;
+
+        if (aberto) {
+            executarAberto(inicio, fim);
+        } else {
+            executarFechado(fim);
+        }
+
+        exibirResultado(Math.min(System.nanoTime(), fim) - inicioMedicao);
+    }
+
+    private void executarFechado(long fim) throws InterruptedException {
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concorrencia; i++) {
+                Random random = new Random(semente + i);
+                clientes.execute(() -> {
+                    ConexaoCarga conexao = null;
+                    while (System.nanoTime() < fim) {
+                        String query = queries.get(random.nextInt(queries.size()));
+                        long envio = System.nanoTime();
+                        conexao = enviar(conexao, query, envio);
+                        if (conexao == null) {
+                            // Falhou: não insiste em um servidor fora do ar em um laço sem pausa
+                            pausar(Math.max(10, pausaMs));
+                        } else if (pausaMs > 0) {
+                            pausar(pausaMs);
+                        }
+                    }
+                    fechar(conexao);
+                });
+            }
+        }
+    }
+
+    private void executarAberto(long inicio, long fim) throws InterruptedException {
+        long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / taxa);
+        BlockingQueue<ConexaoCarga> livres = new ArrayBlockingQueue<>(concorrencia);
+        Semaphore vagas = new Semaphore(concorrencia);
+        Random random = new Random(semente);
+
+        try (ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long previsto = inicio; previsto < fim; previsto += intervalo) {
+                long espera = previsto - System.nanoTime();
+                if (espera > 0) {
+                    TimeUnit.NANOSECONDS.sleep(espera);
+                }
+
+                String query = queries.get(random.nextInt(queries.size()));
+                long instante = previsto;
+                envios.execute(() -> {
+                    // Sem conexão livre a query espera, e a espera entra na latência medida desde o instante previsto
+                    vagas.acquireUninterruptibly();
+                    try {
+                        if (System.nanoTime() >= fim) {
+                            naoEnviadas.increment();
+                            return;
+                        }
+                        ConexaoCarga conexao = enviar(livres.poll(), query, instante);
+                        if (conexao != null) {
+                            livres.add(conexao);
+                        }
+                    } finally {
+                        vagas.release();
+                    }
+                });
+            }
+        }
+
+        ConexaoCarga conexao;
+        while ((conexao = livres.poll()) != null) {
+            fechar(conexao);
+        }
+    }
+
+    /**
+     * Envia a query, espera a resposta completa e registra a latência desde {@code inicio}.
+     * Retorna a conexão para ser reaproveitada, ou null se ela teve de ser fechada.
+     */
+    private ConexaoCarga enviar(ConexaoCarga conexao, String query, long inicio) {
+        String resposta;
+        try {
+            if (conexao == null) {
+                conexao = new ConexaoCarga(host, porta);
+            }
+            resposta = conexao.consultar(query);
+        } catch (IOException e) {
+            registrar(inicio, erros);
+            fechar(conexao);
+            return null;
+        }
+
+        // Só as respostas completas (resultados ou fim de transmissão) começam assim; o resto é erro
+        if (resposta.startsWith("{\"total\":") || resposta.startsWith("{\"tipo\":\"FIM\"")) {
+            registrar(inicio, resposta.contains("\"completa\":false") ? incompletas : respondidas);
+        } else if (resposta.startsWith("{\"tipo\":\"OCUPADO\"")) {
+            registrar(inicio, ocupadas);
+        } else {
+            registrar(inicio, erros);
+        }
+        return conexao;
+    }
+
+    /**
+     * Conta a query e, se não foi recusada nem falhou, a sua latência; as do aquecimento são ignoradas.
+     */
+    private void registrar(long inicio, LongAdder contador) {
+        if (inicio < inicioMedicao) {
+            return;
+        }
+        contador.increment();
+        if (contador == respondidas || contador == incompletas) {
+            latencias.registrarDesde(inicio);
+        }
+    }
+
+    private void exibirResultado(long medidoNanos) {
+        double segundos = medidoNanos / 1e9;
+        long total = respondidas.sum() + incompletas.sum();
+        long[] percentis = latencias.percentis(QUANTIS);
+
+        System.out.println();
+        System.out.println("========== RESULTADO DA CARGA ==========");
+        System.out.printf(Locale.ROOT, "Duração medida:  %.1f s%n", segundos);
+        System.out.printf(Locale.ROOT, "Vazão:           %.1f queries/s%n", total / segundos);
+        System.out.println("Respondidas:     " + total + " (" + incompletas.sum() + " incompletas)");
+        System.out.println("Ocupado:         " + ocupadas.sum());
+        System.out.println("Erros:           " + erros.sum());
+        if (aberto) {
+            System.out.println("Não enviadas:    " + naoEnviadas.sum());
+        }
+        System.out.println("Latência (ms):");
+        for (int i = 0; i < QUANTIS.length; i++) {
+            System.out.printf(Locale.ROOT, "  p%-8s %10.3f%n", percentil(QUANTIS[i]), percentis[i] / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "  %-9s %10.3f%n", "máx", latencias.getMaximoNanos() / 1e6);
+        System.out.println("========================================");
+    }
+
+    private static String percentil(double quantil) {
+        String texto = String.format(Locale.ROOT, "%.2f", quantil * 100);
+        return texto.replaceAll("\\.?0+$", "");
+    }
+
+    private static void pausar(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void fechar(ConexaoCarga conexao) {
+        if (conexao != null) {
+            conexao.close();
+        }
+    }
+
+    /**
+     * Conexão persistente com o Servidor A, com uma query de cada vez, como um usuário do
+     * {@link Cliente}: a concorrência medida é a quantidade de conexões (para várias queries
+     * em andamento na mesma conexão, veja o {@link ClienteBusca}).
+     */
+    private static final class ConexaoCarga implements Closeable {
+        private final Socket socket;
+        private final BufferedReader entrada;
+        private final Writer saida;
+
+        ConexaoCarga(String host, int porta) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(TIMEOUT_MS);
+            socket.connect(new InetSocketAddress(host, porta), TIMEOUT_MS);
+            entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            saida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Envia a query e retorna a última linha da resposta (a de fim, nas transmissões).
+         */
+        String consultar(String query) throws IOException {
+            saida.write(query);
+            saida.write('\n');
+            saida.flush();
+
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                if (!linha.startsWith("{\"tipo\":\"PARCIAL\"")) {
+                    return linha;
+                }
+            }
+            throw new EOFException("Conexão encerrada pelo servidor");
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nada a fazer: a conexão já não será usada
+            }
+        }
+    }
+
+    /**
+     * Queries do arquivo, uma por linha, sem as vazias.
+     */
+    static List<String> lerQueries(Path arquivo) throws IOException {
+        List<String> queries = new ArrayList<>();
+        for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+            if (!linha.isBlank()) {
+                queries.add(linha.trim());
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IOException("Nenhuma query em " + arquivo);
+        }
+        return queries;
+    }
+
+    /**
+     * Queries sorteadas do vocabulário sintético com a distribuição dos artigos: uma ou duas
+     * palavras, de modo que as comuns se repetem (e acertam o cache) e a maioria é rara.
+     */
+    static List<String> gerarQueries(GeradorCorpusSintetico gerador, int quantidade, int limite, long semente) {
+        Random random = new Random(semente);
+        List<String> queries = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            String query = gerador.sortear(random);
+            if (random.nextInt(4) == 0) {
+                query += " " + gerador.sortear(random);
+            }
+            if (limite > 0) {
+                JSONObject requisicao = new JSONObject();
+                requisicao.put("query", query);
+                requisicao.put("limit", limite);
+                query = requisicao.toString();
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    /**
+     * Sobe os servidores de busca e o Servidor A neste processo, cada um em uma thread,
+     * e espera o Servidor A aceitar conexões.
+     */
+    static ServidorA iniciarEmbutido(GeradorCorpusSintetico gerador, int porta, int shards, int artigos,
+                                     long semente) throws IOException, InterruptedException {
+        StringJoiner enderecos = new StringJoiner(",");
+        for (int i = 0; i < shards; i++) {
+            int portaShard = porta + 1 + i;
+            ServidorShard shard = new ServidorShard(i, portaShard, "");
+            shard.carregarCorpus(gerador.gerarCorpus(artigos / shards, semente + i));
+            Executores.novaThread("carga-shard-" + i, shard::iniciar).start();
+            esperarPorta(portaShard);
+            enderecos.add("localhost:" + portaShard);
+        }
+
+        System.setProperty("servidorA.shards", enderecos.toString());
+        System.setProperty("servidorA.porta", Integer.toString(porta));
+        ServidorA servidorA = new ServidorA();
+        Executores.novaThread("carga-servidor-a", servidorA::iniciar).start();
+        esperarPorta(porta);
+        return servidorA;
+    }
+
+    private static void esperarPorta(int porta) throws IOException, InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            try {
+                // Basta a porta aceitar a conexão: ela é fechada em seguida
+                new Socket("localhost", porta).close();
+                return;
+            } catch (ConnectException e) {
+                if (System.nanoTime() > limite) {
+                    throw new IOException("A porta " + porta + " não abriu a tempo", e);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean embutido = Boolean.getBoolean("carga.embutido");
+        if (embutido && System.getProperty("log.amostragem") == null) {
+            // Os servidores rodam neste processo: o log deles se misturaria ao resultado
+            System.setProperty("log.amostragem", "0");
+        }
+
+        long semente = Long.getLong("carga.semente", 42);
+        int porta = Integer.getInteger("carga.porta", 8080);
+        GeradorCorpusSintetico gerador = new GeradorCorpusSintetico(20000);
+
+        String arquivoQueries = System.getProperty("carga.queries");
+        List<String> queries = arquivoQueries != null
+                ? lerQueries(Paths.get(arquivoQueries))
+                : gerarQueries(gerador, 10000, Integer.getInteger("carga.limite", 10), semente);
+
+        ServidorA servidorA = null;
+        if (embutido) {
+            servidorA = iniciarEmbutido(gerador, porta, Integer.getInteger("carga.shards", 2),
+                    Integer.getInteger("carga.artigos", 50000), semente);
+        }
+
+        new GeradorCarga(embutido ? "localhost" : System.getProperty("carga.host", "localhost"), porta, queries)
+                .executar();
+
+        if (servidorA != null) {
+            servidorA.parar();
+            // As threads dos servidores embutidos não terminam sozinhas
+            System.exit(0);
+        }
+    }
+}
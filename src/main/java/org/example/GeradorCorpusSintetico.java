@@ -0,0 +1,130 @@
+package org.example;
+
+import java.util.*;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+
+/**
+ * Gera artigos sintéticos parecidos com os do arXiv, para benchmarks e testes de carga.
+ *
+ * O vocabulário mistura termos reais da área com palavras artificiais, e as palavras
+ * são sorteadas com distribuição de Zipf, de modo que alguns termos aparecem em quase
+ * todos os artigos e a maioria é rara, como em um corpus real. A mesma semente sempre
+ * gera os mesmos artigos.
+ */
+public final class GeradorCorpusSintetico {
+
+    private static final String[] TERMOS_REAIS = {
+            "learning", "model", "network", "neural", "data", "quantum", "graph", "deep",
+            "optimization", "analysis", "algorithm", "theory", "stochastic", "bayesian",
+            "inference", "transformer", "attention", "convolutional", "reinforcement",
+            "spectral", "galaxy", "energy", "protein", "entropy", "manifold", "lattice",
+            "topological", "gradient", "variational", "kernel", "equilibrium", "symmetry"
+    };
+    private static final String[] SILABAS = {
+            "ka", "lo", "mi", "ne", "ra", "to", "vi", "su", "pe", "zo", "qua", "tri",
+            "gen", "mor", "lex", "phy", "dyn", "cro", "sta", "ber", "xi", "ion", "an", "or"
+    };
+    private static final String[] ROTULOS = {
+            "cs.LG", "cs.CV", "cs.CL", "cs.AI", "stat.ML", "quant-ph", "math.CO",
+            "math.PR", "astro-ph.GA", "hep-th", "cond-mat.stat-mech", "q-bio.BM"
+    };
+
+    private final String[] vocabulario;
+    private final double[] acumulada;
+
+    /**
+     * @param tamanhoVocabulario Quantidade de palavras distintas
+     */
+    public GeradorCorpusSintetico(int tamanhoVocabulario) {
+        Random random = new Random(tamanhoVocabulario);
+        Set<String> palavras = new LinkedHashSet<>(Arrays.asList(TERMOS_REAIS));
+        while (palavras.size() < tamanhoVocabulario) {
+            StringBuilder palavra = new StringBuilder();
+            int silabas = 2 + random.nextInt(3);
+            for (int i = 0; i < silabas; i++) {
+                palavra.append(SILABAS[random.nextInt(SILABAS.length)]);
+            }
+            palavras.add(palavra.toString());
+        }
+        this.vocabulario = palavras.toArray(new String[0]);
+
+        // Distribuição de Zipf (expoente 1): a palavra de posição k tem peso 1/k
+        this.acumulada = new double[vocabulario.length];
+        double soma = 0;
+        for (int k = 0; k < vocabulario.length; k++) {
+            soma += 1.0 / (k + 1);
+            acumulada[k] = soma;
+        }
+        for (int k = 0; k < vocabulario.length; k++) {
+            acumulada[k] /= soma;
+        }
+    }
+
+    /**
+     * Palavra na posição informada do ranking de frequência (0 é a mais comum).
+     */
+    public String palavra(int posicao) {
+        return vocabulario[posicao];
+    }
+
+    public int tamanhoVocabulario() {
+        return vocabulario.length;
+    }
+
+    /**
+     * Gera os artigos no mesmo formato dos arquivos de dados (title, abstract, label).
+     */
+    public void gerar(int artigos, long semente, Consumer<JSONObject> consumidor) {
+        Random random = new Random(semente);
+
+        for (int i = 0; i < artigos; i++) {
+            JSONObject artigo = new JSONObject();
+            artigo.put("id", Integer.toString(i));
+            artigo.put("title", frase(random, 6 + random.nextInt(7), true));
+            artigo.put("abstract", frase(random, 80 + random.nextInt(121), false));
+            artigo.put("label", ROTULOS[random.nextInt(ROTULOS.length)]);
+            consumidor.accept(artigo);
+        }
+    }
+
+    /**
+     * Gera os artigos diretamente em um corpus colunar.
+     */
+    public CorpusArtigos gerarCorpus(int artigos, long semente) {
+        CorpusArtigos.Construtor construtor = new CorpusArtigos.Construtor();
+        gerar(artigos, semente, artigo -> construtor.adicionar(artigo.getString("title"),
+                artigo.getString("abstract"), artigo.getString("label")));
+        return construtor.construir();
+    }
+
+    private String frase(Random random, int palavras, boolean titulo) {
+        StringBuilder frase = new StringBuilder();
+        for (int i = 0; i < palavras; i++) {
+            if (i > 0) {
+                frase.append(' ');
+            }
+            String palavra = sortear(random);
+            if (titulo || i == 0) {
+                frase.append(Character.toUpperCase(palavra.charAt(0))).append(palavra, 1, palavra.length());
+            } else {
+                frase.append(palavra);
+            }
+        }
+        if (!titulo) {
+            frase.append('.');
+        }
+        return frase.toString();
+    }
+
+    /**
+     * Sorteia uma palavra com a mesma distribuição usada nos artigos.
+     */
+    public String sortear(Random random) {
+        int posicao = Arrays.binarySearch(acumulada, random.nextDouble());
+        if (posicao < 0) {
+            posicao = -posicao - 1;
+        }
+        return vocabulario[Math.min(posicao, vocabulario.length - 1)];
+    }
+}
@@ -0,0 +1,302 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Um shard atendido por uma ou mais réplicas com os mesmos dados.
+ *
+ * Cada requisição vai para a réplica com menos requisições em andamento. Se ela não
+ * responder dentro do p95 recente do shard, a mesma requisição é enviada a outra réplica
+ * (requisição "de reserva") e vale a primeira resposta; uma réplica que falha é trocada
+ * na hora pela próxima. Assim uma réplica lenta ou fora do ar não dita a latência das
+ * buscas enquanto houver outra saudável.
+ *
+ * Nas transmissões, a réplica que entregar a primeira mensagem parcial passa a ser a dona
+ * da resposta: as mensagens das outras são descartadas e não há troca depois disso.
+ */
+public class GrupoReplicas {
+
+    private static final boolean RESERVA_ATIVA =
+            !"false".equalsIgnoreCase(System.getProperty("servidorA.requisicaoReserva", "true"));
+    private static final long ESPERA_MINIMA_RESERVA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String nome;
+    private final List<PoolConexoes> replicas;
+    private final AtomicInteger[] emAndamento;
+    private final AtomicInteger rodizio = new AtomicInteger();
+    private final Latencias latencias = new Latencias(1024);
+    private final LongAdder reservasEnviadas = new LongAdder();
+
+    public GrupoReplicas(List<PoolConexoes> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Shard sem réplicas");
+        }
+        this.replicas = List.copyOf(replicas);
+        this.emAndamento = new AtomicInteger[replicas.size()];
+        StringJoiner nomes = new StringJoiner("|");
+        for (int i = 0; i < replicas.size(); i++) {
+            emAndamento[i] = new AtomicInteger();
+            nomes.add(replicas.get(i).getHost() + ":" + replicas.get(i).getPorta());
+        }
+        this.nome = nomes.toString();
+    }
+
+    /**
+     * Os endereços das réplicas, separados por "|".
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    public long getReservasEnviadas() {
+        return reservasEnviadas.sum();
+    }
+
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao) {
+        return enviar(requisicao, null);
+    }
+
+    /**
+     * Envia a requisição a cada réplica, fora do rodízio e sem contá-la na latência do shard
+     * (que decide a requisição reserva): serve às verificações de versão do Servidor A.
+     */
+    public List<CompletableFuture<RespostaShard>> enviarATodas(RequisicaoShard requisicao) {
+        List<CompletableFuture<RespostaShard>> futuros = new ArrayList<>(replicas.size());
+        for (PoolConexoes replica : replicas) {
+            futuros.add(replica.enviar(requisicao));
+        }
+        return futuros;
+    }
+
+    /**
+     * Envia a requisição a uma réplica e, se necessário, a outras.
+     *
+     * @see ConexaoMultiplexada#enviar(RequisicaoShard, Consumer)
+     */
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao, Consumer<RespostaShard> ouvinteParciais) {
+        Consulta consulta = new Consulta(requisicao, ouvinteParciais);
+        consulta.tentar();
+
+        if (RESERVA_ATIVA && replicas.size() > 1) {
+            long espera = latencias.p95();
+            if (espera >= 0) {
+                CompletableFuture.delayedExecutor(Math.max(espera, ESPERA_MINIMA_RESERVA_NANOS), TimeUnit.NANOSECONDS)
+                        .execute(consulta::reservar);
+            }
+        }
+        return consulta.resultado;
+    }
+
+    public void fechar() {
+        for (PoolConexoes replica : replicas) {
+            replica.fechar();
+        }
+    }
+
+    /**
+     * Uma requisição ao shard e as tentativas feitas nas réplicas.
+     */
+    private final class Consulta {
+        private final RequisicaoShard requisicao;
+        private final Consumer<RespostaShard> ouvinteParciais;
+        private final CompletableFuture<RespostaShard> resultado = new CompletableFuture<>();
+        private final ReentrantLock trava = new ReentrantLock();
+        private final boolean[] tentadas = new boolean[replicas.size()];
+        private final List<CompletableFuture<RespostaShard>> tentativas = new ArrayList<>(2);
+        private int ativas;
+        private int dona = -1;
+
+        Consulta(RequisicaoShard requisicao, Consumer<RespostaShard> ouvinteParciais) {
+            this.requisicao = requisicao;
+            this.ouvinteParciais = ouvinteParciais;
+
+            // Quando a resposta é decidida (ou o chamador desiste), as outras tentativas são abandonadas
+            resultado.whenComplete((r, e) -> {
+                List<CompletableFuture<RespostaShard>> abertas;
+                trava.lock();
+                try {
+                    abertas = new ArrayList<>(tentativas);
+                } finally {
+                    trava.unlock();
+                }
+                for (CompletableFuture<RespostaShard> tentativa : abertas) {
+                    tentativa.cancel(false);
+                }
+            });
+        }
+
+        /**
+         * Envia à réplica menos ocupada ainda não tentada. Retorna false se não restar nenhuma.
+         */
+        boolean tentar() {
+            int replica;
+            trava.lock();
+            try {
+                replica = escolher();
+                if (replica < 0) {
+                    return false;
+                }
+                tentadas[replica] = true;
+                ativas++;
+            } finally {
+                trava.unlock();
+            }
+
+            emAndamento[replica].incrementAndGet();
+            long inicio = System.nanoTime();
+            Consumer<RespostaShard> ouvinte = ouvinteParciais == null ? null : parcial -> repassar(replica, parcial);
+
+            CompletableFuture<RespostaShard> tentativa = replicas.get(replica).enviar(requisicao, ouvinte);
+            trava.lock();
+            try {
+                tentativas.add(tentativa);
+            } finally {
+                trava.unlock();
+            }
+            tentativa.whenComplete((resposta, erro) -> {
+                emAndamento[replica].decrementAndGet();
+                concluir(replica, resposta, erro, System.nanoTime() - inicio);
+            });
+            return true;
+        }
+
+        /**
+         * Chamado quando a primeira réplica passa do p95 sem responder.
+         */
+        void reservar() {
+            trava.lock();
+            try {
+                if (resultado.isDone() || dona >= 0) {
+                    return;
+                }
+            } finally {
+                trava.unlock();
+            }
+            if (tentar()) {
+                reservasEnviadas.increment();
+            }
+        }
+
+        private int escolher() {
+            // Menos requisições em andamento; empates em rodízio para distribuir a carga
+            int melhor = -1;
+            int deslocamento = Math.floorMod(rodizio.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                int candidata = (deslocamento + i) % replicas.size();
+                if (!tentadas[candidata]
+                        && (melhor < 0 || emAndamento[candidata].get() < emAndamento[melhor].get())) {
+                    melhor = candidata;
+                }
+            }
+            return melhor;
+        }
+
+        /**
+         * Repassa a parcial se a réplica é a dona da transmissão. O ouvinte é chamado fora da trava:
+         * as parciais de uma réplica chegam todas pela mesma thread leitora, então a ordem se mantém,
+         * e um ouvinte demorado não segura as outras réplicas nem a conclusão da consulta.
+         */
+        private void repassar(int replica, RespostaShard parcial) {
+            trava.lock();
+            try {
+                if (dona < 0) {
+                    dona = replica;
+                }
+                if (dona != replica || resultado.isDone()) {
+                    return;
+                }
+            } finally {
+                trava.unlock();
+            }
+            ouvinteParciais.accept(parcial);
+        }
+
+        private void concluir(int replica, RespostaShard resposta, Throwable erro, long duracaoNanos) {
+            boolean tentarOutra = false;
+            trava.lock();
+            try {
+                ativas--;
+                if (resultado.isDone()) {
+                    return;
+                }
+                if (erro == null) {
+                    if (dona < 0 || dona == replica) {
+                        dona = replica;
+                        latencias.registrar(duracaoNanos);
+                        resultado.complete(resposta);
+                    }
+                    return;
+                }
+
+                if (dona == replica) {
+                    // Parte da transmissão já foi repassada: não dá para continuar de outra réplica
+                    resultado.completeExceptionally(erro);
+                } else if (dona < 0) {
+                    tentarOutra = true;
+                }
+            } finally {
+                trava.unlock();
+            }
+
+            if (tentarOutra && !tentar()) {
+                trava.lock();
+                try {
+                    if (ativas == 0) {
+                        resultado.completeExceptionally(erro);
+                    }
+                } finally {
+                    trava.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * As últimas latências do shard, em nanossegundos, e o seu p95.
+     * O percentil é calculado assim que há amostras suficientes e depois a cada
+     * {@value #RECALCULO} registros, não a cada consulta.
+     */
+    static final class Latencias {
+        private static final int RECALCULO = 64;
+        private static final int MINIMO_AMOSTRAS = 32;
+
+        private final long[] amostras;
+        private final ReentrantLock trava = new ReentrantLock();
+        private int proxima;
+        private int quantidade;
+        private int desdeCalculo;
+        private volatile long p95 = -1;
+
+        Latencias(int capacidade) {
+            this.amostras = new long[capacidade];
+        }
+
+        void registrar(long nanos) {
+            trava.lock();
+            try {
+                amostras[proxima] = nanos;
+                proxima = (proxima + 1) % amostras.length;
+                quantidade = Math.min(quantidade + 1, amostras.length);
+                if ((++desdeCalculo >= RECALCULO || p95 < 0) && quantidade >= MINIMO_AMOSTRAS) {
+                    long[] ordenadas = Arrays.copyOf(amostras, quantidade);
+                    Arrays.sort(ordenadas);
+                    p95 = ordenadas[(int) Math.ceil(quantidade * 0.95) - 1];
+                    desdeCalculo = 0;
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+
+        /**
+         * O p95 recente, ou -1 enquanto não há amostras suficientes.
+         */
+        long p95() {
+            return p95;
+        }
+    }
+}
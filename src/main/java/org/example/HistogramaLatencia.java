@@ -0,0 +1,111 @@
+package org.example;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Histograma de latências sem trava, no estilo do HdrHistogram: as faixas crescem em
+ * potências de dois e cada potência é dividida em {@value #SUBFAIXAS} faixas iguais,
+ * então o erro de cada valor fica abaixo de 1/{@value #SUBFAIXAS} (cerca de 3%) do
+ * menor até o maior. Registrar é só calcular a faixa com alguns deslocamentos de bits
+ * e incrementar um contador atômico, sem alocação.
+ *
+ * Os percentis são calculados sobre uma cópia dos contadores, que pode misturar
+ * registros concorrentes; para monitoração isso não faz diferença.
+ */
+public class HistogramaLatencia {
+
+    private static final int BITS_SUBFAIXA = 5;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int QUANTIDADE_FAIXAS = faixa(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(QUANTIDADE_FAIXAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra uma duração em nanossegundos (valores negativos contam como zero).
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        contagens.incrementAndGet(faixa(valor));
+        total.increment();
+        soma.add(valor);
+
+        long atual = maximo.get();
+        while (valor > atual && !maximo.compareAndSet(atual, valor)) {
+            atual = maximo.get();
+        }
+    }
+
+    /**
+     * Registra o tempo decorrido desde {@code inicioNanos} (um valor de {@link System#nanoTime()}).
+     */
+    public void registrarDesde(long inicioNanos) {
+        registrar(System.nanoTime() - inicioNanos);
+    }
+
+    static int faixa(long valor) {
+        if (valor < SUBFAIXAS) {
+            return (int) valor;
+        }
+        int deslocamento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBFAIXA;
+        int subfaixa = (int) (valor >>> deslocamento) - SUBFAIXAS;
+        return (deslocamento + 1) * SUBFAIXAS + subfaixa;
+    }
+
+    /**
+     * Maior valor que cai na faixa, usado como o valor dela nos percentis (por cima, como no HdrHistogram).
+     */
+    static long maiorValor(int faixa) {
+        if (faixa < SUBFAIXAS) {
+            return faixa;
+        }
+        int deslocamento = faixa / SUBFAIXAS - 1;
+        long inicio = (long) (SUBFAIXAS + faixa % SUBFAIXAS) << deslocamento;
+        return inicio + (1L << deslocamento) - 1;
+    }
+
+    public long getContagem() {
+        return total.sum();
+    }
+
+    public long getSomaNanos() {
+        return soma.sum();
+    }
+
+    public long getMaximoNanos() {
+        return maximo.get();
+    }
+
+    /**
+     * Os percentis pedidos (entre 0 e 1, em ordem crescente), em nanossegundos,
+     * calculados em uma única passada pelas faixas.
+     */
+    public long[] percentis(double... quantis) {
+        long[] copia = new long[QUANTIDADE_FAIXAS];
+        long contagem = 0;
+        for (int i = 0; i < QUANTIDADE_FAIXAS; i++) {
+            copia[i] = contagens.get(i);
+            contagem += copia[i];
+        }
+
+        long[] valores = new long[quantis.length];
+        if (contagem == 0) {
+            return valores;
+        }
+
+        long acumulado = 0;
+        int faixa = 0;
+        for (int q = 0; q < quantis.length; q++) {
+            long alvo = Math.max(1, (long) Math.ceil(quantis[q] * contagem));
+            while (faixa < QUANTIDADE_FAIXAS - 1 && acumulado + copia[faixa] < alvo) {
+                acumulado += copia[faixa];
+                faixa++;
+            }
+            // O valor da faixa nunca passa do maior registrado
+            valores[q] = Math.min(maiorValor(faixa), maximo.get());
+        }
+        return valores;
+    }
+}
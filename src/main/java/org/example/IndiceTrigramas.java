@@ -0,0 +1,250 @@
+package org.example;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+/**
+ * Índice invertido de trigramas para acelerar a busca de substrings.
+ *
+ * Cada artigo é decomposto em trigramas (sequências de 3 caracteres) e, para
+ * cada trigrama, é mantida a lista ordenada dos artigos em que ele aparece.
+ * Um padrão com pelo menos 3 caracteres só pode ocorrer nos artigos que contêm
+ * todos os seus trigramas, então a busca se limita à interseção dessas listas
+ * e os candidatos são depois confirmados pelo algoritmo de busca.
+ *
+ * As listas ficam em um único vetor contíguo (chaves ordenadas + tabela de
+ * deslocamentos), o que mantém o índice compacto e imutável após a construção.
+ * Como no {@link ColunaTexto}, os vetores são buffers para que o índice possa ser
+ * servido diretamente de um snapshot mapeado em memória.
+ */
+public class IndiceTrigramas {
+
+    public static final int TAMANHO_NGRAMA = 3;
+
+    private final LongBuffer chaves;
+    private final IntBuffer inicios;
+    private final IntBuffer postings;
+    private final int totalDocumentos;
+
+    public IndiceTrigramas(LongBuffer chaves, IntBuffer inicios, IntBuffer postings, int totalDocumentos) {
+        this.chaves = chaves;
+        this.inicios = inicios;
+        this.postings = postings;
+        this.totalDocumentos = totalDocumentos;
+    }
+
+    public int getTotalDocumentos() {
+        return totalDocumentos;
+    }
+
+    public int getTotalTrigramas() {
+        return chaves.limit();
+    }
+
+    public LongBuffer getChaves() {
+        return chaves;
+    }
+
+    public IntBuffer getInicios() {
+        return inicios;
+    }
+
+    public IntBuffer getPostings() {
+        return postings;
+    }
+
+    /**
+     * Retorna os artigos que podem conter o padrão, em ordem crescente.
+     *
+     * @param padrao O padrão já normalizado (minúsculo)
+     * @return Os ids dos artigos candidatos, ou null se o padrão for curto demais
+     *         para ser filtrado pelo índice (todos os artigos são candidatos)
+     */
+    public int[] candidatos(String padrao) {
+        if (padrao.length() < TAMANHO_NGRAMA) {
+            return null;
+        }
+
+        // Localiza a lista de cada trigrama distinto do padrão
+        int quantidade = padrao.length() - TAMANHO_NGRAMA + 1;
+        int[] listas = new int[quantidade];
+        int distintas = 0;
+
+        for (int i = 0; i < quantidade; i++) {
+            int posicao = buscarChave(chave(padrao, i));
+            if (posicao < 0) {
+                return new int[0]; // Trigrama inexistente: nenhum artigo pode conter o padrão
+            }
+            if (!contem(listas, distintas, posicao)) {
+                listas[distintas++] = posicao;
+            }
+        }
+
+        // Intersecta começando pela lista mais curta
+        Integer[] ordem = new Integer[distintas];
+        for (int i = 0; i < distintas; i++) {
+            ordem[i] = listas[i];
+        }
+        Arrays.sort(ordem, Comparator.comparingInt(p -> inicios.get(p + 1) - inicios.get(p)));
+
+        int menor = ordem[0];
+        int[] resultado = new int[inicios.get(menor + 1) - inicios.get(menor)];
+        postings.get(inicios.get(menor), resultado);
+        int tamanho = resultado.length;
+
+        for (int i = 1; i < distintas && tamanho > 0; i++) {
+            tamanho = interseccionar(resultado, tamanho, inicios.get(ordem[i]), inicios.get(ordem[i] + 1));
+        }
+
+        return tamanho == resultado.length ? resultado : Arrays.copyOf(resultado, tamanho);
+    }
+
+    /**
+     * Mantém em resultado[0..tamanho) apenas os ids presentes em postings[inicio..fim).
+     * Usa busca exponencial porque a lista acumulada costuma ser bem menor que a outra.
+     */
+    private int interseccionar(int[] resultado, int tamanho, int inicio, int fim) {
+        int escrita = 0;
+        int cursor = inicio;
+
+        for (int i = 0; i < tamanho && cursor < fim; i++) {
+            int documento = resultado[i];
+
+            // Avança em saltos exponenciais até passar do documento procurado
+            int passo = 1;
+            int limite = cursor;
+            while (limite < fim && postings.get(limite) < documento) {
+                cursor = limite + 1;
+                limite = cursor + passo;
+                passo <<= 1;
+            }
+
+            int posicao = buscarPosting(cursor, Math.min(limite + 1, fim), documento);
+            if (posicao >= 0) {
+                resultado[escrita++] = documento;
+                cursor = posicao + 1;
+            } else {
+                cursor = -posicao - 1;
+            }
+        }
+
+        return escrita;
+    }
+
+    private int buscarChave(long chave) {
+        int baixo = 0;
+        int alto = chaves.limit() - 1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            long valor = chaves.get(meio);
+            if (valor < chave) {
+                baixo = meio + 1;
+            } else if (valor > chave) {
+                alto = meio - 1;
+            } else {
+                return meio;
+            }
+        }
+        return -(baixo + 1);
+    }
+
+    /**
+     * Busca binária em postings[inicio..fim), com o mesmo contrato de Arrays.binarySearch.
+     */
+    private int buscarPosting(int inicio, int fim, int documento) {
+        int baixo = inicio;
+        int alto = fim - 1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            int valor = postings.get(meio);
+            if (valor < documento) {
+                baixo = meio + 1;
+            } else if (valor > documento) {
+                alto = meio - 1;
+            } else {
+                return meio;
+            }
+        }
+        return -(baixo + 1);
+    }
+
+    private static boolean contem(int[] valores, int tamanho, int valor) {
+        for (int i = 0; i < tamanho; i++) {
+            if (valores[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long chave(CharSequence texto, int posicao) {
+        return ((long) texto.charAt(posicao) << 32)
+                | ((long) texto.charAt(posicao + 1) << 16)
+                | texto.charAt(posicao + 2);
+    }
+
+    /**
+     * Constrói o índice incrementalmente. Os artigos devem ser adicionados em
+     * ordem crescente de id para que as listas saiam ordenadas.
+     */
+    public static class Construtor {
+        private final Map<Long, ListaIds> listas = new HashMap<>();
+        private int totalDocumentos;
+
+        public void adicionar(int documento, CharSequence texto) {
+            adicionar(documento, texto, 0, texto.length());
+        }
+
+        /**
+         * Indexa apenas o trecho {@code [inicio, fim)} do texto.
+         */
+        public void adicionar(int documento, CharSequence texto, int inicio, int fim) {
+            for (int i = inicio; i + TAMANHO_NGRAMA <= fim; i++) {
+                listas.computeIfAbsent(chave(texto, i), k -> new ListaIds()).adicionarSemRepetir(documento);
+            }
+            totalDocumentos = Math.max(totalDocumentos, documento + 1);
+        }
+
+        public IndiceTrigramas construir() {
+            long[] chaves = new long[listas.size()];
+            int i = 0;
+            for (Long chave : listas.keySet()) {
+                chaves[i++] = chave;
+            }
+            Arrays.sort(chaves);
+
+            int[] inicios = new int[chaves.length + 1];
+            int total = 0;
+            for (i = 0; i < chaves.length; i++) {
+                inicios[i] = total;
+                total += listas.get(chaves[i]).tamanho;
+            }
+            inicios[chaves.length] = total;
+
+            int[] postings = new int[total];
+            for (i = 0; i < chaves.length; i++) {
+                ListaIds lista = listas.get(chaves[i]);
+                System.arraycopy(lista.ids, 0, postings, inicios[i], lista.tamanho);
+            }
+
+            return new IndiceTrigramas(LongBuffer.wrap(chaves), IntBuffer.wrap(inicios),
+                    IntBuffer.wrap(postings), totalDocumentos);
+        }
+    }
+
+    private static class ListaIds {
+        private int[] ids = new int[4];
+        private int tamanho;
+
+        void adicionarSemRepetir(int documento) {
+            if (tamanho > 0 && ids[tamanho - 1] == documento) {
+                return;
+            }
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+            }
+            ids[tamanho++] = documento;
+        }
+    }
+}
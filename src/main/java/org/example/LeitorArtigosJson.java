@@ -0,0 +1,61 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.function.Consumer;
+import org.json.*;
+
+/**
+ * Lê um arquivo de artigos no formato JSON (um array de objetos) de forma incremental.
+ *
+ * Em vez de carregar o arquivo inteiro em uma String e montar um JSONArray com
+ * todos os artigos, o leitor percorre o array elemento a elemento e entrega cada
+ * artigo ao consumidor assim que ele é lido. Apenas um artigo fica em memória por vez.
+ */
+public final class LeitorArtigosJson {
+
+    private LeitorArtigosJson() {
+    }
+
+    /**
+     * Lê todos os artigos do arquivo.
+     *
+     * @param arquivo Caminho do arquivo JSON
+     * @param consumidor Recebe cada artigo na ordem em que aparece no arquivo
+     * @return A quantidade de artigos lidos
+     */
+    public static int ler(Path arquivo, Consumer<JSONObject> consumidor) throws IOException {
+        try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            JSONTokener tokener = new JSONTokener(leitor);
+
+            if (tokener.nextClean() != '[') {
+                throw tokener.syntaxError("Esperado '[' no início do arquivo de dados");
+            }
+
+            int total = 0;
+            char c = tokener.nextClean();
+            if (c == ']') {
+                return total;
+            }
+            tokener.back();
+
+            while (true) {
+                Object valor = tokener.nextValue();
+                if (!(valor instanceof JSONObject)) {
+                    throw tokener.syntaxError("Esperado um objeto de artigo");
+                }
+                consumidor.accept((JSONObject) valor);
+                total++;
+
+                c = tokener.nextClean();
+                if (c == ']') {
+                    return total;
+                }
+                if (c != ',') {
+                    throw tokener.syntaxError("Esperado ',' ou ']' entre artigos");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log das mensagens de cada query, amostrado e assíncrono.
+ *
+ * Escrever uma linha por query no console custa mais que muitas das buscas e serializa as
+ * threads no {@code System.out}. Aqui só 1 em cada {@code log.amostragem} mensagens é
+ * registrada (padrão 100; 1 registra todas e 0 nenhuma), e o registro em si é feito pelo
+ * slf4j em uma thread separada. Se essa thread não der conta, as mensagens excedentes
+ * são descartadas e contadas, sem bloquear quem atende a query.
+ *
+ * A amostragem é sorteada a cada mensagem, sem estado compartilhado entre as threads.
+ */
+public final class LogAmostrado {
+
+    private static final int AMOSTRAGEM = Integer.getInteger("log.amostragem", 100);
+    private static final int CAPACIDADE_FILA = 4096;
+
+    private static final BlockingQueue<Runnable> FILA = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+    private static final LongAdder DESCARTADAS = new LongAdder();
+
+    static {
+        Executores.novaThread("log-amostrado", LogAmostrado::escrever).start();
+    }
+
+    private final Logger logger;
+
+    private LogAmostrado(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static LogAmostrado para(Class<?> classe) {
+        return new LogAmostrado(LoggerFactory.getLogger(classe));
+    }
+
+    /**
+     * Mensagens que não foram registradas porque a fila estava cheia.
+     */
+    public static long getDescartadas() {
+        return DESCARTADAS.sum();
+    }
+
+    public void info(String formato, Object argumento) {
+        if (sorteada()) {
+            enfileirar(() -> logger.info(formato, argumento));
+        }
+    }
+
+    public void info(String formato, Object argumento1, Object argumento2) {
+        if (sorteada()) {
+            enfileirar(() -> logger.info(formato, argumento1, argumento2));
+        }
+    }
+
+    public void info(String formato, Object... argumentos) {
+        if (sorteada()) {
+            enfileirar(() -> logger.info(formato, argumentos));
+        }
+    }
+
+    /**
+     * Avisos de falhas de uma query (um shard que não respondeu, por exemplo); amostrados como
+     * as outras mensagens, já que numa sobrecarga eles chegam em rajadas. As falhas são contadas
+     * nas {@link Metricas}.
+     */
+    public void aviso(String formato, Object argumento1, Object argumento2) {
+        if (sorteada()) {
+            enfileirar(() -> logger.warn(formato, argumento1, argumento2));
+        }
+    }
+
+    private boolean sorteada() {
+        if (AMOSTRAGEM <= 0) {
+            return false;
+        }
+        return AMOSTRAGEM == 1 || ThreadLocalRandom.current().nextInt(AMOSTRAGEM) == 0;
+    }
+
+    private static void enfileirar(Runnable registro) {
+        if (!FILA.offer(registro)) {
+            DESCARTADAS.increment();
+        }
+    }
+
+    private static void escrever() {
+        while (true) {
+            try {
+                FILA.take().run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Um erro em uma mensagem não para o log
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Junta as buscas que chegam juntas a um servidor de busca e verifica todas em uma única leitura
+ * dos artigos, com um autômato {@link AhoCorasick} das queries do lote: com N buscas simultâneas,
+ * os artigos passam pela memória uma vez em vez de N.
+ *
+ * Só entram em lote as buscas que precisam ler boa parte dos artigos: as que o índice de
+ * trigramas não restringe (queries curtas) ou deixa com mais de 1/{@value #FRACAO_LARGA} dos
+ * artigos como candidatos. As demais já leem pouca memória e são verificadas sozinhas.
+ *
+ * A primeira busca de um lote espera até {@code busca.janelaLoteMicros} (padrão 200) pelas
+ * seguintes; o lote sai antes se chegar a {@code busca.tamanhoLote} queries distintas (padrão
+ * e máximo {@value AhoCorasick#MAXIMO_PADROES}, um bit por query no autômato; 0 desativa os
+ * lotes). Queries iguais no mesmo lote recebem o mesmo resultado. Todas as buscas de um lote
+ * são da mesma versão dos artigos: uma busca de outra versão fecha o lote aberto.
+ */
+public class LoteBuscas {
+
+    private static final int FRACAO_LARGA = 8;
+
+    private final BuscaParalela buscaParalela;
+    private final AlgoritmoBusca algoritmoBusca;
+    private final Executor executor;
+    private final int tamanhoMaximo;
+    private final long janelaNanos;
+    private final AhoCorasick ahoCorasick = new AhoCorasick();
+
+    private final ReentrantLock trava = new ReentrantLock();
+    private Lote aberto;
+
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder buscasEmLote = new LongAdder();
+
+    /**
+     * @param buscaParalela Verifica os artigos de cada lote
+     * @param algoritmoBusca Verifica um lote que ficou com uma só query
+     * @param executor Onde os lotes são verificados
+     */
+    public LoteBuscas(BuscaParalela buscaParalela, AlgoritmoBusca algoritmoBusca, Executor executor,
+                      int tamanhoMaximo, long janelaMicros) {
+        this.buscaParalela = buscaParalela;
+        this.algoritmoBusca = algoritmoBusca;
+        this.executor = executor;
+        this.tamanhoMaximo = Math.min(tamanhoMaximo, AhoCorasick.MAXIMO_PADROES);
+        this.janelaNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, janelaMicros));
+    }
+
+    public static LoteBuscas configurado(BuscaParalela buscaParalela, AlgoritmoBusca algoritmoBusca,
+                                         Executor executor) {
+        return new LoteBuscas(buscaParalela, algoritmoBusca, executor,
+                Integer.getInteger("busca.tamanhoLote", AhoCorasick.MAXIMO_PADROES),
+                Long.getLong("busca.janelaLoteMicros", 200));
+    }
+
+    /**
+     * Indica se a busca deve entrar em um lote, pela quantidade de artigos que ela teria de ler.
+     *
+     * @param candidatos Os candidatos do índice para a query, ou null para todos os artigos
+     */
+    public boolean aceita(CorpusVivo base, String queryNormalizada, int[] candidatos) {
+        return tamanhoMaximo > 1 && !queryNormalizada.isEmpty()
+                && (candidatos == null || candidatos.length > base.tamanho() / FRACAO_LARGA);
+    }
+
+    /**
+     * Os artigos que contêm a query, em ordem crescente, quando o lote em que ela entrou for verificado.
+     */
+    public CompletableFuture<int[]> buscar(CorpusVivo base, String queryNormalizada) {
+        List<Lote> prontos = new ArrayList<>(2);
+        Lote novo = null;
+        CompletableFuture<int[]> resultado;
+
+        trava.lock();
+        try {
+            if (aberto != null && aberto.base != base) {
+                prontos.add(aberto);
+                aberto = null;
+            }
+            if (aberto == null) {
+                aberto = new Lote(base);
+                novo = aberto;
+            }
+            resultado = aberto.buscas.computeIfAbsent(queryNormalizada, q -> new CompletableFuture<>());
+            if (aberto.buscas.size() >= tamanhoMaximo) {
+                prontos.add(aberto);
+                aberto = null;
+            }
+        } finally {
+            trava.unlock();
+        }
+
+        for (Lote lote : prontos) {
+            executor.execute(() -> verificar(lote));
+        }
+        if (novo != null && !prontos.contains(novo)) {
+            Lote lote = novo;
+            CompletableFuture.delayedExecutor(janelaNanos, TimeUnit.NANOSECONDS, executor)
+                    .execute(() -> fecharPorTempo(lote));
+        }
+        return resultado;
+    }
+
+    /**
+     * Fim da janela do lote: verifica-o, a menos que já tenha saído por estar cheio.
+     */
+    private void fecharPorTempo(Lote lote) {
+        trava.lock();
+        try {
+            if (aberto != lote) {
+                return;
+            }
+            aberto = null;
+        } finally {
+            trava.unlock();
+        }
+        verificar(lote);
+    }
+
+    private void verificar(Lote lote) {
+        List<String> queries = new ArrayList<>(lote.buscas.keySet());
+        CorpusVivo base = lote.base;
+        lotes.increment();
+        buscasEmLote.add(queries.size());
+
+        try {
+            int[][] encontrados;
+            if (queries.size() == 1) {
+                // Sozinha, a query é verificada com o algoritmo escolhido para o seu tamanho
+                String query = queries.get(0);
+                PadraoCompilado padrao = algoritmoBusca.compilar(query);
+                encontrados = new int[][] {
+                        buscaParalela.filtrar(base.candidatos(query), base.tamanho(), id -> base.contem(id, padrao))};
+            } else {
+                AhoCorasick.Automato automato = ahoCorasick.compilar(queries);
+                encontrados = buscaParalela.filtrarVarios(base.tamanho(), queries.size(),
+                        id -> base.encontrados(id, automato));
+            }
+
+            for (int i = 0; i < queries.size(); i++) {
+                lote.buscas.get(queries.get(i)).complete(encontrados[i]);
+            }
+        } catch (RuntimeException e) {
+            for (CompletableFuture<int[]> busca : lote.buscas.values()) {
+                busca.completeExceptionally(e);
+            }
+        }
+    }
+
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    public long getBuscasEmLote() {
+        return buscasEmLote.sum();
+    }
+
+    /**
+     * As queries de um lote (na ordem de chegada) e a espera de cada uma.
+     */
+    private static final class Lote {
+        private final CorpusVivo base;
+        private final Map<String, CompletableFuture<int[]>> buscas = new LinkedHashMap<>();
+
+        Lote(CorpusVivo base) {
+            this.base = base;
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Conjunto imutável de ids de artigos, comprimido no estilo Roaring: os ids são agrupados pelos
+ * 16 bits altos e cada grupo (contêiner) guarda os 16 bits baixos como uma lista ordenada, se
+ * tiver até {@value #LIMITE_VETOR} ids, ou como um mapa de 65536 bits, se tiver mais. Conjuntos
+ * pequenos ocupam 2 bytes por id e conjuntos densos 1 bit por id, e as operações entre dois
+ * conjuntos só visitam os grupos que existem nos dois (interseção) ou em algum deles.
+ *
+ * Usado pelas {@link Consulta consultas} para combinar as cláusulas e para os artigos de cada rótulo.
+ *
+ * Um conjunto pode ser gravado em um {@link ByteBuffer} ({@link #escrever}) e lido de volta com
+ * cópias em bloco ({@link #ler}), como no {@link SnapshotCorpus}: a quantidade de contêineres
+ * (int) e, para cada um, a chave (int), a cardinalidade (int) e os valores, como chars se forem
+ * até {@value #LIMITE_VETOR} ou como os {@value #PALAVRAS} longs do mapa de bits se forem mais.
+ */
+public final class MapaBits {
+
+    static final int LIMITE_VETOR = 4096;
+    private static final int PALAVRAS = (1 << 16) / Long.SIZE;
+
+    private static final MapaBits VAZIO = new MapaBits(new char[0], new Conteiner[0], 0);
+
+    private final char[] chaves;
+    private final Conteiner[] conteineres;
+    private final int cardinalidade;
+
+    private MapaBits(char[] chaves, Conteiner[] conteineres) {
+        this(chaves, conteineres, conteineres.length);
+    }
+
+    private MapaBits(char[] chaves, Conteiner[] conteineres, int quantidade) {
+        this.chaves = chaves;
+        this.conteineres = conteineres;
+        int total = 0;
+        for (int i = 0; i < quantidade; i++) {
+            total += conteineres[i].cardinalidade();
+        }
+        this.cardinalidade = total;
+    }
+
+    public static MapaBits nenhum() {
+        return VAZIO;
+    }
+
+    /**
+     * Os ids de {@code [0, fim)}, montados um contêiner por vez.
+     */
+    public static MapaBits intervalo(int fim) {
+        Acumulador resultado = new Acumulador((fim >>> 16) + 1);
+        for (long inicio = 0; inicio < fim; inicio += 1 << 16) {
+            resultado.adicionar((char) (inicio >>> 16), Conteiner.primeiros((int) Math.min(1 << 16, fim - inicio)));
+        }
+        return resultado.construir();
+    }
+
+    /**
+     * Lê um conjunto gravado por {@link #escrever}, a partir da posição da origem, que fica
+     * logo depois dele.
+     */
+    public static MapaBits ler(ByteBuffer origem) {
+        int quantidade = origem.getInt();
+        if (quantidade < 0 || quantidade > 1 << 16) {
+            throw new IllegalArgumentException("Quantidade de contêineres inválida: " + quantidade);
+        }
+        char[] chaves = new char[quantidade];
+        Conteiner[] conteineres = new Conteiner[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            chaves[i] = (char) origem.getInt();
+            int cardinalidade = origem.getInt();
+            if (cardinalidade <= 0 || cardinalidade > 1 << 16 || (i > 0 && chaves[i] <= chaves[i - 1])) {
+                throw new IllegalArgumentException("Contêiner inválido na posição " + origem.position());
+            }
+            if (cardinalidade <= LIMITE_VETOR) {
+                char[] valores = new char[cardinalidade];
+                origem.asCharBuffer().get(valores);
+                origem.position(origem.position() + cardinalidade * Character.BYTES);
+                conteineres[i] = new ConteinerVetor(valores);
+            } else {
+                long[] palavras = new long[PALAVRAS];
+                origem.asLongBuffer().get(palavras);
+                origem.position(origem.position() + PALAVRAS * Long.BYTES);
+                conteineres[i] = new ConteinerBits(palavras, cardinalidade);
+            }
+        }
+        return quantidade == 0 ? VAZIO : new MapaBits(chaves, conteineres);
+    }
+
+    /**
+     * Os ids de uma lista em ordem crescente.
+     */
+    public static MapaBits de(int[] ordenados) {
+        Construtor construtor = new Construtor();
+        for (int id : ordenados) {
+            construtor.adicionar(id);
+        }
+        return construtor.construir();
+    }
+
+    public int cardinalidade() {
+        return cardinalidade;
+    }
+
+    public boolean estaVazio() {
+        return cardinalidade == 0;
+    }
+
+    public boolean contem(int id) {
+        int posicao = Arrays.binarySearch(chaves, (char) (id >>> 16));
+        return posicao >= 0 && conteineres[posicao].contem((char) id);
+    }
+
+    /**
+     * Este conjunto sem o id. Só o contêiner do id é copiado; os demais são compartilhados.
+     */
+    public MapaBits sem(int id) {
+        int posicao = Arrays.binarySearch(chaves, (char) (id >>> 16));
+        if (posicao < 0 || !conteineres[posicao].contem((char) id)) {
+            return this;
+        }
+
+        Conteiner restante = conteineres[posicao].sem((char) id);
+        if (restante.cardinalidade() > 0) {
+            Conteiner[] novos = conteineres.clone();
+            novos[posicao] = restante;
+            return new MapaBits(chaves, novos);
+        }
+        if (chaves.length == 1) {
+            return VAZIO;
+        }
+        // O contêiner ficou vazio: sai junto com a chave
+        char[] novasChaves = new char[chaves.length - 1];
+        Conteiner[] novos = new Conteiner[chaves.length - 1];
+        System.arraycopy(chaves, 0, novasChaves, 0, posicao);
+        System.arraycopy(chaves, posicao + 1, novasChaves, posicao, novasChaves.length - posicao);
+        System.arraycopy(conteineres, 0, novos, 0, posicao);
+        System.arraycopy(conteineres, posicao + 1, novos, posicao, novos.length - posicao);
+        return new MapaBits(novasChaves, novos);
+    }
+
+    /**
+     * Bytes ocupados por {@link #escrever}.
+     */
+    public int tamanhoBytes() {
+        int total = Integer.BYTES;
+        for (Conteiner conteiner : conteineres) {
+            total += 2 * Integer.BYTES + conteiner.tamanhoBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Grava o conjunto a partir da posição do destino, na ordem de bytes dele.
+     */
+    public void escrever(ByteBuffer destino) {
+        destino.putInt(chaves.length);
+        for (int i = 0; i < chaves.length; i++) {
+            destino.putInt(chaves[i]);
+            destino.putInt(conteineres[i].cardinalidade());
+            conteineres[i].escrever(destino);
+        }
+    }
+
+    /**
+     * Os ids em ordem crescente.
+     */
+    public int[] paraArray() {
+        int[] ids = new int[cardinalidade];
+        int posicao = 0;
+        for (int i = 0; i < chaves.length; i++) {
+            posicao = conteineres[i].copiar(chaves[i] << 16, ids, posicao);
+        }
+        return ids;
+    }
+
+    /**
+     * Interseção.
+     */
+    public MapaBits e(MapaBits outro) {
+        Acumulador resultado = new Acumulador(Math.min(chaves.length, outro.chaves.length));
+        int i = 0;
+        int j = 0;
+        while (i < chaves.length && j < outro.chaves.length) {
+            if (chaves[i] < outro.chaves[j]) {
+                i++;
+            } else if (chaves[i] > outro.chaves[j]) {
+                j++;
+            } else {
+                resultado.adicionar(chaves[i], conteineres[i].e(outro.conteineres[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado.construir();
+    }
+
+    /**
+     * União.
+     */
+    public MapaBits ou(MapaBits outro) {
+        Acumulador resultado = new Acumulador(chaves.length + outro.chaves.length);
+        int i = 0;
+        int j = 0;
+        while (i < chaves.length || j < outro.chaves.length) {
+            if (j == outro.chaves.length || (i < chaves.length && chaves[i] < outro.chaves[j])) {
+                resultado.adicionar(chaves[i], conteineres[i]);
+                i++;
+            } else if (i == chaves.length || chaves[i] > outro.chaves[j]) {
+                resultado.adicionar(outro.chaves[j], outro.conteineres[j]);
+                j++;
+            } else {
+                resultado.adicionar(chaves[i], conteineres[i].ou(outro.conteineres[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado.construir();
+    }
+
+    /**
+     * Diferença: os ids deste conjunto que não estão no outro.
+     */
+    public MapaBits menos(MapaBits outro) {
+        Acumulador resultado = new Acumulador(chaves.length);
+        int j = 0;
+        for (int i = 0; i < chaves.length; i++) {
+            while (j < outro.chaves.length && outro.chaves[j] < chaves[i]) {
+                j++;
+            }
+            if (j < outro.chaves.length && outro.chaves[j] == chaves[i]) {
+                resultado.adicionar(chaves[i], conteineres[i].menos(outro.conteineres[j]));
+            } else {
+                resultado.adicionar(chaves[i], conteineres[i]);
+            }
+        }
+        return resultado.construir();
+    }
+
+    /**
+     * Monta um conjunto com ids acrescentados em ordem crescente.
+     */
+    public static final class Construtor {
+        private final Acumulador resultado = new Acumulador(4);
+        private int chaveAtual = -1;
+        private char[] baixos = new char[16];
+        private long[] palavras;
+        private int tamanho;
+        private int ultimo = -1;
+
+        public void adicionar(int id) {
+            if (id <= ultimo) {
+                throw new IllegalArgumentException("Ids fora de ordem: " + id + " depois de " + ultimo);
+            }
+            ultimo = id;
+
+            int chave = id >>> 16;
+            if (chave != chaveAtual) {
+                fecharConteiner();
+                chaveAtual = chave;
+            }
+
+            char baixo = (char) id;
+            if (palavras != null) {
+                palavras[baixo >>> 6] |= 1L << baixo;
+                tamanho++;
+                return;
+            }
+            if (tamanho == LIMITE_VETOR) {
+                // Passou do limite da lista: o contêiner vira um mapa de bits
+                palavras = new long[PALAVRAS];
+                for (int i = 0; i < tamanho; i++) {
+                    palavras[baixos[i] >>> 6] |= 1L << baixos[i];
+                }
+                palavras[baixo >>> 6] |= 1L << baixo;
+                tamanho++;
+                return;
+            }
+            if (tamanho == baixos.length) {
+                baixos = Arrays.copyOf(baixos, Math.min(LIMITE_VETOR, tamanho * 2));
+            }
+            baixos[tamanho++] = baixo;
+        }
+
+        private void fecharConteiner() {
+            if (tamanho > 0) {
+                Conteiner conteiner = palavras != null
+                        ? new ConteinerBits(palavras, tamanho)
+                        : new ConteinerVetor(Arrays.copyOf(baixos, tamanho));
+                resultado.adicionar((char) chaveAtual, conteiner);
+            }
+            palavras = null;
+            tamanho = 0;
+        }
+
+        public MapaBits construir() {
+            fecharConteiner();
+            chaveAtual = -1;
+            return resultado.construir();
+        }
+    }
+
+    /**
+     * Acumula os contêineres não vazios de um resultado, em ordem de chave.
+     */
+    private static final class Acumulador {
+        private char[] chaves;
+        private Conteiner[] conteineres;
+        private int quantidade;
+
+        Acumulador(int capacidade) {
+            this.chaves = new char[Math.max(1, capacidade)];
+            this.conteineres = new Conteiner[Math.max(1, capacidade)];
+        }
+
+        void adicionar(char chave, Conteiner conteiner) {
+            if (conteiner.cardinalidade() == 0) {
+                return;
+            }
+            if (quantidade == chaves.length) {
+                chaves = Arrays.copyOf(chaves, quantidade * 2);
+                conteineres = Arrays.copyOf(conteineres, quantidade * 2);
+            }
+            chaves[quantidade] = chave;
+            conteineres[quantidade++] = conteiner;
+        }
+
+        MapaBits construir() {
+            if (quantidade == 0) {
+                return VAZIO;
+            }
+            return new MapaBits(Arrays.copyOf(chaves, quantidade), Arrays.copyOf(conteineres, quantidade), quantidade);
+        }
+    }
+
+    /**
+     * Os 16 bits baixos dos ids de um grupo.
+     */
+    private abstract static class Conteiner {
+        abstract int cardinalidade();
+
+        abstract boolean contem(char baixo);
+
+        /**
+         * Copia os ids (com os bits altos dados) para o destino a partir da posição; retorna a próxima posição.
+         */
+        abstract int copiar(int alto, int[] destino, int posicao);
+
+        abstract Conteiner e(Conteiner outro);
+
+        abstract Conteiner ou(Conteiner outro);
+
+        abstract Conteiner menos(Conteiner outro);
+
+        /**
+         * Uma cópia sem o valor, que deve estar no contêiner.
+         */
+        abstract Conteiner sem(char baixo);
+
+        abstract int tamanhoBytes();
+
+        abstract void escrever(ByteBuffer destino);
+
+        /**
+         * Os valores de {@code [0, quantidade)}.
+         */
+        static Conteiner primeiros(int quantidade) {
+            if (quantidade <= LIMITE_VETOR) {
+                char[] valores = new char[quantidade];
+                for (int i = 0; i < quantidade; i++) {
+                    valores[i] = (char) i;
+                }
+                return new ConteinerVetor(valores);
+            }
+            long[] palavras = new long[PALAVRAS];
+            Arrays.fill(palavras, 0, quantidade >>> 6, -1L);
+            if ((quantidade & 63) != 0) {
+                palavras[quantidade >>> 6] = (1L << quantidade) - 1;
+            }
+            return new ConteinerBits(palavras, quantidade);
+        }
+
+        /**
+         * O contêiner mais compacto para os bits dados.
+         */
+        static Conteiner deBits(long[] palavras) {
+            int cardinalidade = 0;
+            for (long palavra : palavras) {
+                cardinalidade += Long.bitCount(palavra);
+            }
+            if (cardinalidade > LIMITE_VETOR) {
+                return new ConteinerBits(palavras, cardinalidade);
+            }
+            char[] valores = new char[cardinalidade];
+            int posicao = 0;
+            for (int i = 0; i < palavras.length; i++) {
+                long palavra = palavras[i];
+                while (palavra != 0) {
+                    valores[posicao++] = (char) ((i << 6) + Long.numberOfTrailingZeros(palavra));
+                    palavra &= palavra - 1;
+                }
+            }
+            return new ConteinerVetor(valores);
+        }
+    }
+
+    private static final class ConteinerVetor extends Conteiner {
+        private final char[] valores;
+
+        ConteinerVetor(char[] valores) {
+            this.valores = valores;
+        }
+
+        @Override
+        int cardinalidade() {
+            return valores.length;
+        }
+
+        @Override
+        boolean contem(char baixo) {
+            return Arrays.binarySearch(valores, baixo) >= 0;
+        }
+
+        @Override
+        int copiar(int alto, int[] destino, int posicao) {
+            for (char valor : valores) {
+                destino[posicao++] = alto | valor;
+            }
+            return posicao;
+        }
+
+        @Override
+        Conteiner e(Conteiner outro) {
+            char[] resultado = new char[valores.length];
+            int tamanho = 0;
+            for (char valor : valores) {
+                if (outro.contem(valor)) {
+                    resultado[tamanho++] = valor;
+                }
+            }
+            return new ConteinerVetor(Arrays.copyOf(resultado, tamanho));
+        }
+
+        @Override
+        Conteiner ou(Conteiner outro) {
+            if (outro instanceof ConteinerBits) {
+                return outro.ou(this);
+            }
+            char[] outros = ((ConteinerVetor) outro).valores;
+            char[] resultado = new char[valores.length + outros.length];
+            int tamanho = 0;
+            int i = 0;
+            int j = 0;
+            while (i < valores.length || j < outros.length) {
+                if (j == outros.length || (i < valores.length && valores[i] < outros[j])) {
+                    resultado[tamanho++] = valores[i++];
+                } else if (i == valores.length || valores[i] > outros[j]) {
+                    resultado[tamanho++] = outros[j++];
+                } else {
+                    resultado[tamanho++] = valores[i++];
+                    j++;
+                }
+            }
+            if (tamanho > LIMITE_VETOR) {
+                long[] palavras = new long[PALAVRAS];
+                for (int k = 0; k < tamanho; k++) {
+                    palavras[resultado[k] >>> 6] |= 1L << resultado[k];
+                }
+                return new ConteinerBits(palavras, tamanho);
+            }
+            return new ConteinerVetor(Arrays.copyOf(resultado, tamanho));
+        }
+
+        @Override
+        Conteiner menos(Conteiner outro) {
+            char[] resultado = new char[valores.length];
+            int tamanho = 0;
+            for (char valor : valores) {
+                if (!outro.contem(valor)) {
+                    resultado[tamanho++] = valor;
+                }
+            }
+            return new ConteinerVetor(Arrays.copyOf(resultado, tamanho));
+        }
+
+        @Override
+        Conteiner sem(char baixo) {
+            int posicao = Arrays.binarySearch(valores, baixo);
+            char[] resultado = new char[valores.length - 1];
+            System.arraycopy(valores, 0, resultado, 0, posicao);
+            System.arraycopy(valores, posicao + 1, resultado, posicao, resultado.length - posicao);
+            return new ConteinerVetor(resultado);
+        }
+
+        @Override
+        int tamanhoBytes() {
+            return valores.length * Character.BYTES;
+        }
+
+        @Override
+        void escrever(ByteBuffer destino) {
+            destino.asCharBuffer().put(valores);
+            destino.position(destino.position() + tamanhoBytes());
+        }
+    }
+
+    private static final class ConteinerBits extends Conteiner {
+        private final long[] palavras;
+        private final int cardinalidade;
+
+        ConteinerBits(long[] palavras, int cardinalidade) {
+            this.palavras = palavras;
+            this.cardinalidade = cardinalidade;
+        }
+
+        @Override
+        int cardinalidade() {
+            return cardinalidade;
+        }
+
+        @Override
+        boolean contem(char baixo) {
+            return (palavras[baixo >>> 6] & (1L << baixo)) != 0;
+        }
+
+        @Override
+        int copiar(int alto, int[] destino, int posicao) {
+            for (int i = 0; i < palavras.length; i++) {
+                long palavra = palavras[i];
+                while (palavra != 0) {
+                    destino[posicao++] = alto | (i << 6) + Long.numberOfTrailingZeros(palavra);
+                    palavra &= palavra - 1;
+                }
+            }
+            return posicao;
+        }
+
+        @Override
+        Conteiner e(Conteiner outro) {
+            if (outro instanceof ConteinerVetor) {
+                return outro.e(this);
+            }
+            long[] outras = ((ConteinerBits) outro).palavras;
+            long[] resultado = new long[PALAVRAS];
+            for (int i = 0; i < PALAVRAS; i++) {
+                resultado[i] = palavras[i] & outras[i];
+            }
+            return deBits(resultado);
+        }
+
+        @Override
+        Conteiner ou(Conteiner outro) {
+            long[] resultado = palavras.clone();
+            if (outro instanceof ConteinerVetor) {
+                for (char valor : ((ConteinerVetor) outro).valores) {
+                    resultado[valor >>> 6] |= 1L << valor;
+                }
+            } else {
+                long[] outras = ((ConteinerBits) outro).palavras;
+                for (int i = 0; i < PALAVRAS; i++) {
+                    resultado[i] |= outras[i];
+                }
+            }
+            return deBits(resultado);
+        }
+
+        @Override
+        Conteiner menos(Conteiner outro) {
+            long[] resultado = palavras.clone();
+            if (outro instanceof ConteinerVetor) {
+                for (char valor : ((ConteinerVetor) outro).valores) {
+                    resultado[valor >>> 6] &= ~(1L << valor);
+                }
+            } else {
+                long[] outras = ((ConteinerBits) outro).palavras;
+                for (int i = 0; i < PALAVRAS; i++) {
+                    resultado[i] &= ~outras[i];
+                }
+            }
+            return deBits(resultado);
+        }
+
+        @Override
+        Conteiner sem(char baixo) {
+            long[] resultado = palavras.clone();
+            resultado[baixo >>> 6] &= ~(1L << baixo);
+            // Com até LIMITE_VETOR valores o contêiner volta a ser uma lista
+            return cardinalidade - 1 > LIMITE_VETOR ? new ConteinerBits(resultado, cardinalidade - 1) : deBits(resultado);
+        }
+
+        @Override
+        int tamanhoBytes() {
+            return PALAVRAS * Long.BYTES;
+        }
+
+        @Override
+        void escrever(ByteBuffer destino) {
+            destino.asLongBuffer().put(palavras);
+            destino.position(destino.position() + tamanhoBytes());
+        }
+    }
+}
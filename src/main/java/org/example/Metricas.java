@@ -0,0 +1,120 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.json.*;
+
+/**
+ * Contadores e histogramas de latência de um servidor, por nome.
+ *
+ * Quem registra no caminho de cada requisição guarda a referência do contador ou do
+ * histograma em um campo, para não procurar no mapa a cada vez; os dois são atualizados
+ * sem trava. Os medidores são valores lidos só na hora de exibir (como o limite atual
+ * do {@link ControleAdmissao}).
+ *
+ * As métricas saem em texto, uma por linha no formato de exposição do Prometheus
+ * (porta de métricas), ou em JSON (requisição {@code STATS}). As latências são exibidas
+ * em microssegundos.
+ */
+public class Metricas {
+
+    private static final double[] QUANTIS = {0.5, 0.9, 0.99, 0.999};
+
+    private final String servidor;
+    private final ConcurrentMap<String, LongAdder> contadores = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, HistogramaLatencia> latencias = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongSupplier> medidores = new ConcurrentSkipListMap<>();
+
+    public Metricas(String servidor) {
+        this.servidor = servidor;
+    }
+
+    public String getServidor() {
+        return servidor;
+    }
+
+    public LongAdder contador(String nome) {
+        return contadores.computeIfAbsent(nome, n -> new LongAdder());
+    }
+
+    public HistogramaLatencia latencia(String etapa) {
+        return latencias.computeIfAbsent(etapa, e -> new HistogramaLatencia());
+    }
+
+    public void medidor(String nome, LongSupplier valor) {
+        medidores.put(nome, valor);
+    }
+
+    /**
+     * Nome válido nas métricas em texto: letras, dígitos e '_' (shards como "localhost:8081" viram "localhost_8081").
+     */
+    static String nomeMetrica(String nome) {
+        StringBuilder resultado = new StringBuilder(nome.length());
+        for (int i = 0; i < nome.length(); i++) {
+            char c = nome.charAt(i);
+            resultado.append(c < 128 && Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : '_');
+        }
+        return resultado.toString();
+    }
+
+    public String texto() {
+        StringBuilder texto = new StringBuilder(2048);
+        texto.append("# ").append(servidor).append('\n');
+        for (Map.Entry<String, LongAdder> contador : contadores.entrySet()) {
+            texto.append(nomeMetrica(contador.getKey())).append("_total ").append(contador.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> medidor : medidores.entrySet()) {
+            texto.append(nomeMetrica(medidor.getKey())).append(' ').append(medidor.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, HistogramaLatencia> latencia : latencias.entrySet()) {
+            String nome = "latencia_" + nomeMetrica(latencia.getKey()) + "_us";
+            HistogramaLatencia histograma = latencia.getValue();
+            long[] percentis = histograma.percentis(QUANTIS);
+            for (int i = 0; i < QUANTIS.length; i++) {
+                texto.append(nome).append("{quantile=\"").append(QUANTIS[i]).append("\"} ")
+                        .append(micros(percentis[i])).append('\n');
+            }
+            texto.append(nome).append("_max ").append(micros(histograma.getMaximoNanos())).append('\n');
+            texto.append(nome).append("_sum ").append(micros(histograma.getSomaNanos())).append('\n');
+            texto.append(nome).append("_count ").append(histograma.getContagem()).append('\n');
+        }
+        return texto.toString();
+    }
+
+    public JSONObject json() {
+        JSONObject json = new JSONObject();
+        json.put("tipo", "STATS");
+        json.put("servidor", servidor);
+
+        JSONObject jsonContadores = new JSONObject();
+        for (Map.Entry<String, LongAdder> contador : contadores.entrySet()) {
+            jsonContadores.put(contador.getKey(), contador.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> medidor : medidores.entrySet()) {
+            jsonContadores.put(medidor.getKey(), medidor.getValue().getAsLong());
+        }
+        json.put("contadores", jsonContadores);
+
+        JSONObject jsonLatencias = new JSONObject();
+        for (Map.Entry<String, HistogramaLatencia> latencia : latencias.entrySet()) {
+            HistogramaLatencia histograma = latencia.getValue();
+            long[] percentis = histograma.percentis(QUANTIS);
+            JSONObject etapa = new JSONObject();
+            etapa.put("contagem", histograma.getContagem());
+            etapa.put("p50_us", micros(percentis[0]));
+            etapa.put("p90_us", micros(percentis[1]));
+            etapa.put("p99_us", micros(percentis[2]));
+            etapa.put("p999_us", micros(percentis[3]));
+            etapa.put("max_us", micros(histograma.getMaximoNanos()));
+            jsonLatencias.put(latencia.getKey(), etapa);
+        }
+        json.put("latencias", jsonLatencias);
+        return json;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
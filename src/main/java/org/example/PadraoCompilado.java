@@ -0,0 +1,26 @@
+package org.example;
+
+/**
+ * Padrão já pré-processado por um {@link AlgoritmoBusca}, pronto para ser buscado em muitos textos.
+ *
+ * As tabelas do algoritmo são montadas uma única vez em {@link AlgoritmoBusca#compilar(String)},
+ * então cada busca não aloca memória. Implementações são imutáveis e podem ser
+ * usadas por várias threads ao mesmo tempo.
+ */
+@FunctionalInterface
+public interface PadraoCompilado {
+
+    /**
+     * Busca a primeira ocorrência do padrão no trecho {@code [inicio, fim)} do texto.
+     *
+     * @return A posição absoluta da primeira ocorrência em {@code texto}, ou -1 se não encontrado
+     */
+    int buscar(CharSequence texto, int inicio, int fim);
+
+    /**
+     * Busca a primeira ocorrência do padrão no texto inteiro.
+     */
+    default int buscar(CharSequence texto) {
+        return buscar(texto, 0, texto.length());
+    }
+}
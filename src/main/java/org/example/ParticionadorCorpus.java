@@ -0,0 +1,86 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Divide arquivos de artigos do arXiv entre N shards por hash consistente do id do artigo.
+ *
+ * Uso: {@code java -cp servidor-shard.jar org.example.ParticionadorCorpus <shards> <prefixo> <arquivo>...}
+ *
+ * Grava {@code <prefixo>_0.json} até {@code <prefixo>_<N-1>.json}, no mesmo formato dos
+ * arquivos de entrada (um array de artigos). Os arquivos são lidos e gravados artigo a
+ * artigo, então o dataset inteiro nunca fica em memória. Artigos sem "id" são distribuídos
+ * pelo título.
+ */
+public final class ParticionadorCorpus {
+
+    private ParticionadorCorpus() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Uso: ParticionadorCorpus <shards> <prefixo> <arquivo>...");
+            System.exit(1);
+        }
+
+        int quantidade = Integer.parseInt(args[0]);
+        List<Path> entradas = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            entradas.add(Paths.get(args[i]));
+        }
+
+        int[] contagem = particionar(entradas, args[1], new AnelHashConsistente(quantidade));
+        for (int shard = 0; shard < quantidade; shard++) {
+            System.out.println(args[1] + "_" + shard + ".json: " + contagem[shard] + " artigos");
+        }
+    }
+
+    /**
+     * Distribui os artigos e retorna quantos foram para cada shard.
+     */
+    public static int[] particionar(List<Path> entradas, String prefixo, AnelHashConsistente anel)
+            throws IOException {
+        int quantidade = anel.quantidadeShards();
+        Writer[] saidas = new Writer[quantidade];
+        int[] contagem = new int[quantidade];
+
+        try {
+            for (int shard = 0; shard < quantidade; shard++) {
+                saidas[shard] = Files.newBufferedWriter(Paths.get(prefixo + "_" + shard + ".json"), StandardCharsets.UTF_8);
+                saidas[shard].write('[');
+            }
+
+            for (Path entrada : entradas) {
+                LeitorArtigosJson.ler(entrada, artigo -> {
+                    String chave = artigo.has("id") ? artigo.get("id").toString() : artigo.optString("title", "");
+                    int shard = anel.shard(chave);
+                    try {
+                        if (contagem[shard] > 0) {
+                            saidas[shard].write(",\n");
+                        }
+                        saidas[shard].write(artigo.toString());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    contagem[shard]++;
+                });
+            }
+
+            for (Writer saida : saidas) {
+                saida.write("]\n");
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Writer saida : saidas) {
+                if (saida != null) {
+                    saida.close();
+                }
+            }
+        }
+        return contagem;
+    }
+}
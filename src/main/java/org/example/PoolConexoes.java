@@ -0,0 +1,129 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+
+/**
+ * Conjunto fixo de conexões persistentes com um servidor de busca.
+ *
+ * As requisições são distribuídas entre as conexões em rodízio e cada conexão
+ * carrega várias requisições ao mesmo tempo ({@link ConexaoMultiplexada}).
+ * Conexões perdidas são reabertas na próxima requisição que cair nelas. A abertura
+ * roda em uma thread própria: quem envia nunca fica bloqueado esperando o servidor
+ * aceitar a conexão, e o prazo da requisição já conta a partir do envio.
+ *
+ * Com o protocolo binário pedido, cada conexão o negocia ao abrir; se o servidor
+ * não o aceitar, só aquela conexão fica em JSON. Uma recusa pode ser só um servidor
+ * lento para responder o preâmbulo, então cada nova abertura tenta o binário de novo.
+ */
+public class PoolConexoes {
+
+    private static final int TIMEOUT_CONEXAO = 5000;
+
+    private final String host;
+    private final int porta;
+    private final AtomicReferenceArray<CompletableFuture<ConexaoMultiplexada>> conexoes;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final boolean binario;
+
+    public PoolConexoes(String host, int porta, int tamanho) {
+        this(host, porta, tamanho, false);
+    }
+
+    /**
+     * @param binario Se as conexões devem negociar o {@link ProtocoloBinario}
+     */
+    public PoolConexoes(String host, int porta, int tamanho, boolean binario) {
+        this.host = host;
+        this.porta = porta;
+        this.conexoes = new AtomicReferenceArray<>(tamanho);
+        this.binario = binario;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPorta() {
+        return porta;
+    }
+
+    /**
+     * Envia a requisição por uma das conexões do pool.
+     */
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao) {
+        return enviar(requisicao, null);
+    }
+
+    /**
+     * Envia uma requisição com resposta em várias mensagens por uma das conexões do pool.
+     *
+     * @see ConexaoMultiplexada#enviar(RequisicaoShard, Consumer)
+     */
+    public CompletableFuture<RespostaShard> enviar(RequisicaoShard requisicao,
+                                                   Consumer<RespostaShard> ouvinteParciais) {
+        CompletableFuture<ConexaoMultiplexada> conexao = obterConexao();
+        if (conexao.isDone() && !conexao.isCompletedExceptionally()) {
+            return conexao.join().enviar(requisicao, ouvinteParciais);
+        }
+
+        // Conexão ainda abrindo: envia quando ela estiver pronta, a menos que o chamador já tenha desistido
+        CompletableFuture<RespostaShard> resposta = new CompletableFuture<>();
+        conexao.whenComplete((aberta, erro) -> {
+            if (erro != null) {
+                resposta.completeExceptionally(erro);
+                return;
+            }
+            if (resposta.isDone()) {
+                return;
+            }
+            CompletableFuture<RespostaShard> envio = aberta.enviar(requisicao, ouvinteParciais);
+            resposta.whenComplete((r, e) -> envio.cancel(false));
+            envio.whenComplete((r, e) -> {
+                if (e != null) {
+                    resposta.completeExceptionally(e);
+                } else {
+                    resposta.complete(r);
+                }
+            });
+        });
+        return resposta;
+    }
+
+    private CompletableFuture<ConexaoMultiplexada> obterConexao() {
+        int posicao = Math.floorMod(proxima.getAndIncrement(), conexoes.length());
+        CompletableFuture<ConexaoMultiplexada> atual = conexoes.get(posicao);
+        if (atual != null && (!atual.isDone() || utilizavel(atual))) {
+            return atual;
+        }
+
+        // Só uma thread reabre a conexão; as outras usam a abertura já em andamento
+        CompletableFuture<ConexaoMultiplexada> nova = new CompletableFuture<>();
+        if (!conexoes.compareAndSet(posicao, atual, nova)) {
+            return conexoes.get(posicao);
+        }
+        Executores.novaThread("conexao-" + host + ":" + porta, () -> {
+            try {
+                nova.complete(ConexaoMultiplexada.conectar(host, porta, TIMEOUT_CONEXAO, binario));
+            } catch (IOException e) {
+                nova.completeExceptionally(e);
+            }
+        }).start();
+        return nova;
+    }
+
+    private static boolean utilizavel(CompletableFuture<ConexaoMultiplexada> conexao) {
+        return !conexao.isCompletedExceptionally() && conexao.join().isAberta();
+    }
+
+    public void fechar() {
+        for (int i = 0; i < conexoes.length(); i++) {
+            CompletableFuture<ConexaoMultiplexada> conexao = conexoes.getAndSet(i, null);
+            if (conexao != null) {
+                conexao.thenAccept(ConexaoMultiplexada::close);
+            }
+        }
+    }
+}
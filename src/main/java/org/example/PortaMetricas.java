@@ -0,0 +1,96 @@
+package org.example;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Porta local que responde as {@link Metricas} de um servidor em texto e fecha a conexão.
+ *
+ * Funciona com {@code nc localhost 18080} e com {@code curl http://localhost:18080/}: se a
+ * primeira linha recebida for um GET, a resposta leva o cabeçalho HTTP. A porta é a do
+ * servidor mais 10000, ou a da propriedade {@code servidor.portaMetricas} (0 desativa).
+ * Atende uma conexão por vez em uma thread própria, fora das filas das buscas.
+ */
+public class PortaMetricas implements Closeable {
+
+    private static final int ESPERA_REQUISICAO_MS = 200;
+
+    private final Metricas metricas;
+    private final ServerSocket serverSocket;
+
+    private PortaMetricas(Metricas metricas, ServerSocket serverSocket) {
+        this.metricas = metricas;
+        this.serverSocket = serverSocket;
+    }
+
+    /**
+     * Abre a porta de métricas do servidor que atende em {@code portaServidor}, ou retorna
+     * null se ela estiver desativada ou não puder ser aberta.
+     */
+    public static PortaMetricas abrir(Metricas metricas, int portaServidor) {
+        int porta = Integer.getInteger("servidor.portaMetricas", portaServidor + 10000);
+        if (porta <= 0 || porta > 65535) {
+            return null;
+        }
+
+        try {
+            ServerSocket serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta));
+            PortaMetricas portaMetricas = new PortaMetricas(metricas, serverSocket);
+            Executores.novaThread(metricas.getServidor() + "-metricas", portaMetricas::atender).start();
+            System.out.println(metricas.getServidor() + " - Métricas na porta " + porta);
+            return portaMetricas;
+        } catch (IOException e) {
+            System.err.println(metricas.getServidor() + " - Não foi possível abrir a porta de métricas "
+                    + porta + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void atender() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                responder(socket);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println(metricas.getServidor() + " - Erro na porta de métricas: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void responder(Socket socket) throws IOException {
+        // Espera um pouco pela requisição; sem ela (nc), responde só o texto
+        boolean http = false;
+        socket.setSoTimeout(ESPERA_REQUISICAO_MS);
+        try {
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            String linha = entrada.readLine();
+            http = linha != null && linha.startsWith("GET ");
+        } catch (SocketTimeoutException e) {
+            // Nenhuma requisição: texto puro
+        }
+
+        byte[] corpo = metricas.texto().getBytes(StandardCharsets.UTF_8);
+        OutputStream saida = socket.getOutputStream();
+        if (http) {
+            saida.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                    + "Content-Length: " + corpo.length + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+        }
+        saida.write(corpo);
+        saida.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println(metricas.getServidor() + " - Erro ao fechar a porta de métricas: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package org.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Protocolo binário entre o Servidor A e os servidores de busca.
+ *
+ * A conexão começa em texto (uma mensagem JSON por linha). Para usar o protocolo
+ * binário, o cliente envia o {@link #PREAMBULO} logo após conectar e espera o
+ * servidor devolvê-lo; como o primeiro byte é zero, que nunca inicia uma linha de
+ * texto, o servidor distingue os dois modos na mesma porta. Um servidor que não
+ * responde o preâmbulo não conhece o protocolo, e o cliente reconecta em JSON.
+ *
+ * No modo binário cada mensagem é um quadro com o tamanho do conteúdo (int de 4
+ * bytes) seguido do conteúdo, que começa pelo tipo (1 byte) e pelo id (long).
+ * Números são big-endian e textos são o tamanho em bytes seguido do UTF-8.
+ *
+ * <pre>
+ * BUSCA     flags(1) limite(4) deslocamento(4) query termos(4 + textos)
+ * RESPOSTA  servidor versão(8) total(4) resultados
+ * PARCIAL   servidor resultados
+ * FIM       servidor versão(8) total(4) erro (tamanho -1 quando não houve erro)
+ * OCUPADO   servidor
+ * VERSAO    (só o tipo e o id; a resposta é um RESPOSTA sem resultados)
+ *
+ * resultados = quantidade(4) e, para cada um: pontuação(8, NaN se ausente) campos
+ * </pre>
+ *
+ * O servidor de cada resultado não é repetido: vem uma vez na mensagem. Os campos de cada
+ * resultado são o fragmento JSON do artigo ({@link FragmentosResultado}), com o tamanho em
+ * bytes na frente como um texto: o servidor de busca copia o fragmento que montou ao carregar
+ * os artigos e o Servidor A guarda um trecho do próprio quadro recebido, sem interpretá-lo,
+ * até copiá-lo para a resposta ao cliente.
+ *
+ * Nenhum quadro passa de {@link #TAMANHO_MAXIMO_QUADRO}: uma resposta com mais resultados do que
+ * cabem em um quadro é enviada como quadros PARCIAL com os primeiros resultados seguidos do
+ * RESPOSTA com os últimos ({@link #codificarRespostaDividida}), e quem a recebe junta os
+ * resultados na ordem de chegada.
+ *
+ * A versão 2 do preâmbulo passou a usar fragmentos, a 3 acrescentou a versão dos artigos
+ * ({@link RespostaShard#getVersao()}) e a 4 a resposta dividida; um servidor de uma versão
+ * anterior recusa o preâmbulo e a conexão volta para JSON.
+ */
+public final class ProtocoloBinario {
+
+    public static final byte[] PREAMBULO = {0, 'A', 'R', 'X', 'B', 'I', 'N', 4};
+
+    /** Maior quadro aceito, para que um tamanho corrompido não aloque memória sem limite. */
+    public static final int TAMANHO_MAXIMO_QUADRO = 64 * 1024 * 1024;
+
+    /** Bytes de resultados por quadro ao dividir uma resposta, com folga para o cabeçalho. */
+    static final int TAMANHO_BLOCO_RESULTADOS = TAMANHO_MAXIMO_QUADRO - 64 * 1024;
+
+    static final byte BUSCA = 1;
+    static final byte RESPOSTA = 2;
+    static final byte PARCIAL = 3;
+    static final byte FIM = 4;
+    static final byte OCUPADO = 5;
+    static final byte VERSAO = 6;
+
+    private static final byte FLAG_TRANSMITIR = 1;
+
+    private ProtocoloBinario() {
+    }
+
+    public static ByteBuffer codificar(RequisicaoShard requisicao) {
+        if (RequisicaoShard.VERSAO.equals(requisicao.getTipo())) {
+            Escritor escritor = new Escritor(16);
+            escritor.escreverByte(VERSAO);
+            escritor.escreverLong(requisicao.getId());
+            return escritor.quadro();
+        }
+        Escritor escritor = new Escritor(64 + requisicao.getQuery().length() * 2);
+        escritor.escreverByte(BUSCA);
+        escritor.escreverLong(requisicao.getId());
+        escritor.escreverByte(requisicao.isTransmitir() ? FLAG_TRANSMITIR : 0);
+        escritor.escreverInt(requisicao.getLimite());
+        escritor.escreverInt(requisicao.getDeslocamento());
+        escritor.escreverTexto(requisicao.getQuery());
+        escritor.escreverInt(requisicao.getTermos().size());
+        for (String termo : requisicao.getTermos()) {
+            escritor.escreverTexto(termo);
+        }
+        return escritor.quadro();
+    }
+
+    /**
+     * Lê uma requisição do conteúdo de um quadro (sem o tamanho).
+     *
+     * @throws IllegalArgumentException se o quadro não for uma requisição válida
+     */
+    public static RequisicaoShard lerRequisicao(ByteBuffer quadro) {
+        try {
+            byte tipo = quadro.get();
+            if (tipo != BUSCA && tipo != VERSAO) {
+                throw new IllegalArgumentException("Tipo de requisição desconhecido: " + tipo);
+            }
+            long id = quadro.getLong();
+            if (tipo == VERSAO) {
+                return RequisicaoShard.versao().comId(id);
+            }
+            byte flags = quadro.get();
+            int limite = quadro.getInt();
+            int deslocamento = quadro.getInt();
+            String query = lerTexto(quadro);
+            int quantidade = lerQuantidade(quadro);
+            List<String> termos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                termos.add(lerTexto(quadro));
+            }
+            return new RequisicaoShard(id, RequisicaoShard.BUSCA, query, termos,
+                    (flags & FLAG_TRANSMITIR) != 0, limite, Math.max(0, deslocamento));
+        } catch (RuntimeException e) {
+            throw e instanceof IllegalArgumentException ? e : new IllegalArgumentException("Quadro inválido", e);
+        }
+    }
+
+    public static ByteBuffer codificarResposta(long id, String servidor, long versao, int total,
+                                               List<Resultado> resultados) {
+        Escritor escritor = new Escritor(tamanhoEstimado(resultados));
+        escritor.escreverByte(RESPOSTA);
+        escritor.escreverLong(id);
+        escritor.escreverTexto(servidor);
+        escritor.escreverLong(versao);
+        escritor.escreverInt(total);
+        escreverResultados(escritor, resultados);
+        return escritor.quadro();
+    }
+
+    /**
+     * Codifica uma resposta em quadros que não passam de {@link #TAMANHO_MAXIMO_QUADRO}: um único
+     * RESPOSTA quando os resultados cabem nele, ou quadros PARCIAL com os primeiros resultados e
+     * o RESPOSTA com os demais.
+     */
+    public static List<ByteBuffer> codificarRespostaDividida(long id, String servidor, long versao, int total,
+                                                             List<Resultado> resultados) {
+        return codificarRespostaDividida(id, servidor, versao, total, resultados, TAMANHO_BLOCO_RESULTADOS);
+    }
+
+    static List<ByteBuffer> codificarRespostaDividida(long id, String servidor, long versao, int total,
+                                                      List<Resultado> resultados, long limiteBloco) {
+        List<List<Resultado>> blocos = dividir(resultados, limiteBloco);
+        List<ByteBuffer> quadros = new ArrayList<>(blocos.size());
+        for (int i = 0; i < blocos.size() - 1; i++) {
+            quadros.add(codificarParcial(id, servidor, blocos.get(i)));
+        }
+        quadros.add(codificarResposta(id, servidor, versao, total, blocos.get(blocos.size() - 1)));
+        return quadros;
+    }
+
+    /**
+     * Separa os resultados, na ordem, em blocos de no máximo {@code limiteBloco} bytes codificados
+     * (um resultado maior que o limite fica sozinho no bloco). Sempre há ao menos um bloco.
+     */
+    static List<List<Resultado>> dividir(List<Resultado> resultados, long limiteBloco) {
+        List<List<Resultado>> blocos = new ArrayList<>(1);
+        int inicio = 0;
+        long tamanho = 0;
+        for (int i = 0; i < resultados.size(); i++) {
+            long tamanhoResultado = tamanhoCodificado(resultados.get(i));
+            if (i > inicio && tamanho + tamanhoResultado > limiteBloco) {
+                blocos.add(resultados.subList(inicio, i));
+                inicio = i;
+                tamanho = 0;
+            }
+            tamanho += tamanhoResultado;
+        }
+        blocos.add(resultados.subList(inicio, resultados.size()));
+        return blocos;
+    }
+
+    public static ByteBuffer codificarParcial(long id, String servidor, List<Resultado> resultados) {
+        Escritor escritor = new Escritor(tamanhoEstimado(resultados));
+        escritor.escreverByte(PARCIAL);
+        escritor.escreverLong(id);
+        escritor.escreverTexto(servidor);
+        escreverResultados(escritor, resultados);
+        return escritor.quadro();
+    }
+
+    public static ByteBuffer codificarFim(long id, String servidor, long versao, int total, String erro) {
+        Escritor escritor = new Escritor(64);
+        escritor.escreverByte(FIM);
+        escritor.escreverLong(id);
+        escritor.escreverTexto(servidor);
+        escritor.escreverLong(versao);
+        escritor.escreverInt(total);
+        escritor.escreverTexto(erro);
+        return escritor.quadro();
+    }
+
+    public static ByteBuffer codificarOcupado(long id, String servidor) {
+        Escritor escritor = new Escritor(32);
+        escritor.escreverByte(OCUPADO);
+        escritor.escreverLong(id);
+        escritor.escreverTexto(servidor);
+        return escritor.quadro();
+    }
+
+    /**
+     * Lê uma resposta de servidor de busca do conteúdo de um quadro (sem o tamanho).
+     */
+    public static RespostaShard lerResposta(ByteBuffer quadro) {
+        byte tipo = quadro.get();
+        long id = quadro.getLong();
+        String servidor = lerTexto(quadro);
+
+        switch (tipo) {
+            case RESPOSTA: {
+                long versao = quadro.getLong();
+                int total = quadro.getInt();
+                return new RespostaShard(RespostaShard.RESPOSTA, id, servidor, total, lerResultados(quadro, servidor),
+                        null, versao);
+            }
+            case PARCIAL: {
+                List<Resultado> resultados = lerResultados(quadro, servidor);
+                return new RespostaShard(RespostaShard.PARCIAL, id, servidor, resultados.size(), resultados, null);
+            }
+            case FIM: {
+                long versao = quadro.getLong();
+                int total = quadro.getInt();
+                return new RespostaShard(RespostaShard.FIM, id, servidor, total, List.of(), lerTexto(quadro), versao);
+            }
+            case OCUPADO:
+                return new RespostaShard(RespostaShard.OCUPADO, id, servidor, 0, List.of(), null);
+            default:
+                throw new IllegalArgumentException("Tipo de resposta desconhecido: " + tipo);
+        }
+    }
+
+    /**
+     * Lê um quadro completo de um stream bloqueante.
+     *
+     * @return O conteúdo do quadro, ou null se o stream terminou entre dois quadros
+     */
+    public static ByteBuffer lerQuadro(DataInputStream entrada) throws IOException {
+        int tamanho;
+        try {
+            tamanho = entrada.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (tamanho < 0 || tamanho > TAMANHO_MAXIMO_QUADRO) {
+            throw new IOException("Tamanho de quadro inválido: " + tamanho);
+        }
+        byte[] conteudo = new byte[tamanho];
+        entrada.readFully(conteudo);
+        return ByteBuffer.wrap(conteudo);
+    }
+
+    /**
+     * Lê o preâmbulo de um stream e verifica se é o esperado.
+     */
+    public static boolean lerPreambulo(InputStream entrada) throws IOException {
+        byte[] recebido = new byte[PREAMBULO.length];
+        new DataInputStream(entrada).readFully(recebido);
+        return Arrays.equals(recebido, PREAMBULO);
+    }
+
+    private static void escreverResultados(Escritor escritor, List<Resultado> resultados) {
+        escritor.escreverInt(resultados.size());
+        for (Resultado resultado : resultados) {
+            escritor.escreverDouble(resultado.getPontuacao());
+            resultado.escreverFragmento(escritor);
+        }
+    }
+
+    private static List<Resultado> lerResultados(ByteBuffer quadro, String servidor) {
+        int quantidade = lerQuantidade(quadro);
+        List<Resultado> resultados = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            double pontuacao = quadro.getDouble();
+            int tamanho = quadro.getInt();
+            if (tamanho < 0 || tamanho > quadro.remaining()) {
+                throw new IllegalArgumentException("Resultado excede o quadro");
+            }
+            // O resultado aponta para o próprio quadro, que não é reaproveitado depois de lido
+            if (quadro.hasArray()) {
+                resultados.add(new Resultado(quadro.slice(quadro.position(), tamanho), servidor, pontuacao));
+            } else {
+                byte[] fragmento = new byte[tamanho];
+                quadro.get(quadro.position(), fragmento);
+                resultados.add(new Resultado(ByteBuffer.wrap(fragmento), servidor, pontuacao));
+            }
+            quadro.position(quadro.position() + tamanho);
+        }
+        return resultados;
+    }
+
+    private static int lerQuantidade(ByteBuffer quadro) {
+        int quantidade = quadro.getInt();
+        // Cada item ocupa ao menos 4 bytes: uma quantidade maior que isso é quadro corrompido
+        if (quantidade < 0 || quantidade > quadro.remaining() / 4) {
+            throw new IllegalArgumentException("Quantidade inválida: " + quantidade);
+        }
+        return quantidade;
+    }
+
+    private static String lerTexto(ByteBuffer quadro) {
+        int tamanho = quadro.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        if (tamanho > quadro.remaining()) {
+            throw new IllegalArgumentException("Texto excede o quadro");
+        }
+        String texto;
+        if (quadro.hasArray()) {
+            texto = new String(quadro.array(), quadro.arrayOffset() + quadro.position(), tamanho, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[tamanho];
+            quadro.get(quadro.position(), bytes);
+            texto = new String(bytes, StandardCharsets.UTF_8);
+        }
+        quadro.position(quadro.position() + tamanho);
+        return texto;
+    }
+
+    private static int tamanhoEstimado(List<Resultado> resultados) {
+        long tamanho = 64;
+        for (Resultado resultado : resultados) {
+            tamanho += tamanhoCodificado(resultado);
+        }
+        return (int) Math.min(tamanho, TAMANHO_MAXIMO_QUADRO + 4L);
+    }
+
+    /**
+     * Bytes de um resultado no quadro: a pontuação e o fragmento com o tamanho na frente.
+     */
+    private static long tamanhoCodificado(Resultado resultado) {
+        return 8 + 4 + resultado.tamanhoFragmento();
+    }
+
+    /**
+     * Monta um quadro em um único array, reservando os 4 bytes do tamanho no início.
+     * O quadro pronto é devolvido sem cópia.
+     *
+     * @throws IllegalArgumentException ao escrever além de {@link #TAMANHO_MAXIMO_QUADRO}, que o
+     *         outro lado recusaria
+     */
+    static final class Escritor {
+        private byte[] bytes;
+        private int tamanho = 4;
+
+        Escritor(int capacidadeInicial) {
+            this.bytes = new byte[Math.max(16, capacidadeInicial)];
+        }
+
+        void escreverByte(int valor) {
+            garantir(1);
+            bytes[tamanho++] = (byte) valor;
+        }
+
+        void escreverInt(int valor) {
+            garantir(4);
+            bytes[tamanho++] = (byte) (valor >>> 24);
+            bytes[tamanho++] = (byte) (valor >>> 16);
+            bytes[tamanho++] = (byte) (valor >>> 8);
+            bytes[tamanho++] = (byte) valor;
+        }
+
+        void escreverLong(long valor) {
+            escreverInt((int) (valor >>> 32));
+            escreverInt((int) valor);
+        }
+
+        void escreverDouble(double valor) {
+            escreverLong(Double.doubleToRawLongBits(valor));
+        }
+
+        void escreverTexto(String texto) {
+            if (texto == null) {
+                escreverInt(-1);
+                return;
+            }
+            // Caminho rápido para ASCII, que é a maior parte dos textos do arXiv
+            int comprimento = texto.length();
+            garantir(4 + comprimento);
+            int inicio = tamanho + 4;
+            int i = 0;
+            while (i < comprimento) {
+                char c = texto.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                bytes[inicio + i] = (byte) c;
+                i++;
+            }
+            if (i == comprimento) {
+                escreverInt(comprimento);
+                tamanho += comprimento;
+                return;
+            }
+            byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+            escreverInt(utf8.length);
+            garantir(utf8.length);
+            System.arraycopy(utf8, 0, bytes, tamanho, utf8.length);
+            tamanho += utf8.length;
+        }
+
+        /**
+         * Bytes já codificados, com o tamanho na frente como em {@link #escreverTexto}.
+         */
+        void escreverBytes(ByteBuffer origem) {
+            int comprimento = origem.remaining();
+            escreverInt(comprimento);
+            garantir(comprimento);
+            origem.get(origem.position(), bytes, tamanho, comprimento);
+            tamanho += comprimento;
+        }
+
+        /**
+         * O quadro completo, com o tamanho do conteúdo nos 4 primeiros bytes.
+         */
+        ByteBuffer quadro() {
+            int conteudo = tamanho - 4;
+            bytes[0] = (byte) (conteudo >>> 24);
+            bytes[1] = (byte) (conteudo >>> 16);
+            bytes[2] = (byte) (conteudo >>> 8);
+            bytes[3] = (byte) conteudo;
+            return ByteBuffer.wrap(bytes, 0, tamanho);
+        }
+
+        private void garantir(int adicional) {
+            long necessario = (long) tamanho + adicional;
+            if (necessario <= bytes.length) {
+                return;
+            }
+            if (necessario > TAMANHO_MAXIMO_QUADRO + 4L) {
+                throw new IllegalArgumentException("Quadro excede o tamanho máximo: " + (necessario - 4) + " bytes");
+            }
+            bytes = Arrays.copyOf(bytes, (int) Math.min(Math.max(necessario, bytes.length * 2L),
+                    TAMANHO_MAXIMO_QUADRO + 4L));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+/**
+ * Pontuação de relevância BM25 dos artigos de um corpus.
+ *
+ * A frequência de cada termo é contada no título e no resumo, com as ocorrências no
+ * título valendo {@value #PESO_TITULO} vezes mais, e normalizada pelo tamanho do artigo
+ * em relação à média do corpus. O IDF usa a quantidade de artigos do próprio servidor
+ * que contêm o termo; como os servidores dividem um mesmo dataset, as pontuações de
+ * servidores diferentes são comparáveis o suficiente para serem intercaladas.
+ */
+public class Relevancia {
+
+    public static final double PESO_TITULO = 3.0;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final CorpusArtigos corpus;
+    private final double comprimentoMedio;
+
+    public Relevancia(CorpusArtigos corpus) {
+        this(corpus, corpus.tamanho() == 0 ? 1 : (double) somaComprimentos(corpus) / corpus.tamanho());
+    }
+
+    /**
+     * Pontua os artigos de um pedaço de um corpus maior ({@link CorpusVivo}) pela média de
+     * todo ele, para que artigos de pedaços diferentes tenham pontuações comparáveis.
+     */
+    public Relevancia(CorpusArtigos corpus, double comprimentoMedio) {
+        this.corpus = corpus;
+        this.comprimentoMedio = Math.max(1.0, comprimentoMedio);
+    }
+
+    /**
+     * Soma dos tamanhos (título mais resumo) de todos os artigos do corpus.
+     */
+    public static long somaComprimentos(CorpusArtigos corpus) {
+        long soma = 0;
+        for (int i = 0; i < corpus.tamanho(); i++) {
+            soma += comprimento(corpus, i);
+        }
+        return soma;
+    }
+
+    /**
+     * IDF de um termo presente em {@code frequencia} dos {@code totalArtigos} artigos.
+     */
+    public static double idf(int totalArtigos, int frequencia) {
+        return Math.log(1 + (totalArtigos - frequencia + 0.5) / (frequencia + 0.5));
+    }
+
+    /**
+     * Soma das pontuações BM25 dos termos no artigo.
+     *
+     * @param padroes Os termos compilados, já normalizados
+     * @param idfs O IDF de cada termo, na mesma ordem
+     */
+    public double pontuar(int artigo, PadraoCompilado[] padroes, double[] idfs) {
+        ColunaTexto titulos = corpus.getTitulosNormalizados();
+        ColunaComprimida.Bloco resumo = corpus.getResumos().normalizado(artigo);
+        double normalizacao = K1 * (1 - B + B * comprimento(corpus, artigo) / comprimentoMedio);
+
+        double pontuacao = 0;
+        for (int i = 0; i < padroes.length; i++) {
+            double frequencia = PESO_TITULO * contar(titulos.getCaracteres(), titulos.inicio(artigo),
+                    titulos.fim(artigo), padroes[i])
+                    + contar(resumo.getCaracteres(), resumo.inicio(artigo), resumo.fim(artigo), padroes[i]);
+            pontuacao += idfs[i] * frequencia * (K1 + 1) / (frequencia + normalizacao);
+        }
+        return pontuacao;
+    }
+
+    private static int comprimento(CorpusArtigos corpus, int artigo) {
+        return corpus.getTitulosNormalizados().comprimento(artigo) + corpus.getResumos().comprimento(artigo);
+    }
+
+    /**
+     * Quantidade de ocorrências (inclusive sobrepostas) do padrão no trecho.
+     */
+    static int contar(CharSequence texto, int inicio, int fim, PadraoCompilado padrao) {
+        int ocorrencias = 0;
+        int posicao = padrao.buscar(texto, inicio, fim);
+        while (posicao != -1) {
+            ocorrencias++;
+            posicao = padrao.buscar(texto, posicao + 1, fim);
+        }
+        return ocorrencias;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import java.util.*;
+import org.json.*;
+
+/**
+ * Requisição do Servidor A a um servidor de busca, independente do protocolo usado.
+ *
+ * Além das buscas, uma conexão JSON pode pedir {@link #STATS}: a resposta é uma linha com
+ * as {@link Metricas} do servidor, com o mesmo "id". {@link #INSERIR} e {@link #REMOVER}
+ * alteram os artigos do servidor em execução; os artigos (ou títulos) vêm no próprio JSON
+ * e são lidos pelo servidor, não por esta classe. {@link #VERSAO} pede só a versão dos artigos
+ * do servidor ({@link RespostaShard#getVersao()}), em uma resposta sem resultados.
+ */
+public final class RequisicaoShard {
+
+    public static final String BUSCA = "BUSCA";
+    public static final String STATS = "STATS";
+    public static final String INSERIR = "INSERIR";
+    public static final String REMOVER = "REMOVER";
+    public static final String VERSAO = "VERSAO";
+
+    private final long id;
+    private final String tipo;
+    private final String query;
+    private final List<String> termos;
+    private final boolean transmitir;
+    private final int limite;
+    private final int deslocamento;
+
+    /**
+     * @param termos Termos que devem estar todos no artigo (vazio para buscar a query)
+     * @param limite Quantidade de resultados mais relevantes pedida, ou 0 para todos sem ordenação
+     */
+    public RequisicaoShard(long id, String tipo, String query, List<String> termos, boolean transmitir,
+                           int limite, int deslocamento) {
+        this.id = id;
+        this.tipo = tipo;
+        this.query = query;
+        this.termos = termos;
+        this.transmitir = transmitir;
+        this.limite = limite;
+        this.deslocamento = deslocamento;
+    }
+
+    public static RequisicaoShard busca(String query, boolean transmitir, int limite) {
+        return new RequisicaoShard(0, BUSCA, query, List.of(), transmitir, limite, 0);
+    }
+
+    public static RequisicaoShard versao() {
+        return new RequisicaoShard(0, VERSAO, "", List.of(), false, 0, 0);
+    }
+
+    /**
+     * Cópia com o id definido pela conexão que vai enviá-la.
+     */
+    public RequisicaoShard comId(long novoId) {
+        return new RequisicaoShard(novoId, tipo, query, termos, transmitir, limite, deslocamento);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<String> getTermos() {
+        return termos;
+    }
+
+    public boolean isTransmitir() {
+        return transmitir;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    public int getDeslocamento() {
+        return deslocamento;
+    }
+
+    public static RequisicaoShard deJson(JSONObject json) {
+        List<String> termos = new ArrayList<>();
+        JSONArray array = json.optJSONArray("termos");
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                termos.add(array.getString(i));
+            }
+        }
+        return new RequisicaoShard(json.optLong("id"), json.getString("tipo"), json.optString("query", ""),
+                termos, json.optBoolean("stream"), json.optInt("limit", 0), Math.max(0, json.optInt("offset", 0)));
+    }
+
+    public JSONObject paraJson() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("tipo", tipo);
+        json.put("query", query);
+        if (!termos.isEmpty()) {
+            json.put("termos", new JSONArray(termos));
+        }
+        if (transmitir) {
+            json.put("stream", true);
+        }
+        if (limite > 0) {
+            json.put("limit", limite);
+            json.put("offset", deslocamento);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Resposta do Servidor A a uma busca, como a recebe o {@link ClienteBusca}.
+ *
+ * Nas buscas transmitidas os resultados são entregues à medida que chegam, e a resposta
+ * (a linha "FIM") traz só o total e se algum servidor de busca ficou de fora.
+ */
+public final class RespostaBusca {
+
+    private final int total;
+    private final int deslocamento;
+    private final List<Resultado> resultados;
+    private final boolean completa;
+    private final List<String> faltando;
+
+    public RespostaBusca(int total, int deslocamento, List<Resultado> resultados, boolean completa,
+                         List<String> faltando) {
+        this.total = total;
+        this.deslocamento = deslocamento;
+        this.resultados = resultados;
+        this.completa = completa;
+        this.faltando = faltando;
+    }
+
+    /**
+     * Quantidade de artigos encontrados, mesmo quando só uma página deles foi pedida.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Posição do primeiro resultado entre os mais relevantes; 0 se a busca não foi paginada.
+     */
+    public int getDeslocamento() {
+        return deslocamento;
+    }
+
+    /**
+     * Os resultados da resposta; vazia nas buscas transmitidas.
+     */
+    public List<Resultado> getResultados() {
+        return resultados;
+    }
+
+    /**
+     * Indica se todos os servidores de busca responderam dentro do prazo do Servidor A.
+     */
+    public boolean isCompleta() {
+        return completa;
+    }
+
+    /**
+     * Os servidores de busca que não responderam; vazia se a resposta está completa.
+     */
+    public List<String> getFaltando() {
+        return faltando;
+    }
+
+    public static RespostaBusca deJson(JSONObject json) {
+        List<String> faltando = new ArrayList<>();
+        JSONArray servidores = json.optJSONArray("faltando");
+        if (servidores != null) {
+            for (int i = 0; i < servidores.length(); i++) {
+                faltando.add(servidores.getString(i));
+            }
+        }
+
+        JSONArray resultados = json.optJSONArray("resultados");
+        return new RespostaBusca(json.getInt("total"), json.optInt("offset", 0),
+                resultados == null ? Collections.emptyList() : resultadosDeJson(resultados),
+                json.optBoolean("completa", true), Collections.unmodifiableList(faltando));
+    }
+
+    static List<Resultado> resultadosDeJson(JSONArray resultados) {
+        List<Resultado> lista = new ArrayList<>(resultados.length());
+        for (int i = 0; i < resultados.length(); i++) {
+            lista.add(Resultado.deJson(resultados.getJSONObject(i)));
+        }
+        return Collections.unmodifiableList(lista);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import java.util.*;
+import org.json.*;
+
+/**
+ * Mensagem de um servidor de busca ao Servidor A, independente do protocolo usado.
+ *
+ * Uma requisição comum recebe uma única mensagem {@link #RESPOSTA}; no modo de
+ * transmissão chegam várias {@link #PARCIAL} e uma {@link #FIM}. Um servidor no limite
+ * de requisições em andamento responde {@link #OCUPADO}, sem resultados.
+ *
+ * {@link #RESPOSTA} e {@link #FIM} trazem a versão dos artigos sobre a qual a busca rodou
+ * ({@link CorpusVivo#getVersao()}); o Servidor A a usa para descartar o cache quando um
+ * shard recebe INSERIR ou REMOVER.
+ */
+public final class RespostaShard {
+
+    public static final String RESPOSTA = "RESPOSTA";
+    public static final String PARCIAL = "PARCIAL";
+    public static final String FIM = "FIM";
+    public static final String OCUPADO = "OCUPADO";
+
+    private final String tipo;
+    private final long id;
+    private final String servidor;
+    private final int total;
+    private final List<Resultado> resultados;
+    private final String erro;
+    private final long versao;
+
+    public RespostaShard(String tipo, long id, String servidor, int total, List<Resultado> resultados, String erro) {
+        this(tipo, id, servidor, total, resultados, erro, -1);
+    }
+
+    /**
+     * @param versao A versão dos artigos do servidor, ou -1 se a mensagem não a traz
+     */
+    public RespostaShard(String tipo, long id, String servidor, int total, List<Resultado> resultados, String erro,
+                         long versao) {
+        this.tipo = tipo;
+        this.id = id;
+        this.servidor = servidor;
+        this.total = total;
+        this.resultados = resultados;
+        this.erro = erro;
+        this.versao = versao;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getServidor() {
+        return servidor;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Resultado> getResultados() {
+        return resultados;
+    }
+
+    /**
+     * A mensagem de erro do servidor, ou null se a busca foi concluída.
+     */
+    public String getErro() {
+        return erro;
+    }
+
+    /**
+     * A versão dos artigos sobre a qual a busca rodou, ou -1 se a mensagem não a traz.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    public static RespostaShard deJson(JSONObject json) {
+        List<Resultado> resultados = new ArrayList<>();
+        JSONArray array = json.optJSONArray("resultados");
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                resultados.add(Resultado.deJson(array.getJSONObject(i)));
+            }
+        }
+        return new RespostaShard(json.optString("tipo", RESPOSTA), json.optLong("id", -1),
+                json.optString("servidor", ""), json.optInt("total", resultados.size()), resultados,
+                json.has("erro") ? json.getString("erro") : null, json.optLong("versao", -1));
+    }
+}
@@ -0,0 +1,202 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * Um artigo encontrado, como é enviado entre os servidores e ao cliente.
+ *
+ * Substitui o {@link JSONObject} por resultado: é imutável, pode ficar nos caches e ser
+ * compartilhado entre respostas. Os campos do artigo (título, resumo e rótulo) ficam como
+ * um fragmento JSON já codificado em UTF-8, normalmente um trecho dos
+ * {@link FragmentosResultado} do servidor de busca (que podem estar no snapshot mapeado, fora
+ * do heap) ou do quadro recebido no Servidor A, e são copiados para as respostas sem serem
+ * lidos de novo; o servidor e a pontuação, que mudam de uma resposta para outra, são escritos à parte.
+ */
+public final class Resultado {
+
+    private static final int CAPACIDADE_MAXIMA_JSON = 64 * 1024 * 1024;
+
+    private final ByteBuffer fragmento; // Os bytes de position a limit, lidos sempre por posição absoluta
+    private final String servidor;
+    private final double pontuacao;
+
+    /**
+     * @param pontuacao A relevância nas buscas ordenadas, ou {@code Double.NaN} se não houver
+     */
+    public Resultado(String titulo, String resumo, String rotulo, String servidor, double pontuacao) {
+        this(codificarCampos(titulo, resumo, rotulo), servidor, pontuacao);
+    }
+
+    private Resultado(byte[] fragmento, String servidor, double pontuacao) {
+        this(ByteBuffer.wrap(fragmento), servidor, pontuacao);
+    }
+
+    /**
+     * Resultado cujos campos são os bytes restantes de um buffer que não será alterado
+     * (os bytes não são copiados).
+     */
+    public Resultado(ByteBuffer fragmento, String servidor, double pontuacao) {
+        this.fragmento = fragmento;
+        this.servidor = servidor;
+        this.pontuacao = pontuacao;
+    }
+
+    public String getTitulo() {
+        return campos().optString("title", "");
+    }
+
+    public String getResumo() {
+        return campos().optString("abstract", "");
+    }
+
+    public String getRotulo() {
+        return campos().optString("label", "");
+    }
+
+    /**
+     * Os campos do fragmento interpretados; só para quem precisa de um campo isolado, já que as
+     * respostas copiam o fragmento inteiro.
+     */
+    private JSONObject campos() {
+        return new JSONObject("{" + textoFragmento() + "}");
+    }
+
+    public String getServidor() {
+        return servidor;
+    }
+
+    public double getPontuacao() {
+        return pontuacao;
+    }
+
+    public boolean temPontuacao() {
+        return !Double.isNaN(pontuacao);
+    }
+
+    public Resultado comPontuacao(double novaPontuacao) {
+        return new Resultado(fragmento, servidor, novaPontuacao);
+    }
+
+    /**
+     * Escreve os campos do artigo, já em UTF-8, no {@link ProtocoloBinario}.
+     */
+    void escreverFragmento(ProtocoloBinario.Escritor escritor) {
+        escritor.escreverBytes(fragmento);
+    }
+
+    /**
+     * Bytes dos campos em UTF-8.
+     */
+    int tamanhoFragmento() {
+        return fragmento.remaining();
+    }
+
+    public static Resultado deJson(JSONObject json) {
+        return new Resultado(json.optString("title", ""), json.optString("abstract", ""),
+                json.optString("label", ""), json.optString("servidor", ""), json.optDouble("score", Double.NaN));
+    }
+
+    /**
+     * Escreve o resultado como objeto JSON, com os mesmos campos de sempre
+     * (title, abstract, label, servidor e, nas buscas ordenadas, score).
+     */
+    public void escreverJson(StringBuilder json) {
+        json.append('{').append(textoFragmento()).append(",\"servidor\":");
+        citar(json, servidor);
+        if (temPontuacao()) {
+            json.append(",\"score\":").append(JSONObject.numberToString(pontuacao));
+        }
+        json.append('}');
+    }
+
+    private String textoFragmento() {
+        if (fragmento.hasArray()) {
+            return new String(fragmento.array(), fragmento.arrayOffset() + fragmento.position(),
+                    fragmento.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(fragmento.duplicate()).toString();
+    }
+
+    /**
+     * Capacidade inicial para escrever os resultados com {@link #escreverJson(StringBuilder, List)}:
+     * os bytes de cada fragmento (nunca menos que os caracteres) mais o servidor e a pontuação,
+     * limitada para que uma lista enorme não reserve de uma vez mais do que o necessário; acima
+     * do limite o StringBuilder cresce sozinho.
+     */
+    public static int tamanhoJson(List<Resultado> resultados) {
+        long tamanho = 2;
+        for (Resultado resultado : resultados) {
+            tamanho += resultado.fragmento.remaining() + resultado.servidor.length() + 48;
+        }
+        return (int) Math.min(tamanho, CAPACIDADE_MAXIMA_JSON);
+    }
+
+    public static void escreverJson(StringBuilder json, List<Resultado> resultados) {
+        json.append('[');
+        for (int i = 0; i < resultados.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            resultados.get(i).escreverJson(json);
+        }
+        json.append(']');
+    }
+
+    /**
+     * Escreve os campos title, abstract e label de um artigo, sem as chaves do objeto.
+     */
+    static void escreverCampos(StringBuilder json, String titulo, String resumo, String rotulo) {
+        json.append("\"title\":");
+        citar(json, titulo);
+        json.append(",\"abstract\":");
+        citar(json, resumo);
+        json.append(",\"label\":");
+        citar(json, rotulo);
+    }
+
+    private static byte[] codificarCampos(String titulo, String resumo, String rotulo) {
+        StringBuilder json = new StringBuilder(64 + titulo.length() + resumo.length() + rotulo.length());
+        escreverCampos(json, titulo, resumo, rotulo);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escreve o texto como string JSON, entre aspas e com aspas, barras e caracteres de controle
+     * escapados, direto no destino (sem o buffer intermediário de {@link JSONObject#quote(String)}).
+     */
+    static void citar(StringBuilder json, String texto) {
+        json.append('"');
+        int inicio = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            json.append(texto, inicio, i);
+            inicio = i + 1;
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    json.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        json.append(texto, inicio, texto.length()).append('"');
+    }
+}
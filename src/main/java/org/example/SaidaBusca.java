@@ -0,0 +1,121 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Envia as respostas de um servidor de busca no protocolo negociado pela conexão.
+ */
+public interface SaidaBusca {
+
+    /**
+     * Resposta completa de uma requisição comum ou ordenada.
+     *
+     * @param versao A versão dos artigos sobre a qual a busca rodou
+     */
+    void resposta(long id, String servidor, long versao, int total, List<Resultado> resultados);
+
+    /**
+     * Um bloco de resultados no modo de transmissão.
+     */
+    void parcial(long id, String servidor, List<Resultado> resultados);
+
+    /**
+     * Encerra uma transmissão.
+     *
+     * @param versao A versão dos artigos sobre a qual a busca rodou
+     * @param erro A mensagem de erro, ou null se a busca foi concluída
+     */
+    void fim(long id, String servidor, long versao, int total, String erro);
+
+    /**
+     * Recusa a requisição porque o servidor está no limite de requisições em andamento.
+     */
+    void ocupado(long id, String servidor);
+
+    /**
+     * Saída em JSON, uma mensagem por linha.
+     */
+    static SaidaBusca json(Consumer<String> saida) {
+        return new SaidaBusca() {
+            @Override
+            public void resposta(long id, String servidor, long versao, int total, List<Resultado> resultados) {
+                StringBuilder json = new StringBuilder(128 + Resultado.tamanhoJson(resultados));
+                json.append("{\"id\":").append(id)
+                        .append(",\"servidor\":");
+                Resultado.citar(json, servidor);
+                json.append(",\"versao\":").append(versao)
+                        .append(",\"total\":").append(total)
+                        .append(",\"resultados\":");
+                Resultado.escreverJson(json, resultados);
+                saida.accept(json.append('}').toString());
+            }
+
+            @Override
+            public void parcial(long id, String servidor, List<Resultado> resultados) {
+                StringBuilder json = new StringBuilder(64 + Resultado.tamanhoJson(resultados));
+                json.append("{\"id\":").append(id).append(",\"tipo\":\"PARCIAL\",\"resultados\":");
+                Resultado.escreverJson(json, resultados);
+                saida.accept(json.append('}').toString());
+            }
+
+            @Override
+            public void fim(long id, String servidor, long versao, int total, String erro) {
+                StringBuilder json = new StringBuilder(128);
+                json.append("{\"id\":").append(id)
+                        .append(",\"tipo\":\"FIM\",\"servidor\":");
+                Resultado.citar(json, servidor);
+                json.append(",\"versao\":").append(versao)
+                        .append(",\"total\":").append(total);
+                if (erro != null) {
+                    json.append(",\"erro\":");
+                    Resultado.citar(json, erro);
+                }
+                saida.accept(json.append('}').toString());
+            }
+
+            @Override
+            public void ocupado(long id, String servidor) {
+                StringBuilder json = new StringBuilder(64);
+                json.append("{\"id\":").append(id)
+                        .append(",\"tipo\":\"OCUPADO\",\"servidor\":");
+                Resultado.citar(json, servidor);
+                saida.accept(json.append('}').toString());
+            }
+        };
+    }
+
+    /**
+     * Saída em quadros do {@link ProtocoloBinario}.
+     */
+    static SaidaBusca binaria(Consumer<ByteBuffer> saida) {
+        return new SaidaBusca() {
+            @Override
+            public void resposta(long id, String servidor, long versao, int total, List<Resultado> resultados) {
+                for (ByteBuffer quadro : ProtocoloBinario.codificarRespostaDividida(id, servidor, versao, total,
+                        resultados)) {
+                    saida.accept(quadro);
+                }
+            }
+
+            @Override
+            public void parcial(long id, String servidor, List<Resultado> resultados) {
+                for (List<Resultado> bloco : ProtocoloBinario.dividir(resultados,
+                        ProtocoloBinario.TAMANHO_BLOCO_RESULTADOS)) {
+                    saida.accept(ProtocoloBinario.codificarParcial(id, servidor, bloco));
+                }
+            }
+
+            @Override
+            public void fim(long id, String servidor, long versao, int total, String erro) {
+                saida.accept(ProtocoloBinario.codificarFim(id, servidor, versao, total, erro));
+            }
+
+            @Override
+            public void ocupado(long id, String servidor) {
+                saida.accept(ProtocoloBinario.codificarOcupado(id, servidor));
+            }
+        };
+    }
+}
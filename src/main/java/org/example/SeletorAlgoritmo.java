@@ -0,0 +1,83 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Escolhe o algoritmo de busca pelo tamanho do padrão.
+ *
+ * - padrões curtos (até {@value #LIMITE_CURTO} caracteres): {@link ShiftOr}
+ * - até {@value ShiftOr#TAMANHO_MAXIMO} caracteres: {@link Bndm}
+ * - padrões mais longos: {@link BoyerMoore}
+ *
+ * Os limites vêm do {@code AlgoritmoBuscaBenchmark} sobre colunas do corpus. Buscas com
+ * vários termos usam o {@link AhoCorasick} diretamente, todos em uma única leitura do texto.
+ * A propriedade {@code busca.algoritmo} fixa um único algoritmo para todos os padrões
+ * (boyer-moore, shift-or, bndm, indexof ou aho-corasick); o padrão é "auto".
+ */
+public class SeletorAlgoritmo implements AlgoritmoBusca {
+
+    public static final int LIMITE_CURTO = 2;
+
+    private final ShiftOr shiftOr = new ShiftOr();
+    private final Bndm bndm = new Bndm();
+    private final BoyerMoore boyerMoore = new BoyerMoore();
+
+    /**
+     * Cria o algoritmo indicado pela propriedade {@code busca.algoritmo}.
+     */
+    public static AlgoritmoBusca configurado() {
+        return porNome(System.getProperty("busca.algoritmo", "auto"));
+    }
+
+    public static AlgoritmoBusca porNome(String nome) {
+        switch (nome) {
+            case "auto":
+                return new SeletorAlgoritmo();
+            case "boyer-moore":
+                return new BoyerMoore();
+            case "shift-or":
+                return new ShiftOr();
+            case "bndm":
+                return new Bndm();
+            case "indexof":
+                return new BuscaIndexOf();
+            case "aho-corasick":
+                return new AhoCorasick();
+            default:
+                throw new IllegalArgumentException("Algoritmo de busca desconhecido: " + nome);
+        }
+    }
+
+    /**
+     * O algoritmo usado para um único padrão do tamanho informado.
+     */
+    AlgoritmoBusca escolher(int tamanhoPadrao) {
+        if (tamanhoPadrao <= LIMITE_CURTO) {
+            return shiftOr;
+        }
+        if (tamanhoPadrao <= ShiftOr.TAMANHO_MAXIMO) {
+            return bndm;
+        }
+        return boyerMoore;
+    }
+
+    @Override
+    public int buscar(String texto, String padrao) {
+        return escolher(padrao.length()).buscar(texto, padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return escolher(padrao.length()).buscar(texto, inicio, fim, padrao);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        return escolher(padrao.length()).compilar(padrao);
+    }
+
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return escolher(padrao.length()).buscarTodos(texto, padrao);
+    }
+}
@@ -1,132 +1,837 @@
 package org.example;
 
 import java.io.*;
-import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.json.*;
 
 public class ServidorA {
-    private static final int PORTA_SERVIDOR_A = 8080;
-    private static final int PORTA_SERVIDOR_B = 8081;
-    private static final int PORTA_SERVIDOR_C = 8082;
-    private static final String HOST_SERVIDOR_B = "localhost";
-    private static final String HOST_SERVIDOR_C = "localhost";
+    private static final int PORTA_SERVIDOR_A = Integer.getInteger("servidorA.porta", 8080);
+    // Shards consultados em toda query, separados por vírgula (os servidores B e C por padrão);
+    // as réplicas de um mesmo shard são separadas por "|"
+    private static final String SHARDS_PADRAO = "localhost:8081,localhost:8082";
 
-    private ServerSocket serverSocket;
+    private static final int CONEXOES_POR_SHARD = Integer.getInteger("servidorA.conexoesPorShard", 4);
+    // Prazo de cada query: os shards que não responderem a tempo ficam de fora e a resposta sai incompleta
+    private static final long PRAZO_CONSULTA_MS = Long.getLong("servidorA.prazoMs", 10000);
+    // Protocolo com os servidores de busca: binario (padrão) ou json, legível para depuração
+    private static final boolean PROTOCOLO_BINARIO =
+            !"json".equalsIgnoreCase(System.getProperty("servidorA.protocolo", "binario"));
+    // Maior página das buscas ordenadas (limit) e maior offset aceito: cada shard guarda offset + limit resultados
+    private static final int LIMITE_MAXIMO = Integer.getInteger("servidorA.limiteMaximo", 1000);
+    private static final int DESLOCAMENTO_MAXIMO = Integer.getInteger("servidorA.offsetMaximo", 10000);
+    // Intervalo entre as perguntas de versão aos shards: o cache não serve resultados de artigos já
+    // alterados por mais que isso (0 desliga; a versão ainda vem em toda resposta de busca)
+    private static final long INTERVALO_VERSAO_MS = Long.getLong("servidorA.intervaloVersaoMs", 1000);
+    private static final String RESPOSTA_OCUPADO =
+            "{\"tipo\":\"OCUPADO\",\"mensagem\":\"Servidor A ocupado; tente novamente em instantes\"}";
+    private static final LogAmostrado LOG = LogAmostrado.para(ServidorA.class);
+
+    private FrenteServidor frente;
     private ExecutorService executorService;
+    private final List<GrupoReplicas> shards;
+    private final CacheResultados<RespostaConsolidada> cache = CacheResultados.configurado();
+    // Muda quando algum shard responde com uma versão de artigos mais nova; faz parte da chave do cache
+    private final AtomicLong geracaoCache = new AtomicLong();
+    private final ControleAdmissao admissao = ControleAdmissao.configurado();
+
+    // Métricas de cada etapa de uma query, expostas pela requisição STATS e pela porta de métricas
+    private final Metricas metricas = new Metricas("Servidor A");
+    private final LongAdder consultas = metricas.contador("consultas");
+    private final HistogramaLatencia latenciaConsulta = metricas.latencia("consulta");
+    private final HistogramaLatencia latenciaInterpretacao = metricas.latencia("interpretacao");
+    private final HistogramaLatencia latenciaEsperaShards = metricas.latencia("espera_shards");
+    private final HistogramaLatencia latenciaConsolidacao = metricas.latencia("consolidacao");
+    private final HistogramaLatencia latenciaSerializacao = metricas.latencia("serializacao");
+    private final Map<GrupoReplicas, MetricasShard> metricasShards;
+    private final Map<GrupoReplicas, AtomicLong> versoesShards;
+    private PortaMetricas portaMetricas;
 
     public ServidorA() {
-        this.executorService = Executors.newCachedThreadPool();
+        this.executorService = Executores.novoExecutorBloqueante();
+
+        // Conexões persistentes com os servidores de busca, compartilhadas por todas as queries
+        this.shards = criarShards(System.getProperty("servidorA.shards", SHARDS_PADRAO));
+        System.out.println("Servidor A - " + shards.size() + " servidores de busca: "
+                + System.getProperty("servidorA.shards", SHARDS_PADRAO));
+
+        Map<GrupoReplicas, MetricasShard> porShard = new IdentityHashMap<>();
+        Map<GrupoReplicas, AtomicLong> versoes = new IdentityHashMap<>();
+        for (GrupoReplicas shard : shards) {
+            porShard.put(shard, new MetricasShard(metricas, shard.getNome()));
+            versoes.put(shard, new AtomicLong(-1));
+        }
+        this.metricasShards = Collections.unmodifiableMap(porShard);
+        this.versoesShards = Collections.unmodifiableMap(versoes);
+        metricas.medidor("admissao_limite", admissao::getLimite);
+        metricas.medidor("admissao_em_andamento", admissao::getEmAndamento);
+        metricas.medidor("admissao_recusadas", admissao::getRecusadas);
+        metricas.medidor("cache_acertos", cache::getAcertos);
+        metricas.medidor("cache_falhas", cache::getFalhas);
+        metricas.medidor("log_descartadas", LogAmostrado::getDescartadas);
+    }
+
+    /**
+     * Cria os shards da lista {@code host:porta|host:porta,host:porta,...}, com um pool de
+     * conexões para cada réplica.
+     */
+    static List<GrupoReplicas> criarShards(String lista) {
+        List<GrupoReplicas> grupos = new ArrayList<>();
+        for (String shard : lista.split(",")) {
+            List<PoolConexoes> replicas = new ArrayList<>();
+            for (String endereco : shard.split("\\|")) {
+                endereco = endereco.trim();
+                if (endereco.isEmpty()) {
+                    continue;
+                }
+                int separador = endereco.lastIndexOf(':');
+                if (separador <= 0) {
+                    throw new IllegalArgumentException("Servidor de busca sem porta: " + endereco);
+                }
+                replicas.add(new PoolConexoes(endereco.substring(0, separador),
+                        Integer.parseInt(endereco.substring(separador + 1)), CONEXOES_POR_SHARD, PROTOCOLO_BINARIO));
+            }
+            if (!replicas.isEmpty()) {
+                grupos.add(new GrupoReplicas(replicas));
+            }
+        }
+        if (grupos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum servidor de busca configurado");
+        }
+        return Collections.unmodifiableList(grupos);
     }
 
     public void iniciar() {
         try {
-            serverSocket = new ServerSocket(PORTA_SERVIDOR_A);
-            System.out.println("Servidor A iniciado na porta " + PORTA_SERVIDOR_A);
-
-            while (true) {
-                Socket clienteSocket = serverSocket.accept();
-                System.out.println("Cliente conectado: " + clienteSocket.getInetAddress());
-
-                // Processa cada cliente em uma thread separada
-                executorService.execute(() -> processarCliente(clienteSocket));
+            // Cada linha recebida de um cliente é uma query de busca (ou uma requisição JSON)
+            portaMetricas = PortaMetricas.abrir(metricas, PORTA_SERVIDOR_A);
+            frente = FrenteServidor.criar("Servidor A", PORTA_SERVIDOR_A, this::tratarLinha, executorService, metricas);
+            if (INTERVALO_VERSAO_MS > 0) {
+                verificarVersoes();
             }
+            frente.iniciar();
         } catch (IOException e) {
             System.err.println("Erro ao iniciar servidor A: " + e.getMessage());
         }
     }
 
-    private void processarCliente(Socket clienteSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clienteSocket.getInputStream()));
-             PrintWriter out = new PrintWriter(clienteSocket.getOutputStream(), true)) {
+    /**
+     * Trata uma linha recebida de um cliente. A linha é a própria query ou, se começar com
+     * '{', uma requisição JSON: {@code {"query": "...", "stream": true}} pede os resultados
+     * transmitidos à medida que chegam dos servidores de busca, e {@code "limit"}/{@code "offset"}
+     * pedem uma página dos resultados ordenados por relevância.
+     *
+     * Com o limite de queries em andamento atingido, a query é recusada na hora com uma linha
+     * {@code "tipo": "OCUPADO"}, e o cliente tenta de novo depois de um tempo.
+     * A requisição {@code {"tipo": "STATS"}} responde as métricas do servidor em JSON, mesmo no limite.
+     *
+     * As linhas de uma conexão são atendidas ao mesmo tempo e as respostas saem na ordem em que
+     * ficam prontas: uma requisição JSON com {@code "id"} recebe o mesmo "id" em todas as linhas
+     * da resposta, para o cliente enviar várias pela mesma conexão ({@link ClienteBusca}).
+     */
+    private CompletableFuture<Void> tratarLinha(String linha, Consumer<String> saida) {
+        long inicio = System.nanoTime();
+        JSONObject requisicao = null;
+        if (linha.startsWith("{")) {
+            try {
+                requisicao = new JSONObject(linha);
+            } catch (JSONException e) {
+                responderInvalida(e, saida);
+                return CompletableFuture.completedFuture(null);
+            }
+            latenciaInterpretacao.registrarDesde(inicio);
+            if (requisicao.has("id")) {
+                saida = comId(JSONObject.valueToString(requisicao.get("id")), saida);
+            }
 
-            // Recebe a query de busca do cliente
-            String queryBusca = in.readLine();
-            System.out.println("Query recebida: " + queryBusca);
+            if ("STATS".equals(requisicao.optString("tipo"))) {
+                saida.accept(metricas.json().toString());
+                return CompletableFuture.completedFuture(null);
+            }
+        }
 
-            // Cria requisição para os servidores B e C
-            JSONObject requisicao = new JSONObject();
-            requisicao.put("tipo", "BUSCA");
-            requisicao.put("query", queryBusca);
+        if (!admissao.admitir()) {
+            saida.accept(RESPOSTA_OCUPADO);
+            return CompletableFuture.completedFuture(null);
+        }
+        consultas.increment();
+        JSONObject requisicaoJson = requisicao;
+        Consumer<String> saidaRequisicao = saida;
+        return admissao.executar(() -> despacharLinha(linha, requisicaoJson, saidaRequisicao))
+                .whenComplete((v, e) -> latenciaConsulta.registrarDesde(inicio));
+    }
 
-            // Executa buscas em paralelo nos servidores B e C
-            CompletableFuture<List<JSONObject>> futureB = CompletableFuture.supplyAsync(() ->
-                    buscarEmServidor(HOST_SERVIDOR_B, PORTA_SERVIDOR_B, requisicao)
-            );
+    /**
+     * Saída que acrescenta o "id" da requisição no começo de cada linha (todas são objetos JSON
+     * com algum campo), sem interpretar a resposta de novo.
+     */
+    private static Consumer<String> comId(String id, Consumer<String> saida) {
+        String prefixo = "{\"id\":" + id + ",";
+        return linha -> saida.accept(prefixo + linha.substring(1));
+    }
 
-            CompletableFuture<List<JSONObject>> futureC = CompletableFuture.supplyAsync(() ->
-                    buscarEmServidor(HOST_SERVIDOR_C, PORTA_SERVIDOR_C, requisicao)
-            );
+    /**
+     * @param requisicao A linha já interpretada, ou null se ela é a própria query
+     */
+    private CompletableFuture<Void> despacharLinha(String linha, JSONObject requisicao, Consumer<String> saida) {
+        CompletableFuture<Void> resposta = requisicao == null
+                ? processarQuery(linha, saida)
+                : despacharRequisicao(requisicao, saida);
+
+        // Uma falha inesperada ainda responde ao cliente, que senão esperaria até o próprio prazo
+        return resposta.exceptionally(e -> {
+            Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            LOG.aviso("Erro ao processar a requisição {} - {}", linha, causa.toString());
+            responderErro("Erro ao processar a busca: " + causa, saida);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> despacharRequisicao(JSONObject requisicao, Consumer<String> saida) {
+        try {
+            String queryBusca = requisicao.getString("query");
+            int limite = requisicao.optInt("limit", 0);
+            if (limite > 0) {
+                // As páginas são limitadas: offset + limit é o tamanho das listas pedidas a cada shard
+                int deslocamento = requisicao.optInt("offset", 0);
+                if (deslocamento < 0 || deslocamento > DESLOCAMENTO_MAXIMO) {
+                    responderErro("Requisição inválida: offset deve estar entre 0 e " + DESLOCAMENTO_MAXIMO, saida);
+                    return CompletableFuture.completedFuture(null);
+                }
+                return processarRanking(queryBusca, deslocamento, Math.min(limite, LIMITE_MAXIMO),
+                        requisicao.optBoolean("stream"), saida);
+            }
+            if (requisicao.optBoolean("stream")) {
+                return transmitirQuery(queryBusca, saida);
+            }
+            return processarQuery(queryBusca, saida);
+        } catch (JSONException e) {
+            responderInvalida(e, saida);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
 
-            // Aguarda os resultados de ambos os servidores
-            List<JSONObject> resultadosB = futureB.get(30, TimeUnit.SECONDS);
-            List<JSONObject> resultadosC = futureC.get(30, TimeUnit.SECONDS);
+    private static void responderInvalida(JSONException e, Consumer<String> saida) {
+        System.err.println("Requisição inválida: " + e.getMessage());
+        responderErro("Requisição inválida: " + e.getMessage(), saida);
+    }
 
-            // Combina os resultados
-            List<JSONObject> resultadosCombinados = new ArrayList<>();
-            resultadosCombinados.addAll(resultadosB);
-            resultadosCombinados.addAll(resultadosC);
+    private static void responderErro(String mensagem, Consumer<String> saida) {
+        JSONObject erro = new JSONObject();
+        erro.put("tipo", "ERRO");
+        erro.put("mensagem", mensagem);
+        saida.accept(erro.toString());
+    }
 
-            // Prepara resposta para o cliente
-            JSONObject resposta = new JSONObject();
-            resposta.put("total", resultadosCombinados.size());
-            resposta.put("resultados", new JSONArray(resultadosCombinados));
+    /**
+     * Responde a query a partir do cache ou, se necessário, consultando os servidores de busca.
+     * Não bloqueia a thread chamadora, o que permite atender no modo NIO.
+     */
+    private CompletableFuture<Void> processarQuery(String queryBusca, Consumer<String> saida) {
+        LOG.info("Query recebida: {}", queryBusca);
 
+        // Queries iguais (após normalização) compartilham a resposta; respostas parciais não são guardadas
+        return cache.obter(chaveCache(queryBusca), () -> consultarServidores(queryBusca),
+                resposta -> resposta.faltando.isEmpty()).thenAcceptAsync(resposta -> {
             // Envia resposta ao cliente
-            out.println(resposta.toString());
-            System.out.println("Resposta enviada ao cliente: " + resultadosCombinados.size() + " resultados encontrados");
+            saida.accept(resposta.json);
+            LOG.info("Resposta enviada ao cliente: {} resultados encontrados", resposta.total);
+        }, executorService);
+    }
 
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            System.err.println("Erro ao processar cliente: " + e.getMessage());
-        } finally {
-            try {
-                clienteSocket.close();
-            } catch (IOException e) {
-                System.err.println("Erro ao fechar conexão com cliente: " + e.getMessage());
+    /**
+     * Responde uma página dos resultados ordenados por relevância. Cada servidor de busca
+     * devolve só os seus {@code offset + limit} melhores, já ordenados, e as listas são
+     * intercaladas; o custo da resposta depende do tamanho da página, não da quantidade
+     * de artigos encontrados.
+     */
+    private CompletableFuture<Void> processarRanking(String queryBusca, int deslocamento, int limite,
+                                                     boolean transmitir, Consumer<String> saida) {
+        LOG.info("Query recebida: {} (offset {}, limit {})", queryBusca, deslocamento, limite);
+        int k = Math.addExact(deslocamento, limite); // Limitados em despacharRequisicao
+
+        return cache.obter(k + "\u0000" + chaveCache(queryBusca), () -> consultarRanking(queryBusca, k),
+                resposta -> resposta.faltando.isEmpty()).thenComposeAsync(resposta -> {
+            List<Resultado> pagina = resposta.resultados.subList(
+                    Math.min(deslocamento, resposta.resultados.size()), resposta.resultados.size());
+
+            CompletableFuture<Void> escrita = CompletableFuture.completedFuture(null);
+            if (transmitir) {
+                TransmissaoCliente transmissao = new TransmissaoCliente(saida);
+                transmissao.repassar(pagina);
+                transmissao.encerrar(resposta.total, resposta.faltando);
+                escrita = transmissao.escrita();
+            } else {
+                long inicioSerializacao = System.nanoTime();
+                StringBuilder json = new StringBuilder(64 + Resultado.tamanhoJson(pagina));
+                json.append("{\"total\":").append(resposta.total)
+                        .append(",\"offset\":").append(deslocamento)
+                        .append(",\"limit\":").append(limite);
+                escreverCompleta(json, resposta.faltando);
+                json.append(",\"resultados\":");
+                Resultado.escreverJson(json, pagina);
+                String linha = json.append('}').toString();
+                latenciaSerializacao.registrarDesde(inicioSerializacao);
+                saida.accept(linha);
             }
+            LOG.info("Resposta enviada ao cliente: {} de {} resultados encontrados", pagina.size(), resposta.total);
+            return escrita;
+        }, executorService);
+    }
+
+    private CompletableFuture<RespostaConsolidada> consultarRanking(String queryBusca, int k) {
+        RequisicaoShard requisicao = RequisicaoShard.busca(queryBusca, false, k);
+        long inicio = System.nanoTime();
+        List<CompletableFuture<RespostaShard>> futuros = new ArrayList<>(shards.size());
+        for (GrupoReplicas shard : shards) {
+            futuros.add(consultarServidor(shard, requisicao));
         }
+
+        return todos(futuros).thenApply(respostas -> {
+            latenciaEsperaShards.registrarDesde(inicio);
+            List<List<Resultado>> listas = new ArrayList<>();
+            List<String> faltando = new ArrayList<>();
+            int total = 0;
+            for (int i = 0; i < respostas.size(); i++) {
+                RespostaShard resposta = respostas.get(i);
+                if (resposta != null) {
+                    listas.add(resposta.getResultados());
+                    total += resposta.getTotal();
+                } else {
+                    faltando.add(shards.get(i).getNome());
+                }
+            }
+
+            long inicioIntercalacao = System.nanoTime();
+            List<Resultado> melhores = intercalar(listas, k);
+            latenciaConsolidacao.registrarDesde(inicioIntercalacao);
+            return new RespostaConsolidada(null, melhores, total, faltando);
+        });
     }
 
-    private List<JSONObject> buscarEmServidor(String host, int porta, JSONObject requisicao) {
-        List<JSONObject> resultados = new ArrayList<>();
+    /**
+     * Intercala listas já ordenadas por "score" (decrescente) e retorna os {@code limite} primeiros.
+     * Usa um heap com a cabeça de cada lista: custa O(limite · log listas).
+     */
+    static List<Resultado> intercalar(List<List<Resultado>> listas, int limite) {
+        PriorityQueue<int[]> cabecas = new PriorityQueue<>((a, b) -> {
+            int comparacao = Double.compare(pontuacao(listas.get(b[0]).get(b[1])),
+                    pontuacao(listas.get(a[0]).get(a[1])));
+            // Empates: a ordem das listas decide, para a paginação ser estável
+            return comparacao != 0 ? comparacao : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < listas.size(); i++) {
+            if (!listas.get(i).isEmpty()) {
+                cabecas.add(new int[]{i, 0});
+            }
+        }
 
-        try (Socket socket = new Socket(host, porta);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+        List<Resultado> intercalados = new ArrayList<>(limite);
+        while (intercalados.size() < limite && !cabecas.isEmpty()) {
+            int[] cabeca = cabecas.poll();
+            List<Resultado> lista = listas.get(cabeca[0]);
+            intercalados.add(lista.get(cabeca[1]));
+            if (cabeca[1] + 1 < lista.size()) {
+                cabecas.add(new int[]{cabeca[0], cabeca[1] + 1});
+            }
+        }
+        return Collections.unmodifiableList(intercalados);
+    }
 
-            // Envia requisição
-            out.println(requisicao.toString());
+    private static double pontuacao(Resultado resultado) {
+        return resultado.temPontuacao() ? resultado.getPontuacao() : 0;
+    }
 
-            // Recebe resposta
-            String respostaStr = in.readLine();
-            JSONObject resposta = new JSONObject(respostaStr);
+    /**
+     * Transmite a query: cada bloco de resultados recebido de um servidor de busca é repassado ao
+     * cliente como uma linha {@code "tipo": "PARCIAL"} assim que chega, sem esperar os outros,
+     * e uma linha {@code "tipo": "FIM"} com o total encerra a resposta.
+     */
+    private CompletableFuture<Void> transmitirQuery(String queryBusca, Consumer<String> saida) {
+        LOG.info("Query recebida (transmissão): {}", queryBusca);
+        String chave = chaveCache(queryBusca);
 
-            // Extrai resultados
-            if (resposta.has("resultados")) {
-                JSONArray resultadosArray = resposta.getJSONArray("resultados");
-                for (int i = 0; i < resultadosArray.length(); i++) {
-                    resultados.add(resultadosArray.getJSONObject(i));
+        RespostaConsolidada guardada = cache.obterGuardado(chave);
+        if (guardada != null) {
+            TransmissaoCliente transmissao = new TransmissaoCliente(saida);
+            transmissao.repassar(guardada.resultados);
+            transmissao.encerrar(guardada.total, List.of());
+            return transmissao.escrita();
+        }
+
+        TransmissaoCliente transmissao = new TransmissaoCliente(saida);
+        long inicio = System.nanoTime();
+        List<List<Resultado>> resultados = new ArrayList<>(shards.size());
+        List<CompletableFuture<Boolean>> futuros = new ArrayList<>(shards.size());
+        for (GrupoReplicas shard : shards) {
+            List<Resultado> resultadosShard = new ArrayList<>();
+            resultados.add(resultadosShard);
+            futuros.add(transmitirDeServidor(shard, queryBusca, transmissao, resultadosShard));
+        }
+
+        return todos(futuros).thenCompose(concluidos -> {
+            latenciaEsperaShards.registrarDesde(inicio);
+            List<String> faltando = new ArrayList<>();
+            for (int i = 0; i < concluidos.size(); i++) {
+                if (!concluidos.get(i)) {
+                    faltando.add(shards.get(i).getNome());
                 }
             }
+            int total = transmissao.encerrar(faltando);
 
-            System.out.println("Recebidos " + resultados.size() + " resultados do servidor " + host + ":" + porta);
+            if (faltando.isEmpty()) {
+                cache.guardar(chave, consolidar(resultados, faltando));
+            }
+            LOG.info("Transmissão ao cliente concluída: {} resultados encontrados", total);
+            return transmissao.escrita();
+        });
+    }
 
-        } catch (IOException e) {
-            System.err.println("Erro ao conectar com servidor " + host + ":" + porta + " - " + e.getMessage());
+    /**
+     * Pede a transmissão a um servidor de busca, repassando cada bloco ao cliente e guardando-o
+     * em {@code resultados}. O futuro indica se o servidor concluiu a transmissão.
+     */
+    private CompletableFuture<Boolean> transmitirDeServidor(GrupoReplicas shard, String queryBusca,
+                                                           TransmissaoCliente transmissao,
+                                                           List<Resultado> resultados) {
+        RequisicaoShard requisicao = RequisicaoShard.busca(queryBusca, true, 0);
+        String servidor = shard.getNome();
+        MetricasShard metricasShard = metricasShards.get(shard);
+        long inicio = System.nanoTime();
+
+        // Chamado na thread leitora da conexão, sempre na ordem em que o servidor enviou
+        Consumer<RespostaShard> ouvinte = parcial -> {
+            resultados.addAll(parcial.getResultados());
+            transmissao.repassar(parcial.getResultados());
+        };
+
+        return enviarComPrazo(() -> shard.enviar(requisicao, ouvinte)).thenApply(fim -> {
+            observarVersao(shard, fim);
+            if (fim.getErro() != null) {
+                metricasShard.erros.increment();
+                LOG.aviso("Erro no servidor {} - {}", servidor, fim.getErro());
+                return false;
+            }
+            metricasShard.latencia.registrarDesde(inicio);
+            LOG.info("Recebidos {} resultados do servidor {}", fim.getTotal(), servidor);
+            return true;
+        }).exceptionally(e -> {
+            metricasShard.registrarFalha(e);
+            LOG.aviso("Erro ao consultar servidor {} - {}", servidor, e.getMessage());
+            return false;
+        });
+    }
+
+    /**
+     * Distribui a query a todos os servidores de busca e consolida a resposta quando todos terminarem.
+     */
+    private CompletableFuture<RespostaConsolidada> consultarServidores(String queryBusca) {
+        // Executa as buscas em paralelo em todos os servidores pelas conexões persistentes
+        long inicio = System.nanoTime();
+        List<CompletableFuture<List<Resultado>>> futuros = new ArrayList<>(shards.size());
+        for (GrupoReplicas shard : shards) {
+            futuros.add(buscarEmServidor(shard, queryBusca));
         }
 
-        return resultados;
+        // Combina os resultados quando todos os servidores responderem (ou o prazo acabar)
+        return todos(futuros).thenApply(listas -> {
+            latenciaEsperaShards.registrarDesde(inicio);
+            List<List<Resultado>> respondidas = new ArrayList<>(listas.size());
+            List<String> faltando = new ArrayList<>();
+            for (int i = 0; i < listas.size(); i++) {
+                if (listas.get(i) != null) {
+                    respondidas.add(listas.get(i));
+                } else {
+                    faltando.add(shards.get(i).getNome());
+                }
+            }
+            return consolidar(respondidas, faltando);
+        });
+    }
+
+    /**
+     * Futuro que termina quando todos terminarem, com os resultados na mesma ordem. Termina no
+     * executor, para a consolidação que vem em seguida não rodar na thread leitora de uma conexão
+     * com um servidor de busca.
+     */
+    private <T> CompletableFuture<List<T>> todos(List<CompletableFuture<T>> futuros) {
+        return CompletableFuture.allOf(futuros.toArray(CompletableFuture<?>[]::new)).thenApplyAsync(v -> {
+            List<T> valores = new ArrayList<>(futuros.size());
+            for (CompletableFuture<T> futuro : futuros) {
+                valores.add(futuro.join());
+            }
+            return valores;
+        }, executorService);
+    }
+
+    private RespostaConsolidada consolidar(List<List<Resultado>> listas, List<String> faltando) {
+        long inicio = System.nanoTime();
+        int quantidade = 0;
+        for (List<Resultado> lista : listas) {
+            quantidade += lista.size();
+        }
+        List<Resultado> resultadosCombinados = new ArrayList<>(quantidade);
+        for (List<Resultado> lista : listas) {
+            resultadosCombinados.addAll(lista);
+        }
+
+        long inicioSerializacao = System.nanoTime();
+        latenciaConsolidacao.registrar(inicioSerializacao - inicio);
+
+        // Prepara a resposta para o cliente, escrevendo o JSON direto dos resultados
+        StringBuilder resposta = new StringBuilder(32 + Resultado.tamanhoJson(resultadosCombinados));
+        resposta.append("{\"total\":").append(resultadosCombinados.size());
+        escreverCompleta(resposta, faltando);
+        resposta.append(",\"resultados\":");
+        Resultado.escreverJson(resposta, resultadosCombinados);
+        resposta.append('}');
+        latenciaSerializacao.registrarDesde(inicioSerializacao);
+
+        return new RespostaConsolidada(resposta.toString(), Collections.unmodifiableList(resultadosCombinados),
+                resultadosCombinados.size(), faltando);
+    }
+
+    /**
+     * Campos que indicam se todos os shards responderam e, se não, quais ficaram de fora.
+     */
+    private static void escreverCompleta(StringBuilder json, List<String> faltando) {
+        json.append(",\"completa\":").append(faltando.isEmpty());
+        if (!faltando.isEmpty()) {
+            json.append(",\"faltando\":[");
+            for (int i = 0; i < faltando.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                Resultado.citar(json, faltando.get(i));
+            }
+            json.append(']');
+        }
+    }
+
+    /**
+     * Consulta um servidor de busca. O futuro resulta em null se o servidor não respondeu.
+     */
+    private CompletableFuture<List<Resultado>> buscarEmServidor(GrupoReplicas shard, String queryBusca) {
+        return consultarServidor(shard, RequisicaoShard.busca(queryBusca, false, 0)).thenApply(resposta -> {
+            if (resposta == null) {
+                return null;
+            }
+
+            List<Resultado> resultados = resposta.getResultados();
+            LOG.info("Recebidos {} resultados do servidor {}", resultados.size(), shard.getNome());
+            return resultados;
+        });
+    }
+
+    /**
+     * Faz o envio a um grupo de réplicas com o prazo da consulta.
+     *
+     * O envio pode abrir conexão e bloquear na escrita, então roda no executor, e não na thread
+     * que atende o cliente, que no modo NIO é o laço de eventos. O prazo conta a partir daqui;
+     * ao expirar, o futuro do grupo é cancelado, o que encerra as tentativas nas réplicas e
+     * tira a requisição dos pendentes de cada conexão.
+     */
+    private CompletableFuture<RespostaShard> enviarComPrazo(Supplier<CompletableFuture<RespostaShard>> envio) {
+        CompletableFuture<RespostaShard> resultado = new CompletableFuture<RespostaShard>()
+                .orTimeout(PRAZO_CONSULTA_MS, TimeUnit.MILLISECONDS);
+        CompletableFuture.runAsync(() -> {
+            if (resultado.isDone()) {
+                return;
+            }
+            CompletableFuture<RespostaShard> enviado = envio.get();
+            resultado.whenComplete((r, e) -> enviado.cancel(false));
+            enviado.whenComplete((resposta, e) -> {
+                if (e != null) {
+                    resultado.completeExceptionally(e);
+                } else {
+                    resultado.complete(resposta);
+                }
+            });
+        }, executorService).exceptionally(e -> {
+            resultado.completeExceptionally(e);
+            return null;
+        });
+        return resultado;
+    }
+
+    /**
+     * Envia a requisição a um servidor de busca e retorna a resposta, ou null se ele não respondeu.
+     */
+    private CompletableFuture<RespostaShard> consultarServidor(GrupoReplicas shard, RequisicaoShard requisicao) {
+        String servidor = shard.getNome();
+        MetricasShard metricasShard = metricasShards.get(shard);
+        long inicio = System.nanoTime();
+
+        return enviarComPrazo(() -> shard.enviar(requisicao)).handle((resposta, e) -> {
+            if (e != null) {
+                metricasShard.registrarFalha(e);
+                LOG.aviso("Erro ao consultar servidor {} - {}", servidor, e.getMessage());
+                return null;
+            }
+            observarVersao(shard, resposta);
+            if (resposta.getErro() != null) {
+                // O servidor recusou a requisição: fica de fora, como se não tivesse respondido
+                metricasShard.erros.increment();
+                LOG.aviso("Erro no servidor {} - {}", servidor, resposta.getErro());
+                return null;
+            }
+            metricasShard.latencia.registrarDesde(inicio);
+            return resposta;
+        });
+    }
+
+    /**
+     * Chave do cache: a geração atual e a chave da query ({@link Consulta#chaveCache}).
+     */
+    private String chaveCache(String queryBusca) {
+        return geracaoCache.get() + "\u0000" + Consulta.chaveCache(queryBusca);
+    }
+
+    /**
+     * Registra a versão dos artigos informada pelo shard. Se for mais nova que todas as já vistas
+     * dele (o shard recebeu INSERIR ou REMOVER), as respostas guardadas deixam de valer: a geração
+     * muda, as próximas queries usam chaves novas e o cache é esvaziado para liberar a memória.
+     * Uma réplica atrasada (ou reiniciada) responde uma versão menor e não muda nada.
+     */
+    private void observarVersao(GrupoReplicas shard, RespostaShard resposta) {
+        long versao = resposta.getVersao();
+        AtomicLong vista = versoesShards.get(shard);
+        long anterior = vista.getAndAccumulate(versao, Math::max);
+        if (versao > anterior && anterior >= 0) {
+            geracaoCache.incrementAndGet();
+            cache.limpar();
+            LOG.info("Artigos do servidor {} mudaram (versão {}): cache descartado", shard.getNome(), versao);
+        }
+    }
+
+    /**
+     * Pergunta a versão dos artigos a todas as réplicas de cada shard e agenda a próxima pergunta
+     * para depois que todas responderem (ou estourarem o prazo). Uma query que encontra a resposta
+     * no cache não chega aos shards; sem isto, um INSERIR ou REMOVER só seria percebido na próxima
+     * falha do cache ou quando a entrada expirasse.
+     */
+    private void verificarVersoes() {
+        if (executorService.isShutdown()) {
+            return;
+        }
+        List<CompletableFuture<RespostaShard>> futuros = new ArrayList<>();
+        for (GrupoReplicas shard : shards) {
+            for (CompletableFuture<RespostaShard> futuro : shard.enviarATodas(RequisicaoShard.versao())) {
+                futuros.add(futuro.orTimeout(PRAZO_CONSULTA_MS, TimeUnit.MILLISECONDS)
+                        .whenComplete((resposta, e) -> {
+                            if (resposta != null) {
+                                observarVersao(shard, resposta);
+                            }
+                        }));
+            }
+        }
+        CompletableFuture.allOf(futuros.toArray(CompletableFuture<?>[]::new)).whenComplete((v, e) -> {
+            if (!executorService.isShutdown()) {
+                CompletableFuture.delayedExecutor(INTERVALO_VERSAO_MS, TimeUnit.MILLISECONDS, executorService)
+                        .execute(this::verificarVersoes);
+            }
+        });
     }
 
     public void parar() {
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
+        if (frente != null) {
+            frente.parar();
+        }
+        if (portaMetricas != null) {
+            portaMetricas.close();
+        }
+        executorService.shutdown();
+        for (GrupoReplicas shard : shards) {
+            shard.fechar();
+        }
+        System.out.println("Servidor A - " + cache.resumo());
+        System.out.println("Servidor A - " + admissao.resumo());
+    }
+
+    /**
+     * Latência das respostas de um shard e quantas vezes ele falhou ou estourou o prazo da query.
+     */
+    private static class MetricasShard {
+        private final HistogramaLatencia latencia;
+        private final LongAdder erros;
+        private final LongAdder prazos;
+
+        MetricasShard(Metricas metricas, String nome) {
+            this.latencia = metricas.latencia("shard " + nome);
+            this.erros = metricas.contador("shard " + nome + " erros");
+            this.prazos = metricas.contador("shard " + nome + " prazos");
+        }
+
+        void registrarFalha(Throwable erro) {
+            Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+            if (causa instanceof TimeoutException) {
+                prazos.increment();
+            } else {
+                erros.increment();
+            }
+        }
+    }
+
+    /**
+     * Resposta consolidada como fica guardada no cache: os resultados em lista (para o modo de
+     * transmissão e para a paginação) e, nas buscas sem limite, já serializada para o cliente.
+     * Nas buscas ordenadas, {@code resultados} tem só os K melhores e {@code total} conta todos.
+     */
+    private static class RespostaConsolidada {
+        private final String json;
+        private final List<Resultado> resultados;
+        private final int total;
+        private final List<String> faltando;
+
+        RespostaConsolidada(String json, List<Resultado> resultados, int total, List<String> faltando) {
+            this.json = json;
+            this.resultados = resultados;
+            this.total = total;
+            this.faltando = faltando;
+        }
+    }
+
+    /**
+     * Linhas enviadas a um cliente no modo de transmissão. Os blocos dos servidores de busca
+     * chegam pelas threads leitoras das conexões com eles, que são compartilhadas por todos os
+     * clientes: por isso um bloco só entra na fila do cliente, e uma tarefa no executor serializa
+     * e escreve a fila, uma linha de cada vez e na ordem de chegada. Assim um cliente lento não
+     * atrasa os blocos dos outros. A trava impede que um bloco atrasado (de um servidor que já
+     * estourou o tempo) entre na fila depois da linha de fim.
+     */
+    private class TransmissaoCliente {
+        private final Consumer<String> saida;
+        private final ReentrantLock trava = new ReentrantLock();
+        private final ArrayDeque<List<Resultado>> fila = new ArrayDeque<>();
+        // Concluído quando a linha de fim é escrita: a conexão só fecha depois disso
+        private final CompletableFuture<Void> escrita = new CompletableFuture<>();
+        private String linhaFim;
+        private boolean escrevendo;
+        private boolean encerrada;
+        private int enviados;
+
+        TransmissaoCliente(Consumer<String> saida) {
+            this.saida = saida;
+        }
+
+        void repassar(List<Resultado> resultados) {
+            if (resultados.isEmpty()) {
+                return;
+            }
+
+            boolean iniciar;
+            trava.lock();
+            try {
+                if (encerrada) {
+                    return;
+                }
+                fila.add(resultados);
+                enviados += resultados.size();
+                iniciar = !escrevendo;
+                escrevendo = true;
+            } finally {
+                trava.unlock();
+            }
+            if (iniciar) {
+                executorService.execute(this::escrever);
+            }
+        }
+
+        /**
+         * Concluído quando a linha de fim foi escrita.
+         */
+        CompletableFuture<Void> escrita() {
+            return escrita;
+        }
+
+        /**
+         * Envia a linha de fim e retorna o total de resultados enviados ao cliente.
+         */
+        int encerrar(List<String> faltando) {
+            return encerrar(-1, faltando);
+        }
+
+        /**
+         * Envia a linha de fim, depois dos blocos que ainda estão na fila, com o total informado
+         * (ou, se negativo, a quantidade enviada) e os shards que não responderam.
+         */
+        int encerrar(int total, List<String> faltando) {
+            boolean iniciar;
+            int totalFim;
+            trava.lock();
+            try {
+                encerrada = true;
+                totalFim = total < 0 ? enviados : total;
+
+                StringBuilder fim = new StringBuilder(64);
+                fim.append("{\"tipo\":\"FIM\",\"total\":").append(totalFim);
+                escreverCompleta(fim, faltando);
+                linhaFim = fim.append('}').toString();
+                iniciar = !escrevendo;
+                escrevendo = true;
+            } finally {
+                trava.unlock();
+            }
+            if (iniciar) {
+                executorService.execute(this::escrever);
+            }
+            return totalFim;
+        }
+
+        /**
+         * Escreve a fila até esvaziá-la. Só uma tarefa por cliente escreve de cada vez.
+         */
+        private void escrever() {
+            while (true) {
+                List<Resultado> resultados;
+                String fim = null;
+                trava.lock();
+                try {
+                    resultados = fila.poll();
+                    if (resultados == null) {
+                        fim = linhaFim;
+                        linhaFim = null;
+                        if (fim == null) {
+                            escrevendo = false;
+                            return;
+                        }
+                    }
+                } finally {
+                    trava.unlock();
+                }
+
+                try {
+                    if (resultados != null) {
+                        long inicio = System.nanoTime();
+                        StringBuilder parcial = new StringBuilder(32 + Resultado.tamanhoJson(resultados));
+                        parcial.append("{\"tipo\":\"PARCIAL\",\"resultados\":");
+                        Resultado.escreverJson(parcial, resultados);
+                        String linha = parcial.append('}').toString();
+                        latenciaSerializacao.registrarDesde(inicio);
+                        saida.accept(linha);
+                    } else {
+                        saida.accept(fim);
+                        escrita.complete(null);
+                    }
+                } catch (RuntimeException e) {
+                    // Nada mais chega a este cliente: descarta a fila e não volta a escrever
+                    trava.lock();
+                    try {
+                        encerrada = true;
+                        fila.clear();
+                        linhaFim = null;
+                    } finally {
+                        trava.unlock();
+                    }
+                    escrita.completeExceptionally(e);
+                    return;
+                }
             }
-            executorService.shutdown();
-        } catch (IOException e) {
-            System.err.println("Erro ao parar servidor: " + e.getMessage());
         }
     }
 
@@ -0,0 +1,194 @@
+package org.example;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Frente de servidor com {@link ServerSocket} e uma thread por conexão.
+ *
+ * Cada conexão é lida linha a linha (ou quadro a quadro, se negociou o
+ * {@link ProtocoloBinario}) até o outro lado encerrá-la; as respostas pendentes
+ * são concluídas antes de o socket ser fechado. Como cada conexão ocupa uma thread,
+ * no máximo {@code servidor.maxConexoes} (padrão {@value #MAX_CONEXOES_PADRAO}) ficam
+ * abertas ao mesmo tempo.
+ */
+public class ServidorBloqueante implements FrenteServidor {
+
+    static final int MAX_CONEXOES_PADRAO = 1024;
+    private static final LogAmostrado LOG = LogAmostrado.para(ServidorBloqueante.class);
+
+    private final String nome;
+    private final int porta;
+    private final TratadorLinhas tratador;
+    private final TratadorQuadros tratadorQuadros;
+    private final ExecutorService executorConexoes;
+    private final Semaphore vagasConexoes = new Semaphore(FrenteServidor.maxConexoes(MAX_CONEXOES_PADRAO));
+    private final LongAdder conexoesAceitas;
+    private final LongAdder conexoesEncerradas = new LongAdder();
+    private final HistogramaLatencia latenciaAceite;
+    private ServerSocket serverSocket;
+
+    public ServidorBloqueante(String nome, int porta, TratadorLinhas tratador, ExecutorService executorConexoes) {
+        this(nome, porta, tratador, null, executorConexoes, new Metricas(nome));
+    }
+
+    public ServidorBloqueante(String nome, int porta, TratadorLinhas tratador, TratadorQuadros tratadorQuadros,
+                              ExecutorService executorConexoes, Metricas metricas) {
+        this.nome = nome;
+        this.porta = porta;
+        this.tratador = tratador;
+        this.tratadorQuadros = tratadorQuadros;
+        this.executorConexoes = executorConexoes;
+        this.conexoesAceitas = metricas.contador("conexoes");
+        this.latenciaAceite = metricas.latencia("aceite");
+        metricas.medidor("conexoes_abertas", () -> conexoesAceitas.sum() - conexoesEncerradas.sum());
+    }
+
+    @Override
+    public void iniciar() throws IOException {
+        serverSocket = new ServerSocket(porta);
+        System.out.println(nome + " iniciado na porta " + porta);
+
+        while (true) {
+            // No limite de conexões, espera uma encerrar antes de aceitar outra
+            long inicioEspera = System.nanoTime();
+            vagasConexoes.acquireUninterruptibly();
+            latenciaAceite.registrarDesde(inicioEspera);
+            Socket clienteSocket;
+            try {
+                clienteSocket = serverSocket.accept();
+            } catch (IOException e) {
+                vagasConexoes.release();
+                throw e;
+            }
+            conexoesAceitas.increment();
+            LOG.info("{} - Conexão recebida de: {}", nome, clienteSocket.getInetAddress());
+
+            // Processa cada conexão em uma thread separada
+            try {
+                executorConexoes.execute(() -> atender(clienteSocket));
+            } catch (RejectedExecutionException e) {
+                clienteSocket.close();
+                encerrarConexao();
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        Set<CompletableFuture<Void>> emAndamento = ConcurrentHashMap.newKeySet();
+        ReentrantLock travaEscrita = new ReentrantLock();
+
+        try (BufferedInputStream entrada = new BufferedInputStream(socket.getInputStream());
+             BufferedOutputStream saida = new BufferedOutputStream(socket.getOutputStream())) {
+
+            // O primeiro byte decide o protocolo: zero só pode ser o preâmbulo binário
+            entrada.mark(1);
+            if (entrada.read() == 0) {
+                entrada.reset();
+                atenderBinario(entrada, saida, travaEscrita, emAndamento);
+            } else {
+                entrada.reset();
+                atenderTexto(entrada, saida, travaEscrita, emAndamento);
+            }
+
+            // Conexão encerrada pelo outro lado: conclui as respostas pendentes antes de fechar
+            CompletableFuture.allOf(emAndamento.toArray(CompletableFuture<?>[]::new)).exceptionally(e -> null).join();
+
+        } catch (IOException e) {
+            System.err.println(nome + " - Erro ao processar conexão: " + e.getMessage());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println(nome + " - Erro ao fechar conexão: " + e.getMessage());
+            }
+            encerrarConexao();
+        }
+    }
+
+    private void atenderTexto(InputStream entrada, OutputStream saida, ReentrantLock travaEscrita,
+                              Set<CompletableFuture<Void>> emAndamento) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), true);
+
+        String linha;
+        while ((linha = in.readLine()) != null) {
+            CompletableFuture<Void> tarefa;
+            try {
+                tarefa = tratador.tratar(linha, resposta -> {
+                    travaEscrita.lock();
+                    try {
+                        out.println(resposta);
+                    } finally {
+                        travaEscrita.unlock();
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Requisição sem resposta possível: " + e.getMessage(), e);
+            }
+
+            emAndamento.add(tarefa);
+            tarefa.whenComplete((r, e) -> emAndamento.remove(tarefa));
+        }
+    }
+
+    private void atenderBinario(InputStream entrada, OutputStream saida, ReentrantLock travaEscrita,
+                                Set<CompletableFuture<Void>> emAndamento) throws IOException {
+        if (tratadorQuadros == null || !ProtocoloBinario.lerPreambulo(entrada)) {
+            System.err.println(nome + " - Protocolo binário recusado");
+            return;
+        }
+        saida.write(ProtocoloBinario.PREAMBULO);
+        saida.flush();
+
+        DataInputStream in = new DataInputStream(entrada);
+        ByteBuffer quadro;
+        while ((quadro = ProtocoloBinario.lerQuadro(in)) != null) {
+            CompletableFuture<Void> tarefa;
+            try {
+                tarefa = tratadorQuadros.tratar(quadro, resposta -> {
+                    travaEscrita.lock();
+                    try {
+                        saida.write(resposta.array(), resposta.arrayOffset() + resposta.position(),
+                                resposta.remaining());
+                        saida.flush();
+                    } catch (IOException e) {
+                        System.err.println(nome + " - Erro ao enviar resposta: " + e.getMessage());
+                    } finally {
+                        travaEscrita.unlock();
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Requisição sem resposta possível: " + e.getMessage(), e);
+            }
+
+            emAndamento.add(tarefa);
+            tarefa.whenComplete((r, e) -> emAndamento.remove(tarefa));
+        }
+    }
+
+    /**
+     * Libera a vaga de uma conexão aceita que foi encerrada.
+     */
+    private void encerrarConexao() {
+        conexoesEncerradas.increment();
+        vagasConexoes.release();
+    }
+
+    @Override
+    public void parar() {
+        try {
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao parar " + nome + ": " + e.getMessage());
+        }
+    }
+}
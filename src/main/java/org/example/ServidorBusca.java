@@ -1,139 +1,740 @@
 package org.example;
 
 import java.io.*;
-import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
-import org.json.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 public abstract class ServidorBusca {
+    private static final int BLOCO_TRANSMISSAO = 16384;
+    private static final int RESULTADOS_POR_MENSAGEM = 256;
+    private static final LogAmostrado LOG = LogAmostrado.para(ServidorBusca.class);
+
     private final int porta;
     private final String nomeServidor;
     private final String arquivoDados;
-    private ServerSocket serverSocket;
+    private FrenteServidor frente;
     private ExecutorService executorService;
-    private List<JSONObject> dados;
+    // Versão atual dos artigos: cada requisição lê o campo uma vez e usa a mesma versão do início ao fim
+    private volatile CorpusVivo base;
+    private final ReentrantLock travaAtualizacao = new ReentrantLock();
     private AlgoritmoBusca algoritmoBusca;
+    private final AhoCorasick ahoCorasick = new AhoCorasick();
+    private final BuscaParalela buscaParalela;
+    private final LoteBuscas lote;
+    private final CacheResultados<List<Resultado>> cache = CacheResultados.configurado();
+    private final CacheResultados<Ranking> cacheRanking = CacheResultados.configurado();
+    private final ControleAdmissao admissao = ControleAdmissao.configurado();
+
+    // Métricas de cada etapa de uma requisição, expostas pela requisição STATS e pela porta de métricas
+    private final Metricas metricas;
+    private final LongAdder requisicoes;
+    private final LongAdder invalidas;
+    private final LongAdder erros;
+    private final LongAdder inseridos;
+    private final LongAdder removidos;
+    private final HistogramaLatencia latenciaRequisicao;
+    private final HistogramaLatencia latenciaInterpretacao;
+    private final HistogramaLatencia latenciaBusca;
+    private final HistogramaLatencia latenciaSerializacao;
+    private final HistogramaLatencia latenciaAtualizacao;
+    private PortaMetricas portaMetricas;
 
     public ServidorBusca(int porta, String nomeServidor, String arquivoDados) {
         this.porta = porta;
         this.nomeServidor = nomeServidor;
         this.arquivoDados = arquivoDados;
-        this.executorService = Executors.newCachedThreadPool();
-        this.algoritmoBusca = new BoyerMoore(); // Usando Boyer-Moore como algoritmo padrão
+        if (!Executores.threadsVirtuais() && FrenteServidor.modoNio()) {
+            // No modo NIO não há threads de conexão: o executor só roda as buscas, limitado aos processadores
+            this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        } else {
+            this.executorService = Executores.novoExecutorBloqueante();
+        }
+        this.algoritmoBusca = SeletorAlgoritmo.configurado(); // Escolhe o algoritmo pelo tamanho da query
+        this.buscaParalela = BuscaParalela.configurada();
+        this.lote = LoteBuscas.configurado(buscaParalela, algoritmoBusca, executorService);
+
+        this.metricas = new Metricas(nomeServidor);
+        this.requisicoes = metricas.contador("requisicoes");
+        this.invalidas = metricas.contador("invalidas");
+        this.erros = metricas.contador("erros");
+        this.inseridos = metricas.contador("artigos_inseridos");
+        this.removidos = metricas.contador("artigos_removidos");
+        this.latenciaRequisicao = metricas.latencia("requisicao");
+        this.latenciaInterpretacao = metricas.latencia("interpretacao");
+        this.latenciaBusca = metricas.latencia("busca");
+        this.latenciaSerializacao = metricas.latencia("serializacao");
+        this.latenciaAtualizacao = metricas.latencia("atualizacao");
+        metricas.medidor("admissao_limite", admissao::getLimite);
+        metricas.medidor("admissao_em_andamento", admissao::getEmAndamento);
+        metricas.medidor("admissao_recusadas", admissao::getRecusadas);
+        metricas.medidor("cache_acertos", () -> cache.getAcertos() + cacheRanking.getAcertos());
+        metricas.medidor("cache_falhas", () -> cache.getFalhas() + cacheRanking.getFalhas());
+        metricas.medidor("log_descartadas", LogAmostrado::getDescartadas);
+        metricas.medidor("lotes", lote::getLotes);
+        metricas.medidor("buscas_em_lote", lote::getBuscasEmLote);
+        metricas.medidor("artigos", () -> base == null ? 0 : base.ativos());
+        metricas.medidor("segmentos", () -> base == null ? 0 : base.getQuantidadeSegmentos());
+        metricas.medidor("versao_corpus", () -> base == null ? 0 : base.getVersao());
+        metricas.medidor("resumos_bytes", () -> base == null ? 0 : base.getBytesResumos());
+        metricas.medidor("resumos_blocos_descomprimidos", ColunaComprimida::getBlocosDescomprimidos);
     }
 
+    /**
+     * Carrega os dados (a não ser que um corpus já tenha sido dado por {@link #carregarCorpus})
+     * e atende conexões até {@link #parar()} ser chamado.
+     */
     public void iniciar() {
         try {
             // Carrega os dados do arquivo JSON
-            carregarDados();
-
-            serverSocket = new ServerSocket(porta);
-            System.out.println(nomeServidor + " iniciado na porta " + porta);
-
-            while (true) {
-                Socket clienteSocket = serverSocket.accept();
-                System.out.println(nomeServidor + " - Conexão recebida de: " + clienteSocket.getInetAddress());
-
-                // Processa cada requisição em uma thread separada
-                executorService.execute(() -> processarRequisicao(clienteSocket));
+            if (base == null) {
+                carregarDados();
             }
+
+            portaMetricas = PortaMetricas.abrir(metricas, porta);
+            frente = FrenteServidor.criar(nomeServidor, porta, this::agendarRequisicao,
+                    this::agendarQuadro, executorService, metricas);
+            frente.iniciar();
         } catch (IOException e) {
             System.err.println("Erro ao iniciar " + nomeServidor + ": " + e.getMessage());
         }
     }
 
     private void carregarDados() throws IOException {
+        Path arquivoJson = Paths.get(arquivoDados);
+        Path arquivoSnapshot = Paths.get(arquivoDados + ".snapshot");
+        long inicio = System.nanoTime();
+
         try {
-            String conteudo = Files.readString(Paths.get(arquivoDados));
-            JSONArray jsonArray = new JSONArray(conteudo);
+            SnapshotCorpus dados;
+            if (snapshotAtualizado(arquivoJson, arquivoSnapshot)) {
+                // Reinício rápido: serve direto do snapshot mapeado, sem interpretar o JSON
+                dados = SnapshotCorpus.abrir(arquivoSnapshot);
+                System.out.println(nomeServidor + " - Snapshot " + arquivoSnapshot + " mapeado em memória");
+            } else {
+                // Lê os artigos um a um, sem manter o arquivo inteiro em memória
+                CorpusArtigos.Construtor construtorCorpus = new CorpusArtigos.Construtor();
+                LeitorArtigosJson.ler(arquivoJson, artigo -> construtorCorpus.adicionar(
+                        artigo.optString("title", ""), artigo.optString("abstract", ""),
+                        artigo.optString("label", "")));
+                CorpusArtigos corpus = construtorCorpus.construir();
+                dados = SnapshotCorpus.montar(corpus, CorpusVivo.indexar(corpus));
 
-            dados = new ArrayList<>();
-            for (int i = 0; i < jsonArray.length(); i++) {
-                dados.add(jsonArray.getJSONObject(i));
+                if (Boolean.getBoolean("busca.snapshot")) {
+                    dados.salvar(arquivoSnapshot);
+                    System.out.println(nomeServidor + " - Snapshot gravado em " + arquivoSnapshot);
+                }
             }
 
-            System.out.println(nomeServidor + " - Carregados " + dados.size() + " artigos");
+            base = new CorpusVivo(dados);
+
+            System.out.println(nomeServidor + " - Carregados " + dados.getCorpus().tamanho() + " artigos ("
+                    + dados.getIndice().getTotalTrigramas() + " trigramas indexados) em "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
         } catch (IOException e) {
             System.err.println("Erro ao carregar arquivo de dados: " + e.getMessage());
             throw e;
         }
     }
 
-    private void processarRequisicao(Socket socket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+    /**
+     * O snapshot só é usado se existir e não for mais antigo que o arquivo JSON.
+     */
+    private static boolean snapshotAtualizado(Path arquivoJson, Path arquivoSnapshot) throws IOException {
+        if (!Files.exists(arquivoSnapshot)) {
+            return false;
+        }
+        return !Files.exists(arquivoJson)
+                || Files.getLastModifiedTime(arquivoSnapshot).compareTo(Files.getLastModifiedTime(arquivoJson)) >= 0;
+    }
 
-            // Recebe a requisição
-            String requisicaoStr = in.readLine();
-            JSONObject requisicao = new JSONObject(requisicaoStr);
+    /**
+     * Usa um corpus já montado em memória, sem arquivo de dados (benchmarks e testes de carga).
+     */
+    void carregarCorpus(CorpusArtigos corpus) {
+        this.base = new CorpusVivo(corpus, CorpusVivo.indexar(corpus));
+    }
 
-            String tipo = requisicao.getString("tipo");
-            if ("BUSCA".equals(tipo)) {
-                String query = requisicao.getString("query");
-                System.out.println(nomeServidor + " - Processando busca: " + query);
+    /**
+     * O Servidor A mantém a conexão aberta e envia várias requisições por ela,
+     * identificadas pelo campo "id"; cada requisição é processada em paralelo no
+     * executor e a resposta é devolvida assim que fica pronta, com o mesmo "id",
+     * possivelmente fora da ordem de chegada.
+     *
+     * Uma requisição {@code STATS} é respondida na hora com as métricas do servidor e uma
+     * {@code VERSAO} com a versão dos artigos, sem passar pelo controle de admissão. {@code INSERIR} e {@code REMOVER} alteram os artigos
+     * (veja {@link #atualizar}) e passam pela admissão como as buscas, respondendo
+     * {@code "tipo": "OCUPADO"} no limite. Só existem em JSON (o {@link ProtocoloBinario} não
+     * as transporta) e não pedem credencial: a porta do servidor de busca deve ficar acessível
+     * só ao Servidor A e a quem administra os artigos.
+     *
+     * Uma requisição inválida com "id" é respondida com um {@code "tipo": "FIM"} com o erro; sem
+     * "id" não há a quem responder, e a conexão é encerrada ({@link TratadorLinhas}).
+     */
+    private CompletableFuture<Void> agendarRequisicao(String requisicaoStr, Consumer<String> saida) {
+        long inicio = System.nanoTime();
+        JSONObject json;
+        try {
+            json = new JSONObject(requisicaoStr);
+        } catch (JSONException e) {
+            throw recusar(e);
+        }
+        RequisicaoShard requisicao;
+        try {
+            requisicao = RequisicaoShard.deJson(json);
+        } catch (JSONException e) {
+            if (!json.has("id")) {
+                throw recusar(e);
+            }
+            return responderInvalida(json.optLong("id"), e, SaidaBusca.json(saida));
+        }
+        latenciaInterpretacao.registrarDesde(inicio);
 
-                // Realiza a busca
-                List<JSONObject> resultados = buscar(query);
+        if (RequisicaoShard.STATS.equals(requisicao.getTipo())) {
+            saida.accept(metricas.json().put("id", requisicao.getId()).toString());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (RequisicaoShard.INSERIR.equals(requisicao.getTipo()) || RequisicaoShard.REMOVER.equals(requisicao.getTipo())) {
+            if (!admissao.admitir()) {
+                SaidaBusca.json(saida).ocupado(requisicao.getId(), nomeServidor);
+                return CompletableFuture.completedFuture(null);
+            }
+            // Reindexar os artigos novos leva tempo: roda no executor, não na thread da conexão
+            return admissao.executar(() -> CompletableFuture.runAsync(
+                    () -> saida.accept(atualizar(requisicao, json).toString()), executorService));
+        }
+        return agendarRequisicao(requisicao, SaidaBusca.json(saida), inicio);
+    }
 
-                // Prepara resposta
-                JSONObject resposta = new JSONObject();
-                resposta.put("servidor", nomeServidor);
-                resposta.put("total", resultados.size());
-                resposta.put("resultados", new JSONArray(resultados));
+    /**
+     * Insere ({@code "artigos"}, no formato do arquivo de dados) ou remove ({@code "titulos"}) artigos
+     * com o servidor em execução, e responde a quantidade de artigos alterados e a nova versão.
+     *
+     * A nova versão é montada ao lado da atual, sem alterá-la, e publicada de uma vez no campo
+     * {@code base}: as buscas não esperam por ela e as que já estavam em andamento terminam
+     * sobre a versão anterior. As atualizações são feitas uma de cada vez. As chaves do cache
+     * levam a versão, então nenhum resultado anterior à atualização volta a ser servido.
+     */
+    private JSONObject atualizar(RequisicaoShard requisicao, JSONObject json) {
+        long inicio = System.nanoTime();
+        JSONObject resposta = new JSONObject();
+        resposta.put("id", requisicao.getId());
+        resposta.put("servidor", nomeServidor);
 
-                // Envia resposta
-                out.println(resposta.toString());
-                System.out.println(nomeServidor + " - Busca concluída: " + resultados.size() + " resultados");
+        CorpusArtigos novos = null;
+        List<String> titulos = new ArrayList<>();
+        try {
+            if (RequisicaoShard.INSERIR.equals(requisicao.getTipo())) {
+                CorpusArtigos.Construtor construtor = new CorpusArtigos.Construtor();
+                JSONArray artigos = json.getJSONArray("artigos");
+                for (int i = 0; i < artigos.length(); i++) {
+                    JSONObject artigo = artigos.getJSONObject(i);
+                    construtor.adicionar(artigo.optString("title", ""), artigo.optString("abstract", ""),
+                            artigo.optString("label", ""));
+                }
+                novos = construtor.construir();
+            } else {
+                JSONArray array = json.getJSONArray("titulos");
+                for (int i = 0; i < array.length(); i++) {
+                    titulos.add(array.getString(i));
+                }
             }
+        } catch (JSONException e) {
+            invalidas.increment();
+            System.err.println(nomeServidor + " - Requisição inválida: " + e.getMessage());
+            return resposta.put("tipo", "ERRO").put("erro", e.getMessage());
+        }
 
-        } catch (IOException e) {
-            System.err.println(nomeServidor + " - Erro ao processar requisição: " + e.getMessage());
+        travaAtualizacao.lock();
+        try {
+            CorpusVivo anterior = base;
+            CorpusVivo nova = novos != null ? anterior.inserir(novos) : anterior.removerTitulos(titulos);
+            if (nova != anterior) {
+                base = nova;
+                // Os resultados da versão anterior não serão mais pedidos; libera a memória deles
+                cache.limpar();
+                cacheRanking.limpar();
+            }
+
+            resposta.put("tipo", requisicao.getTipo());
+            if (novos != null) {
+                inseridos.add(novos.tamanho());
+                resposta.put("inseridos", novos.tamanho());
+            } else {
+                removidos.add(anterior.ativos() - nova.ativos());
+                resposta.put("removidos", anterior.ativos() - nova.ativos());
+            }
+            resposta.put("artigos", nova.ativos());
+            resposta.put("segmentos", nova.getQuantidadeSegmentos());
+            resposta.put("versao", nova.getVersao());
+            System.out.println(nomeServidor + " - " + requisicao.getTipo() + ": versão " + nova.getVersao()
+                    + ", " + nova.ativos() + " artigos em " + nova.getQuantidadeSegmentos() + " segmentos");
+            return resposta;
+        } catch (RuntimeException e) {
+            erros.increment();
+            System.err.println(nomeServidor + " - Erro ao atualizar os artigos: " + e.getMessage());
+            return resposta.put("tipo", "ERRO").put("erro", String.valueOf(e.getMessage()));
         } finally {
+            travaAtualizacao.unlock();
+            latenciaAtualizacao.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * Mesmas requisições, recebidas em uma conexão que negociou o {@link ProtocoloBinario}.
+     * Um quadro inválido que chega a ter o id é respondido com um FIM com o erro; um quadro
+     * mais curto encerra a conexão.
+     */
+    private CompletableFuture<Void> agendarQuadro(ByteBuffer quadro, Consumer<ByteBuffer> saida) {
+        long inicio = System.nanoTime();
+        RequisicaoShard requisicao;
+        try {
+            requisicao = ProtocoloBinario.lerRequisicao(quadro.duplicate());
+        } catch (IllegalArgumentException e) {
+            if (quadro.remaining() < 1 + Long.BYTES) {
+                throw recusar(e);
+            }
+            return responderInvalida(quadro.getLong(quadro.position() + 1), e, SaidaBusca.binaria(saida));
+        }
+        latenciaInterpretacao.registrarDesde(inicio);
+        return agendarRequisicao(requisicao, SaidaBusca.binaria(saida), inicio);
+    }
+
+    /**
+     * @param inicio Quando a requisição começou a ser lida ({@link System#nanoTime()})
+     */
+    private CompletableFuture<Void> agendarRequisicao(RequisicaoShard requisicao, SaidaBusca saida, long inicio) {
+        // Como STATS, a versão é respondida na hora, sem passar pela admissão
+        if (RequisicaoShard.VERSAO.equals(requisicao.getTipo())) {
+            saida.resposta(requisicao.getId(), nomeServidor, base.getVersao(), 0, List.of());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!RequisicaoShard.BUSCA.equals(requisicao.getTipo())) {
+            return responderInvalida(requisicao.getId(),
+                    new IllegalArgumentException("Tipo de requisição desconhecido: " + requisicao.getTipo()), saida);
+        }
+
+        List<String> termos;
+        try {
+            termos = normalizarTermos(requisicao.getTermos());
+        } catch (IllegalArgumentException e) {
+            return responderInvalida(requisicao.getId(), e, saida);
+        }
+
+        // Sem vaga, a busca é recusada na hora em vez de esperar na fila do executor;
+        // o Servidor A tenta outra réplica ou deixa o shard de fora da resposta
+        if (!admissao.admitir()) {
+            saida.ocupado(requisicao.getId(), nomeServidor);
+            return CompletableFuture.completedFuture(null);
+        }
+        requisicoes.increment();
+        return admissao.executar(() -> despachar(requisicao, termos, saida))
+                .whenComplete((v, e) -> latenciaRequisicao.registrarDesde(inicio));
+    }
+
+    /**
+     * Responde uma requisição inválida com um FIM com o erro, para quem a enviou não esperar
+     * pelo próprio prazo.
+     */
+    private CompletableFuture<Void> responderInvalida(long id, RuntimeException erro, SaidaBusca saida) {
+        invalidas.increment();
+        System.err.println(nomeServidor + " - Requisição inválida: " + erro.getMessage());
+        saida.fim(id, nomeServidor, base.getVersao(), 0, "Requisição inválida: " + erro.getMessage());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Uma mensagem inválida sem id, que não pode ser respondida: a frente encerra a conexão.
+     */
+    private IllegalArgumentException recusar(RuntimeException erro) {
+        invalidas.increment();
+        System.err.println(nomeServidor + " - Mensagem inválida sem id, encerrando a conexão: " + erro.getMessage());
+        return new IllegalArgumentException("Mensagem inválida sem id", erro);
+    }
+
+    private CompletableFuture<Void> despachar(RequisicaoShard requisicao, List<String> termos, SaidaBusca saida) {
+        // Buscas com limite precisam de todos os resultados para ordená-los: respondem de uma vez
+        if (requisicao.getLimite() > 0) {
+            return processarRanking(requisicao, termos, saida);
+        }
+        if (requisicao.isTransmitir()) {
+            return transmitirRequisicao(requisicao, termos, saida);
+        }
+        return processarRequisicao(requisicao, termos, saida);
+    }
+
+    private CompletableFuture<Void> processarRequisicao(RequisicaoShard requisicao, List<String> termos,
+                                                        SaidaBusca saida) {
+        String query = requisicao.getQuery();
+        CorpusVivo base = this.base;
+
+        if (termos.isEmpty()) {
+            LOG.info("{} - Processando busca: {}", nomeServidor, query);
+        } else {
+            LOG.info("{} - Processando busca por termos: {}", nomeServidor, termos);
+        }
+
+        // Realiza a busca, reaproveitando o cache e buscas iguais em andamento
+        CompletableFuture<List<Resultado>> busca = cache.obter(chaveCache(base, query, termos),
+                () -> encontrarNoExecutor(base, query, termos)
+                        .thenApplyAsync(encontrados -> criarResultados(base, encontrados), executorService));
+
+        // A serialização roda no executor, nunca na thread que atende a conexão
+        return busca.thenAcceptAsync(resultados -> {
+            // Devolve o id para o Servidor A associar a resposta à requisição
+            long inicio = System.nanoTime();
+            saida.resposta(requisicao.getId(), nomeServidor, base.getVersao(), resultados.size(), resultados);
+            latenciaSerializacao.registrarDesde(inicio);
+            LOG.info("{} - Busca concluída: {} resultados", nomeServidor, resultados.size());
+        }, executorService);
+    }
+
+    /**
+     * Procura no executor os artigos de uma busca que não veio do cache, registrando a duração
+     * da busca (incluindo a espera pelas outras buscas do lote).
+     */
+    private CompletableFuture<int[]> encontrarNoExecutor(CorpusVivo base, String query, List<String> termos) {
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            return encontrar(base, query, termos)
+                    .whenComplete((encontrados, e) -> latenciaBusca.registrarDesde(inicio));
+        }, executorService).thenCompose(Function.identity());
+    }
+
+    /**
+     * Os artigos que contêm a query (ou todos os termos), em ordem crescente. Uma query que precisa
+     * ler boa parte dos artigos espera no {@link LoteBuscas} pelas que chegarem junto com ela, para
+     * que sejam verificadas na mesma leitura; as demais são verificadas na hora. Uma query com
+     * operadores é avaliada como {@link Consulta}.
+     */
+    private CompletableFuture<int[]> encontrar(CorpusVivo base, String query, List<String> termos) {
+        if (ehConsulta(query, termos)) {
+            return CompletableFuture.completedFuture(
+                    base.consultar(Consulta.interpretar(query, algoritmoBusca), buscaParalela));
+        }
+        if (termos.size() > 1) {
+            BuscaPreparada busca = prepararTermos(base, termos);
+            return CompletableFuture.completedFuture(buscaParalela.filtrar(busca.candidatos, base.tamanho(), busca.filtro));
+        }
+
+        String queryNormalizada = CorpusArtigos.normalizar(termos.isEmpty() ? query : termos.get(0));
+        int[] candidatos = base.candidatos(queryNormalizada);
+        if (lote.aceita(base, queryNormalizada, candidatos)) {
+            return lote.buscar(base, queryNormalizada);
+        }
+        BuscaPreparada busca = preparar(base, queryNormalizada, candidatos);
+        return CompletableFuture.completedFuture(buscaParalela.filtrar(busca.candidatos, base.tamanho(), busca.filtro));
+    }
+
+    /**
+     * Busca com {@code "limit"} (e {@code "offset"} opcional): os resultados vêm ordenados por
+     * relevância e só a página pedida é enviada; o "total" continua sendo a quantidade de
+     * artigos encontrados.
+     */
+    private CompletableFuture<Void> processarRanking(RequisicaoShard requisicao, List<String> termos,
+                                                     SaidaBusca saida) {
+        String query = requisicao.getQuery();
+        int deslocamento = Math.max(0, requisicao.getDeslocamento());
+        LOG.info("{} - Processando busca ordenada: {} (offset {}, limit {})", nomeServidor,
+                termos.isEmpty() ? query : termos, deslocamento, requisicao.getLimite());
+        // O Servidor A já limita a página; aqui só não pode passar do int (o TopK fica com os encontrados)
+        int k = (int) Math.min((long) deslocamento + requisicao.getLimite(), Integer.MAX_VALUE);
+        CorpusVivo base = this.base;
+
+        CompletableFuture<Ranking> busca = cacheRanking.obter(k + "\u0000" + chaveCache(base, query, termos),
+                () -> encontrarNoExecutor(base, query, termos)
+                        .thenApplyAsync(encontrados -> ranquear(base, query, termos, encontrados, k), executorService));
+
+        return busca.thenAcceptAsync(ranking -> {
+            List<Resultado> pagina = ranking.resultados.subList(
+                    Math.min(deslocamento, ranking.resultados.size()), ranking.resultados.size());
+            long inicio = System.nanoTime();
+            saida.resposta(requisicao.getId(), nomeServidor, base.getVersao(), ranking.total, pagina);
+            latenciaSerializacao.registrarDesde(inicio);
+
+            LOG.info("{} - Busca ordenada concluída: {} resultados, {} enviados", nomeServidor,
+                    ranking.total, pagina.size());
+        }, executorService);
+    }
+
+    /**
+     * Retorna os {@code k} mais relevantes dos artigos encontrados para a query (ou os termos), em ordem.
+     * Só desses K são montados resultados; os demais artigos encontrados são apenas contados.
+     */
+    private Ranking ranquear(CorpusVivo base, String query, List<String> termos, int[] encontrados, int k) {
+        // Uma consulta pontua pelos textos que procura (os que estão sob NOT não contam)
+        boolean consulta = ehConsulta(query, termos);
+        List<String> textos = consulta ? Consulta.interpretar(query, algoritmoBusca).getTextosPositivos()
+                : termos.isEmpty() ? List.of(CorpusArtigos.normalizar(query)) : termos;
+
+        // IDF de cada termo: com um termo a frequência é exata (os próprios encontrados); com vários,
+        // ou em uma consulta, usa a quantidade de candidatos do índice para o termo, uma estimativa por cima
+        PadraoCompilado[] padroes = new PadraoCompilado[textos.size()];
+        double[] idfs = new double[textos.size()];
+        for (int i = 0; i < textos.size(); i++) {
+            padroes[i] = algoritmoBusca.compilar(textos.get(i));
+            int frequencia = encontrados.length;
+            if (textos.size() > 1 || consulta) {
+                int[] candidatos = base.candidatos(textos.get(i));
+                frequencia = candidatos == null ? base.ativos() : Math.min(candidatos.length, base.ativos());
+            }
+            idfs[i] = Relevancia.idf(base.ativos(), frequencia);
+        }
+
+        TopK melhores = new TopK(Math.min(k, encontrados.length));
+        for (int id : encontrados) {
+            melhores.adicionar(id, base.pontuar(id, padroes, idfs));
+        }
+
+        double[] pontuacoes = new double[melhores.tamanho()];
+        int[] ordenados = melhores.ordenar(pontuacoes);
+        List<Resultado> resultados = new ArrayList<>(ordenados.length);
+        for (int i = 0; i < ordenados.length; i++) {
+            resultados.add(criarResultado(base, ordenados[i], pontuacoes[i]));
+        }
+
+        return new Ranking(Collections.unmodifiableList(resultados), encontrados.length);
+    }
+
+    /**
+     * Modo de transmissão ({@code "stream": true}): os resultados são enviados em mensagens
+     * {@code "tipo": "PARCIAL"} à medida que cada bloco de artigos é verificado, e uma
+     * mensagem {@code "tipo": "FIM"} com o total encerra a resposta. Todas levam o mesmo "id".
+     */
+    private CompletableFuture<Void> transmitirRequisicao(RequisicaoShard requisicao, List<String> termos,
+                                                         SaidaBusca saida) {
+        long id = requisicao.getId();
+        String query = requisicao.getQuery();
+        LOG.info("{} - Transmitindo busca: {}", nomeServidor, termos.isEmpty() ? query : termos);
+
+        return CompletableFuture.runAsync(() -> {
+            CorpusVivo base = this.base;
+            String chave = chaveCache(base, query, termos);
+            List<Resultado> guardados = cache.obterGuardado(chave);
+            List<Resultado> resultados = new ArrayList<>();
+
             try {
-                socket.close();
-            } catch (IOException e) {
-                System.err.println(nomeServidor + " - Erro ao fechar conexão: " + e.getMessage());
+                if (guardados != null) {
+                    resultados = guardados;
+                    enviarParciais(id, guardados, saida);
+                } else if (ehConsulta(query, termos)) {
+                    // Os mapas de bits de uma consulta só ficam prontos no fim da avaliação
+                    long inicioBusca = System.nanoTime();
+                    resultados = criarResultados(base,
+                            base.consultar(Consulta.interpretar(query, algoritmoBusca), buscaParalela));
+                    latenciaBusca.registrarDesde(inicioBusca);
+                    enviarParciais(id, resultados, saida);
+                    cache.guardar(chave, resultados);
+                } else {
+                    // Verifica os artigos em blocos e envia os resultados de cada bloco assim que ficam prontos;
+                    // a latência da busca inclui o envio dos blocos, que acontece no meio dela
+                    long inicioBusca = System.nanoTime();
+                    BuscaPreparada busca = termos.isEmpty() ? preparar(base, query) : prepararTermos(base, termos);
+                    int quantidade = busca.candidatos == null ? base.tamanho() : busca.candidatos.length;
+
+                    for (int inicio = 0; inicio < quantidade; inicio += BLOCO_TRANSMISSAO) {
+                        int fim = Math.min(quantidade, inicio + BLOCO_TRANSMISSAO);
+                        List<Resultado> bloco = criarResultados(base,
+                                buscaParalela.filtrar(busca.candidatos, inicio, fim, busca.filtro));
+                        enviarParciais(id, bloco, saida);
+                        resultados.addAll(bloco);
+                    }
+
+                    cache.guardar(chave, Collections.unmodifiableList(resultados));
+                    latenciaBusca.registrarDesde(inicioBusca);
+                }
+            } catch (RuntimeException e) {
+                erros.increment();
+                System.err.println(nomeServidor + " - Erro ao transmitir busca: " + e.getMessage());
+                saida.fim(id, nomeServidor, base.getVersao(), 0, String.valueOf(e.getMessage()));
+                return;
             }
+
+            saida.fim(id, nomeServidor, base.getVersao(), resultados.size(), null);
+            LOG.info("{} - Transmissão concluída: {} resultados", nomeServidor, resultados.size());
+        }, executorService);
+    }
+
+    /**
+     * Envia os resultados em mensagens de no máximo {@value #RESULTADOS_POR_MENSAGEM} resultados.
+     */
+    private void enviarParciais(long id, List<Resultado> resultados, SaidaBusca saida) {
+        for (int inicio = 0; inicio < resultados.size(); inicio += RESULTADOS_POR_MENSAGEM) {
+            saida.parcial(id, nomeServidor,
+                    resultados.subList(inicio, Math.min(resultados.size(), inicio + RESULTADOS_POR_MENSAGEM)));
         }
     }
 
-    private List<JSONObject> buscar(String query) {
-        List<JSONObject> resultados = new ArrayList<>();
-        String queryLower = query.toLowerCase();
+    /**
+     * Chave do cache: a versão dos artigos e a chave da query ({@link Consulta#chaveCache}) ou, para buscas
+     * por termos, os termos separados por um caractere que não aparece em queries digitadas, para que os
+     * casos não se confundam.
+     */
+    private static String chaveCache(CorpusVivo base, String query, List<String> termos) {
+        String busca = termos.isEmpty() ? Consulta.chaveCache(query) : "\u0000" + String.join("\u0000", termos);
+        return base.getVersao() + "\u0000" + busca;
+    }
+
+    /**
+     * Indica se a busca é uma {@link Consulta} com operadores (os termos, quando há, são sempre textos literais).
+     */
+    private static boolean ehConsulta(String query, List<String> termos) {
+        return termos.isEmpty() && Consulta.ehExpressao(query);
+    }
+
+    /**
+     * Busca uma query sozinha, sem lote nem cache (benchmarks).
+     */
+    List<Resultado> buscar(String query) {
+        CorpusVivo base = this.base;
+        BuscaPreparada busca = preparar(base, query);
+        return criarResultados(base, buscaParalela.filtrar(busca.candidatos, base.tamanho(), busca.filtro));
+    }
 
-        for (JSONObject artigo : dados) {
-            String titulo = artigo.optString("title", "").toLowerCase();
-            String resumo = artigo.optString("abstract", "").toLowerCase();
+    private BuscaPreparada preparar(CorpusVivo base, String query) {
+        String queryNormalizada = CorpusArtigos.normalizar(query);
 
-            // Busca usando o algoritmo Boyer-Moore
-            if (algoritmoBusca.buscar(titulo, queryLower) != -1 ||
-                    algoritmoBusca.buscar(resumo, queryLower) != -1) {
+        // O índice restringe a busca aos artigos que contêm todos os trigramas da query;
+        // para queries curtas demais ele retorna null e todos os artigos são verificados
+        return preparar(base, queryNormalizada, base.candidatos(queryNormalizada));
+    }
 
-                // Cria objeto resultado com informações relevantes
-                JSONObject resultado = new JSONObject();
-                resultado.put("title", artigo.optString("title", ""));
-                resultado.put("abstract", artigo.optString("abstract", "").substring(0,
-                        Math.min(200, artigo.optString("abstract", "").length())) + "...");
-                resultado.put("label", artigo.optString("label", ""));
-                resultado.put("servidor", nomeServidor);
+    private BuscaPreparada preparar(CorpusVivo base, String queryNormalizada, int[] candidatos) {
+        // Confirma os candidatos com o algoritmo escolhido para o tamanho da query, sobre as colunas
+        // normalizadas, em paralelo quando são muitos; o padrão é compilado uma única vez para todos os artigos
+        PadraoCompilado padrao = algoritmoBusca.compilar(queryNormalizada);
+        return new BuscaPreparada(candidatos, id -> base.contem(id, padrao));
+    }
 
-                resultados.add(resultado);
+    /**
+     * Normaliza os termos da requisição: a busca retorna os artigos que contêm todos eles.
+     * Os termos voltam sem vazios nem repetidos.
+     */
+    private static List<String> normalizarTermos(List<String> recebidos) {
+        if (recebidos.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> termos = new LinkedHashSet<>();
+        for (String recebido : recebidos) {
+            String termo = CorpusArtigos.normalizar(recebido);
+            if (!termo.isEmpty()) {
+                termos.add(termo);
             }
         }
+        if (termos.size() > AhoCorasick.MAXIMO_PADROES) {
+            throw new IllegalArgumentException("no máximo " + AhoCorasick.MAXIMO_PADROES + " termos por busca");
+        }
+        return new ArrayList<>(termos);
+    }
+
+    /**
+     * Os artigos que contêm todos os termos, cada um no título ou no resumo.
+     */
+    private BuscaPreparada prepararTermos(CorpusVivo base, List<String> termos) {
+        if (termos.size() == 1) {
+            return preparar(base, termos.get(0));
+        }
+
+        // Só podem conter todos os termos os artigos candidatos para cada um deles
+        int[] candidatos = null;
+        for (String termo : termos) {
+            candidatos = interseccionar(candidatos, base.candidatos(termo));
+        }
 
-        return resultados;
+        // Vários termos: um autômato Aho-Corasick lê cada coluna uma única vez para todos eles
+        AhoCorasick.Automato automato = ahoCorasick.compilar(termos);
+        return new BuscaPreparada(candidatos, id -> base.contemTodos(id, automato));
     }
 
-    public void parar() {
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
+    /**
+     * Interseção de duas listas ordenadas de candidatos, em que null representa todos os artigos.
+     */
+    private static int[] interseccionar(int[] a, int[] b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+
+        int[] resultado = new int[Math.min(a.length, b.length)];
+        int tamanho = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultado[tamanho++] = a[i];
+                i++;
+                j++;
             }
-            executorService.shutdown();
-        } catch (IOException e) {
-            System.err.println("Erro ao parar servidor: " + e.getMessage());
         }
+        return Arrays.copyOf(resultado, tamanho);
+    }
+
+    private List<Resultado> criarResultados(CorpusVivo base, int[] encontrados) {
+        List<Resultado> resultados = new ArrayList<>(encontrados.length);
+        for (int id : encontrados) {
+            resultados.add(criarResultado(base, id, Double.NaN));
+        }
+
+        // A lista pode ficar no cache e ser compartilhada entre respostas
+        return Collections.unmodifiableList(resultados);
+    }
+
+    private Resultado criarResultado(CorpusVivo base, int id, double pontuacao) {
+        // Os campos do artigo já estão em JSON desde que ele foi carregado: o resultado só aponta para eles
+        return base.resultado(id, nomeServidor, pontuacao);
+    }
+
+    /**
+     * Os K resultados mais relevantes, em ordem, e o total de artigos encontrados.
+     */
+    static class Ranking {
+        private final List<Resultado> resultados;
+        private final int total;
+
+        Ranking(List<Resultado> resultados, int total) {
+            this.resultados = resultados;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Artigos a verificar (null para todos) e a verificação de cada um.
+     */
+    private static class BuscaPreparada {
+        private final int[] candidatos;
+        private final IntPredicate filtro;
+
+        BuscaPreparada(int[] candidatos, IntPredicate filtro) {
+            this.candidatos = candidatos;
+            this.filtro = filtro;
+        }
+    }
+
+    public void parar() {
+        if (frente != null) {
+            frente.parar();
+        }
+        if (portaMetricas != null) {
+            portaMetricas.close();
+        }
+        executorService.shutdown();
+        buscaParalela.encerrar();
+        System.out.println(nomeServidor + " - " + cache.resumo());
+        System.out.println(nomeServidor + " - ordenadas " + cacheRanking.resumo());
+        System.out.println(nomeServidor + " - " + admissao.resumo());
     }
 }
\ No newline at end of file
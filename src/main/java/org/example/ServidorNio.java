@@ -0,0 +1,484 @@
+package org.example;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Frente de servidor não bloqueante, baseada em {@link ServerSocketChannel} e {@link Selector}.
+ *
+ * Um número fixo de laços de eventos (propriedade {@code servidor.lacosEventos},
+ * padrão igual ao número de processadores) atende todas as conexões. Cada laço
+ * tem um único buffer direto de leitura; uma conexão só guarda bytes próprios
+ * quando uma linha chega partida entre duas leituras. Assim o consumo de memória
+ * e de threads não cresce com o número de clientes conectados.
+ *
+ * As linhas são entregues ao {@link TratadorLinhas} na thread do laço, e as
+ * respostas podem ser enviadas de qualquer thread: elas entram na fila do laço
+ * e são gravadas por ele com escrita agrupada. Conexões que começam pelo
+ * preâmbulo do {@link ProtocoloBinario} trocam quadros com o {@link TratadorQuadros}
+ * da mesma forma.
+ *
+ * Um cliente que envia requisições sem ler as respostas faria a fila de escrita da conexão
+ * crescer sem limite. Quando ela passa de {@code servidor.limiteFilaEscrita} bytes (padrão
+ * 4 MB), o laço para de ler a conexão (tira OP_READ) e só volta a ler quando a fila cai para
+ * a metade disso: o cliente passa a sentir o controle de fluxo do TCP no envio.
+ *
+ * Conexões abertas custam só memória, então o limite padrão de {@code servidor.maxConexoes}
+ * é bem maior que no modo bloqueante ({@value #MAX_CONEXOES_PADRAO}).
+ */
+public class ServidorNio implements FrenteServidor {
+
+    private static final int TAMANHO_BUFFER_LEITURA = 64 * 1024;
+    private static final int TAMANHO_MAXIMO_LINHA = 16 * 1024 * 1024;
+    private static final int BACKLOG = 1024;
+    private static final int LIMITE_FILA_ESCRITA = Integer.getInteger("servidor.limiteFilaEscrita", 4 * 1024 * 1024);
+    static final int MAX_CONEXOES_PADRAO = 16384;
+
+    private final String nome;
+    private final int porta;
+    private final TratadorLinhas tratador;
+    private final TratadorQuadros tratadorQuadros;
+    private final int numeroLacos;
+    private final Semaphore vagasConexoes = new Semaphore(FrenteServidor.maxConexoes(MAX_CONEXOES_PADRAO));
+    private final LongAdder conexoesAceitas;
+    private final LongAdder conexoesEncerradas = new LongAdder();
+    private final HistogramaLatencia latenciaAceite;
+    private volatile boolean ativo = true;
+    private ServerSocketChannel canalServidor;
+    private LacoEventos[] lacos;
+
+    public ServidorNio(String nome, int porta, TratadorLinhas tratador) {
+        this(nome, porta, tratador, null, new Metricas(nome));
+    }
+
+    /**
+     * @param tratadorQuadros Tratador das conexões binárias, ou null para aceitar só texto
+     * @param metricas Onde registrar as conexões aceitas e a espera por vaga
+     */
+    public ServidorNio(String nome, int porta, TratadorLinhas tratador, TratadorQuadros tratadorQuadros,
+                       Metricas metricas) {
+        this.nome = nome;
+        this.porta = porta;
+        this.tratador = tratador;
+        this.tratadorQuadros = tratadorQuadros;
+        this.numeroLacos = Integer.getInteger("servidor.lacosEventos", Runtime.getRuntime().availableProcessors());
+        this.conexoesAceitas = metricas.contador("conexoes");
+        this.latenciaAceite = metricas.latencia("aceite");
+        metricas.medidor("conexoes_abertas", () -> conexoesAceitas.sum() - conexoesEncerradas.sum());
+    }
+
+    @Override
+    public void iniciar() throws IOException {
+        lacos = new LacoEventos[numeroLacos];
+        for (int i = 0; i < numeroLacos; i++) {
+            lacos[i] = new LacoEventos();
+            Thread thread = new Thread(lacos[i], nome + "-laco-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        canalServidor = ServerSocketChannel.open();
+        canalServidor.bind(new InetSocketAddress(porta), BACKLOG);
+        System.out.println(nome + " iniciado na porta " + porta + " (modo NIO, " + numeroLacos + " laços de eventos)");
+
+        // A thread chamadora só aceita conexões e as distribui entre os laços em rodízio
+        int proximo = 0;
+        while (ativo) {
+            // No limite de conexões, espera uma encerrar antes de aceitar outra
+            long inicioEspera = System.nanoTime();
+            vagasConexoes.acquireUninterruptibly();
+            latenciaAceite.registrarDesde(inicioEspera);
+            SocketChannel canal;
+            try {
+                canal = canalServidor.accept();
+            } catch (IOException e) {
+                vagasConexoes.release();
+                if (e instanceof ClosedChannelException) {
+                    break;
+                }
+                throw e;
+            }
+            conexoesAceitas.increment();
+            try {
+                canal.configureBlocking(false);
+                canal.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                // O cliente pode ter desistido logo após conectar: descarta só esta conexão
+                System.err.println(nome + " - Erro ao configurar conexão: " + e.getMessage());
+                try {
+                    canal.close();
+                } catch (IOException fechamento) {
+                    System.err.println(nome + " - Erro ao fechar conexão: " + fechamento.getMessage());
+                }
+                encerrarConexao();
+                continue;
+            }
+            lacos[proximo].registrar(canal);
+            proximo = (proximo + 1) % numeroLacos;
+        }
+    }
+
+    /**
+     * Libera a vaga de uma conexão aceita que foi encerrada.
+     */
+    private void encerrarConexao() {
+        conexoesEncerradas.increment();
+        vagasConexoes.release();
+    }
+
+    @Override
+    public void parar() {
+        ativo = false;
+        try {
+            if (canalServidor != null) {
+                canalServidor.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao parar " + nome + ": " + e.getMessage());
+        }
+        if (lacos != null) {
+            for (LacoEventos laco : lacos) {
+                laco.seletor.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Laço de eventos: um Selector, uma thread e uma fila de tarefas vindas de outras threads.
+     */
+    private final class LacoEventos implements Runnable {
+        private final Selector seletor;
+        private final ByteBuffer leitura = ByteBuffer.allocateDirect(TAMANHO_BUFFER_LEITURA);
+        private final ConcurrentLinkedQueue<Runnable> tarefas = new ConcurrentLinkedQueue<>();
+
+        LacoEventos() throws IOException {
+            this.seletor = Selector.open();
+        }
+
+        void executar(Runnable tarefa) {
+            tarefas.add(tarefa);
+            seletor.wakeup();
+        }
+
+        void registrar(SocketChannel canal) {
+            executar(() -> {
+                try {
+                    SelectionKey chave = canal.register(seletor, SelectionKey.OP_READ);
+                    chave.attach(new ConexaoNio(this, canal, chave));
+                } catch (ClosedChannelException e) {
+                    // O cliente desistiu antes do registro
+                    encerrarConexao();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (ativo) {
+                    seletor.select();
+
+                    Runnable tarefa;
+                    while ((tarefa = tarefas.poll()) != null) {
+                        tarefa.run();
+                    }
+
+                    Iterator<SelectionKey> chaves = seletor.selectedKeys().iterator();
+                    while (chaves.hasNext()) {
+                        SelectionKey chave = chaves.next();
+                        chaves.remove();
+                        ConexaoNio conexao = (ConexaoNio) chave.attachment();
+
+                        try {
+                            if (chave.isValid() && chave.isReadable()) {
+                                conexao.ler();
+                            }
+                            if (chave.isValid() && chave.isWritable()) {
+                                conexao.escrever();
+                            }
+                        } catch (IOException | CancelledKeyException e) {
+                            conexao.fechar();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println(nome + " - Erro no laço de eventos: " + e.getMessage());
+            } finally {
+                for (SelectionKey chave : seletor.keys()) {
+                    ((ConexaoNio) chave.attachment()).fechar();
+                }
+                try {
+                    seletor.close();
+                } catch (IOException e) {
+                    System.err.println(nome + " - Erro ao fechar seletor: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Estado de uma conexão. Só é acessado pela thread do seu laço de eventos.
+     */
+    private final class ConexaoNio {
+        private final LacoEventos laco;
+        private final SocketChannel canal;
+        private final SelectionKey chave;
+        private final ArrayDeque<ByteBuffer> filaEscrita = new ArrayDeque<>();
+        private long bytesNaFila;
+        private boolean leituraSuspensa;
+        private byte[] parcial;
+        private int tamanhoParcial;
+        private int pendentes;
+        private boolean fimEntrada;
+        private Boolean binaria; // null até o primeiro byte chegar
+        private boolean preambuloLido;
+        private boolean fechada;
+
+        ConexaoNio(LacoEventos laco, SocketChannel canal, SelectionKey chave) {
+            this.laco = laco;
+            this.canal = canal;
+            this.chave = chave;
+        }
+
+        void ler() throws IOException {
+            ByteBuffer buffer = laco.leitura;
+            buffer.clear();
+
+            if (canal.read(buffer) < 0) {
+                // O cliente encerrou o envio: fecha depois de responder o que falta
+                fimEntrada = true;
+                chave.interestOps(chave.interestOps() & ~SelectionKey.OP_READ);
+                fecharSeConcluida();
+                return;
+            }
+            buffer.flip();
+
+            if (binaria == null && buffer.hasRemaining()) {
+                // O primeiro byte decide o protocolo: zero só pode ser o preâmbulo binário
+                binaria = buffer.get(0) == 0;
+            }
+            if (Boolean.TRUE.equals(binaria)) {
+                lerQuadros(buffer);
+                return;
+            }
+
+            int inicioLinha = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    entregarLinha(buffer, inicioLinha, i);
+                    inicioLinha = i + 1;
+                }
+            }
+
+            // Guarda o início de uma linha que ainda não terminou
+            int resto = buffer.limit() - inicioLinha;
+            if (resto > 0) {
+                if (tamanhoParcial + resto > TAMANHO_MAXIMO_LINHA) {
+                    throw new IOException("Linha excede o tamanho máximo");
+                }
+                guardarParcial(buffer, inicioLinha, resto);
+            }
+        }
+
+        private void guardarParcial(ByteBuffer buffer, int inicio, int quantidade) {
+            if (parcial == null || tamanhoParcial + quantidade > parcial.length) {
+                parcial = Arrays.copyOf(parcial == null ? new byte[0] : parcial,
+                        Math.max(tamanhoParcial + quantidade, tamanhoParcial * 2));
+            }
+            buffer.get(inicio, parcial, tamanhoParcial, quantidade);
+            tamanhoParcial += quantidade;
+        }
+
+        /**
+         * Separa os quadros do protocolo binário. Enquanto nada sobra de leituras anteriores,
+         * os quadros são lidos direto do buffer do laço; só um quadro incompleto é copiado.
+         */
+        private void lerQuadros(ByteBuffer buffer) throws IOException {
+            ByteBuffer dados = buffer;
+            if (tamanhoParcial > 0) {
+                guardarParcial(buffer, 0, buffer.limit());
+                dados = ByteBuffer.wrap(parcial, 0, tamanhoParcial);
+            }
+
+            if (!preambuloLido) {
+                if (dados.remaining() < ProtocoloBinario.PREAMBULO.length) {
+                    guardarResto(dados);
+                    return;
+                }
+                byte[] preambulo = new byte[ProtocoloBinario.PREAMBULO.length];
+                dados.get(preambulo);
+                if (tratadorQuadros == null || !Arrays.equals(preambulo, ProtocoloBinario.PREAMBULO)) {
+                    throw new IOException("Protocolo binário recusado");
+                }
+                preambuloLido = true;
+                enfileirar(ByteBuffer.wrap(ProtocoloBinario.PREAMBULO));
+            }
+
+            while (dados.remaining() >= 4) {
+                int tamanho = dados.getInt(dados.position());
+                if (tamanho < 0 || tamanho > ProtocoloBinario.TAMANHO_MAXIMO_QUADRO) {
+                    throw new IOException("Tamanho de quadro inválido: " + tamanho);
+                }
+                if (dados.remaining() < 4 + tamanho) {
+                    break;
+                }
+                byte[] quadro = new byte[tamanho];
+                dados.position(dados.position() + 4);
+                dados.get(quadro);
+                entregarQuadro(ByteBuffer.wrap(quadro));
+            }
+
+            guardarResto(dados);
+        }
+
+        private void guardarResto(ByteBuffer dados) {
+            int resto = dados.remaining();
+            if (dados.hasArray() && dados.array() == parcial) {
+                // Os dados já estão no buffer parcial: move o resto para o início
+                System.arraycopy(parcial, dados.position(), parcial, 0, resto);
+                tamanhoParcial = resto;
+            } else if (resto > 0) {
+                guardarParcial(dados, dados.position(), resto);
+            }
+            if (tamanhoParcial == 0 && parcial != null && parcial.length > TAMANHO_BUFFER_LEITURA) {
+                parcial = null; // Não mantém buffers grandes em conexões ociosas
+            }
+        }
+
+        private void entregarQuadro(ByteBuffer quadro) throws IOException {
+            pendentes++;
+            CompletableFuture<Void> tarefa;
+            try {
+                tarefa = tratadorQuadros.tratar(quadro, resposta -> laco.executar(() -> enfileirar(resposta)));
+            } catch (IllegalArgumentException e) {
+                pendentes--;
+                throw new IOException("Requisição sem resposta possível: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                System.err.println(nome + " - Erro ao tratar requisição: " + e.getMessage());
+                tarefa = CompletableFuture.completedFuture(null);
+            }
+            concluirAoTerminar(tarefa);
+        }
+
+        private void entregarLinha(ByteBuffer buffer, int inicio, int fim) throws IOException {
+            byte[] bytes = new byte[tamanhoParcial + (fim - inicio)];
+            if (tamanhoParcial > 0) {
+                System.arraycopy(parcial, 0, bytes, 0, tamanhoParcial);
+            }
+            buffer.get(inicio, bytes, tamanhoParcial, fim - inicio);
+            tamanhoParcial = 0;
+            if (parcial != null && parcial.length > TAMANHO_BUFFER_LEITURA) {
+                parcial = null; // Não mantém buffers grandes em conexões ociosas
+            }
+
+            int comprimento = bytes.length;
+            if (comprimento > 0 && bytes[comprimento - 1] == '\r') {
+                comprimento--;
+            }
+            String linha = new String(bytes, 0, comprimento, StandardCharsets.UTF_8);
+
+            pendentes++;
+            CompletableFuture<Void> tarefa;
+            try {
+                tarefa = tratador.tratar(linha, this::enviar);
+            } catch (IllegalArgumentException e) {
+                pendentes--;
+                throw new IOException("Requisição sem resposta possível: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                System.err.println(nome + " - Erro ao tratar requisição: " + e.getMessage());
+                tarefa = CompletableFuture.completedFuture(null);
+            }
+            concluirAoTerminar(tarefa);
+        }
+
+        private void concluirAoTerminar(CompletableFuture<Void> tarefa) {
+            tarefa.whenComplete((r, e) -> laco.executar(() -> {
+                pendentes--;
+                fecharSeConcluida();
+            }));
+        }
+
+        /**
+         * Chamado pelo tratador, possivelmente de outra thread.
+         */
+        private void enviar(String linha) {
+            byte[] bytes = (linha + "\n").getBytes(StandardCharsets.UTF_8);
+            laco.executar(() -> enfileirar(ByteBuffer.wrap(bytes)));
+        }
+
+        private void enfileirar(ByteBuffer bytes) {
+            if (!chave.isValid()) {
+                return;
+            }
+            filaEscrita.add(bytes);
+            bytesNaFila += bytes.remaining();
+            try {
+                escrever();
+            } catch (IOException e) {
+                fechar();
+            }
+        }
+
+        void escrever() throws IOException {
+            if (!filaEscrita.isEmpty()) {
+                // Escrita agrupada de todas as respostas enfileiradas
+                bytesNaFila -= canal.write(filaEscrita.toArray(new ByteBuffer[0]));
+                while (!filaEscrita.isEmpty() && !filaEscrita.peek().hasRemaining()) {
+                    filaEscrita.poll();
+                }
+            }
+            controlarLeitura();
+
+            if (filaEscrita.isEmpty()) {
+                chave.interestOps(chave.interestOps() & ~SelectionKey.OP_WRITE);
+                fecharSeConcluida();
+            } else {
+                // O buffer do socket encheu: continua quando ele puder receber mais
+                chave.interestOps(chave.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * Para de ler acima do limite da fila de escrita e volta a ler quando ela cai para a metade.
+         */
+        private void controlarLeitura() {
+            if (!leituraSuspensa && bytesNaFila > LIMITE_FILA_ESCRITA) {
+                leituraSuspensa = true;
+                chave.interestOps(chave.interestOps() & ~SelectionKey.OP_READ);
+            } else if (leituraSuspensa && bytesNaFila <= LIMITE_FILA_ESCRITA / 2) {
+                leituraSuspensa = false;
+                if (!fimEntrada) {
+                    chave.interestOps(chave.interestOps() | SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        private void fecharSeConcluida() {
+            if (fimEntrada && pendentes == 0 && filaEscrita.isEmpty()) {
+                fechar();
+            }
+        }
+
+        void fechar() {
+            if (fechada) {
+                return;
+            }
+            fechada = true;
+            encerrarConexao();
+            chave.cancel();
+            filaEscrita.clear();
+            bytesNaFila = 0;
+            try {
+                canal.close();
+            } catch (IOException e) {
+                System.err.println(nome + " - Erro ao fechar conexão: " + e.getMessage());
+            }
+        }
+    }
+}
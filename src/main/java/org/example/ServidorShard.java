@@ -0,0 +1,31 @@
+package org.example;
+
+/**
+ * Servidor de busca genérico, configurado na inicialização em vez de por subclasse.
+ *
+ * <ul>
+ *   <li>{@code shard.id} - número do shard (padrão 0), usado no nome do servidor</li>
+ *   <li>{@code shard.porta} - porta atendida (padrão 8081 + id)</li>
+ *   <li>{@code shard.dados} - arquivo de artigos (padrão {@code dados_shard_<id>.json},
+ *       o nome gerado pelo {@link ParticionadorCorpus})</li>
+ * </ul>
+ */
+public class ServidorShard extends ServidorBusca {
+
+    public ServidorShard(int id, int porta, String arquivoDados) {
+        super(porta, "Shard " + id, arquivoDados);
+    }
+
+    public static void main(String[] args) {
+        int id = Integer.getInteger("shard.id", 0);
+        int porta = Integer.getInteger("shard.porta", 8081 + id);
+        String arquivoDados = System.getProperty("shard.dados", "dados_shard_" + id + ".json");
+
+        ServidorShard servidor = new ServidorShard(id, porta, arquivoDados);
+
+        // Adiciona shutdown hook para parar o servidor graciosamente
+        Runtime.getRuntime().addShutdownHook(new Thread(servidor::parar));
+
+        servidor.iniciar();
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Implementação do algoritmo Shift-Or (Baeza-Yates–Gonnet) para busca de padrões em strings.
+ *
+ * O estado de todos os prefixos do padrão que casam com o texto fica nos bits de um
+ * único {@code long}, atualizado com um deslocamento e um OR por caractere, sem desvios
+ * que dependam dos dados. É a melhor escolha para padrões curtos (os termos de 2 a 4
+ * caracteres comuns nas buscas), em que as heurísticas de salto do Boyer-Moore quase
+ * não ajudam.
+ *
+ * Padrões com mais de {@value #TAMANHO_MAXIMO} caracteres não cabem em um {@code long}
+ * e são delegados ao {@link BoyerMoore}.
+ */
+public class ShiftOr implements AlgoritmoBusca {
+
+    public static final int TAMANHO_MAXIMO = Long.SIZE;
+
+    private static final int NO_OF_CHARS = 256;
+
+    @Override
+    public int buscar(String texto, String padrao) {
+        return buscar(texto, 0, texto.length(), padrao);
+    }
+
+    @Override
+    public int buscar(CharSequence texto, int inicio, int fim, String padrao) {
+        return compilar(padrao).buscar(texto, inicio, fim);
+    }
+
+    @Override
+    public PadraoCompilado compilar(String padrao) {
+        if (padrao.length() > TAMANHO_MAXIMO) {
+            return new BoyerMoore().compilar(padrao);
+        }
+        return new PadraoShiftOr(padrao);
+    }
+
+    @Override
+    public List<Integer> buscarTodos(String texto, String padrao) {
+        return buscarTodos(compilar(padrao), texto, padrao.length());
+    }
+
+    /**
+     * Lista todas as ocorrências (inclusive sobrepostas) buscando a partir da posição seguinte a cada uma.
+     */
+    static List<Integer> buscarTodos(PadraoCompilado padrao, String texto, int tamanhoPadrao) {
+        List<Integer> posicoes = new ArrayList<>();
+        if (tamanhoPadrao == 0) {
+            return posicoes;
+        }
+
+        int posicao = padrao.buscar(texto, 0, texto.length());
+        while (posicao != -1) {
+            posicoes.add(posicao);
+            posicao = padrao.buscar(texto, posicao + 1, texto.length());
+        }
+        return posicoes;
+    }
+
+    /**
+     * Padrão com as máscaras de bits já calculadas.
+     *
+     * Assim como no {@link BoyerMoore}, as máscaras são indexadas pelo byte menos
+     * significativo do caractere; caracteres fora do Latin-1 podem gerar candidatos
+     * falsos, que são descartados comparando o padrão na posição encontrada.
+     */
+    private static final class PadraoShiftOr implements PadraoCompilado {
+        private final String padrao;
+        private final long[] mascaras = new long[NO_OF_CHARS];
+        private final long bitFinal;
+
+        PadraoShiftOr(String padrao) {
+            this.padrao = padrao;
+            this.bitFinal = padrao.isEmpty() ? 0 : 1L << (padrao.length() - 1);
+
+            // Bit j zerado na máscara do caractere c quando padrao[j] == c
+            Arrays.fill(mascaras, ~0L);
+            for (int j = 0; j < padrao.length(); j++) {
+                mascaras[padrao.charAt(j) & (NO_OF_CHARS - 1)] &= ~(1L << j);
+            }
+        }
+
+        @Override
+        public int buscar(CharSequence texto, int inicio, int fim) {
+            int m = padrao.length();
+
+            if (m == 0 || m > fim - inicio) {
+                return -1;
+            }
+
+            long estado = ~0L;
+            for (int i = inicio; i < fim; i++) {
+                estado = (estado << 1) | mascaras[texto.charAt(i) & (NO_OF_CHARS - 1)];
+
+                // Bit m-1 zerado: os últimos m caracteres casam com o padrão
+                if ((estado & bitFinal) == 0) {
+                    int posicao = i - m + 1;
+                    if (confere(texto, posicao)) {
+                        return posicao;
+                    }
+                }
+            }
+
+            return -1;
+        }
+
+        private boolean confere(CharSequence texto, int posicao) {
+            for (int j = 0; j < padrao.length(); j++) {
+                if (texto.charAt(posicao + j) != padrao.charAt(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
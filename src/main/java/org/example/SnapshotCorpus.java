@@ -0,0 +1,335 @@
+package org.example;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Snapshot binário de um corpus já carregado, do seu índice de trigramas, dos fragmentos de
+ * resultado e dos mapas de rótulos e de artigos ativos.
+ *
+ * O arquivo guarda os buffers do {@link CorpusArtigos}, do {@link IndiceTrigramas} e dos
+ * {@link FragmentosResultado} exatamente como ficam em memória. Ao reiniciar, o servidor mapeia
+ * o arquivo com {@link FileChannel#map} e passa a servir as buscas direto das páginas mapeadas,
+ * sem interpretar o JSON nem reconstruir o índice ou os fragmentos. Os resumos continuam
+ * comprimidos ({@link ColunaComprimida}) e são lidos direto das páginas mapeadas, fora do heap.
+ * Os {@link MapaBits} são lidos para o heap com cópias em bloco, sem percorrer os artigos.
+ *
+ * Formato (little-endian):
+ * <pre>
+ * cabeçalho: magic (8 bytes) | versão (int) | total de documentos (int) | número de seções (int)
+ * tabela:    para cada seção, deslocamento (long) e tamanho em bytes (long)
+ * seções:    alinhadas em 8 bytes, na ordem de {@link #secoes()}
+ * </pre>
+ * Cada seção é mapeada separadamente, portanto nenhuma pode passar de 2 GB; a exceção são os
+ * bytes dos fragmentos, mapeados em pedaços de até 1 GB (as posições dos pedaços ficam na seção anterior).
+ */
+public final class SnapshotCorpus {
+
+    private static final byte[] MAGIC = {'A', 'R', 'X', 'I', 'V', 'S', 'N', 'P'};
+    private static final int VERSAO = 4;
+    private static final int NUMERO_SECOES = 17;
+    private static final int TAMANHO_CABECALHO = MAGIC.length + 3 * Integer.BYTES + NUMERO_SECOES * 2 * Long.BYTES;
+    private static final int SECAO_FRAGMENTOS = 14;
+    private static final int SECAO_ROTULOS = 15;
+    private static final int SECAO_ATIVOS = 16;
+    private static final int TAMANHO_BLOCO_ESCRITA = 1 << 20;
+    private static final ByteOrder ORDEM = ByteOrder.LITTLE_ENDIAN;
+
+    private final CorpusArtigos corpus;
+    private final IndiceTrigramas indice;
+    private final FragmentosResultado fragmentos;
+    private final Map<String, MapaBits> rotulos;
+    private final MapaBits ativos;
+
+    public SnapshotCorpus(CorpusArtigos corpus, IndiceTrigramas indice, FragmentosResultado fragmentos,
+                          Map<String, MapaBits> rotulos, MapaBits ativos) {
+        this.corpus = corpus;
+        this.indice = indice;
+        this.fragmentos = fragmentos;
+        this.rotulos = rotulos;
+        this.ativos = ativos;
+    }
+
+    /**
+     * Monta os fragmentos e os mapas de um corpus recém-carregado, com todos os artigos ativos.
+     */
+    public static SnapshotCorpus montar(CorpusArtigos corpus, IndiceTrigramas indice) {
+        return new SnapshotCorpus(corpus, indice, FragmentosResultado.montar(corpus),
+                CorpusVivo.indexarRotulos(corpus), MapaBits.intervalo(corpus.tamanho()));
+    }
+
+    public CorpusArtigos getCorpus() {
+        return corpus;
+    }
+
+    public IndiceTrigramas getIndice() {
+        return indice;
+    }
+
+    public FragmentosResultado getFragmentos() {
+        return fragmentos;
+    }
+
+    /**
+     * Os artigos de cada rótulo (normalizado e sem espaços nas pontas).
+     */
+    public Map<String, MapaBits> getRotulos() {
+        return rotulos;
+    }
+
+    public MapaBits getAtivos() {
+        return ativos;
+    }
+
+    /**
+     * Grava o snapshot. O arquivo é escrito em um temporário e depois renomeado,
+     * para que um servidor nunca encontre um snapshot pela metade.
+     */
+    public void salvar(Path arquivo) throws IOException {
+        List<Buffer[]> secoes = secoes();
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ORDEM);
+            cabecalho.put(MAGIC);
+            cabecalho.putInt(VERSAO);
+            cabecalho.putInt(indice.getTotalDocumentos());
+            cabecalho.putInt(NUMERO_SECOES);
+
+            long posicao = alinhar(TAMANHO_CABECALHO);
+            long[] deslocamentos = new long[NUMERO_SECOES];
+            for (int i = 0; i < NUMERO_SECOES; i++) {
+                long bytes = tamanhoEmBytes(secoes.get(i));
+                deslocamentos[i] = posicao;
+                cabecalho.putLong(posicao);
+                cabecalho.putLong(bytes);
+                posicao = alinhar(posicao + bytes);
+            }
+
+            cabecalho.flip();
+            escreverTudo(canal, cabecalho, 0);
+
+            for (int i = 0; i < NUMERO_SECOES; i++) {
+                long posicaoPedaco = deslocamentos[i];
+                for (Buffer pedaco : secoes.get(i)) {
+                    escreverSecao(canal, pedaco, posicaoPedaco);
+                    posicaoPedaco += tamanhoEmBytes(pedaco);
+                }
+            }
+            canal.force(true);
+        }
+
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Mapeia um snapshot gravado por {@link #salvar(Path)}.
+     */
+    public static SnapshotCorpus abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ORDEM);
+            while (cabecalho.hasRemaining()) {
+                if (canal.read(cabecalho, cabecalho.position()) < 0) {
+                    throw new IOException("Snapshot truncado: " + arquivo);
+                }
+            }
+            cabecalho.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+            cabecalho.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || cabecalho.getInt() != VERSAO) {
+                throw new IOException("Arquivo não é um snapshot válido: " + arquivo);
+            }
+            int totalDocumentos = cabecalho.getInt();
+            if (cabecalho.getInt() != NUMERO_SECOES) {
+                throw new IOException("Número de seções inesperado no snapshot: " + arquivo);
+            }
+
+            ByteBuffer[] secoes = new ByteBuffer[NUMERO_SECOES];
+            long deslocamentoFragmentos = 0;
+            for (int i = 0; i < NUMERO_SECOES; i++) {
+                long deslocamento = cabecalho.getLong();
+                long bytes = cabecalho.getLong();
+                if (deslocamento + bytes > canal.size()) {
+                    throw new IOException("Snapshot truncado: " + arquivo);
+                }
+                if (i == SECAO_FRAGMENTOS) {
+                    deslocamentoFragmentos = deslocamento; // Mapeada em pedaços, abaixo
+                } else {
+                    secoes[i] = canal.map(FileChannel.MapMode.READ_ONLY, deslocamento, bytes).order(ORDEM);
+                }
+            }
+
+            long[] iniciosPedacos = new long[secoes[SECAO_FRAGMENTOS - 1].remaining() / Long.BYTES];
+            secoes[SECAO_FRAGMENTOS - 1].asLongBuffer().get(iniciosPedacos);
+            ByteBuffer[] pedacos = new ByteBuffer[iniciosPedacos.length - 1];
+            for (int i = 0; i < pedacos.length; i++) {
+                pedacos[i] = canal.map(FileChannel.MapMode.READ_ONLY, deslocamentoFragmentos + iniciosPedacos[i],
+                        iniciosPedacos[i + 1] - iniciosPedacos[i]);
+            }
+
+            // O mapeamento continua válido depois que o canal é fechado
+            ColunaComprimida resumos = new ColunaComprimida(secoes[8], secoes[7].asIntBuffer(),
+                    secoes[6].asIntBuffer());
+            CorpusArtigos corpus = new CorpusArtigos(coluna(secoes, 0), resumos, coluna(secoes, 2), coluna(secoes, 4));
+            IndiceTrigramas indice = new IndiceTrigramas(secoes[9].asLongBuffer(),
+                    secoes[10].asIntBuffer(), secoes[11].asIntBuffer(), totalDocumentos);
+            FragmentosResultado fragmentos = new FragmentosResultado(pedacos, iniciosPedacos,
+                    secoes[12].asLongBuffer());
+
+            return new SnapshotCorpus(corpus, indice, fragmentos, lerRotulos(secoes[SECAO_ROTULOS]),
+                    MapaBits.ler(secoes[SECAO_ATIVOS]));
+        }
+    }
+
+    private static ColunaTexto coluna(ByteBuffer[] secoes, int primeira) {
+        return new ColunaTexto(secoes[primeira + 1].asCharBuffer(), secoes[primeira].asIntBuffer());
+    }
+
+    /**
+     * Seção dos rótulos: a quantidade (int) e, para cada rótulo, o tamanho do nome em UTF-8 (int),
+     * o nome e o mapa dos artigos dele.
+     */
+    private ByteBuffer escreverRotulos() {
+        List<byte[]> nomes = new ArrayList<>(rotulos.size());
+        long tamanho = Integer.BYTES;
+        for (Map.Entry<String, MapaBits> rotulo : rotulos.entrySet()) {
+            byte[] nome = rotulo.getKey().getBytes(StandardCharsets.UTF_8);
+            nomes.add(nome);
+            tamanho += Integer.BYTES + nome.length + rotulo.getValue().tamanhoBytes();
+        }
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Mapas de rótulos grandes demais para o snapshot: " + tamanho + " bytes");
+        }
+
+        ByteBuffer destino = ByteBuffer.allocate((int) tamanho).order(ORDEM);
+        destino.putInt(rotulos.size());
+        int i = 0;
+        for (MapaBits artigos : rotulos.values()) {
+            byte[] nome = nomes.get(i++);
+            destino.putInt(nome.length);
+            destino.put(nome);
+            artigos.escrever(destino);
+        }
+        return destino.flip();
+    }
+
+    private static Map<String, MapaBits> lerRotulos(ByteBuffer origem) {
+        int quantidade = origem.getInt();
+        Map<String, MapaBits> rotulos = new HashMap<>();
+        for (int i = 0; i < quantidade; i++) {
+            byte[] nome = new byte[origem.getInt()];
+            origem.get(nome);
+            rotulos.put(new String(nome, StandardCharsets.UTF_8), MapaBits.ler(origem));
+        }
+        return rotulos;
+    }
+
+    private static ByteBuffer escrever(MapaBits mapa) {
+        ByteBuffer destino = ByteBuffer.allocate(mapa.tamanhoBytes()).order(ORDEM);
+        mapa.escrever(destino);
+        return destino.flip();
+    }
+
+    /**
+     * Buffers gravados no snapshot, na ordem do arquivo: para cada coluna de texto, a tabela
+     * de deslocamentos seguida dos caracteres; os resumos (deslocamentos dos textos, dos blocos
+     * e os blocos comprimidos); as três partes do índice; os fragmentos (posições dos
+     * fragmentos, dos pedaços e os bytes); e os mapas dos rótulos e dos artigos ativos. Cada seção
+     * é um ou mais buffers gravados em sequência.
+     */
+    private List<Buffer[]> secoes() {
+        List<Buffer[]> secoes = new ArrayList<>(NUMERO_SECOES);
+        for (ColunaTexto coluna : Arrays.asList(corpus.getTitulos(), corpus.getRotulos(),
+                corpus.getTitulosNormalizados())) {
+            secoes.add(new Buffer[] {coluna.getInicios()});
+            secoes.add(new Buffer[] {coluna.getCaracteres()});
+        }
+        ColunaComprimida resumos = corpus.getResumos();
+        secoes.add(new Buffer[] {resumos.getInicios()});
+        secoes.add(new Buffer[] {resumos.getBlocos()});
+        secoes.add(new Buffer[] {resumos.getDados()});
+        secoes.add(new Buffer[] {indice.getChaves()});
+        secoes.add(new Buffer[] {indice.getInicios()});
+        secoes.add(new Buffer[] {indice.getPostings()});
+        secoes.add(new Buffer[] {fragmentos.getInicios()});
+        secoes.add(new Buffer[] {LongBuffer.wrap(fragmentos.getIniciosPedacos())});
+        secoes.add(fragmentos.getPedacos());
+        secoes.add(new Buffer[] {escreverRotulos()});
+        secoes.add(new Buffer[] {escrever(ativos)});
+        return secoes;
+    }
+
+    private static long tamanhoEmBytes(Buffer[] pedacos) {
+        long total = 0;
+        for (Buffer pedaco : pedacos) {
+            total += tamanhoEmBytes(pedaco);
+        }
+        return total;
+    }
+
+    private static long tamanhoEmBytes(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) {
+            return buffer.limit();
+        } else if (buffer instanceof CharBuffer) {
+            return (long) buffer.limit() * Character.BYTES;
+        } else if (buffer instanceof IntBuffer) {
+            return (long) buffer.limit() * Integer.BYTES;
+        } else {
+            return (long) buffer.limit() * Long.BYTES;
+        }
+    }
+
+    /**
+     * Converte o buffer para bytes em blocos de tamanho fixo, sem duplicar a seção inteira em memória.
+     */
+    private static void escreverSecao(FileChannel canal, Buffer secao, long posicao) throws IOException {
+        ByteBuffer bloco = ByteBuffer.allocate(TAMANHO_BLOCO_ESCRITA).order(ORDEM);
+        int total = secao.limit();
+        int copiados = 0;
+
+        while (copiados < total) {
+            bloco.clear();
+            int quantidade;
+
+            if (secao instanceof ByteBuffer) {
+                quantidade = Math.min(total - copiados, bloco.capacity());
+                bloco.put(((ByteBuffer) secao).duplicate().position(copiados).limit(copiados + quantidade));
+                bloco.flip();
+            } else if (secao instanceof CharBuffer) {
+                quantidade = Math.min(total - copiados, bloco.capacity() / Character.BYTES);
+                bloco.asCharBuffer().put(((CharBuffer) secao).duplicate().position(copiados).limit(copiados + quantidade));
+                bloco.limit(quantidade * Character.BYTES);
+            } else if (secao instanceof IntBuffer) {
+                quantidade = Math.min(total - copiados, bloco.capacity() / Integer.BYTES);
+                bloco.asIntBuffer().put(((IntBuffer) secao).duplicate().position(copiados).limit(copiados + quantidade));
+                bloco.limit(quantidade * Integer.BYTES);
+            } else {
+                quantidade = Math.min(total - copiados, bloco.capacity() / Long.BYTES);
+                bloco.asLongBuffer().put(((LongBuffer) secao).duplicate().position(copiados).limit(copiados + quantidade));
+                bloco.limit(quantidade * Long.BYTES);
+            }
+
+            posicao += escreverTudo(canal, bloco, posicao);
+            copiados += quantidade;
+        }
+    }
+
+    private static int escreverTudo(FileChannel canal, ByteBuffer bytes, long posicao) throws IOException {
+        int escritos = 0;
+        while (bytes.hasRemaining()) {
+            escritos += canal.write(bytes, posicao + escritos);
+        }
+        return escritos;
+    }
+
+    private static long alinhar(long posicao) {
+        return (posicao + 7) & ~7L;
+    }
+}
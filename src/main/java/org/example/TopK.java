@@ -0,0 +1,111 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Mantém os K artigos de maior pontuação vistos até agora, sem guardar os demais.
+ *
+ * É um heap mínimo de tamanho fixo em vetores primitivos: a raiz é o pior dos K
+ * melhores, e cada novo artigo só entra se superá-la. A memória e o custo por
+ * artigo dependem de K, não da quantidade de artigos encontrados. Em caso de empate
+ * na pontuação, o artigo de menor índice vem primeiro.
+ */
+public class TopK {
+
+    private final int capacidade;
+    private final int[] artigos;
+    private final double[] pontuacoes;
+    private int tamanho;
+
+    public TopK(int capacidade) {
+        this.capacidade = capacidade;
+        this.artigos = new int[capacidade];
+        this.pontuacoes = new double[capacidade];
+    }
+
+    public void adicionar(int artigo, double pontuacao) {
+        if (tamanho < capacidade) {
+            artigos[tamanho] = artigo;
+            pontuacoes[tamanho] = pontuacao;
+            subir(tamanho++);
+        } else if (capacidade > 0 && melhor(artigo, pontuacao, artigos[0], pontuacoes[0])) {
+            artigos[0] = artigo;
+            pontuacoes[0] = pontuacao;
+            descer(0);
+        }
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Retorna os artigos guardados, do mais para o menos relevante, com as pontuações
+     * na mesma ordem em {@code pontuacoesOrdenadas} (que deve ter pelo menos {@link #tamanho()} posições).
+     * Esvazia o heap.
+     */
+    public int[] ordenar(double[] pontuacoesOrdenadas) {
+        int[] ordenados = new int[tamanho];
+
+        // Retira sempre a raiz (o pior restante), preenchendo o resultado de trás para frente
+        for (int i = tamanho - 1; i >= 0; i--) {
+            ordenados[i] = artigos[0];
+            pontuacoesOrdenadas[i] = pontuacoes[0];
+            tamanho--;
+            artigos[0] = artigos[tamanho];
+            pontuacoes[0] = pontuacoes[tamanho];
+            descer(0);
+        }
+
+        return ordenados;
+    }
+
+    private static boolean melhor(int artigoA, double pontuacaoA, int artigoB, double pontuacaoB) {
+        int comparacao = Double.compare(pontuacaoA, pontuacaoB);
+        return comparacao > 0 || (comparacao == 0 && artigoA < artigoB);
+    }
+
+    private void subir(int posicao) {
+        while (posicao > 0) {
+            int pai = (posicao - 1) >>> 1;
+            if (!melhor(artigos[pai], pontuacoes[pai], artigos[posicao], pontuacoes[posicao])) {
+                return;
+            }
+            trocar(pai, posicao);
+            posicao = pai;
+        }
+    }
+
+    private void descer(int posicao) {
+        while (true) {
+            int pior = posicao;
+            int esquerdo = 2 * posicao + 1;
+            int direito = esquerdo + 1;
+            if (esquerdo < tamanho && melhor(artigos[pior], pontuacoes[pior], artigos[esquerdo], pontuacoes[esquerdo])) {
+                pior = esquerdo;
+            }
+            if (direito < tamanho && melhor(artigos[pior], pontuacoes[pior], artigos[direito], pontuacoes[direito])) {
+                pior = direito;
+            }
+            if (pior == posicao) {
+                return;
+            }
+            trocar(pior, posicao);
+            posicao = pior;
+        }
+    }
+
+    private void trocar(int a, int b) {
+        int artigo = artigos[a];
+        artigos[a] = artigos[b];
+        artigos[b] = artigo;
+        double pontuacao = pontuacoes[a];
+        pontuacoes[a] = pontuacoes[b];
+        pontuacoes[b] = pontuacao;
+    }
+
+    @Override
+    public String toString() {
+        return "TopK" + Arrays.toString(Arrays.copyOf(artigos, tamanho));
+    }
+}
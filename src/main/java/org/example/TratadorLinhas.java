@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Trata as linhas recebidas em uma conexão de um servidor.
+ *
+ * A mesma implementação é usada tanto pelo servidor bloqueante quanto pelo
+ * servidor NIO, por isso o tratador não deve bloquear a thread que o chama:
+ * trabalho demorado deve ser repassado a outro executor e a resposta enviada
+ * pela {@code saida} quando estiver pronta.
+ */
+@FunctionalInterface
+public interface TratadorLinhas {
+
+    /**
+     * Trata uma linha recebida (sem o terminador de linha).
+     *
+     * @param linha A linha recebida
+     * @param saida Envia uma linha de resposta pela mesma conexão; pode ser chamada de qualquer thread
+     * @return Futuro concluído quando todas as respostas desta linha tiverem sido enviadas
+     * @throws IllegalArgumentException se a linha não pode ser respondida (não identifica a
+     *         requisição); a frente encerra a conexão para quem a enviou não esperar a resposta
+     */
+    CompletableFuture<Void> tratar(String linha, Consumer<String> saida);
+}
@@ -0,0 +1,25 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Trata os quadros recebidos em uma conexão que negociou o {@link ProtocoloBinario}.
+ *
+ * Segue as mesmas regras do {@link TratadorLinhas}: não deve bloquear a thread que o chama.
+ */
+@FunctionalInterface
+public interface TratadorQuadros {
+
+    /**
+     * Trata um quadro recebido.
+     *
+     * @param quadro O conteúdo do quadro, sem o tamanho
+     * @param saida Envia um quadro completo (já com o tamanho) pela mesma conexão;
+     *              pode ser chamada de qualquer thread
+     * @return Futuro concluído quando todas as respostas deste quadro tiverem sido enviadas
+     * @throws IllegalArgumentException se o quadro não pode ser respondido; a frente encerra a conexão
+     */
+    CompletableFuture<Void> tratar(ByteBuffer quadro, Consumer<ByteBuffer> saida);
+}
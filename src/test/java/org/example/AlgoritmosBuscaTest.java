@@ -0,0 +1,173 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Compara cada algoritmo com {@link String#indexOf}, em textos de alfabeto pequeno (muitas
+ * ocorrências parciais) com caracteres fora do Latin-1 cujo byte menos significativo coincide
+ * com o de letras ASCII, já que as tabelas de máscaras são indexadas por esse byte.
+ */
+class AlgoritmosBuscaTest {
+
+    // 'Ł' (U+0141) tem o mesmo byte baixo que 'A', e 'š' (U+0161) o mesmo que 'a'
+    private static final String ALFABETO = "aabAŁš ";
+
+    static Stream<AlgoritmoBusca> algoritmos() {
+        return Stream.of(new ShiftOr(), new Bndm(), new BoyerMoore(), new AhoCorasick(), new SeletorAlgoritmo(),
+                new BuscaIndexOf());
+    }
+
+    private static String aleatorio(Random aleatorio, int tamanho) {
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append(ALFABETO.charAt(aleatorio.nextInt(ALFABETO.length())));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Um padrão tirado do próprio texto (para haver ocorrências) ou aleatório, com até 80
+     * caracteres: passa do limite de {@value ShiftOr#TAMANHO_MAXIMO} em que Shift-Or e BNDM
+     * delegam ao Boyer-Moore.
+     */
+    private static String padrao(Random aleatorio, String texto) {
+        int tamanho = 1 + aleatorio.nextInt(aleatorio.nextInt(4) == 0 ? 80 : 8);
+        if (aleatorio.nextBoolean() && texto.length() >= tamanho) {
+            int inicio = aleatorio.nextInt(texto.length() - tamanho + 1);
+            return texto.substring(inicio, inicio + tamanho);
+        }
+        return aleatorio(aleatorio, tamanho);
+    }
+
+    private static List<Integer> todas(String texto, String padrao) {
+        List<Integer> posicoes = new ArrayList<>();
+        for (int i = texto.indexOf(padrao); i != -1; i = texto.indexOf(padrao, i + 1)) {
+            posicoes.add(i);
+        }
+        return posicoes;
+    }
+
+    @ParameterizedTest
+    @MethodSource("algoritmos")
+    void comoIndexOf(AlgoritmoBusca algoritmo) {
+        Random aleatorio = new Random(17);
+        for (int rodada = 0; rodada < 3000; rodada++) {
+            String texto = aleatorio(aleatorio, aleatorio.nextInt(300));
+            String padrao = padrao(aleatorio, texto);
+            String mensagem = "texto=" + texto + " padrao=" + padrao;
+
+            assertEquals(texto.indexOf(padrao), algoritmo.buscar(texto, padrao), mensagem);
+            assertEquals(todas(texto, padrao), algoritmo.buscarTodos(texto, padrao), mensagem);
+
+            // Trecho de um buffer maior, como nas colunas: posição absoluta, sem passar do fim
+            int inicio = texto.isEmpty() ? 0 : aleatorio.nextInt(texto.length());
+            int fim = inicio + aleatorio.nextInt(texto.length() - inicio + 1);
+            int esperado = texto.substring(inicio, fim).indexOf(padrao);
+            PadraoCompilado compilado = algoritmo.compilar(padrao);
+            assertEquals(esperado == -1 ? -1 : inicio + esperado,
+                    compilado.buscar(CharBuffer.wrap(texto), inicio, fim), mensagem + " [" + inicio + "," + fim + ")");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("algoritmos")
+    void casosDeBorda(AlgoritmoBusca algoritmo) {
+        assertEquals(-1, algoritmo.buscar("", "a"));
+        assertEquals(-1, algoritmo.buscar("ab", "abc"));
+        assertEquals(0, algoritmo.buscar("abc", "abc"));
+        assertEquals(2, algoritmo.buscar("ababc", "abc"));
+        assertEquals(List.of(0, 1, 2), algoritmo.buscarTodos("aaaa", "aa"));
+        assertEquals(-1, algoritmo.buscar("AAAA", "Ł"), "byte baixo igual não é ocorrência");
+        assertEquals(1, algoritmo.buscar("AŁ", "Ł"));
+        assertEquals(3, algoritmo.buscar("x😀y😀", "y😀"));
+
+        String longo = "ab".repeat(40);
+        assertEquals(20, algoritmo.buscar("c".repeat(20) + longo + "c", longo));
+        assertEquals(-1, algoritmo.buscar("c".repeat(20) + longo.substring(1) + "c", longo));
+    }
+
+    @Test
+    void ahoCorasickEncontraVariosPadroes() {
+        Random aleatorio = new Random(23);
+        AhoCorasick ahoCorasick = new AhoCorasick();
+        for (int rodada = 0; rodada < 2000; rodada++) {
+            String texto = aleatorio(aleatorio, aleatorio.nextInt(200));
+            List<String> padroes = new ArrayList<>();
+            for (int i = 1 + aleatorio.nextInt(6); i > 0; i--) {
+                padroes.add(padrao(aleatorio, texto));
+            }
+            AhoCorasick.Automato automato = ahoCorasick.compilar(padroes);
+
+            long esperado = 0;
+            int primeiroFim = Integer.MAX_VALUE;
+            int inicioPrimeiro = -1;
+            for (int p = 0; p < padroes.size(); p++) {
+                int posicao = texto.indexOf(padroes.get(p));
+                if (posicao == -1) {
+                    continue;
+                }
+                esperado |= 1L << p;
+                // A ocorrência que termina primeiro; no empate, a que começa antes
+                for (int ocorrencia : todas(texto, padroes.get(p))) {
+                    int fim = ocorrencia + padroes.get(p).length();
+                    if (fim < primeiroFim || fim == primeiroFim && ocorrencia < inicioPrimeiro) {
+                        primeiroFim = fim;
+                        inicioPrimeiro = ocorrencia;
+                    }
+                }
+            }
+
+            String mensagem = "texto=" + texto + " padroes=" + padroes;
+            assertEquals(esperado, automato.encontrados(texto, 0, texto.length(), 0), mensagem);
+            assertEquals(inicioPrimeiro, automato.primeiraOcorrencia(texto, 0, texto.length()), mensagem);
+        }
+    }
+
+    @Test
+    void ahoCorasickSomaOsJaEncontrados() {
+        AhoCorasick.Automato automato = new AhoCorasick().compilar(List.of("neural", "graph"));
+        long noTitulo = automato.encontrados("graph models", 0, 12, 0);
+        assertEquals(0b10, noTitulo);
+        assertEquals(automato.todos(), automato.encontrados("a neural net", 0, 12, noTitulo));
+        assertEquals(noTitulo, automato.encontrados("nothing", 0, 7, noTitulo));
+    }
+
+    @Test
+    void ahoCorasickLimiteDePadroes() {
+        AhoCorasick ahoCorasick = new AhoCorasick();
+        assertThrows(IllegalArgumentException.class, () -> ahoCorasick.compilar(List.of()));
+
+        List<String> padroes = new ArrayList<>();
+        for (int i = 0; i < AhoCorasick.MAXIMO_PADROES; i++) {
+            padroes.add("p" + i + ";");
+        }
+        AhoCorasick.Automato automato = ahoCorasick.compilar(padroes);
+        assertEquals(~0L, automato.todos());
+        String texto = String.join(" ", padroes);
+        assertEquals(~0L, automato.encontrados(texto, 0, texto.length(), 0));
+
+        padroes.add("mais um");
+        assertThrows(IllegalArgumentException.class, () -> ahoCorasick.compilar(padroes));
+    }
+
+    @Test
+    void seletorEscolhePeloTamanho() {
+        SeletorAlgoritmo seletor = new SeletorAlgoritmo();
+        assertInstanceOf(ShiftOr.class, seletor.escolher(SeletorAlgoritmo.LIMITE_CURTO));
+        assertInstanceOf(Bndm.class, seletor.escolher(SeletorAlgoritmo.LIMITE_CURTO + 1));
+        assertInstanceOf(Bndm.class, seletor.escolher(ShiftOr.TAMANHO_MAXIMO));
+        assertInstanceOf(BoyerMoore.class, seletor.escolher(ShiftOr.TAMANHO_MAXIMO + 1));
+        assertThrows(IllegalArgumentException.class, () -> SeletorAlgoritmo.porNome("grep"));
+        assertEquals(Collections.emptyList(), new SeletorAlgoritmo().buscarTodos("abc", "x"));
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class AnelHashConsistenteTest {
+
+    private static final int CHAVES = 100_000;
+
+    @Test
+    void recusaSemShards() {
+        assertThrows(IllegalArgumentException.class, () -> new AnelHashConsistente(0));
+        assertThrows(IllegalArgumentException.class, () -> new AnelHashConsistente(-1));
+    }
+
+    @Test
+    void umShardRecebeTudo() {
+        AnelHashConsistente anel = new AnelHashConsistente(1);
+        assertEquals(1, anel.quantidadeShards());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, anel.shard(String.valueOf(i)));
+        }
+        assertEquals(0, anel.shard(""));
+    }
+
+    @Test
+    void mesmaChaveMesmoShard() {
+        AnelHashConsistente a = new AnelHashConsistente(5);
+        AnelHashConsistente b = new AnelHashConsistente(5);
+        for (String chave : new String[] {"", "1", "2401.00001", "ação", "😀"}) {
+            int shard = a.shard(chave);
+            assertTrue(shard >= 0 && shard < 5);
+            assertEquals(shard, a.shard(chave));
+            assertEquals(shard, b.shard(chave), "o anel não depende da instância");
+        }
+    }
+
+    @Test
+    void cargaEquilibrada() {
+        int quantidade = 4;
+        AnelHashConsistente anel = new AnelHashConsistente(quantidade);
+        int[] contagem = new int[quantidade];
+        for (int i = 0; i < CHAVES; i++) {
+            contagem[anel.shard(String.valueOf(i))]++;
+        }
+
+        double media = (double) CHAVES / quantidade;
+        for (int shard = 0; shard < quantidade; shard++) {
+            assertEquals(media, contagem[shard], media * 0.2, "shard " + shard);
+        }
+    }
+
+    @Test
+    void novoShardSoRecebeChaves() {
+        for (int quantidade = 1; quantidade <= 8; quantidade++) {
+            AnelHashConsistente antes = new AnelHashConsistente(quantidade);
+            AnelHashConsistente depois = new AnelHashConsistente(quantidade + 1);
+
+            int movidas = 0;
+            for (int i = 0; i < CHAVES; i++) {
+                String chave = String.valueOf(i);
+                int anterior = antes.shard(chave);
+                int atual = depois.shard(chave);
+                if (anterior != atual) {
+                    // As chaves que mudam vão todas para o shard novo
+                    assertEquals(quantidade, atual, chave);
+                    movidas++;
+                }
+            }
+
+            double esperado = (double) CHAVES / (quantidade + 1);
+            assertEquals(esperado, movidas, esperado * 0.25, quantidade + " -> " + (quantidade + 1) + " shards");
+        }
+    }
+}
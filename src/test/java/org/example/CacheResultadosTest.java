@@ -0,0 +1,185 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CacheResultadosTest {
+
+    private final AtomicInteger carregamentos = new AtomicInteger();
+
+    private CompletableFuture<String> carregar(String valor) {
+        carregamentos.incrementAndGet();
+        return CompletableFuture.completedFuture(valor);
+    }
+
+    @Test
+    void guardaOResultadoCarregado() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        assertEquals("a", cache.obter("k", () -> carregar("a")).join());
+        assertEquals("a", cache.obter("k", () -> carregar("b")).join());
+
+        assertEquals(1, carregamentos.get());
+        assertEquals(1, cache.getAcertos());
+        assertEquals(1, cache.getFalhas());
+        assertEquals("a", cache.obterGuardado("k"));
+        assertNull(cache.obterGuardado("outra"));
+    }
+
+    @Test
+    void juntaBuscasSimultaneasDaMesmaChave() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        CompletableFuture<String> pendente = new CompletableFuture<>();
+
+        CompletableFuture<String> primeira = cache.obter("k", () -> {
+            carregamentos.incrementAndGet();
+            return pendente;
+        });
+        CompletableFuture<String> segunda = cache.obter("k", () -> carregar("outra"));
+        CompletableFuture<String> outraChave = cache.obter("j", () -> carregar("j"));
+
+        assertSame(primeira, segunda);
+        assertFalse(primeira.isDone());
+        assertEquals("j", outraChave.join());
+        assertEquals(2, carregamentos.get());
+        assertEquals(1, cache.getAgrupadas());
+
+        pendente.complete("v");
+        assertEquals("v", segunda.join());
+        assertEquals("v", cache.obter("k", () -> carregar("depois")).join());
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void juntaBuscasDeVariasThreads() throws Exception {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        CompletableFuture<String> pendente = new CompletableFuture<>();
+        int threads = 16;
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<CompletableFuture<String>>> pedidos = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                pedidos.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return cache.obter("k", () -> {
+                        carregamentos.incrementAndGet();
+                        return pendente;
+                    });
+                }, executor));
+            }
+            largada.countDown();
+            CompletableFuture.allOf(pedidos.toArray(CompletableFuture<?>[]::new)).get(10, TimeUnit.SECONDS);
+
+            pendente.complete("v");
+            for (CompletableFuture<CompletableFuture<String>> pedido : pedidos) {
+                assertEquals("v", pedido.join().join());
+            }
+            assertEquals(1, carregamentos.get());
+            assertEquals(threads - 1, cache.getAgrupadas());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void falhaNaoEGuardada() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        CompletableFuture<String> pendente = new CompletableFuture<>();
+        CompletableFuture<String> primeira = cache.obter("k", () -> pendente);
+        CompletableFuture<String> agrupada = cache.obter("k", () -> carregar("x"));
+
+        pendente.completeExceptionally(new IllegalStateException("shard caiu"));
+        assertThrows(CompletionException.class, primeira::join);
+        assertThrows(CompletionException.class, agrupada::join);
+
+        assertEquals("ok", cache.obter("k", () -> carregar("ok")).join());
+        assertEquals(1, carregamentos.get());
+    }
+
+    @Test
+    void excecaoAoIniciarACargaFalhaOFuturo() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        CompletableFuture<String> falha = cache.obter("k", () -> {
+            throw new IllegalArgumentException("query inválida");
+        });
+        CompletionException erro = assertThrows(CompletionException.class, falha::join);
+        assertInstanceOf(IllegalArgumentException.class, erro.getCause());
+
+        // A chave não fica presa como em andamento
+        assertEquals("ok", cache.obter("k", () -> carregar("ok")).join());
+    }
+
+    @Test
+    void resultadoNaoArmazenavel() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        assertEquals("parcial", cache.obter("k", () -> carregar("parcial"), v -> !v.equals("parcial")).join());
+        assertEquals("completo", cache.obter("k", () -> carregar("completo"), v -> !v.equals("parcial")).join());
+        assertEquals("completo", cache.obter("k", () -> carregar("x"), v -> true).join());
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void capacidadeZeroSoJunta() {
+        CacheResultados<String> cache = new CacheResultados<>(0, 60_000);
+        CompletableFuture<String> pendente = new CompletableFuture<>();
+        CompletableFuture<String> primeira = cache.obter("k", () -> pendente);
+        assertSame(primeira, cache.obter("k", () -> carregar("x")));
+        pendente.complete("v");
+
+        cache.guardar("k", "guardado");
+        assertNull(cache.obterGuardado("k"));
+        assertEquals("novo", cache.obter("k", () -> carregar("novo")).join());
+        assertEquals(0, cache.getTamanho());
+    }
+
+    @Test
+    void descartaOUsadoHaMaisTempo() {
+        CacheResultados<String> cache = new CacheResultados<>(2, 60_000);
+        cache.guardar("a", "A");
+        cache.guardar("b", "B");
+        assertEquals("A", cache.obterGuardado("a"));
+        cache.guardar("c", "C");
+
+        assertEquals(2, cache.getTamanho());
+        assertEquals("A", cache.obterGuardado("a"));
+        assertNull(cache.obterGuardado("b"));
+        assertEquals("C", cache.obterGuardado("c"));
+        assertEquals(1, cache.getRemocoes());
+    }
+
+    @Test
+    void entradaExpira() throws InterruptedException {
+        CacheResultados<String> cache = new CacheResultados<>(10, 1);
+        cache.guardar("k", "v");
+        Thread.sleep(10);
+        assertNull(cache.obterGuardado("k"));
+        assertEquals(0, cache.getTamanho());
+        assertEquals(1, cache.getRemocoes());
+    }
+
+    @Test
+    void limpar() {
+        CacheResultados<String> cache = new CacheResultados<>(10, 60_000);
+        cache.guardar("a", "A");
+        cache.guardar("b", "B");
+        cache.limpar();
+
+        assertEquals(0, cache.getTamanho());
+        assertEquals(2, cache.getRemocoes());
+        assertEquals("novo", cache.obter("a", () -> carregar("novo")).join());
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ColunaComprimidaTest {
+
+    private static final String[] PEDACOS = {"abc ", "Ação É ", "日本語 ", "😀 𝔸 ", "", "X"};
+
+    private static List<String> textos(int quantidade) {
+        Random aleatorio = new Random(1);
+        List<String> textos = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            StringBuilder texto = new StringBuilder();
+            for (int j = aleatorio.nextInt(40); j > 0; j--) {
+                texto.append(PEDACOS[aleatorio.nextInt(PEDACOS.length)]);
+            }
+            textos.add(texto.toString());
+        }
+        return textos;
+    }
+
+    private static ColunaComprimida coluna(List<String> textos) {
+        ColunaComprimida.Construtor construtor = new ColunaComprimida.Construtor();
+        textos.forEach(construtor::adicionar);
+        return construtor.construir();
+    }
+
+    @Test
+    void textosOriginaisENormalizados() {
+        // 1000 não é múltiplo de 16: o último bloco é menor
+        List<String> textos = textos(1000);
+        ColunaComprimida coluna = coluna(textos);
+
+        assertEquals(textos.size(), coluna.tamanho());
+        for (int i = textos.size() - 1; i >= 0; i--) {
+            assertEquals(textos.get(i), coluna.texto(i));
+            assertEquals(textos.get(i).length(), coluna.comprimento(i));
+
+            ColunaComprimida.Bloco bloco = coluna.normalizado(i);
+            assertEquals(CorpusArtigos.normalizar(textos.get(i)),
+                    bloco.getCaracteres().subSequence(bloco.inicio(i), bloco.fim(i)).toString());
+        }
+    }
+
+    @Test
+    void textoComLimite() {
+        ColunaComprimida coluna = coluna(List.of("abcdef", "", "ação"));
+        assertEquals("abc", coluna.texto(0, 3));
+        assertEquals("", coluna.texto(1, 3));
+        assertEquals("ação", coluna.texto(2, 10));
+    }
+
+    @Test
+    void varreduraDescomprimeCadaBlocoUmaVez() {
+        ColunaComprimida coluna = coluna(textos(ColunaComprimida.ARTIGOS_POR_BLOCO * 10));
+        long antes = ColunaComprimida.getBlocosDescomprimidos();
+        for (int i = 0; i < coluna.tamanho(); i++) {
+            coluna.normalizado(i);
+        }
+        assertEquals(10, ColunaComprimida.getBlocosDescomprimidos() - antes);
+    }
+
+    @Test
+    void colunasDiferentesNaMesmaThread() {
+        ColunaComprimida a = coluna(List.of("primeira"));
+        ColunaComprimida b = coluna(List.of("segunda"));
+        assertEquals("primeira", a.texto(0));
+        assertEquals("segunda", b.texto(0));
+        assertEquals("primeira", a.texto(0));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompressorLzTest {
+
+    private static byte[] idaEVolta(byte[] origem, int deslocamento) {
+        byte[] comprimido = new byte[deslocamento + CompressorLz.limite(origem.length)];
+        int fim = CompressorLz.comprimir(origem, origem.length, comprimido, deslocamento);
+        assertTrue(fim <= comprimido.length, "passou do limite");
+
+        byte[] destino = new byte[origem.length];
+        CompressorLz.descomprimir(ByteBuffer.wrap(comprimido), deslocamento, fim, destino, origem.length);
+        return destino;
+    }
+
+    @Test
+    void vazio() {
+        assertArrayEquals(new byte[0], idaEVolta(new byte[0], 0));
+    }
+
+    @Test
+    void menorQueUmaCopia() {
+        for (int tamanho = 1; tamanho <= CompressorLz.MINIMO * 3; tamanho++) {
+            byte[] origem = "abcdefghijklmnop".substring(0, tamanho).getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(origem, idaEVolta(origem, 0));
+        }
+    }
+
+    @Test
+    void textoRepetitivoComprime() {
+        byte[] origem = "neural network models for graph learning; ".repeat(200).getBytes(StandardCharsets.UTF_8);
+        byte[] comprimido = new byte[CompressorLz.limite(origem.length)];
+        int fim = CompressorLz.comprimir(origem, origem.length, comprimido, 0);
+
+        assertTrue(fim < origem.length / 10, "comprimiu para " + fim + " bytes");
+        assertArrayEquals(origem, idaEVolta(origem, 0));
+    }
+
+    @Test
+    void copiasSobrepostasEComprimentosLongos() {
+        // Uma só letra: cópia com deslocamento 1, e comprimentos continuados em bytes de 255
+        byte[] origem = new byte[70_000];
+        Arrays.fill(origem, (byte) 'a');
+        assertArrayEquals(origem, idaEVolta(origem, 0));
+    }
+
+    @Test
+    void literaisLongosSemRepeticao() {
+        byte[] origem = new byte[100_000];
+        new Random(42).nextBytes(origem);
+        assertArrayEquals(origem, idaEVolta(origem, 0));
+    }
+
+    @Test
+    void repeticoesAlemDaDistanciaMaxima() {
+        // O mesmo trecho reaparece a mais de 64 KB: não pode virar cópia
+        Random aleatorio = new Random(7);
+        byte[] trecho = new byte[1000];
+        aleatorio.nextBytes(trecho);
+        byte[] origem = new byte[trecho.length * 2 + 70_000];
+        aleatorio.nextBytes(origem);
+        System.arraycopy(trecho, 0, origem, 0, trecho.length);
+        System.arraycopy(trecho, 0, origem, origem.length - trecho.length, trecho.length);
+        assertArrayEquals(origem, idaEVolta(origem, 0));
+    }
+
+    @Test
+    void escreveAPartirDaPosicao() {
+        byte[] origem = "Ação, reação e mais ação: não há ação sem reação.".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(origem, idaEVolta(origem, 13));
+    }
+}
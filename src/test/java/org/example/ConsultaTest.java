@@ -0,0 +1,150 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ConsultaTest {
+
+    private record Artigo(String titulo, String resumo, String rotulo) {
+    }
+
+    private static final List<Artigo> ARTIGOS = List.of(
+            new Artigo("Neural networks for graphs", "We study graph neural models.", "cs.LG"),   // 0
+            new Artigo("Quantum circuits", "A neural approach to quantum error correction.", "quant-ph"), // 1
+            new Artigo("Computer vision survey", "Convolutional models and data.", "cs.CV"),      // 2
+            new Artigo("Data AND theory", "O(n log n) bounds for sorting data.", "cs.DS"),         // 3
+            new Artigo("Removed neural paper", "neural", "cs.LG"));                                // 4, removido
+
+    /**
+     * Os artigos acima em um segmento, sem índice (todos são candidatos) e com o 4 removido.
+     */
+    private static final class AlvoLista implements Consulta.Alvo {
+        @Override
+        public int tamanho() {
+            return ARTIGOS.size();
+        }
+
+        @Override
+        public MapaBits artigosAtivos() {
+            return MapaBits.intervalo(ARTIGOS.size()).sem(4);
+        }
+
+        @Override
+        public int[] candidatos(String textoNormalizado) {
+            return null;
+        }
+
+        @Override
+        public MapaBits rotulo(String rotuloNormalizado) {
+            return MapaBits.de(IntStream.range(0, ARTIGOS.size())
+                    .filter(i -> CorpusArtigos.normalizar(ARTIGOS.get(i).rotulo()).equals(rotuloNormalizado))
+                    .toArray());
+        }
+
+        @Override
+        public boolean contem(int artigo, Consulta.Campo campo, PadraoCompilado padrao) {
+            String titulo = CorpusArtigos.normalizar(ARTIGOS.get(artigo).titulo());
+            String resumo = CorpusArtigos.normalizar(ARTIGOS.get(artigo).resumo());
+            return switch (campo) {
+                case TITULO -> padrao.buscar(titulo) != -1;
+                case RESUMO -> padrao.buscar(resumo) != -1;
+                case QUALQUER -> padrao.buscar(titulo) != -1 || padrao.buscar(resumo) != -1;
+            };
+        }
+    }
+
+    private static int[] avaliar(String expressao) {
+        Consulta consulta = Consulta.interpretar(Consulta.PREFIXO + expressao, new BuscaIndexOf());
+        return consulta.avaliar(new AlvoLista(), new BuscaParalela(1, Integer.MAX_VALUE)).paraArray();
+    }
+
+    private static void assertArtigos(String expressao, int... esperados) {
+        assertEquals(Arrays.toString(esperados), Arrays.toString(avaliar(expressao)), expressao);
+    }
+
+    @Test
+    void soComPrefixo() {
+        assertTrue(Consulta.ehExpressao("consulta:a AND b"));
+        assertFalse(Consulta.ehExpressao("a AND b"));
+        assertFalse(Consulta.ehExpressao("O(n log n)"));
+        assertFalse(Consulta.ehExpressao("Consulta:a"));
+    }
+
+    @Test
+    void chaveCacheSeparaExpressoesDeTextos() {
+        assertEquals(Consulta.chaveCache("Neural AND Graph"), Consulta.chaveCache("neural and graph"));
+        assertNotEquals(Consulta.chaveCache("consulta:a AND b"), Consulta.chaveCache("consulta:a and b"));
+        assertNotEquals(Consulta.chaveCache("consulta:a"), Consulta.chaveCache("consulta:A"));
+    }
+
+    @Test
+    void textosECampos() {
+        assertArtigos("neural", 0, 1);
+        assertArtigos("NEURAL", 0, 1);
+        assertArtigos("title:neural", 0);
+        assertArtigos("abstract:neural", 0, 1);
+        assertArtigos("\"graph neural\"", 0);
+        assertArtigos("abstract:\"graph neural\"", 0);
+        assertArtigos("title:\"graph neural\"");
+        assertArtigos("label:CS.lg", 0);
+        assertArtigos("label:cs", new int[0]);
+    }
+
+    @Test
+    void operadores() {
+        assertArtigos("neural AND quantum", 1);
+        assertArtigos("neural quantum", 1);
+        assertArtigos("neural OR vision", 0, 1, 2);
+        assertArtigos("neural AND NOT graph", 1);
+        assertArtigos("NOT neural", 2, 3);
+        assertArtigos("NOT NOT neural", 0, 1);
+        assertArtigos("(title:quantum OR title:vision) AND NOT abstract:data", 1);
+    }
+
+    @Test
+    void precedencia() {
+        // NOT antes de AND, AND antes de OR
+        assertArtigos("vision OR neural AND quantum", 1, 2);
+        assertArtigos("(vision OR neural) AND quantum", 1);
+        assertArtigos("NOT quantum AND neural", 0);
+    }
+
+    @Test
+    void operadoresSoEmMaiusculasEForaDeAspas() {
+        assertArtigos("title:\"data AND theory\"", 3);
+        assertArtigos("\"data and theory\"", 3);
+        assertArtigos("data and theory", 3);
+    }
+
+    @Test
+    void removidosNuncaAparecem() {
+        assertArtigos("title:removed");
+        assertArtigos("NOT vision", 0, 1, 3);
+        assertArtigos("label:cs.lg", 0);
+    }
+
+    @Test
+    void sintaxeMalFormadaNaoERecusada() {
+        assertArtigos("\"graph neural", 0);
+        assertArtigos("neural ) ) AND quantum", 1);
+        assertArtigos("(neural OR vision", 0, 1, 2);
+        assertArtigos("neural AND", 0, 1);
+        assertArtigos("OR neural OR", 0, 1);
+        assertArtigos("neural NOT", 0, 1);
+        assertArtigos("");
+        assertArtigos("()");
+        assertArtigos("NOT");
+        assertArtigos("title: label:");
+    }
+
+    @Test
+    void textosPositivos() {
+        Consulta consulta = Consulta.interpretar("consulta:Neural AND NOT graph OR title:\"Deep Nets\" label:x neural",
+                new BuscaIndexOf());
+        assertEquals(List.of("neural", "deep nets"), consulta.getTextosPositivos());
+    }
+}
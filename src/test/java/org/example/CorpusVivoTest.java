@@ -0,0 +1,144 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class CorpusVivoTest {
+
+    private static final BuscaParalela SEQUENCIAL = new BuscaParalela(1, Integer.MAX_VALUE);
+
+    private static CorpusArtigos corpus(String... titulos) {
+        CorpusArtigos.Construtor construtor = new CorpusArtigos.Construtor();
+        for (String titulo : titulos) {
+            String rotulo = titulo.startsWith("Quantum") ? "quant-ph" : "cs.LG";
+            construtor.adicionar(titulo, "Abstract of " + titulo.toLowerCase() + ".", rotulo);
+        }
+        return construtor.construir();
+    }
+
+    private static CorpusVivo base(String... titulos) {
+        CorpusArtigos corpus = corpus(titulos);
+        return new CorpusVivo(corpus, CorpusVivo.indexar(corpus));
+    }
+
+    private static List<String> titulos(CorpusVivo corpus, int[] ids) {
+        List<String> titulos = new ArrayList<>();
+        for (int id : ids) {
+            titulos.add(corpus.resultado(id, "s", Double.NaN).getTitulo());
+        }
+        return titulos;
+    }
+
+    /**
+     * Os títulos dos artigos que contêm o texto, verificando todos os ids como na busca sem índice.
+     */
+    private static List<String> buscar(CorpusVivo corpus, String texto) {
+        PadraoCompilado padrao = new BuscaIndexOf().compilar(CorpusArtigos.normalizar(texto));
+        return titulos(corpus, SEQUENCIAL.filtrar(null, corpus.tamanho(), id -> corpus.contem(id, padrao)));
+    }
+
+    private static List<String> consultar(CorpusVivo corpus, String expressao) {
+        Consulta consulta = Consulta.interpretar(Consulta.PREFIXO + expressao, new BuscaIndexOf());
+        return titulos(corpus, corpus.consultar(consulta, SEQUENCIAL));
+    }
+
+    @Test
+    void inserirCriaNovaVersaoSemAlterarAAnterior() {
+        CorpusVivo original = base("Neural nets", "Graph theory", "Quantum gates", "Vision models");
+        CorpusVivo inserido = original.inserir(corpus("Neural graphs"));
+
+        assertEquals(original.getVersao() + 1, inserido.getVersao());
+        assertEquals(List.of("Neural nets", "Neural graphs"), buscar(inserido, "neural"));
+        assertEquals(List.of("Neural nets"), buscar(original, "neural"));
+        assertEquals(4, original.ativos());
+        assertEquals(5, inserido.ativos());
+        assertEquals(2, inserido.getQuantidadeSegmentos());
+
+        assertSame(inserido, inserido.inserir(corpus()), "inserir nada não cria versão");
+    }
+
+    @Test
+    void removidoFicaNoSegmentoMasNaoEEncontrado() {
+        CorpusVivo original = base("Neural nets", "Graph theory", "Neural codes", "Quantum gates");
+        CorpusVivo removido = original.removerTitulos(List.of("Neural nets"));
+
+        assertEquals(original.getVersao() + 1, removido.getVersao());
+        assertEquals(4, removido.tamanho(), "o id continua ocupado até a junção");
+        assertEquals(3, removido.ativos());
+        assertEquals(List.of("Neural codes"), buscar(removido, "neural"));
+        assertEquals(List.of("Neural codes"), consultar(removido, "neural AND label:cs.lg"));
+        assertEquals(List.of("Graph theory", "Neural codes", "Quantum gates"), consultar(removido, "NOT nets"));
+
+        AhoCorasick.Automato automato = new AhoCorasick().compilar(List.of("neural", "nets"));
+        assertFalse(removido.contemTodos(0, automato));
+        assertEquals(0, removido.encontrados(0, automato));
+        assertTrue(original.contemTodos(0, automato), "a versão anterior não muda");
+    }
+
+    @Test
+    void removerComparaOTituloExato() {
+        CorpusVivo original = base("Neural nets", "Neural nets", "Graph theory");
+
+        assertSame(original, original.removerTitulos(List.of("neural nets")), "maiúsculas diferentes");
+        assertSame(original, original.removerTitulos(List.of("Neural")), "só parte do título");
+        assertSame(original, original.removerTitulos(List.of()));
+
+        // Todos os artigos com o título saem, e o título repetido na lista não muda nada
+        CorpusVivo removido = original.removerTitulos(List.of("Neural nets", "Neural nets"));
+        assertEquals(1, removido.ativos());
+        assertEquals(List.of("Graph theory"), buscar(removido, "abstract of"));
+        assertSame(removido, removido.removerTitulos(Set.of("Neural nets")));
+    }
+
+    @Test
+    void juncaoDescartaRemovidosEMantemAOrdem() {
+        CorpusVivo corpus = base("A0 alpha", "A1 beta", "A2 gamma", "A3 delta", "A4 alpha", "A5 beta", "A6 gamma",
+                "A7 delta");
+        corpus = corpus.removerTitulos(List.of("A1 beta", "A6 gamma"));
+        assertEquals(8, corpus.tamanho());
+
+        // 4 novos contra 6 ativos: o segmento novo tem mais da metade e é juntado
+        corpus = corpus.inserir(corpus("B0 alpha", "B1 beta", "B2 gamma", "B3 delta"));
+        assertEquals(1, corpus.getQuantidadeSegmentos());
+        assertEquals(10, corpus.tamanho());
+        assertEquals(10, corpus.ativos());
+        assertEquals(List.of("A0 alpha", "A2 gamma", "A3 delta", "A4 alpha", "A5 beta", "A7 delta",
+                "B0 alpha", "B1 beta", "B2 gamma", "B3 delta"), buscar(corpus, "abstract of"));
+        assertEquals(List.of("A0 alpha", "A4 alpha", "B0 alpha"), buscar(corpus, "alpha"));
+        assertEquals(List.of("A5 beta", "B1 beta"), consultar(corpus, "title:beta label:cs.lg"));
+    }
+
+    @Test
+    void segmentosCrescemComoUmaArvoreLsm() {
+        CorpusVivo corpus = base("Base 0", "Base 1", "Base 2", "Base 3", "Base 4", "Base 5", "Base 6", "Base 7");
+        int maiorQuantidade = 0;
+        for (int i = 0; i < 200; i++) {
+            corpus = corpus.inserir(corpus("Novo " + i));
+            maiorQuantidade = Math.max(maiorQuantidade, corpus.getQuantidadeSegmentos());
+        }
+
+        assertEquals(208, corpus.ativos());
+        assertEquals(208, corpus.tamanho());
+        assertTrue(maiorQuantidade <= 10, "segmentos: " + maiorQuantidade);
+        assertEquals(List.of("Novo 17", "Novo 117"), buscar(corpus, "17."));
+    }
+
+    @Test
+    void candidatosDeTodosOsSegmentos() {
+        CorpusVivo corpus = base("Spectral clustering", "Graph theory", "Random walks", "Quantum gates")
+                .inserir(corpus("Spectral methods"));
+        assertEquals(2, corpus.getQuantidadeSegmentos());
+
+        int[] candidatos = corpus.candidatos("spectral");
+        assertNotNull(candidatos);
+        List<String> encontrados = titulos(corpus, candidatos);
+        assertTrue(encontrados.containsAll(List.of("Spectral clustering", "Spectral methods")), encontrados.toString());
+        for (int i = 1; i < candidatos.length; i++) {
+            assertTrue(candidatos[i - 1] < candidatos[i], "em ordem crescente");
+        }
+    }
+}
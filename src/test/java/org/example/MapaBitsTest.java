@@ -0,0 +1,156 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MapaBitsTest {
+
+    private static final int LIMITE = 5 << 16;
+
+    /**
+     * Ids aleatórios em vários contêineres: esparsos em uns, densos (acima de LIMITE_VETOR) em outros.
+     */
+    private static BitSet aleatorio(Random aleatorio) {
+        BitSet ids = new BitSet(LIMITE);
+        for (int chave = 0; chave < LIMITE >>> 16; chave++) {
+            int quantidade = switch (aleatorio.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> aleatorio.nextInt(100);
+                case 2 -> MapaBits.LIMITE_VETOR + aleatorio.nextInt(2) - 1;
+                default -> 20_000 + aleatorio.nextInt(20_000);
+            };
+            for (int i = 0; i < quantidade; i++) {
+                ids.set((chave << 16) | aleatorio.nextInt(1 << 16));
+            }
+        }
+        return ids;
+    }
+
+    private static MapaBits mapa(BitSet ids) {
+        return MapaBits.de(ids.stream().toArray());
+    }
+
+    private static void assertIguais(BitSet esperado, MapaBits mapa) {
+        assertEquals(esperado.cardinality(), mapa.cardinalidade());
+        assertEquals(esperado.isEmpty(), mapa.estaVazio());
+        assertArrayEquals(esperado.stream().toArray(), mapa.paraArray());
+    }
+
+    @Test
+    void vazio() {
+        assertTrue(MapaBits.nenhum().estaVazio());
+        assertTrue(MapaBits.de(new int[0]).estaVazio());
+        assertTrue(MapaBits.intervalo(0).estaVazio());
+        assertFalse(MapaBits.nenhum().contem(0));
+        assertSame(MapaBits.nenhum(), MapaBits.nenhum().sem(7));
+    }
+
+    @Test
+    void construtorRecusaIdsForaDeOrdem() {
+        MapaBits.Construtor construtor = new MapaBits.Construtor();
+        construtor.adicionar(10);
+        assertThrows(IllegalArgumentException.class, () -> construtor.adicionar(10));
+        assertThrows(IllegalArgumentException.class, () -> construtor.adicionar(3));
+    }
+
+    @Test
+    void contemNosLimitesDosConteineres() {
+        int[] ids = {0, 65_535, 65_536, 131_071, Integer.MAX_VALUE};
+        MapaBits mapa = MapaBits.de(ids);
+        for (int id : ids) {
+            assertTrue(mapa.contem(id), "id " + id);
+        }
+        assertFalse(mapa.contem(1));
+        assertFalse(mapa.contem(65_537));
+        assertFalse(mapa.contem(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    void intervalo() {
+        for (int fim : new int[] {1, MapaBits.LIMITE_VETOR, MapaBits.LIMITE_VETOR + 1, 1 << 16, (1 << 16) + 1, 200_000}) {
+            BitSet esperado = new BitSet();
+            esperado.set(0, fim);
+            assertIguais(esperado, MapaBits.intervalo(fim));
+        }
+    }
+
+    @Test
+    void operacoesComoBitSet() {
+        Random aleatorio = new Random(3);
+        for (int rodada = 0; rodada < 20; rodada++) {
+            BitSet a = aleatorio(aleatorio);
+            BitSet b = aleatorio(aleatorio);
+
+            BitSet e = (BitSet) a.clone();
+            e.and(b);
+            BitSet ou = (BitSet) a.clone();
+            ou.or(b);
+            BitSet menos = (BitSet) a.clone();
+            menos.andNot(b);
+
+            assertIguais(e, mapa(a).e(mapa(b)));
+            assertIguais(ou, mapa(a).ou(mapa(b)));
+            assertIguais(menos, mapa(a).menos(mapa(b)));
+        }
+    }
+
+    @Test
+    void semRemoveSoOId() {
+        Random aleatorio = new Random(5);
+        BitSet ids = aleatorio(aleatorio);
+        MapaBits original = mapa(ids);
+        MapaBits mapa = original;
+
+        BitSet esperado = (BitSet) ids.clone();
+        for (int i = 0; i < 5_000; i++) {
+            int id = aleatorio.nextBoolean() ? esperado.nextSetBit(aleatorio.nextInt(LIMITE)) : aleatorio.nextInt(LIMITE);
+            if (id < 0) {
+                continue;
+            }
+            esperado.clear(id);
+            mapa = mapa.sem(id);
+            assertFalse(mapa.contem(id));
+        }
+        assertIguais(esperado, mapa);
+
+        // Copia só o contêiner alterado: o original continua inteiro
+        assertIguais(ids, original);
+    }
+
+    @Test
+    void semAteEsvaziar() {
+        MapaBits mapa = MapaBits.de(new int[] {1, 70_000});
+        mapa = mapa.sem(1).sem(70_000);
+        assertTrue(mapa.estaVazio());
+        assertFalse(mapa.contem(1));
+    }
+
+    @Test
+    void escreverELer() {
+        Random aleatorio = new Random(11);
+        for (int rodada = 0; rodada < 10; rodada++) {
+            BitSet ids = aleatorio(aleatorio);
+            MapaBits mapa = mapa(ids);
+
+            ByteBuffer buffer = ByteBuffer.allocate(mapa.tamanhoBytes() + 8);
+            buffer.putInt(42);
+            mapa.escrever(buffer);
+            assertEquals(mapa.tamanhoBytes() + 4, buffer.position());
+            buffer.putInt(43).flip();
+
+            assertEquals(42, buffer.getInt());
+            assertIguais(ids, MapaBits.ler(buffer));
+            assertEquals(43, buffer.getInt(), "ler deixa a posição logo depois do mapa");
+        }
+    }
+
+    @Test
+    void lerRecusaQuantidadeInvalida() {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(-1).flip();
+        assertThrows(IllegalArgumentException.class, () -> MapaBits.ler(buffer));
+    }
+}
@@ -0,0 +1,202 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ProtocoloBinarioTest {
+
+    /**
+     * Passa os quadros por um stream, como na conexão, e lê o conteúdo de cada um.
+     */
+    private static DataInputStream stream(ByteBuffer... quadros) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer quadro : quadros) {
+            bytes.write(quadro.array(), quadro.arrayOffset() + quadro.position(), quadro.remaining());
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static ByteBuffer idaEVolta(ByteBuffer quadro) throws IOException {
+        DataInputStream entrada = stream(quadro);
+        ByteBuffer conteudo = ProtocoloBinario.lerQuadro(entrada);
+        assertNull(ProtocoloBinario.lerQuadro(entrada), "sobraram bytes depois do quadro");
+        return conteudo;
+    }
+
+    @Test
+    void busca() throws IOException {
+        RequisicaoShard enviada = new RequisicaoShard(42, RequisicaoShard.BUSCA, "Redes Neurais ção 😀",
+                List.of("redes", "neurais"), true, 10, 30);
+        RequisicaoShard lida = ProtocoloBinario.lerRequisicao(idaEVolta(ProtocoloBinario.codificar(enviada)));
+
+        assertEquals(42, lida.getId());
+        assertEquals(RequisicaoShard.BUSCA, lida.getTipo());
+        assertEquals(enviada.getQuery(), lida.getQuery());
+        assertEquals(enviada.getTermos(), lida.getTermos());
+        assertTrue(lida.isTransmitir());
+        assertEquals(10, lida.getLimite());
+        assertEquals(30, lida.getDeslocamento());
+    }
+
+    @Test
+    void buscaVazia() throws IOException {
+        RequisicaoShard lida = ProtocoloBinario.lerRequisicao(
+                idaEVolta(ProtocoloBinario.codificar(RequisicaoShard.busca("", false, 0).comId(1))));
+        assertEquals("", lida.getQuery());
+        assertEquals(List.of(), lida.getTermos());
+        assertFalse(lida.isTransmitir());
+        assertEquals(0, lida.getLimite());
+    }
+
+    @Test
+    void versao() throws IOException {
+        RequisicaoShard lida = ProtocoloBinario.lerRequisicao(
+                idaEVolta(ProtocoloBinario.codificar(RequisicaoShard.versao().comId(9))));
+        assertEquals(RequisicaoShard.VERSAO, lida.getTipo());
+        assertEquals(9, lida.getId());
+    }
+
+    @Test
+    void respostaComResultados() throws IOException {
+        List<Resultado> resultados = List.of(
+                new Resultado("Título \"citado\"", "Resumo com\nquebra", "cs.LG", "s", 1.5),
+                new Resultado("Sem pontuação", "", "", "s", Double.NaN));
+        RespostaShard lida = ProtocoloBinario.lerResposta(
+                idaEVolta(ProtocoloBinario.codificarResposta(7, "Shard 0", 3, 120, resultados)));
+
+        assertEquals(RespostaShard.RESPOSTA, lida.getTipo());
+        assertEquals(7, lida.getId());
+        assertEquals("Shard 0", lida.getServidor());
+        assertEquals(3, lida.getVersao());
+        assertEquals(120, lida.getTotal());
+        assertEquals(2, lida.getResultados().size());
+
+        Resultado primeiro = lida.getResultados().get(0);
+        assertEquals("Título \"citado\"", primeiro.getTitulo());
+        assertEquals("Resumo com\nquebra", primeiro.getResumo());
+        assertEquals("cs.LG", primeiro.getRotulo());
+        assertEquals("Shard 0", primeiro.getServidor(), "o servidor vem uma vez na mensagem");
+        assertEquals(1.5, primeiro.getPontuacao());
+        assertFalse(lida.getResultados().get(1).temPontuacao());
+    }
+
+    @Test
+    void parcialFimEOcupado() throws IOException {
+        DataInputStream entrada = stream(
+                ProtocoloBinario.codificarParcial(1, "b", List.of(new Resultado("t", "r", "l", "b", Double.NaN))),
+                ProtocoloBinario.codificarFim(1, "b", 5, 1, null),
+                ProtocoloBinario.codificarFim(2, "b", 5, 0, "falhou"),
+                ProtocoloBinario.codificarOcupado(3, "b"));
+
+        RespostaShard parcial = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+        assertEquals(RespostaShard.PARCIAL, parcial.getTipo());
+        assertEquals("t", parcial.getResultados().get(0).getTitulo());
+
+        RespostaShard fim = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+        assertEquals(RespostaShard.FIM, fim.getTipo());
+        assertEquals(1, fim.getTotal());
+        assertEquals(5, fim.getVersao());
+        assertNull(fim.getErro());
+
+        RespostaShard erro = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+        assertEquals("falhou", erro.getErro());
+
+        RespostaShard ocupado = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+        assertEquals(RespostaShard.OCUPADO, ocupado.getTipo());
+        assertEquals(3, ocupado.getId());
+
+        assertNull(ProtocoloBinario.lerQuadro(entrada));
+    }
+
+    @Test
+    void respostaDivididaEmQuadros() throws IOException {
+        List<Resultado> resultados = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            resultados.add(new Resultado("Título " + i, "Resumo", "cs.LG", "s", i));
+        }
+        long tamanhoResultado = 12 + resultados.get(0).tamanhoFragmento();
+        List<ByteBuffer> quadros = ProtocoloBinario.codificarRespostaDividida(5, "s", 2, 40, resultados,
+                tamanhoResultado * 4);
+        assertEquals(3, quadros.size());
+
+        DataInputStream entrada = stream(quadros.toArray(ByteBuffer[]::new));
+        List<Resultado> recebidos = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            RespostaShard parcial = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+            assertEquals(RespostaShard.PARCIAL, parcial.getTipo());
+            assertEquals(4, parcial.getResultados().size());
+            recebidos.addAll(parcial.getResultados());
+        }
+        RespostaShard ultima = ProtocoloBinario.lerResposta(ProtocoloBinario.lerQuadro(entrada));
+        assertEquals(RespostaShard.RESPOSTA, ultima.getTipo());
+        assertEquals(40, ultima.getTotal());
+        assertEquals(2, ultima.getVersao());
+        recebidos.addAll(ultima.getResultados());
+        assertNull(ProtocoloBinario.lerQuadro(entrada));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Título " + i, recebidos.get(i).getTitulo());
+            assertEquals(i, recebidos.get(i).getPontuacao());
+        }
+    }
+
+    @Test
+    void respostaPequenaVaiEmUmQuadro() {
+        List<ByteBuffer> quadros = ProtocoloBinario.codificarRespostaDividida(1, "s", 0, 0, List.of());
+        assertEquals(1, quadros.size());
+        assertEquals(ProtocoloBinario.RESPOSTA, quadros.get(0).get(4));
+
+        // Um resultado maior que o bloco vai sozinho em vez de ser perdido
+        Resultado grande = new Resultado("t", "x".repeat(1000), "l", "s", Double.NaN);
+        assertEquals(3, ProtocoloBinario.dividir(List.of(grande, grande, grande), 100).size());
+    }
+
+    @Test
+    void quadroComTamanhoInvalido() {
+        DataInputStream negativo = new DataInputStream(new ByteArrayInputStream(new byte[] {-1, -1, -1, -1}));
+        assertThrows(IOException.class, () -> ProtocoloBinario.lerQuadro(negativo));
+
+        ByteBuffer grande = ByteBuffer.allocate(4).putInt(ProtocoloBinario.TAMANHO_MAXIMO_QUADRO + 1);
+        assertThrows(IOException.class, () -> ProtocoloBinario.lerQuadro(stream(grande.flip())));
+    }
+
+    @Test
+    void quadroCortado() {
+        ByteBuffer quadro = ProtocoloBinario.codificarOcupado(1, "servidor");
+        ByteBuffer cortado = ByteBuffer.wrap(quadro.array(), 0, quadro.remaining() - 2);
+        assertThrows(IOException.class, () -> ProtocoloBinario.lerQuadro(stream(cortado)));
+    }
+
+    @Test
+    void conteudoCorrompidoERecusado() throws IOException {
+        ByteBuffer tipoDesconhecido = ByteBuffer.allocate(9).put((byte) 99).putLong(1).flip();
+        assertThrows(IllegalArgumentException.class, () -> ProtocoloBinario.lerRequisicao(tipoDesconhecido));
+
+        // Uma busca cortada no meio da query
+        ByteBuffer busca = idaEVolta(ProtocoloBinario.codificar(RequisicaoShard.busca("neural", false, 0)));
+        ByteBuffer cortada = busca.slice(0, busca.remaining() - 6);
+        assertThrows(IllegalArgumentException.class, () -> ProtocoloBinario.lerRequisicao(cortada));
+
+        // Quantidade de resultados maior do que cabe no quadro
+        ByteBuffer resposta = idaEVolta(ProtocoloBinario.codificarResposta(1, "s", 0, 0, List.of()));
+        resposta.putInt(resposta.limit() - 4, 1_000_000);
+        assertThrows(IllegalArgumentException.class, () -> ProtocoloBinario.lerResposta(resposta));
+    }
+
+    @Test
+    void preambulo() throws IOException {
+        assertTrue(ProtocoloBinario.lerPreambulo(new ByteArrayInputStream(ProtocoloBinario.PREAMBULO)));
+        byte[] anterior = ProtocoloBinario.PREAMBULO.clone();
+        anterior[anterior.length - 1]--;
+        assertFalse(ProtocoloBinario.lerPreambulo(new ByteArrayInputStream(anterior)));
+        assertEquals(0, ProtocoloBinario.PREAMBULO[0], "o primeiro byte nunca inicia uma linha de texto");
+    }
+}
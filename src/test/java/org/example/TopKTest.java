@@ -0,0 +1,112 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    /**
+     * Os K melhores por ordenação completa: maior pontuação primeiro e, no empate, menor artigo.
+     */
+    private static int[] esperados(double[] pontuacoes, int k) {
+        return IntStream.range(0, pontuacoes.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> pontuacoes[i]).reversed()
+                        .thenComparingInt(i -> i))
+                .limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void comoOrdenarTudo() {
+        Random aleatorio = new Random(13);
+        for (int rodada = 0; rodada < 200; rodada++) {
+            int quantidade = aleatorio.nextInt(300);
+            int k = aleatorio.nextInt(50);
+            double[] pontuacoes = new double[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                // Poucos valores distintos, para haver muitos empates
+                pontuacoes[i] = aleatorio.nextInt(20) - 5;
+            }
+
+            // Os artigos chegam fora de ordem, como de várias partes de uma busca paralela
+            int[] ordemChegada = IntStream.range(0, quantidade).toArray();
+            for (int i = quantidade - 1; i > 0; i--) {
+                int j = aleatorio.nextInt(i + 1);
+                int troca = ordemChegada[i];
+                ordemChegada[i] = ordemChegada[j];
+                ordemChegada[j] = troca;
+            }
+
+            TopK topK = new TopK(k);
+            for (int artigo : ordemChegada) {
+                topK.adicionar(artigo, pontuacoes[artigo]);
+            }
+            int[] esperados = esperados(pontuacoes, k);
+            assertEquals(esperados.length, topK.tamanho());
+
+            double[] ordenadas = new double[topK.tamanho()];
+            int[] ordenados = topK.ordenar(ordenadas);
+            assertArrayEquals(esperados, ordenados, "rodada " + rodada);
+            for (int i = 0; i < ordenados.length; i++) {
+                assertEquals(pontuacoes[ordenados[i]], ordenadas[i]);
+            }
+        }
+    }
+
+    @Test
+    void capacidadeZero() {
+        TopK topK = new TopK(0);
+        topK.adicionar(1, 10);
+        assertEquals(0, topK.tamanho());
+        assertArrayEquals(new int[0], topK.ordenar(new double[0]));
+    }
+
+    @Test
+    void menosArtigosQueACapacidade() {
+        TopK topK = new TopK(10);
+        topK.adicionar(5, 1.0);
+        topK.adicionar(2, 3.0);
+        topK.adicionar(9, -1.0);
+
+        double[] pontuacoes = new double[3];
+        assertArrayEquals(new int[] {2, 5, 9}, topK.ordenar(pontuacoes));
+        assertArrayEquals(new double[] {3.0, 1.0, -1.0}, pontuacoes);
+    }
+
+    @Test
+    void empateFicaComOMenorArtigo() {
+        TopK topK = new TopK(2);
+        topK.adicionar(7, 1.0);
+        topK.adicionar(3, 1.0);
+        topK.adicionar(5, 1.0);
+        topK.adicionar(1, 0.5);
+        assertArrayEquals(new int[] {3, 5}, topK.ordenar(new double[2]));
+    }
+
+    @Test
+    void ordenarEsvaziaEPermiteReusar() {
+        TopK topK = new TopK(3);
+        topK.adicionar(1, 1);
+        topK.ordenar(new double[1]);
+        assertEquals(0, topK.tamanho());
+
+        topK.adicionar(4, 2);
+        topK.adicionar(2, 9);
+        assertArrayEquals(new int[] {2, 4}, topK.ordenar(new double[2]));
+    }
+
+    @Test
+    void pontuacoesNaoMudamAoOrdenar() {
+        TopK topK = new TopK(4);
+        double[] pontuacoes = {0.25, 7.5, 7.5, 1e-9, Double.MAX_VALUE};
+        for (int i = 0; i < pontuacoes.length; i++) {
+            topK.adicionar(i, pontuacoes[i]);
+        }
+        double[] ordenadas = new double[4];
+        assertArrayEquals(new int[] {4, 1, 2, 0}, topK.ordenar(ordenadas));
+        assertArrayEquals(new double[] {Double.MAX_VALUE, 7.5, 7.5, 0.25}, ordenadas);
+    }
+}